@@ -23,6 +23,9 @@ import io.netty.handler.traffic.AbstractTrafficShapingHandler;
 import org.waarp.common.logging.SysErrLogger;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.metrics.Histogram;
+import org.waarp.common.metrics.MetricFamily;
+import org.waarp.common.metrics.MetricsRegistry;
 import org.waarp.common.utility.ThreadLocalRandom;
 
 import java.util.LinkedList;
@@ -39,6 +42,14 @@ public abstract class WaarpConstraintLimitHandler implements Runnable {
   private static final WaarpLogger logger =
       WaarpLoggerFactory.getLogger(WaarpConstraintLimitHandler.class);
 
+  /**
+   * Time spent in checkConstraintsSleep, by result
+   */
+  private static final MetricFamily<Histogram> CONSTRAINT_WAIT =
+      MetricsRegistry.getInstance().histogram(
+          "waarp_constraint_wait_seconds",
+          "Time spent waiting on the constraint limit handler", "result");
+
   private static final String NOALERT = "noAlert";
   public static final long LOWBANDWIDTH_DEFAULT = 1048576;
   public String lastAlert = NOALERT;
@@ -330,6 +341,16 @@ public abstract class WaarpConstraintLimitHandler implements Runnable {
     if (!isServer) {
       return false;
     }
+    final long start = MetricsRegistry.startTimer();
+    final boolean overloaded = sleepOnConstraints(step);
+    if (start != 0) {
+      CONSTRAINT_WAIT.labels(overloaded? "overloaded" : "ok")
+                     .observeSince(start);
+    }
+    return overloaded;
+  }
+
+  private boolean sleepOnConstraints(final int step) {
     long delayNew = waitForNetOp >> 1;
     if (useCpuLimits && cpuLimit < 1 && cpuLimit > 0) {
       final long newTime = System.currentTimeMillis();
@@ -70,6 +70,31 @@ public abstract class KeyObject {
    */
   Key secretKey;
 
+  /**
+   * Cipher initialized for encryption, reused by each thread
+   */
+  private final ThreadLocal<CachedCipher> cryptCipher =
+      new ThreadLocal<CachedCipher>();
+
+  /**
+   * Cipher initialized for decryption, reused by each thread
+   */
+  private final ThreadLocal<CachedCipher> decryptCipher =
+      new ThreadLocal<CachedCipher>();
+
+  /**
+   * Cipher with the key it was initialized with
+   */
+  private static final class CachedCipher {
+    private final Cipher cipher;
+    private final Key key;
+
+    private CachedCipher(final Cipher cipher, final Key key) {
+      this.cipher = cipher;
+      this.key = key;
+    }
+  }
+
   /**
    * Empty constructor
    */
@@ -240,10 +265,11 @@ public abstract class KeyObject {
       throw new CryptoException("Key not Ready");
     }
     try {
-      final Cipher cipher = Cipher.getInstance(getInstance());
-      cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-      return cipher.doFinal(plaintext);
+      // doFinal resets the cipher to its initialized state
+      return getCipher(cryptCipher, getInstance(), Cipher.ENCRYPT_MODE)
+          .doFinal(plaintext);
     } catch (final Exception e) {
+      cryptCipher.remove();
       logger.warn("Crypt Error", e);
       throw e;
     }
@@ -321,15 +347,40 @@ public abstract class KeyObject {
       throw new CryptoException("Key not Ready");
     }
     try {
-      final Cipher cipher = Cipher.getInstance(getAlgorithm());
-      cipher.init(Cipher.DECRYPT_MODE, secretKey);
-      return cipher.doFinal(ciphertext);
+      // doFinal resets the cipher to its initialized state
+      return getCipher(decryptCipher, getAlgorithm(), Cipher.DECRYPT_MODE)
+          .doFinal(ciphertext);
     } catch (final Exception e) {
+      decryptCipher.remove();
       logger.warn("Decrypt Error", e);
       throw e;
     }
   }
 
+  /**
+   * @param cache the per thread Cipher
+   * @param transformation
+   * @param mode
+   *
+   * @return the Cipher of the current thread, created or initialized again
+   *     if the key changed
+   *
+   * @throws Exception
+   */
+  private Cipher getCipher(final ThreadLocal<CachedCipher> cache,
+                           final String transformation, final int mode)
+      throws Exception {
+    final Key key = secretKey;
+    final CachedCipher cached = cache.get();
+    if (cached != null && cached.key == key) {
+      return cached.cipher;
+    }
+    final Cipher cipher = Cipher.getInstance(transformation);
+    cipher.init(mode, key);
+    cache.set(new CachedCipher(cipher, key));
+    return cipher;
+  }
+
   /**
    * Decrypt an array of bytes and returns the uncrypted String
    *
@@ -83,6 +83,7 @@ public class ConnectionFactory {
 
   private int maxConnections = MAX_CONNECTIONS_DEFAULT;
   private int maxIdle = MAX_IDLE_DEFAULT;
+  private int maxStatements;
 
   /**
    * The datasource for connection pooling
@@ -182,6 +183,13 @@ public class ConnectionFactory {
     ds.setDefaultAutoCommit(AUTOCOMMIT);
     ds.setDefaultReadOnly(READONLY);
     ds.setValidationQuery(this.properties.getValidationQuery());
+    // Prepared statements pooled by SQL text for each connection
+    maxStatements = SystemPropertyUtil.get(
+        SystemPropertyUtil.WAARP_DATABASE_STATEMENT_CACHE, 0);
+    if (maxStatements > 0) {
+      ds.setPoolPreparedStatements(true);
+      ds.setMaxOpenPreparedStatements(maxStatements);
+    }
 
     // Get maximum connections
     Connection con = null;
@@ -241,6 +249,14 @@ public class ConnectionFactory {
     return maxConnections;
   }
 
+  /**
+   * @return the maximum number of pooled prepared statements per connection,
+   *     0 if statements are not pooled
+   */
+  public int getMaxStatements() {
+    return maxStatements;
+  }
+
   /**
    * @return the JDBC connection url property
    */
@@ -282,6 +298,8 @@ public class ConnectionFactory {
     sb.append(READONLY);
     sb.append(", max connecions:");
     sb.append(maxConnections);
+    sb.append(", pooled statements:");
+    sb.append(maxStatements);
 
     return sb.toString();
   }
@@ -19,6 +19,8 @@
  */
 package org.waarp.common.file.filesystembased;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import org.waarp.common.command.exception.CommandAbstractException;
 import org.waarp.common.exception.FileEndOfTransferException;
 import org.waarp.common.exception.FileTransferException;
@@ -37,6 +39,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 
 /**
@@ -363,9 +366,27 @@ public abstract class FilesystemBasedFileImpl extends AbstractFile {
   @Override
   public DataBlock readDataBlock()
       throws FileTransferException, FileEndOfTransferException {
+    return readDataBlock(null);
+  }
+
+  /**
+   * Same as {@link #readDataBlock()} but reading into the given buffer
+   * instead of the internal one reused by each read, such that the caller
+   * may keep several blocks in flight
+   *
+   * @param bytes the buffer to read into, of the block size length, or null
+   *     to use the internal one (not used for the last block if shorter)
+   *
+   * @return the block
+   *
+   * @throws FileTransferException
+   * @throws FileEndOfTransferException
+   */
+  public DataBlock readDataBlock(final byte[] bytes)
+      throws FileTransferException, FileEndOfTransferException {
     if (isReady) {
       final DataBlock dataBlock = new DataBlock();
-      final byte[] buffer = getByteBlock(getSession().getBlockSize());
+      final byte[] buffer = getByteBlock(bytes, getSession().getBlockSize());
       if (buffer != null) {
         dataBlock.setBlock(buffer);
         if (dataBlock.getByteCount() < getSession().getBlockSize()) {
@@ -494,6 +515,57 @@ public abstract class FilesystemBasedFileImpl extends AbstractFile {
     }
   }
 
+  /**
+   * Write the current FileInterface with the readable bytes of the given
+   * ByteBuf, directly through the FileChannel (gathering write if the
+   * ByteBuf is composite), without copy into a heap array.
+   * <p>
+   * The reader index of the buffer is not changed, and the buffer is not
+   * released. In case of error, the current already written blocks are
+   * maintained and the position is not changed.
+   *
+   * @param buffer added to the file
+   *
+   * @throws FileTransferException
+   */
+  public void writeByteBuf(final ByteBuf buffer) throws FileTransferException {
+    final int length = buffer == null? 0 : buffer.readableBytes();
+    if (length > 0 && !isReady) {
+      throw new FileTransferException(NO_FILE_IS_READY);
+    }
+    // An empty buffer is allowed
+    if (length == 0) {
+      return;
+    }
+    if (fileOutputStream == null) {
+      fileOutputStream = getFileOutputStream(position > 0);
+    }
+    if (fileOutputStream == null) {
+      throw new FileTransferException(INTERNAL_ERROR_FILE_IS_NOT_READY);
+    }
+    final FileChannel fileChannel = fileOutputStream.getChannel();
+    int index = buffer.readerIndex();
+    int remaining = length;
+    try {
+      while (remaining > 0) {
+        final int written = buffer.getBytes(index, fileChannel, remaining);
+        index += written;
+        remaining -= written;
+      }
+    } catch (final IOException e2) {
+      logger.error("Error during write:", e2);
+      try {
+        closeFile();
+      } catch (final CommandAbstractException ignored) {
+        // nothing
+      }
+      // NO this.realFile.delete(); NO DELETE SINCE BY BLOCK IT CAN BE
+      // REDO
+      throw new FileTransferException(INTERNAL_ERROR_FILE_IS_NOT_READY);
+    }
+    position += length;
+  }
+
   private void checkByteBufSize(final int size) {
     if (reusableBytes == null || reusableBytes.length != size) {
       reusableBytes = new byte[size];
@@ -509,6 +581,7 @@ public abstract class FilesystemBasedFileImpl extends AbstractFile {
    * than sizeblock length, it is the
    * last block to read.
    *
+   * @param bytes the array to read into, or null to use the reused one
    * @param sizeblock is the limit size for the block array
    *
    * @return the resulting block of bytes (even empty)
@@ -516,7 +589,7 @@ public abstract class FilesystemBasedFileImpl extends AbstractFile {
    * @throws FileTransferException
    * @throws FileEndOfTransferException
    */
-  private byte[] getByteBlock(final int sizeblock)
+  private byte[] getByteBlock(final byte[] bytes, final int sizeblock)
       throws FileTransferException, FileEndOfTransferException {
     if (!isReady) {
       throw new FileTransferException(NO_FILE_IS_READY);
@@ -526,18 +599,94 @@ public abstract class FilesystemBasedFileImpl extends AbstractFile {
       if (fileInputStream == null) {
         throw new FileTransferException(INTERNAL_ERROR_FILE_IS_NOT_READY);
       }
+    }
+    if (bytes == null) {
       checkByteBufSize(sizeblock);
     }
+    final byte[] target = bytes != null? bytes : reusableBytes;
+    int sizeout = 0;
+    while (sizeout < sizeblock) {
+      try {
+        final int sizeread =
+            fileInputStream.read(target, sizeout, sizeblock - sizeout);
+        if (sizeread <= 0) {
+          break;
+        }
+        sizeout += sizeread;
+      } catch (final IOException e) {
+        logger.error(ERROR_DURING_GET, e);
+        try {
+          closeFile();
+        } catch (final CommandAbstractException ignored) {
+          // nothing
+        }
+        throw new FileTransferException(INTERNAL_ERROR_FILE_IS_NOT_READY);
+      }
+    }
+    if (sizeout <= 0) {
+      try {
+        closeFile();
+      } catch (final CommandAbstractException ignored) {
+        // nothing
+      }
+      isReady = false;
+      throw new FileEndOfTransferException("End of file");
+    }
+    position += sizeout;
+    byte[] buffer = target;
+    if (sizeout < sizeblock) {// last block
+      buffer = Arrays.copyOfRange(target, 0, sizeout);
+      try {
+        closeFile();
+      } catch (final CommandAbstractException ignored) {
+        // nothing
+      }
+      isReady = false;
+    }
+    return buffer;
+  }
+
+  /**
+   * Get the next block of the current FileInterface directly into a ByteBuf
+   * allocated from the given allocator (direct buffer), reading through the
+   * FileChannel so without any intermediate heap array.
+   * <p>
+   * The returned block is limited to sizeblock. If the returned block is less
+   * than sizeblock length, it is the last block to read.
+   *
+   * @param allocator the allocator to use (pooled preferably)
+   * @param sizeblock is the limit size for the block
+   *
+   * @return the resulting ByteBuf, to be released by the caller
+   *
+   * @throws FileTransferException
+   * @throws FileEndOfTransferException
+   */
+  public ByteBuf readByteBuf(final ByteBufAllocator allocator,
+                             final int sizeblock)
+      throws FileTransferException, FileEndOfTransferException {
+    if (!isReady) {
+      throw new FileTransferException(NO_FILE_IS_READY);
+    }
+    if (fileInputStream == null) {
+      fileInputStream = getFileInputStream();
+      if (fileInputStream == null) {
+        throw new FileTransferException(INTERNAL_ERROR_FILE_IS_NOT_READY);
+      }
+    }
+    final FileChannel fileChannel = fileInputStream.getChannel();
+    final ByteBuf buffer = allocator.directBuffer(sizeblock, sizeblock);
     int sizeout = 0;
     while (sizeout < sizeblock) {
       try {
         final int sizeread =
-            fileInputStream.read(reusableBytes, sizeout, sizeblock - sizeout);
+            buffer.writeBytes(fileChannel, sizeblock - sizeout);
         if (sizeread <= 0) {
           break;
         }
         sizeout += sizeread;
       } catch (final IOException e) {
+        buffer.release();
         logger.error(ERROR_DURING_GET, e);
         try {
           closeFile();
@@ -548,6 +697,7 @@ public abstract class FilesystemBasedFileImpl extends AbstractFile {
       }
     }
     if (sizeout <= 0) {
+      buffer.release();
       try {
         closeFile();
       } catch (final CommandAbstractException ignored) {
@@ -557,9 +707,7 @@ public abstract class FilesystemBasedFileImpl extends AbstractFile {
       throw new FileEndOfTransferException("End of file");
     }
     position += sizeout;
-    byte[] buffer = reusableBytes;
     if (sizeout < sizeblock) {// last block
-      buffer = Arrays.copyOfRange(reusableBytes, 0, sizeout);
       try {
         closeFile();
       } catch (final CommandAbstractException ignored) {
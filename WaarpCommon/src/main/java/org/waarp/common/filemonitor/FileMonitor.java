@@ -37,11 +37,21 @@ import org.waarp.common.json.JsonHandler;
 import org.waarp.common.logging.SysErrLogger;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.utility.WaarpStringUtils;
 import org.waarp.common.utility.WaarpThreadFactory;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -53,6 +63,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
@@ -77,6 +88,11 @@ public class FileMonitor {
   protected static final long MINIMAL_DELAY = 100;
   protected static final long DEFAULT_DELAY = 1000;
   protected static final long DEFAULT_CHECK_DELAY = 300000; // 5 minutes
+  /**
+   * Minimal age of a directory modification time before its listing can be
+   * reused (covers coarse filesystem time granularity)
+   */
+  protected static final long LISTING_GRANULARITY = 2000;
 
   protected WaarpFuture future;
   protected WaarpFuture internalfuture;
@@ -96,6 +112,32 @@ public class FileMonitor {
 
   protected boolean ignoreAlreadyUsed = false;
 
+  /**
+   * < 0: full digest, 0: no digest (size and time only), > 0: digest of
+   * first and last bytes
+   */
+  protected int digestSampleSize = -1;
+  protected boolean incrementalScan;
+  protected final ConcurrentHashMap<String, DirectoryListing>
+      directoryListings = new ConcurrentHashMap<String, DirectoryListing>();
+  protected int scanThreads;
+  protected ExecutorService scanner;
+  /**
+   * Lock used to keep sequential the commands run directly by scanners
+   */
+  protected final Object commandLock = new Object();
+
+  /**
+   * Maximum number of changes appended to the status journal before a full
+   * status rewrite (0 means always full rewrite)
+   */
+  protected int statusJournalMax;
+  protected File statusJournalFile;
+  protected int statusJournalEntries;
+  protected final HashMap<String, FileItem> savedFileItems =
+      new HashMap<String, FileItem>();
+  protected boolean savedFileItemsValid;
+
   protected boolean initialized;
   protected File checkFile;
 
@@ -186,6 +228,7 @@ public class FileMonitor {
     this.commandCheckIteration = commandCheckIteration;
     if (statusFile != null) {
       checkFile = new File(statusFile.getAbsolutePath() + ".chk");
+      statusJournalFile = new File(statusFile.getAbsolutePath() + ".journal");
     }
     reloadStatus();
     setNextDay();
@@ -260,6 +303,71 @@ public class FileMonitor {
     this.ignoreAlreadyUsed = ignoreAlreadyUsed;
   }
 
+  /**
+   * @return the digest sample size
+   */
+  public int getDigestSampleSize() {
+    return digestSampleSize;
+  }
+
+  /**
+   * Define how stability of a file is checked once its size and last
+   * modification time did not change between 2 scans
+   *
+   * @param digestSampleSize if < 0 (default), the full file is digested
+   *     on each scan; if 0, no digest is computed and the file is valid
+   *     once its size and time are stable for one more scan; if > 0, only
+   *     the first and last digestSampleSize bytes are digested
+   */
+  public void setDigestSampleSize(final int digestSampleSize) {
+    this.digestSampleSize = digestSampleSize;
+  }
+
+  /**
+   * @return True if directory listings are reused while directories are
+   *     unchanged
+   */
+  public boolean isIncrementalScan() {
+    return incrementalScan;
+  }
+
+  /**
+   * @param incrementalScan if True, a directory is listed again only when
+   *     its modification time changed, else the previous listing is
+   *     checked again
+   */
+  public void setIncrementalScan(final boolean incrementalScan) {
+    this.incrementalScan = incrementalScan;
+    directoryListings.clear();
+  }
+
+  /**
+   * @return the number of threads used to scan directories in parallel
+   */
+  public int getScanThreads() {
+    return scanThreads;
+  }
+
+  /**
+   * Must be called before start()
+   *
+   * @param scanThreads if > 1, the registered directories are scanned in
+   *     parallel by at most this number of threads, so that one slow
+   *     directory does not delay the others
+   */
+  public void setScanThreads(final int scanThreads) {
+    this.scanThreads = scanThreads;
+  }
+
+  /**
+   * @param statusJournalMax if > 0, changes of the status are appended
+   *     to a journal next to the status file, the status file being fully
+   *     rewritten only once this number of changes is reached
+   */
+  public void setStatusJournalMax(final int statusJournalMax) {
+    this.statusJournalMax = statusJournalMax;
+  }
+
   /**
    * @param checkDelay the delay before checking if action was
    *     correctly taken
@@ -290,6 +398,7 @@ public class FileMonitor {
     synchronized (directories) {
       directories.remove(directory);
     }
+    directoryListings.clear();
   }
 
   protected void setThreadName() {
@@ -351,6 +460,7 @@ public class FileMonitor {
                        new TypeReference<HashMap<String, FileItem>>() {
                        });
         fileItems.putAll(newHashMap);
+        replayStatusJournal();
         initialized = true;
       } catch (final JsonParseException ignored) {
         SysErrLogger.FAKE_LOGGER.ignoreLog(ignored);
@@ -369,13 +479,127 @@ public class FileMonitor {
     return initialized;
   }
 
+  /**
+   * Apply the status changes appended since the last full status
+   *
+   * @throws IOException
+   */
+  protected void replayStatusJournal() throws IOException {
+    if (statusJournalFile == null || !statusJournalFile.exists()) {
+      return;
+    }
+    final BufferedReader reader = new BufferedReader(
+        new InputStreamReader(new FileInputStream(statusJournalFile),
+                              WaarpStringUtils.UTF8));
+    try {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        final StatusChange change;
+        try {
+          change = JsonHandler.mapper.readValue(line, StatusChange.class);
+        } catch (final IOException e) {
+          // last line may be incomplete after a crash
+          logger.warn("Incomplete status journal: {}", e.getMessage());
+          break;
+        }
+        if (change.item == null) {
+          fileItems.remove(change.key);
+        } else {
+          fileItems.put(change.key, change.item);
+        }
+        statusJournalEntries++;
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * @return the changes since the last save, updating the saved view
+   */
+  private List<StatusChange> getStatusChanges() {
+    final List<StatusChange> changes = new ArrayList<StatusChange>();
+    for (final Entry<String, FileItem> entry : fileItems.entrySet()) {
+      final FileItem saved = savedFileItems.get(entry.getKey());
+      if (!entry.getValue().isSameSaved(saved)) {
+        final FileItem clone = entry.getValue().clone();
+        savedFileItems.put(entry.getKey(), clone);
+        changes.add(new StatusChange(entry.getKey(), clone));
+      }
+    }
+    final List<String> removed = new ArrayList<String>();
+    for (final String key : savedFileItems.keySet()) {
+      if (!fileItems.containsKey(key)) {
+        removed.add(key);
+      }
+    }
+    for (final String key : removed) {
+      savedFileItems.remove(key);
+      changes.add(new StatusChange(key, null));
+    }
+    return changes;
+  }
+
+  /**
+   * Append the changes to the status journal
+   *
+   * @param changes
+   *
+   * @throws IOException
+   */
+  private void appendStatusJournal(final List<StatusChange> changes)
+      throws IOException {
+    final Writer writer = new OutputStreamWriter(
+        new FileOutputStream(statusJournalFile, true),
+        WaarpStringUtils.UTF8);
+    try {
+      for (final StatusChange change : changes) {
+        writer.write(JsonHandler.writeAsString(change));
+        writer.write('\n');
+      }
+    } finally {
+      writer.close();
+    }
+    statusJournalEntries += changes.size();
+  }
+
+  /**
+   * Rewrite fully the status
+   *
+   * @throws IOException
+   */
+  private void writeFullStatus() throws IOException {
+    JsonHandler.mapper.writeValue(statusFile, fileItems);
+    if (statusJournalFile.exists() && !statusJournalFile.delete()) {
+      logger.warn("Cannot delete status journal: {}", statusJournalFile);
+    }
+    statusJournalEntries = 0;
+  }
+
   protected void saveStatus() {
     if (statusFile == null) {
       return;
     }
     synchronized (directories) {
       try {
-        JsonHandler.mapper.writeValue(statusFile, fileItems);
+        if (statusJournalMax <= 0) {
+          writeFullStatus();
+        } else if (!savedFileItemsValid) {
+          writeFullStatus();
+          savedFileItems.clear();
+          getStatusChanges();
+          savedFileItemsValid = true;
+        } else {
+          final List<StatusChange> changes = getStatusChanges();
+          if (statusJournalEntries + changes.size() > statusJournalMax) {
+            writeFullStatus();
+          } else if (!changes.isEmpty()) {
+            appendStatusJournal(changes);
+          }
+        }
         createChkFile();
       } catch (final JsonGenerationException ignored) {
         SysErrLogger.FAKE_LOGGER.ignoreLog(ignored);
@@ -488,6 +712,12 @@ public class FileMonitor {
               new WaarpThreadFactory("FileMonitorRunner_" + name));
         }
       }
+      if (scanThreads > 1 && scanner == null) {
+        scanner = Executors.newFixedThreadPool(scanThreads,
+                                               new WaarpThreadFactory(
+                                                   "FileMonitorScanner_" +
+                                                   name));
+      }
       timer.newTimeout(new FileMonitorTimerTask(this), elapseTime,
                        TimeUnit.MILLISECONDS);
     } // else already started
@@ -521,6 +751,10 @@ public class FileMonitor {
       executor.shutdown();
       executor = null;
     }
+    if (scanner != null) {
+      scanner.shutdown();
+      scanner = null;
+    }
     deleteChkFile();
     if (future != null) {
       future.setSuccess();
@@ -579,14 +813,42 @@ public class FileMonitor {
     if (checkStop()) {
       return false;
     }
+    final List<File> toScan;
     synchronized (directories) {
-      for (final File directory : directories) {
+      toScan = new ArrayList<File>(directories);
+    }
+    boolean error = false;
+    final ExecutorService scannerPool = scanner;
+    if (scannerPool != null && toScan.size() > 1) {
+      final List<Future<Boolean>> scans = new ArrayList<Future<Boolean>>();
+      for (final File directory : toScan) {
+        scans.add(scannerPool.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() {
+            logger.info("Scan: {}", directory);
+            return checkOneDir(false, directory);
+          }
+        }));
+      }
+      for (final Future<Boolean> scan : scans) {
+        try {
+          fileItemsChanged |= scan.get();
+        } catch (final InterruptedException e) {//NOSONAR
+          SysErrLogger.FAKE_LOGGER.ignoreLog(e);
+          logger.info("Interruption so exit");
+          error = true;
+        } catch (final ExecutionException e) {
+          logger.error("Exception during scan", e);
+          error = true;
+        }
+      }
+    } else {
+      for (final File directory : toScan) {
         logger.info("Scan: {}", directory);
         fileItemsChanged = checkOneDir(fileItemsChanged, directory);
       }
     }
     setThreadName();
-    boolean error = false;
     // Wait for all commands to finish before continuing
     for (final Future<?> futureResult : results) {
       createChkFile();
@@ -702,8 +964,8 @@ public class FileMonitor {
   protected boolean checkOneDir(boolean fileItemsChanged,
                                 final File directory) {
     try {
-      File[] files = directory.listFiles(filter);
-      for (final File file : files) {
+      final DirectoryListing listing = getListing(directory);
+      for (final File file : listing.files) {
         if (checkStop()) {
           return false;
         }
@@ -712,19 +974,16 @@ public class FileMonitor {
         }
         final String newName =
             AbstractDir.normalizePath(file.getAbsolutePath());
-        final FileItem fileItem;
-        synchronized (directories) {
-          fileItem = fileItems.get(newName);
-          if (fileItem == null) {
-            // never seen until now
-            fileItems.put(newName, new FileItem(file));
-            fileItemsChanged = true;
-            continue;
-          }
-          if (fileItem.used && ignoreAlreadyUsed) {
-            // already used so ignore
-            continue;
-          }
+        final FileItem fileItem = fileItems.get(newName);
+        if (fileItem == null) {
+          // never seen until now
+          fileItems.putIfAbsent(newName, new FileItem(file));
+          fileItemsChanged = true;
+          continue;
+        }
+        if (fileItem.used && ignoreAlreadyUsed) {
+          // already used so ignore
+          continue;
         }
         logger.debug("File check: {}", fileItem);
         final long size = fileItem.file.length();
@@ -740,8 +999,7 @@ public class FileMonitor {
         }
         // now check Hash or third time
         try {
-          final byte[] hash =
-              FilesystemBasedDigest.getHash(fileItem.file, true, digest);
+          final byte[] hash = getFileHash(fileItem);
           if (hash == null || fileItem.hash == null) {
             // First set
             fileItemsChanged = isFileItemsChangedOnHash(fileItem, hash);
@@ -782,7 +1040,9 @@ public class FileMonitor {
               final Future<?> torunFuture = executor.submit(torun);
               results.add(torunFuture);
             } else {
-              torun.run(fileItem);
+              synchronized (commandLock) {
+                torun.run(fileItem);
+              }
             }
           } else if (commandValidFile != null) {
             if (!commandValidFile.checkFileItemBusiness(fileItem)) {
@@ -792,7 +1052,9 @@ public class FileMonitor {
             if (toIgnore) {
               continue;
             }
-            commandValidFile.run(fileItem);
+            synchronized (commandLock) {
+              commandValidFile.run(fileItem);
+            }
           } else {
             if (toIgnore) {
               continue;
@@ -806,14 +1068,11 @@ public class FileMonitor {
         }
       }
       if (scanSubDir) {
-        files = directory.listFiles();
-        for (final File file : files) {
+        for (final File file : listing.subDirs) {
           if (checkStop()) {
             return false;
           }
-          if (file.isDirectory()) {
-            fileItemsChanged = checkOneDir(fileItemsChanged, file);
-          }
+          fileItemsChanged = checkOneDir(fileItemsChanged, file);
         }
       }
     } catch (final Throwable e) {
@@ -824,6 +1083,87 @@ public class FileMonitor {
     return fileItemsChanged;
   }
 
+  /**
+   * @param directory
+   *
+   * @return the current listing of this directory, reusing the previous one
+   *     if incremental scan is active and the directory did not change
+   *     since
+   */
+  protected DirectoryListing getListing(final File directory) {
+    final String key = directory.getAbsolutePath();
+    final long lastModified = directory.lastModified();
+    if (incrementalScan) {
+      final DirectoryListing listing = directoryListings.get(key);
+      if (listing != null && listing.lastModified == lastModified &&
+          lastModified + LISTING_GRANULARITY < listing.listedAt) {
+        return listing;
+      }
+    }
+    final long listedAt = System.currentTimeMillis();
+    final File[] files = directory.listFiles(filter);
+    File[] subDirs = null;
+    if (scanSubDir) {
+      subDirs = directory.listFiles(new FileFilter() {
+        @Override
+        public boolean accept(final File pathname) {
+          return pathname.isDirectory();
+        }
+      });
+    }
+    final DirectoryListing listing =
+        new DirectoryListing(lastModified, listedAt, files, subDirs);
+    if (incrementalScan && files != null) {
+      directoryListings.put(key, listing);
+    }
+    return listing;
+  }
+
+  /**
+   * @param fileItem
+   *
+   * @return the hash used to validate the stability of the file according
+   *     to the digest sample size
+   *
+   * @throws IOException
+   */
+  protected byte[] getFileHash(final FileItem fileItem) throws IOException {
+    if (digestSampleSize < 0) {
+      return FilesystemBasedDigest.getHash(fileItem.file, true, digest);
+    }
+    final byte[] stamp =
+        ByteBuffer.allocate(16).putLong(fileItem.size).putLong(fileItem.lastTime)
+                  .array();
+    if (digestSampleSize == 0) {
+      return stamp;
+    }
+    final FilesystemBasedDigest sample;
+    try {
+      sample = new FilesystemBasedDigest(digest);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IOException(e.getMessage());
+    }
+    sample.Update(stamp);
+    final RandomAccessFile randomAccessFile =
+        new RandomAccessFile(fileItem.file, "r");
+    try {
+      final long length = randomAccessFile.length();
+      final byte[] buffer = new byte[(int) Math.min(digestSampleSize, length)];
+      randomAccessFile.readFully(buffer);
+      sample.Update(buffer, 0, buffer.length);
+      if (length > buffer.length) {
+        final long position = Math.max(buffer.length, length - buffer.length);
+        final int last = (int) (length - position);
+        randomAccessFile.seek(position);
+        randomAccessFile.readFully(buffer, 0, last);
+        sample.Update(buffer, 0, last);
+      }
+    } finally {
+      randomAccessFile.close();
+    }
+    return sample.Final();
+  }
+
   private boolean isFileItemsChangedOnHash(final FileItem fileItem,
                                            final byte[] hash) {
     fileItem.hash = hash;
@@ -1005,6 +1345,42 @@ public class FileMonitor {
 
   }
 
+  /**
+   * Last listing of one directory
+   */
+  protected static class DirectoryListing {
+    protected final long lastModified;
+    protected final long listedAt;
+    protected final File[] files;
+    protected final File[] subDirs;
+
+    protected DirectoryListing(final long lastModified, final long listedAt,
+                               final File[] files, final File[] subDirs) {
+      this.lastModified = lastModified;
+      this.listedAt = listedAt;
+      this.files = files;
+      this.subDirs = subDirs;
+    }
+  }
+
+  /**
+   * One change of the status, as appended to the status journal (item is
+   * null for a removed entry)
+   */
+  public static class StatusChange {
+    public String key;
+    public FileItem item;
+
+    public StatusChange() {
+      // empty constructor for JSON
+    }
+
+    protected StatusChange(final String key, final FileItem item) {
+      this.key = key;
+      this.item = item;
+    }
+  }
+
   public enum Status {
     START, CHANGING, VALID, DONE, RESTART
   }
@@ -1059,6 +1435,20 @@ public class FileMonitor {
              (hash != null? Arrays.equals(hash, item.hash) : item.hash == null);
     }
 
+    /**
+     * @param item
+     *
+     * @return True if the given saved item has the same values (without
+     *     accessing the file)
+     */
+    protected boolean isSameSaved(final FileItem item) {
+      return item != null && size == item.size && lastTime == item.lastTime &&
+             timeUsed == item.timeUsed && used == item.used &&
+             specialId == item.specialId && status == item.status &&
+             Arrays.equals(hash, item.hash) &&
+             (file == null? item.file == null : file.equals(item.file));
+    }
+
     @Override
     public String toString() {
       return file.getAbsolutePath() + " : " + size + " : " + specialId + " : " +
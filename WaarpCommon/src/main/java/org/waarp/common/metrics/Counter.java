@@ -0,0 +1,63 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic lock free counter
+ */
+public class Counter extends Metric {
+  private final AtomicLong value = new AtomicLong();
+
+  /**
+   * Add 1 to this counter
+   */
+  public void inc() {
+    value.incrementAndGet();
+  }
+
+  /**
+   * @param delta the positive value to add to this counter
+   */
+  public void add(final long delta) {
+    if (delta > 0) {
+      value.addAndGet(delta);
+    }
+  }
+
+  /**
+   * @return the current value
+   */
+  public long get() {
+    return value.get();
+  }
+
+  @Override
+  public void reset() {
+    value.set(0);
+  }
+
+  @Override
+  void write(final StringBuilder out, final String name, final String labels) {
+    appendSeries(out, name, labels, null);
+    out.append(value.get()).append('\n');
+  }
+}
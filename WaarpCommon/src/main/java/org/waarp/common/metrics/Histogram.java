@@ -0,0 +1,166 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations in nanoseconds
+ * <p>
+ * Values are counted in log-linear buckets, as HdrHistogram does: each power
+ * of 2 is split into 8 sub-buckets, so that any quantile is known with a
+ * relative error below 12.5% whatever the range of the values, using a fixed
+ * array of 488 counters. It is exposed as a summary in seconds.
+ */
+public class Histogram extends Metric {
+  static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+  private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+  private static final double NANOS_PER_SECOND = 1.0E9;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * @param value a positive value
+   *
+   * @return the index of the bucket of this value
+   */
+  static int index(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = 63 - Long.numberOfLeadingZeros(value);
+    final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) &
+                    (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /**
+   * @param index
+   *
+   * @return the highest value counted in this bucket
+   */
+  static long upperBound(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKETS - 1;
+    final int sub = index % SUB_BUCKETS;
+    return ((SUB_BUCKETS + sub + 1L) << shift) - 1;
+  }
+
+  /**
+   * @param value the duration in nanoseconds, negative values counting
+   *     as 0
+   */
+  public void record(final long value) {
+    final long positive = Math.max(0, value);
+    buckets.incrementAndGet(index(positive));
+    count.incrementAndGet();
+    sum.addAndGet(positive);
+    long current = max.get();
+    while (positive > current && !max.compareAndSet(current, positive)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Record the time elapsed since start
+   *
+   * @param start as returned by {@link MetricsRegistry#startTimer()},
+   *     0 meaning metrics were disabled and nothing is recorded
+   */
+  public void observeSince(final long start) {
+    if (start != 0) {
+      record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * @return the number of recorded values
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return the sum of recorded values in nanoseconds
+   */
+  public long getSum() {
+    return sum.get();
+  }
+
+  /**
+   * @return the highest recorded value in nanoseconds
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param quantile between 0 and 1
+   *
+   * @return the upper bound in nanoseconds of the bucket holding this
+   *     quantile, 0 if nothing was recorded
+   */
+  public long getQuantile(final double quantile) {
+    final long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+    final long highest = max.get();
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      cumulative += buckets.get(i);
+      if (cumulative >= rank) {
+        return Math.min(upperBound(i), highest);
+      }
+    }
+    return highest;
+  }
+
+  @Override
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    max.set(0);
+  }
+
+  @Override
+  void write(final StringBuilder out, final String name, final String labels) {
+    for (final double quantile : QUANTILES) {
+      appendSeries(out, name, labels, "quantile=\"" + quantile + '"');
+      out.append(getQuantile(quantile) / NANOS_PER_SECOND).append('\n');
+    }
+    appendSeries(out, name + "_sum", labels, null);
+    out.append(sum.get() / NANOS_PER_SECOND).append('\n');
+    appendSeries(out, name + "_count", labels, null);
+    out.append(count.get()).append('\n');
+  }
+}
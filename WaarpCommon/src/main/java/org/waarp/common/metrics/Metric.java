@@ -0,0 +1,55 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.metrics;
+
+/**
+ * One series of a metric family, identified by its label values
+ */
+public abstract class Metric {
+  /**
+   * Append this series in the text exposition format
+   *
+   * @param out the output
+   * @param name the name of the family
+   * @param labels the formatted label pairs, possibly empty
+   */
+  abstract void write(StringBuilder out, String name, String labels);
+
+  /**
+   * Reset this series
+   */
+  public abstract void reset();
+
+  static void appendSeries(final StringBuilder out, final String name,
+                           final String labels, final String extra) {
+    out.append(name);
+    if (labels.length() > 0 || extra != null) {
+      out.append('{').append(labels);
+      if (extra != null) {
+        if (labels.length() > 0) {
+          out.append(',');
+        }
+        out.append(extra);
+      }
+      out.append('}');
+    }
+    out.append(' ');
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.metrics;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * All the series of one metric, one per set of label values
+ * <p>
+ * The number of series is bounded: once reached, new label values are all
+ * counted in a single series whose label values are "other", so that labels
+ * such as rules or partners cannot blow up the memory or the exposition.
+ *
+ * @param <T> the type of the metric
+ */
+public class MetricFamily<T extends Metric> {
+  /**
+   * Label value used once the maximum number of series is reached
+   */
+  public static final String OTHER = "other";
+
+  private final String name;
+  private final String help;
+  private final String type;
+  private final String[] labelNames;
+  private final int maxSeries;
+  private final Class<T> metricClass;
+  private final ConcurrentMap<String, T> series =
+      new ConcurrentHashMap<String, T>();
+  private final String otherLabels;
+
+  MetricFamily(final String name, final String help, final String type,
+               final Class<T> metricClass, final int maxSeries,
+               final String... labelNames) {
+    this.name = name;
+    this.help = help;
+    this.type = type;
+    this.metricClass = metricClass;
+    this.maxSeries = maxSeries;
+    this.labelNames = labelNames.clone();
+    final String[] others = new String[labelNames.length];
+    for (int i = 0; i < others.length; i++) {
+      others[i] = OTHER;
+    }
+    otherLabels = format(others);
+  }
+
+  /**
+   * @param values the label values, in the order of the label names,
+   *     null meaning an empty value
+   *
+   * @return the series of these label values
+   */
+  public T labels(final String... values) {
+    if (values.length != labelNames.length) {
+      throw new IllegalArgumentException(
+          name + " expects " + labelNames.length + " label values");
+    }
+    String key = format(values);
+    T metric = series.get(key);
+    if (metric != null) {
+      return metric;
+    }
+    if (series.size() >= maxSeries - 1 && !key.equals(otherLabels)) {
+      key = otherLabels;
+      metric = series.get(key);
+      if (metric != null) {
+        return metric;
+      }
+    }
+    metric = newMetric();
+    final T previous = series.putIfAbsent(key, metric);
+    return previous != null? previous : metric;
+  }
+
+  private T newMetric() {
+    try {
+      return metricClass.getConstructor().newInstance();
+    } catch (final InstantiationException e) {
+      throw new IllegalStateException(e);
+    } catch (final IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    } catch (final InvocationTargetException e) {
+      throw new IllegalStateException(e);
+    } catch (final NoSuchMethodException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private String format(final String[] values) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(labelNames[i]).append("=\"");
+      escape(builder, values[i] == null? "" : values[i], true);
+      builder.append('"');
+    }
+    return builder.toString();
+  }
+
+  static void escape(final StringBuilder builder, final String value,
+                     final boolean quote) {
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '"':
+          builder.append(quote? "\\\"" : "\"");
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+  }
+
+  /**
+   * @return the name of this family
+   */
+  public String getName() {
+    return name;
+  }
+
+  Class<T> getMetricClass() {
+    return metricClass;
+  }
+
+  /**
+   * @return the current number of series
+   */
+  public int size() {
+    return series.size();
+  }
+
+  /**
+   * Reset all series
+   */
+  public void reset() {
+    for (final T metric : series.values()) {
+      metric.reset();
+    }
+  }
+
+  /**
+   * Append this family in the text exposition format
+   *
+   * @param out
+   */
+  void write(final StringBuilder out) {
+    out.append("# HELP ").append(name).append(' ');
+    escape(out, help, false);
+    out.append('\n');
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    final Map<String, T> sorted = new TreeMap<String, T>(series);
+    for (final Map.Entry<String, T> entry : sorted.entrySet()) {
+      entry.getValue().write(out, name, entry.getKey());
+    }
+  }
+}
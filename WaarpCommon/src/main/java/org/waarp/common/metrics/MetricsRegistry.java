@@ -0,0 +1,152 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of all metric families of this JVM
+ * <p>
+ * Metrics are disabled by default: callers check {@link #isEnabled()} (or
+ * use {@link #startTimer()}) before updating them, so that the cost when
+ * disabled is a single volatile read. Families are registered once, usually
+ * in static fields, and exposed through {@link #scrape()} in the Prometheus
+ * text exposition format (version 0.0.4).
+ */
+public final class MetricsRegistry {
+  /**
+   * Content type of the text exposition format
+   */
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+  /**
+   * Default maximum number of series per family
+   */
+  public static final int DEFAULT_MAX_SERIES = 64;
+
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+  private static volatile boolean enabled;
+
+  private final ConcurrentMap<String, MetricFamily<?>> families =
+      new ConcurrentHashMap<String, MetricFamily<?>>();
+
+  private MetricsRegistry() {
+  }
+
+  /**
+   * @return the registry of this JVM
+   */
+  public static MetricsRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return True if metrics are collected
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param enabled True to collect metrics
+   */
+  public static void setEnabled(final boolean enabled) {
+    MetricsRegistry.enabled = enabled;
+  }
+
+  /**
+   * @return the current time in nanoseconds to be given to {@link
+   *     Histogram#observeSince(long)}, or 0 if metrics are disabled
+   */
+  public static long startTimer() {
+    return enabled? System.nanoTime() : 0;
+  }
+
+  /**
+   * @param name
+   * @param help
+   * @param labelNames
+   *
+   * @return the counter family of this name, created if needed
+   */
+  public MetricFamily<Counter> counter(final String name, final String help,
+                                       final String... labelNames) {
+    return register(name, help, "counter", Counter.class, labelNames);
+  }
+
+  /**
+   * @param name
+   * @param help
+   * @param labelNames
+   *
+   * @return the histogram family of this name, created if needed
+   */
+  public MetricFamily<Histogram> histogram(final String name,
+                                           final String help,
+                                           final String... labelNames) {
+    return register(name, help, "summary", Histogram.class, labelNames);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends Metric> MetricFamily<T> register(final String name,
+                                                      final String help,
+                                                      final String type,
+                                                      final Class<T> metricClass,
+                                                      final String... labelNames) {
+    MetricFamily<?> family = families.get(name);
+    if (family == null) {
+      family = new MetricFamily<T>(name, help, type, metricClass,
+                                   DEFAULT_MAX_SERIES, labelNames);
+      final MetricFamily<?> previous = families.putIfAbsent(name, family);
+      if (previous != null) {
+        family = previous;
+      }
+    }
+    if (family.getMetricClass() != metricClass) {
+      throw new IllegalArgumentException(
+          name + " is already registered with another type");
+    }
+    return (MetricFamily<T>) family;
+  }
+
+  /**
+   * Reset all series of all families
+   */
+  public void reset() {
+    for (final MetricFamily<?> family : families.values()) {
+      family.reset();
+    }
+  }
+
+  /**
+   * @return all families in the text exposition format, sorted by name
+   */
+  public String scrape() {
+    final StringBuilder out = new StringBuilder();
+    final Map<String, MetricFamily<?>> sorted =
+        new TreeMap<String, MetricFamily<?>>(families);
+    for (final MetricFamily<?> family : sorted.values()) {
+      family.write(out);
+    }
+    return out.toString();
+  }
+}
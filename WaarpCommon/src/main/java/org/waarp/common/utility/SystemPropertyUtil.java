@@ -49,6 +49,12 @@ public final class SystemPropertyUtil {
    */
   public static final String WAARP_DATABASE_CONNECTION_MAX =
       "waarp.database.connection.max";
+  /**
+   * Maximum number of prepared statements kept open by the connection pool
+   * for reuse, per connection. By default 0, meaning no statement pooling.
+   */
+  public static final String WAARP_DATABASE_STATEMENT_CACHE =
+      "waarp.database.statement.cache";
   private static final String IO_NETTY_ALLOCATOR_TYPE =
       "io.netty.allocator.type";
   private static final String IO_POOLED = "pooled";
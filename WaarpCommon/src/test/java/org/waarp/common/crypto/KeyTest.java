@@ -63,6 +63,36 @@ public class KeyTest {
     }
   }
 
+  /**
+   * Test that the Cipher reused by each thread follows key changes and
+   * errors
+   */
+  @Test
+  public void testCipherReuse() throws Exception {
+    final Des des = new Des();
+    des.generateKey();
+    final String plaintext = "Reused cipher";
+    final String crypted = des.cryptToHex(plaintext);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(plaintext, des.decryptHexInString(crypted));
+    }
+    // Wrong input must not break next operations
+    try {
+      des.decrypt(new byte[] { 1, 2, 3 });
+      fail("Should raise an exception");
+    } catch (final Exception e) {
+      // Ignore
+    }
+    assertEquals(plaintext, des.decryptHexInString(crypted));
+    // New key must be used at once
+    final Des other = new Des();
+    other.generateKey();
+    final String crypted2 = other.cryptToHex(plaintext);
+    des.setSecretKey(other.getSecretKeyInBytes());
+    assertEquals(crypted2, des.cryptToHex(plaintext));
+    assertEquals(plaintext, des.decryptHexInString(crypted2));
+  }
+
   /**
    * test function
    *
@@ -38,6 +38,8 @@ import org.waarp.common.utility.TestWatcherJunit4;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -61,6 +63,7 @@ public class FileMonitorTest {
   public void setUp() throws Exception {
     final File statusFile = new File("/tmp/status.txt");
     statusFile.delete();
+    new File("/tmp/status.txt.journal").delete();
     final File stopFile = new File("/tmp/stop.txt");
     stopFile.delete();
     final File directory = new File("/tmp/monitor");
@@ -78,6 +81,7 @@ public class FileMonitorTest {
   public void tearDown() throws Exception {
     final File statusFile = new File("/tmp/status.txt");
     statusFile.delete();
+    new File("/tmp/status.txt.journal").delete();
     final File stopFile = new File("/tmp/stop.txt");
     stopFile.delete();
     final File directory = new File("/tmp/monitor");
@@ -97,8 +101,120 @@ public class FileMonitorTest {
     testFileMonitor(false);
   }
 
+  @Test
+  public void testFileMonitorIncrementalSampled() throws Exception {
+    testFileMonitor(true, 16, true, 0, 0);
+  }
+
+  @Test
+  public void testFileMonitorParallelJournal() throws Exception {
+    testFileMonitor(true, -1, false, 2, 5);
+  }
+
+  @Test
+  public void testStatusJournal() throws Exception {
+    final File statusFile = new File("/tmp/status.txt");
+    final File journalFile = new File("/tmp/status.txt.journal");
+    final File checkFile = new File("/tmp/status.txt.chk");
+    final File directory = new File("/tmp/monitor");
+    journalFile.delete();
+    final FileMonitor fileMonitor =
+        new FileMonitor("testDaemon", statusFile, new File("/tmp/stop.txt"),
+                        directory, null, SMALL_WAIT, null, false, null, null,
+                        null);
+    fileMonitor.setStatusJournalMax(3);
+    for (int i = 0; i < 5; i++) {
+      final File file = new File(directory, "test" + i + ".txt");
+      fileMonitor.fileItems
+          .put(file.getAbsolutePath(), new FileItem(file));
+    }
+    // First save is always full
+    fileMonitor.saveStatus();
+    assertFalse(journalFile.exists());
+    final FileItem item0 =
+        fileMonitor.fileItems.get(new File(directory, "test0.txt")
+                                      .getAbsolutePath());
+    item0.used = true;
+    item0.status = Status.DONE;
+    fileMonitor.fileItems.remove(new File(directory, "test1.txt")
+                                     .getAbsolutePath());
+    fileMonitor.saveStatus();
+    assertTrue(journalFile.exists());
+    assertEquals(2, fileMonitor.statusJournalEntries);
+    // No change, nothing appended
+    fileMonitor.saveStatus();
+    assertEquals(2, fileMonitor.statusJournalEntries);
+
+    checkFile.delete();
+    FileMonitor reloaded =
+        new FileMonitor("testDaemon", statusFile, new File("/tmp/stop.txt"),
+                        directory, null, SMALL_WAIT, null, false, null, null,
+                        null);
+    assertEquals(4, reloaded.getCurrentHistoryNb());
+    final FileItem reloaded0 =
+        reloaded.fileItems.get(item0.file.getAbsolutePath());
+    assertTrue(reloaded0.used);
+    assertEquals(Status.DONE, reloaded0.status);
+
+    // Over the limit, full rewrite
+    item0.status = Status.RESTART;
+    fileMonitor.fileItems.remove(new File(directory, "test2.txt")
+                                     .getAbsolutePath());
+    fileMonitor.saveStatus();
+    assertFalse(journalFile.exists());
+    assertEquals(0, fileMonitor.statusJournalEntries);
+    checkFile.delete();
+    reloaded =
+        new FileMonitor("testDaemon", statusFile, new File("/tmp/stop.txt"),
+                        directory, null, SMALL_WAIT, null, false, null, null,
+                        null);
+    assertEquals(3, reloaded.getCurrentHistoryNb());
+    assertEquals(Status.RESTART,
+                 reloaded.fileItems.get(item0.file.getAbsolutePath()).status);
+    checkFile.delete();
+  }
+
+  @Test
+  public void testFileHashSample() throws Exception {
+    final File directory = new File("/tmp/monitor");
+    final File fileTest = new File(directory, "test.txt");
+    final FileMonitor fileMonitor =
+        new FileMonitor("testDaemon", null, new File("/tmp/stop.txt"),
+                        directory, null, SMALL_WAIT, null, false, null, null,
+                        null);
+    FileTestUtils.createTestFile(fileTest, FILE_SIZE, "a");
+    final FileItem fileItem = new FileItem(fileTest);
+    fileItem.size = fileTest.length();
+    fileItem.lastTime = fileTest.lastModified();
+    final byte[] full = fileMonitor.getFileHash(fileItem);
+    fileMonitor.setDigestSampleSize(0);
+    final byte[] stamp = fileMonitor.getFileHash(fileItem);
+    assertEquals(16, stamp.length);
+    assertFalse(Arrays.equals(full, stamp));
+    fileMonitor.setDigestSampleSize(10);
+    final byte[] sample = fileMonitor.getFileHash(fileItem);
+    assertArrayEquals(sample, fileMonitor.getFileHash(fileItem));
+    // Same size and time but different last bytes
+    final RandomAccessFile randomAccessFile =
+        new RandomAccessFile(fileTest, "rw");
+    randomAccessFile.seek(FILE_SIZE - 1);
+    randomAccessFile.write('b');
+    randomAccessFile.close();
+    assertFalse(Arrays.equals(sample, fileMonitor.getFileHash(fileItem)));
+    fileMonitor.setDigestSampleSize(FILE_SIZE * 2);
+    assertNotNull(fileMonitor.getFileHash(fileItem));
+  }
+
   public void testFileMonitor(final boolean ignoreAlreadyUsed)
       throws Exception {
+    testFileMonitor(ignoreAlreadyUsed, -1, false, 0, 0);
+  }
+
+  public void testFileMonitor(final boolean ignoreAlreadyUsed,
+                              final int digestSample,
+                              final boolean incrementalScan,
+                              final int scanThreads, final int statusJournal)
+      throws Exception {
     WaarpLoggerFactory.setLogLevel(WaarpLogLevel.WARN);
     logger.warn("Start test ignoreAlreadyUsed={}", ignoreAlreadyUsed);
     final File statusFile = new File("/tmp/status.txt");
@@ -155,6 +271,10 @@ public class FileMonitorTest {
                         SMALL_WAIT, null, false, commandValidFile,
                         commandRemovedFile, commandCheckIteration);
     fileMonitor.setIgnoreAlreadyUsed(ignoreAlreadyUsed);
+    fileMonitor.setDigestSampleSize(digestSample);
+    fileMonitor.setIncrementalScan(incrementalScan);
+    fileMonitor.setScanThreads(scanThreads);
+    fileMonitor.setStatusJournalMax(statusJournal);
     commandValidFile.setMonitor(fileMonitor);
     fileMonitor.setCheckDelay(-1);
 
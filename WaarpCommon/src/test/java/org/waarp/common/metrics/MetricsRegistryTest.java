@@ -0,0 +1,175 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.metrics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.utility.TestWatcherJunit4;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  @Test
+  public void testHistogramBuckets() {
+    long previous = -1;
+    for (int i = 0; i < Histogram.BUCKETS; i++) {
+      final long upper = Histogram.upperBound(i);
+      assertTrue(upper > previous);
+      assertEquals(i, Histogram.index(upper));
+      assertEquals(i, Histogram.index(previous + 1));
+      previous = upper;
+    }
+    assertEquals(Long.MAX_VALUE, previous);
+    // Relative error is bounded
+    for (long value = 1; value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+      final long upper = Histogram.upperBound(Histogram.index(value));
+      assertTrue(upper >= value);
+      assertTrue((upper - value) <= value / Histogram.SUB_BUCKETS + 1);
+    }
+  }
+
+  @Test
+  public void testHistogramQuantiles() {
+    final Histogram histogram = new Histogram();
+    assertEquals(0, histogram.getQuantile(0.5));
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000000, histogram.getMax());
+    assertEquals(500500000L, histogram.getSum());
+    final long median = histogram.getQuantile(0.5);
+    assertTrue(median >= 500000 && median <= 500000 * 9 / 8);
+    final long p99 = histogram.getQuantile(0.99);
+    assertTrue(p99 >= 990000 && p99 <= 1000000);
+    assertEquals(1000000, histogram.getQuantile(1));
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getQuantile(0.99));
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws InterruptedException {
+    final MetricFamily<Counter> family = MetricsRegistry.getInstance()
+        .counter("test_concurrent_total", "Concurrent test", "thread");
+    final Histogram histogram = new Histogram();
+    final AtomicInteger errors = new AtomicInteger();
+    final Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < 10000; j++) {
+              family.labels("shared").inc();
+              histogram.record(j);
+            }
+          } catch (final RuntimeException e) {
+            errors.incrementAndGet();
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(0, errors.get());
+    assertEquals(80000, family.labels("shared").get());
+    assertEquals(80000, histogram.getCount());
+    assertEquals(9999, histogram.getMax());
+  }
+
+  @Test
+  public void testBoundedLabels() {
+    final MetricFamily<Counter> family = MetricsRegistry.getInstance()
+        .counter("test_bounded_total", "Bounded test", "rule", "partner");
+    for (int i = 0; i < MetricsRegistry.DEFAULT_MAX_SERIES * 4; i++) {
+      family.labels("rule" + i, "partner").inc();
+    }
+    assertEquals(MetricsRegistry.DEFAULT_MAX_SERIES, family.size());
+    assertEquals(MetricsRegistry.DEFAULT_MAX_SERIES * 3 + 1,
+                 family.labels(MetricFamily.OTHER, MetricFamily.OTHER).get());
+    // Known series are still counted on their own
+    family.labels("rule0", "partner").inc();
+    assertEquals(2, family.labels("rule0", "partner").get());
+    try {
+      family.labels("rule0");
+      fail("Should raise an exception");
+    } catch (final IllegalArgumentException e) {
+      // Ignore
+    }
+  }
+
+  @Test
+  public void testExposition() {
+    final MetricsRegistry registry = MetricsRegistry.getInstance();
+    final MetricFamily<Counter> counter =
+        registry.counter("test_expo_total", "Help with \\ and\nnewline", "name");
+    counter.labels("a\"b\\c\nd").add(3);
+    counter.labels((String) null).inc();
+    final MetricFamily<Histogram> histogram =
+        registry.histogram("test_expo_seconds", "Durations");
+    histogram.labels().record(2000000000L);
+    try {
+      registry.histogram("test_expo_total", "Wrong type");
+      fail("Should raise an exception");
+    } catch (final IllegalArgumentException e) {
+      // Ignore
+    }
+    assertSame(counter, registry.counter("test_expo_total", "Again", "name"));
+    final String text = registry.scrape();
+    assertTrue(text.contains(
+        "# HELP test_expo_total Help with \\\\ and\\nnewline\n" +
+        "# TYPE test_expo_total counter\n" + "test_expo_total{name=\"\"} 1\n" +
+        "test_expo_total{name=\"a\\\"b\\\\c\\nd\"} 3\n"));
+    assertTrue(text.contains("# TYPE test_expo_seconds summary\n" +
+                             "test_expo_seconds{quantile=\"0.5\"} 2.0\n"));
+    assertTrue(text.contains("test_expo_seconds_sum 2.0\n" +
+                             "test_expo_seconds_count 1\n"));
+    assertTrue(text.indexOf("test_expo_seconds") <
+               text.indexOf("test_expo_total"));
+  }
+
+  @Test
+  public void testTimer() {
+    final Histogram histogram = new Histogram();
+    MetricsRegistry.setEnabled(false);
+    long start = MetricsRegistry.startTimer();
+    assertEquals(0, start);
+    histogram.observeSince(start);
+    assertEquals(0, histogram.getCount());
+    MetricsRegistry.setEnabled(true);
+    try {
+      start = MetricsRegistry.startTimer();
+      assertTrue(start != 0);
+      histogram.observeSince(start);
+      assertEquals(1, histogram.getCount());
+    } finally {
+      MetricsRegistry.setEnabled(false);
+    }
+  }
+}
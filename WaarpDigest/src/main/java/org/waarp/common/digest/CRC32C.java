@@ -0,0 +1,101 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.digest;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC32C (Castagnoli) checksum
+ * <p>
+ * The JDK implementation (java.util.zip.CRC32C since Java 9, using hardware
+ * instructions where available) is used through {@link #create()} if
+ * present, else this table based pure Java implementation, giving the same
+ * values.
+ */
+public class CRC32C implements Checksum {
+  private static final int POLYNOMIAL = 0x82F63B78;
+  private static final int[] TABLE = new int[256];
+  private static final Class<?> JDK_CRC32C;
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 1) != 0? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+      }
+      TABLE[i] = crc;
+    }
+    Class<?> jdk = null;
+    try {
+      jdk = Class.forName("java.util.zip.CRC32C");
+    } catch (final ClassNotFoundException ignored) {//NOSONAR
+      // Before Java 9
+    }
+    JDK_CRC32C = jdk;
+  }
+
+  private int crc = 0xFFFFFFFF;
+
+  /**
+   * @return a new CRC32C checksum, from the JDK if available
+   */
+  public static Checksum create() {
+    if (JDK_CRC32C != null) {
+      try {
+        return (Checksum) JDK_CRC32C.getConstructor().newInstance();
+      } catch (final Exception ignored) {//NOSONAR
+        // Use pure Java implementation
+      }
+    }
+    return new CRC32C();
+  }
+
+  /**
+   * @return True if the JDK implementation is used by {@link #create()}
+   */
+  public static boolean isJdkImplementation() {
+    return JDK_CRC32C != null;
+  }
+
+  @Override
+  public void update(final int b) {
+    crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+  }
+
+  @Override
+  public void update(final byte[] b, final int off, final int len) {
+    int localCrc = crc;
+    final int end = off + len;
+    for (int i = off; i < end; i++) {
+      localCrc = (localCrc >>> 8) ^ TABLE[(localCrc ^ b[i]) & 0xFF];
+    }
+    crc = localCrc;
+  }
+
+  @Override
+  public long getValue() {
+    return ~crc & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void reset() {
+    crc = 0xFFFFFFFF;
+  }
+}
@@ -114,6 +114,9 @@ public class FilesystemBasedDigest {
       case CRC32:
         checksum = new CRC32();
         return;
+      case CRC32C:
+        checksum = org.waarp.common.digest.CRC32C.create();
+        return;
       case MD5:
       case MD2:
       case SHA1:
@@ -166,6 +169,7 @@ public class FilesystemBasedDigest {
     switch (algo) {
       case ADLER32:
       case CRC32:
+      case CRC32C:
         checksum.update(bytes, offset, length);
         return;
       case MD5:
@@ -209,15 +213,23 @@ public class FilesystemBasedDigest {
    */
   public final int getOffset(final ByteBuf buffer) {
     if (buffer.hasArray()) {
-      return buffer.arrayOffset();
+      return buffer.arrayOffset() + buffer.readerIndex();
     }
     return 0;
   }
 
   /**
-   * Update the digest with new buffer
+   * Update the digest with new buffer (the buffer is not changed)
    */
   public void Update(final ByteBuf buffer) {
+    if (md5 == null && digest != null && algo != DigestAlgo.ADLER32 &&
+        algo != DigestAlgo.CRC32 && algo != DigestAlgo.CRC32C &&
+        !buffer.hasArray() &&
+        buffer.nioBufferCount() == 1) {
+      // Direct buffer: no copy into a heap array
+      digest.update(buffer.nioBuffer());
+      return;
+    }
     final byte[] bytes = getBytes(buffer);
     final int start = getOffset(buffer);
     final int length = buffer.readableBytes();
@@ -241,6 +253,7 @@ public class FilesystemBasedDigest {
     switch (algo) {
       case ADLER32:
       case CRC32:
+      case CRC32C:
         return Long.toOctalString(checksum.getValue()).getBytes(UTF8);
       case MD5:
       case MD2:
@@ -287,7 +300,7 @@ public class FilesystemBasedDigest {
   public enum DigestAlgo {
     CRC32("CRC32", 11), ADLER32("ADLER32", 9), MD5("MD5", 16), MD2("MD2", 16),
     SHA1("SHA-1", 20), SHA256("SHA-256", 32), SHA384("SHA-384", 48),
-    SHA512("SHA-512", 64);
+    SHA512("SHA-512", 64), CRC32C("CRC32C", 11);
 
     public final String algoName;
     public final int byteSize;
@@ -319,6 +332,8 @@ public class FilesystemBasedDigest {
       }
       if ("CRC32".equalsIgnoreCase(name)) {
         return CRC32;
+      } else if ("CRC32C".equalsIgnoreCase(name)) {
+        return CRC32C;
       } else if ("ADLER32".equalsIgnoreCase(name)) {
         return ADLER32;
       } else if ("MD5".equalsIgnoreCase(name)) {
@@ -423,6 +438,9 @@ public class FilesystemBasedDigest {
           return getBytesCrc(in, buf, checksum);
         case CRC32:
           return getBytesCrc(in, buf, null);
+        case CRC32C:
+          return getBytesCrc(in, buf,
+                             org.waarp.common.digest.CRC32C.create());
         case MD5:
         case MD2:
         case SHA1:
@@ -453,7 +471,7 @@ public class FilesystemBasedDigest {
   private static byte[] getBytesCrc(final InputStream in, final byte[] buf,
                                     Checksum checksum) throws IOException {
     int size;
-    if (checksum == null) { // not ADLER32
+    if (checksum == null) { // CRC32
       checksum = new CRC32();
     }
     while ((size = in.read(buf)) >= 0) {
@@ -511,6 +529,11 @@ public class FilesystemBasedDigest {
             case CRC32:
               buf = getBytesCrcFileChannel(buf, fileChannel, bb, null);
               break;
+            case CRC32C:
+              buf = getBytesCrcFileChannel(buf, fileChannel, bb,
+                                           org.waarp.common.digest.CRC32C
+                                               .create());
+              break;
             case MD5:
             case MD2:
             case SHA1:
@@ -559,7 +582,7 @@ public class FilesystemBasedDigest {
                                                Checksum checksum)
       throws IOException {
     int size;
-    if (checksum == null) { // Not ADLER32
+    if (checksum == null) { // CRC32
       checksum = new CRC32();
     }
     while ((size = fileChannel.read(bb)) >= 0) {
@@ -619,7 +642,7 @@ public class FilesystemBasedDigest {
     int start = 0;
     final int length = buffer.readableBytes();
     if (buffer.hasArray()) {
-      start = buffer.arrayOffset();
+      start = buffer.arrayOffset() + buffer.readerIndex();
       bytes = buffer.array();
     } else {
       bytes = new byte[length];
@@ -631,6 +654,9 @@ public class FilesystemBasedDigest {
         return getBytesCrcByteBuf(checksum, bytes, start, length);
       case CRC32:
         return getBytesCrcByteBuf(null, bytes, start, length);
+      case CRC32C:
+        return getBytesCrcByteBuf(org.waarp.common.digest.CRC32C.create(),
+                                  bytes, start, length);
       case MD5:
         if (isUseFastMd5()) {
           final MD5 md5 = new MD5();
@@ -671,6 +697,9 @@ public class FilesystemBasedDigest {
         return getBytesCrcByteBuf(checksum, buffer, 0, length);
       case CRC32:
         return getBytesCrcByteBuf(null, buffer, 0, length);
+      case CRC32C:
+        return getBytesCrcByteBuf(org.waarp.common.digest.CRC32C.create(),
+                                  buffer, 0, length);
       case MD5:
         if (isUseFastMd5()) {
           final MD5 md5 = new MD5();
@@ -707,7 +736,7 @@ public class FilesystemBasedDigest {
   private static byte[] getBytesCrcByteBuf(Checksum checksum,
                                            final byte[] bytes, final int start,
                                            final int length) {
-    if (checksum == null) { // not ADLER32
+    if (checksum == null) { // CRC32
       checksum = new CRC32();
     }
     checksum.update(bytes, start, length);
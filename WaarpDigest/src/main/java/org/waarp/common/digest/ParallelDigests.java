@@ -0,0 +1,218 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.common.digest;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Update several digests with the same block at once
+ * <p>
+ * When a pool of digest threads is set, all digests but the first one are
+ * updated by the pool while the calling thread updates the first one, the
+ * call returning once all are done. So the cost of a block becomes the one
+ * of the slowest digest instead of the sum of all of them. Small blocks,
+ * for which the hand-off would cost more than it saves, are always
+ * computed sequentially.
+ */
+public final class ParallelDigests {
+  /**
+   * Minimal size of a block to compute its digests in parallel
+   */
+  public static final int MIN_PARALLEL_SIZE = 16 * 1024;
+
+  private static volatile ExecutorService executor;
+
+  private ParallelDigests() {
+  }
+
+  /**
+   * Daemon threads named Digest-n
+   */
+  private static class DigestThreadFactory implements ThreadFactory {
+    private final AtomicInteger rank = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread =
+          new Thread(runnable, "Digest-" + rank.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  /**
+   * @param threads the number of digest threads, 0 meaning all
+   *     digests are computed sequentially by the calling thread
+   */
+  public static synchronized void setThreads(final int threads) {
+    final ExecutorService old = executor;
+    if (threads > 0) {
+      final ThreadPoolExecutor pool =
+          new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                 new LinkedBlockingQueue<Runnable>(),
+                                 new DigestThreadFactory());
+      pool.allowCoreThreadTimeOut(true);
+      executor = pool;
+    } else {
+      executor = null;
+    }
+    if (old != null) {
+      old.shutdown();
+    }
+  }
+
+  /**
+   * @return True if digests may be computed in parallel
+   */
+  public static boolean isParallel() {
+    return executor != null;
+  }
+
+  /**
+   * Update all non null digests with the given bytes
+   *
+   * @param bytes
+   * @param offset
+   * @param length
+   * @param digests the digests to update (null ones are ignored)
+   */
+  public static void update(final byte[] bytes, final int offset,
+                            final int length,
+                            final FilesystemBasedDigest... digests) {
+    final ExecutorService pool = executor;
+    if (pool == null || length < MIN_PARALLEL_SIZE || count(digests) < 2) {
+      for (final FilesystemBasedDigest digest : digests) {
+        if (digest != null) {
+          digest.Update(bytes, offset, length);
+        }
+      }
+      return;
+    }
+    final Future<?>[] futures = new Future<?>[digests.length];
+    FilesystemBasedDigest first = null;
+    for (int i = 0; i < digests.length; i++) {
+      final FilesystemBasedDigest digest = digests[i];
+      if (digest == null) {
+        continue;
+      }
+      if (first == null) {
+        first = digest;
+        continue;
+      }
+      futures[i] = pool.submit(new Runnable() {
+        @Override
+        public void run() {
+          digest.Update(bytes, offset, length);
+        }
+      });
+    }
+    first.Update(bytes, offset, length);
+    awaitAll(futures);
+  }
+
+  /**
+   * Update all non null digests with the given buffer (not changed)
+   *
+   * @param buffer
+   * @param digests the digests to update (null ones are ignored)
+   */
+  public static void update(final ByteBuf buffer,
+                            final FilesystemBasedDigest... digests) {
+    final ExecutorService pool = executor;
+    if (pool == null || buffer.readableBytes() < MIN_PARALLEL_SIZE ||
+        count(digests) < 2) {
+      for (final FilesystemBasedDigest digest : digests) {
+        if (digest != null) {
+          digest.Update(buffer);
+        }
+      }
+      return;
+    }
+    final Future<?>[] futures = new Future<?>[digests.length];
+    FilesystemBasedDigest first = null;
+    for (int i = 0; i < digests.length; i++) {
+      final FilesystemBasedDigest digest = digests[i];
+      if (digest == null) {
+        continue;
+      }
+      if (first == null) {
+        first = digest;
+        continue;
+      }
+      // Each thread uses its own view of the buffer
+      final ByteBuf view = buffer.duplicate();
+      futures[i] = pool.submit(new Runnable() {
+        @Override
+        public void run() {
+          digest.Update(view);
+        }
+      });
+    }
+    first.Update(buffer);
+    awaitAll(futures);
+  }
+
+  private static int count(final FilesystemBasedDigest[] digests) {
+    int nb = 0;
+    for (final FilesystemBasedDigest digest : digests) {
+      if (digest != null) {
+        nb++;
+      }
+    }
+    return nb;
+  }
+
+  /**
+   * Wait for all updates since the block might be reused just after
+   */
+  private static void awaitAll(final Future<?>[] futures) {
+    boolean interrupted = false;
+    for (final Future<?> future : futures) {
+      if (future == null) {
+        continue;
+      }
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (final InterruptedException e) {//NOSONAR
+          interrupted = true;
+        } catch (final ExecutionException e) {
+          if (e.getCause() instanceof RuntimeException) {
+            throw (RuntimeException) e.getCause();
+          }
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
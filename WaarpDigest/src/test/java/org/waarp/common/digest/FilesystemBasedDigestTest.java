@@ -98,6 +98,41 @@ public class FilesystemBasedDigestTest {
     }
   }
 
+  @Test
+  public void testUpdateDirectAndSlicedByteBuf()
+      throws NoSuchAlgorithmException, IOException {
+    FilesystemBasedDigest.setUseFastMd5(false);
+    for (final DigestAlgo algo : DigestAlgo.values()) {
+      final FilesystemBasedDigest digest = new FilesystemBasedDigest(algo);
+      digest.Update(TESTPHRASEBYTES, 0, TESTPHRASEBYTES.length);
+      final byte[] reference = digest.Final();
+      // Direct buffer
+      final ByteBuf direct = Unpooled.directBuffer(TESTPHRASEBYTES.length);
+      direct.writeBytes(TESTPHRASEBYTES);
+      final FilesystemBasedDigest digestDirect = new FilesystemBasedDigest(algo);
+      digestDirect.Update(direct);
+      assertTrue(algo + " Direct Not Equals", FilesystemBasedDigest
+          .digestEquals(reference, digestDirect.Final()));
+      assertEquals(0, direct.readerIndex());
+      assertTrue(algo + " Direct getHash Not Equals", FilesystemBasedDigest
+          .digestEquals(reference,
+                        FilesystemBasedDigest.getHash(direct, algo)));
+      direct.release();
+      // Heap buffer with a non zero reader index
+      final ByteBuf heap = Unpooled.buffer(TESTPHRASEBYTES.length + 10);
+      heap.writeBytes(new byte[10]);
+      heap.writeBytes(TESTPHRASEBYTES);
+      heap.skipBytes(10);
+      final FilesystemBasedDigest digestHeap = new FilesystemBasedDigest(algo);
+      digestHeap.Update(heap);
+      assertTrue(algo + " Heap Not Equals", FilesystemBasedDigest
+          .digestEquals(reference, digestHeap.Final()));
+      assertTrue(algo + " Heap getHash Not Equals", FilesystemBasedDigest
+          .digestEquals(reference, FilesystemBasedDigest.getHash(heap, algo)));
+      heap.release();
+    }
+  }
+
   @Test
   public void testGetHashFileDigestAlgo() throws IOException {
     final File file = File.createTempFile("testHash", ".txt", new File("/tmp"));
@@ -232,4 +267,64 @@ public class FilesystemBasedDigestTest {
       file.delete();
     }
   }
+
+  @Test
+  public void testCrc32c() throws IOException {
+    // Check value of CRC32C (RFC 3720)
+    final byte[] check = "123456789".getBytes(FilesystemBasedDigest.UTF8);
+    final CRC32C crc = new CRC32C();
+    crc.update(check, 0, check.length);
+    assertEquals(0xE3069283L, crc.getValue());
+    final java.util.zip.Checksum created = CRC32C.create();
+    created.update(check, 0, check.length);
+    assertEquals(0xE3069283L, created.getValue());
+    crc.reset();
+    for (final byte b : check) {
+      crc.update(b);
+    }
+    assertEquals(0xE3069283L, crc.getValue());
+    assertEquals(DigestAlgo.CRC32C, DigestAlgo.getFromName("CRC32C"));
+    assertEquals(Long.toOctalString(0xE3069283L),
+                 new String(FilesystemBasedDigest.getHash(check,
+                                                          DigestAlgo.CRC32C),
+                            FilesystemBasedDigest.UTF8));
+  }
+
+  @Test
+  public void testParallelDigests() throws NoSuchAlgorithmException {
+    final byte[] block = new byte[ParallelDigests.MIN_PARALLEL_SIZE * 4];
+    new java.util.Random(1).nextBytes(block);
+    final DigestAlgo[] algos =
+        { DigestAlgo.SHA256, DigestAlgo.SHA512, DigestAlgo.CRC32C };
+    final byte[][] expected = new byte[algos.length][];
+    for (int i = 0; i < algos.length; i++) {
+      final FilesystemBasedDigest digest = new FilesystemBasedDigest(algos[i]);
+      digest.Update(block, 0, block.length);
+      digest.Update(block, 0, block.length);
+      expected[i] = digest.Final();
+    }
+    ParallelDigests.setThreads(2);
+    try {
+      assertTrue(ParallelDigests.isParallel());
+      final FilesystemBasedDigest[] digests =
+          new FilesystemBasedDigest[algos.length];
+      for (int i = 0; i < algos.length; i++) {
+        digests[i] = new FilesystemBasedDigest(algos[i]);
+      }
+      ParallelDigests.update(block, 0, block.length, digests[0], null,
+                             digests[1], digests[2]);
+      final ByteBuf direct = Unpooled.directBuffer(block.length);
+      direct.writeBytes(block);
+      ParallelDigests.update(direct, digests[0], digests[1], null, digests[2]);
+      assertEquals(0, direct.readerIndex());
+      direct.release();
+      for (int i = 0; i < algos.length; i++) {
+        assertTrue(algos[i] + " Parallel Not Equals", FilesystemBasedDigest
+            .digestEquals(expected[i], digests[i].Final()));
+      }
+    } finally {
+      ParallelDigests.setThreads(0);
+    }
+    assertFalse(ParallelDigests.isParallel());
+  }
 }
@@ -113,6 +113,13 @@ public abstract class FtpConfiguration {
    */
   private int clientThread = 80;
 
+  /**
+   * Number of threads shared by all sessions to execute file retrieves
+   * (stores and lists then wait on the command thread). Default 0 means one
+   * dedicated thread per session.
+   */
+  private int transferThread;
+
   /**
    * Which class owns this configuration
    */
@@ -631,6 +638,22 @@ public abstract class FtpConfiguration {
     clientThread = clientThread0;
   }
 
+  /**
+   * @return the number of threads shared to execute data transfers (0 for
+   *     one thread per session)
+   */
+  public int getTransferThread() {
+    return transferThread;
+  }
+
+  /**
+   * @param transferThread0 the number of threads shared to execute data
+   *     transfers (0 for one thread per session)
+   */
+  public void setTransferThread(final int transferThread0) {
+    transferThread = transferThread0;
+  }
+
   /**
    * @return the tIMEOUTCON
    */
@@ -51,10 +51,15 @@ import org.waarp.ftp.core.utils.FtpShutdownHook;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -140,6 +145,11 @@ public class FtpInternalConfiguration {
       .newScheduledThreadPool(2,
                               new WaarpThreadFactory("TimerTrafficFtp", false));
 
+  /**
+   * ExecutorService shared by all sessions for file retrieves (if any)
+   */
+  private ExecutorService transferExecutor;
+
   /**
    * Global TrafficCounter (set from global configuration)
    */
@@ -349,6 +359,41 @@ public class FtpInternalConfiguration {
     return execWorker;
   }
 
+  /**
+   * The pool and its queue are bounded by the number of transfer threads.
+   * When both are full, the retrieve is run by the command thread of the
+   * session, which waits anyway for the end of the transfer: the command
+   * threads then give the back pressure instead of new threads.
+   *
+   * @return the ExecutorService shared by all sessions to run file
+   *     retrieves, or null if each session must use its own thread
+   */
+  public synchronized ExecutorService getTransferExecutor() {
+    final int nbThread = configuration.getTransferThread();
+    if (transferExecutor == null && nbThread > 0) {
+      transferExecutor =
+          new ThreadPoolExecutor(nbThread, nbThread, 0L, TimeUnit.MILLISECONDS,
+                                 new ArrayBlockingQueue<Runnable>(nbThread),
+                                 new WaarpThreadFactory("FtpTransfer"),
+                                 new RejectedExecutionHandler() {
+                                   @Override
+                                   public void rejectedExecution(
+                                       final Runnable r,
+                                       final ThreadPoolExecutor executor) {
+                                     if (executor.isShutdown()) {
+                                       throw new RejectedExecutionException(
+                                           "Transfer executor is shut down");
+                                     }
+                                     logger.warn(
+                                         "FTP transfer pool saturated: " +
+                                         "retrieve run by the command thread");
+                                     r.run();
+                                   }
+                                 });
+    }
+    return transferExecutor;
+  }
+
   /**
    * Add a session from a couple of addresses
    *
@@ -573,6 +618,12 @@ public class FtpInternalConfiguration {
       globalTrafficShapingHandler.release();
     }
     executorService.shutdown();
+    synchronized (this) {
+      if (transferExecutor != null) {
+        transferExecutor.shutdownNow();
+        transferExecutor = null;
+      }
+    }
   }
 
   public boolean isAcceptAuthProt() {
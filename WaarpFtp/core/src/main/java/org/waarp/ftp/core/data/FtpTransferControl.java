@@ -48,6 +48,7 @@ import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Main class that handles transfers and their execution
@@ -100,10 +101,16 @@ public class FtpTransferControl {
   private volatile FtpTransfer executingCommand;
 
   /**
-   * Thread pool for execution of transfer command
+   * Thread pool for execution of transfer command (dedicated to this session
+   * if no shared transfer executor is configured)
    */
   private ExecutorService executorService;
 
+  /**
+   * Future of the transfer command submitted to the shared executor
+   */
+  private Future<?> sharedExecution;
+
   /**
    * Blocking step for the Executor in order to wait for the end of the
    * command
@@ -329,6 +336,12 @@ public class FtpTransferControl {
 
   /**
    * Run the command from an executor
+   * <p>
+   * The calling command thread waits for the end of the transfer, since it
+   * gives the final answer of the command. With a shared transfer executor,
+   * store and list like commands, which only wait for the data connection,
+   * are therefore run directly by this thread, and only file retrieves use
+   * the shared executor (or this thread if the executor is saturated).
    */
   private void runExecutor() {
     endOfCommand = new WaarpFuture(true);
@@ -346,10 +359,25 @@ public class FtpTransferControl {
     }
     waitForOpenedDataChannel.channel().config().setAutoRead(true);
     // Run the command
-    if (executorService == null) {
-      executorService = Executors.newSingleThreadExecutor();
+    final ExecutorService sharedExecutor =
+        session.getConfiguration().getFtpInternalConfiguration()
+               .getTransferExecutor();
+    if (sharedExecutor != null) {
+      final FtpTransferExecutor transferExecutor =
+          new FtpTransferExecutor(session, executingCommand);
+      if (FtpCommandCode.isRetrLikeCommand(executingCommand.getCommand())) {
+        // Only one command at a time per session so order is kept
+        sharedExecution = sharedExecutor.submit(transferExecutor);
+      } else {
+        transferExecutor.run();
+      }
+    } else {
+      if (executorService == null) {
+        executorService = Executors.newSingleThreadExecutor();
+      }
+      executorService
+          .execute(new FtpTransferExecutor(session, executingCommand));
     }
-    executorService.execute(new FtpTransferExecutor(session, executingCommand));
     commandFinishing.awaitOrInterruptible();
     if (commandFinishing.isFailed()) {
       endOfCommand.cancel();
@@ -739,5 +767,9 @@ public class FtpTransferControl {
       executorService.shutdownNow();
       executorService = null;
     }
+    if (sharedExecution != null) {
+      sharedExecution.cancel(true);
+      sharedExecution = null;
+    }
   }
 }
@@ -21,6 +21,8 @@ package org.waarp.ftp.filesystembased;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.ssl.SslHandler;
 import org.waarp.common.command.exception.CommandAbstractException;
 import org.waarp.common.exception.FileEndOfTransferException;
 import org.waarp.common.exception.FileTransferException;
@@ -29,10 +31,15 @@ import org.waarp.common.file.filesystembased.FilesystemBasedFileImpl;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
 import org.waarp.common.utility.WaarpNettyUtil;
+import org.waarp.ftp.core.command.FtpArgumentCode.TransferMode;
+import org.waarp.ftp.core.command.FtpArgumentCode.TransferStructure;
+import org.waarp.ftp.core.command.FtpArgumentCode.TransferType;
+import org.waarp.ftp.core.data.FtpDataAsyncConn;
 import org.waarp.ftp.core.exception.FtpNoConnectionException;
 import org.waarp.ftp.core.file.FtpFile;
 import org.waarp.ftp.core.session.FtpSession;
 
+import java.io.File;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -51,6 +58,16 @@ public abstract class FilesystemBasedFtpFile extends FilesystemBasedFileImpl
    */
   private final ReentrantLock retrieveLock = new ReentrantLock();
 
+  /**
+   * Number of blocks written before a flush during retrieve
+   */
+  private static final int FLUSH_BLOCKS = 8;
+
+  /**
+   * True while the file is sent as one FileRegion
+   */
+  private volatile boolean inRegionReading;
+
   /**
    * @param session
    * @param dir It is not necessary the directory that owns this file.
@@ -78,9 +95,106 @@ public abstract class FilesystemBasedFtpFile extends FilesystemBasedFileImpl
     return length;
   }
 
+  @Override
+  public boolean isInReading() {
+    return inRegionReading || super.isInReading();
+  }
+
+  @Override
+  public boolean closeFile() throws CommandAbstractException {
+    inRegionReading = false;
+    return super.closeFile();
+  }
+
+  /**
+   * @param channel
+   *
+   * @return True if the file can be sent as is through a FileRegion (Stream
+   *     mode, Image type, File structure, no SSL)
+   */
+  private boolean isFileRegionCompatible(final Channel channel) {
+    final FtpDataAsyncConn dataConn = ((FtpSession) session).getDataConn();
+    return dataConn.getMode() == TransferMode.STREAM &&
+           dataConn.getType() == TransferType.IMAGE &&
+           dataConn.getStructure() == TransferStructure.FILE &&
+           !((FtpSession) session).isDataSsl() &&
+           channel.pipeline().get(SslHandler.class) == null;
+  }
+
+  /**
+   * Send the remaining of the file with one FileRegion (zero copy)
+   *
+   * @param channel
+   *
+   * @throws CommandAbstractException
+   * @throws FileTransferException
+   */
+  private void retrieveFileRegion(final Channel channel)
+      throws CommandAbstractException, FileTransferException {
+    final File file = getFileFromPath(currentFile);
+    final long position = getPosition();
+    final long length = file.length() - position;
+    inRegionReading = true;
+    if (length > 0) {
+      final ChannelFuture future =
+          channel.writeAndFlush(new DefaultFileRegion(file, position, length));
+      WaarpNettyUtil.awaitOrInterrupted(future);
+      if (!future.isSuccess()) {
+        closeFile();
+        throw new FileTransferException("File transfer in error");
+      }
+    }
+    closeFile();
+    ((FtpSession) session).getDataConn().getFtpTransferControl()
+                          .setPreEndOfTransfer();
+  }
+
+  /**
+   * Wait for the given write and check its status
+   *
+   * @param future
+   *
+   * @throws CommandAbstractException
+   * @throws FileTransferException
+   */
+  private void awaitWrite(final ChannelFuture future)
+      throws CommandAbstractException, FileTransferException {
+    WaarpNettyUtil.awaitOrInterrupted(future);
+    if (!future.isSuccess()) {
+      closeFile();
+      throw new FileTransferException("File transfer in error");
+    }
+  }
+
+  /**
+   * @param buffers the ring of buffers
+   * @param rank the rank of the block to read
+   *
+   * @return the buffer of the ring for this block
+   */
+  private byte[] getRingBuffer(final byte[][] buffers, final long rank) {
+    final int index = (int) (rank % buffers.length);
+    if (buffers[index] == null) {
+      buffers[index] = new byte[getSession().getBlockSize()];
+    }
+    return buffers[index];
+  }
+
   /**
    * Launch retrieve operation (internal method, should not be called
    * directly)
+   * <p>
+   * Blocks are written and flushed by batch, waiting for the previous batch
+   * to be sent before going on, and waiting for the current one while the
+   * channel is not writable, such that the memory used by a slow client is
+   * bounded. In Stream mode, Image type and without SSL, the file is sent
+   * through a FileRegion.
+   * <p>
+   * A block may be encoded by the data pipeline after the write call
+   * returns, so blocks are read into a ring of buffers: since the previous
+   * batch is awaited at each flush, at most 2 * FLUSH_BLOCKS - 1 blocks are
+   * not yet encoded and a buffer is only read into again once its previous
+   * block is done.
    */
   @Override
   public void trueRetrieve() {
@@ -115,9 +229,15 @@ public abstract class FilesystemBasedFtpFile extends FilesystemBasedFileImpl
                               .setPreEndOfTransfer();
         return;
       }
+      if (isFileRegionCompatible(channel)) {
+        retrieveFileRegion(channel);
+        return;
+      }
+      final byte[][] buffers = new byte[2 * FLUSH_BLOCKS][];
+      long rank = 0;
       DataBlock block;
       try {
-        block = readDataBlock();
+        block = readDataBlock(getRingBuffer(buffers, rank++));
       } catch (final FileEndOfTransferException e) {
         // Last block (in fact, previous block was the last one,
         // but it could be aligned with the block size so not
@@ -138,24 +258,32 @@ public abstract class FilesystemBasedFtpFile extends FilesystemBasedFileImpl
       }
       // While not last block
       ChannelFuture future = null;
+      ChannelFuture previousFlush = null;
+      int unflushed = 0;
       while (block != null && !block.isEOF()) {
-        future = channel.writeAndFlush(block);
-        WaarpNettyUtil.awaitOrInterrupted(future);
-        if (!future.isSuccess()) {
-          closeFile();
-          throw new FileTransferException("File transfer in error");
+        future = channel.write(block);
+        unflushed++;
+        if (unflushed >= FLUSH_BLOCKS || !channel.isWritable()) {
+          channel.flush();
+          unflushed = 0;
+          if (previousFlush != null) {
+            awaitWrite(previousFlush);
+          }
+          previousFlush = future;
+          if (!channel.isWritable()) {
+            // Slow client: wait for the outbound buffer to be sent
+            awaitWrite(future);
+          }
         }
         try {
-          block = readDataBlock();
+          block = readDataBlock(getRingBuffer(buffers, rank++));
         } catch (final FileEndOfTransferException e) {
           closeFile();
           // Wait for last write
-          if (future.isSuccess()) {
-            ((FtpSession) session).getDataConn().getFtpTransferControl()
-                                  .setPreEndOfTransfer();
-          } else {
-            throw new FileTransferException("File transfer in error");
-          }
+          channel.flush();
+          awaitWrite(future);
+          ((FtpSession) session).getDataConn().getFtpTransferControl()
+                                .setPreEndOfTransfer();
           return;
         }
       }
@@ -164,6 +292,8 @@ public abstract class FilesystemBasedFtpFile extends FilesystemBasedFileImpl
       if (block != null) {
         logger.debug("Write {}", block.getByteCount());
         future = channel.writeAndFlush(block);
+      } else if (future != null) {
+        channel.flush();
       }
       // Wait for last write
       if (future != null) {
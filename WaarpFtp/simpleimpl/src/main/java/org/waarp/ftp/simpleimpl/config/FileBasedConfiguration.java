@@ -79,6 +79,11 @@ public class FileBasedConfiguration extends FtpConfiguration {
    */
   private static final String XML_CLIENT_THREAD = "/config/clientthread";
 
+  /**
+   * Number of threads shared by all sessions for data transfers.
+   */
+  private static final String XML_TRANSFER_THREAD = "/config/transferthread";
+
   /**
    * Limit per session
    */
@@ -252,6 +257,10 @@ public class FileBasedConfiguration extends FtpConfiguration {
     if (getServerThread() == 0 || getClientThread() == 0) {
       computeNbThreads();
     }
+    node = document.selectSingleNode(XML_TRANSFER_THREAD);
+    if (node != null) {
+      setTransferThread(Integer.parseInt(node.getText()));
+    }
     node = document.selectSingleNode(XML_LIMITGLOBAL);
     if (node != null) {
       serverGlobalReadLimit = Long.parseLong(node.getText());
@@ -24,6 +24,7 @@ import io.netty.util.ResourceLeakDetector;
 import io.netty.util.ResourceLeakDetector.Level;
 import org.junit.BeforeClass;
 import org.junit.Rule;
+import org.junit.Test;
 import org.junit.rules.TestWatcher;
 import org.waarp.common.logging.SysErrLogger;
 import org.waarp.common.logging.WaarpLogger;
@@ -31,8 +32,19 @@ import org.waarp.common.logging.WaarpLoggerFactory;
 import org.waarp.common.logging.WaarpSlf4JLoggerFactory;
 import org.waarp.common.utility.DetectionUtils;
 import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.ftp.client.transaction.Ftp4JClientTransactionTest;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
 
 /**
  * Simple test example using predefined scenario (Note: this uses the configuration example for user shutdown
@@ -110,4 +122,139 @@ public class FtpClientTest extends AbstractFtpClientTest {
     startServer0();
   }
 
+  @Test
+  public void testTransferPoolMoreSessionsThanThreads() throws Exception {
+    // The test configuration uses 2 transfer threads
+    final int nbSession = 6;
+    final int nbIteration = 3;
+    final AtomicInteger errors = new AtomicInteger();
+    final ExecutorService executorService =
+        Executors.newFixedThreadPool(nbSession);
+    for (int i = 0; i < nbSession; i++) {
+      final String id = "P" + i;
+      executorService.execute(new Runnable() {
+        @Override
+        public void run() {
+          if (!storeThenRetrieve(id, nbIteration)) {
+            errors.incrementAndGet();
+          }
+        }
+      });
+    }
+    executorService.shutdown();
+    assertTrue(executorService.awaitTermination(120, TimeUnit.SECONDS));
+    assertEquals(0, errors.get());
+  }
+
+  @Test
+  public void testRetrieveByBlocks() throws Exception {
+    // ASCII type is not sent through a FileRegion but block by block
+    final Ftp4JClientTransactionTest client =
+        new Ftp4JClientTransactionTest("127.0.0.1", 2021, "fred", "fred2", "a",
+                                       0);
+    assertTrue(client.connect());
+    try {
+      client.changeMode(true);
+      assertTrue(client.changeFileType(false));
+      final File local = new File("/tmp/ftpretrieve.txt");
+      final File back = new File("/tmp/ftpretrieve.back");
+      // Many more blocks than the flushed batches, each one different and
+      // the last one partial
+      final byte[] content = new byte[4096 * 50 + 123];
+      for (int i = 0; i < content.length; i++) {
+        content[i] = (byte) ('a' + (i / 4096 + i) % 26);
+      }
+      final FileOutputStream out = new FileOutputStream(local);
+      try {
+        out.write(content);
+      } finally {
+        out.close();
+      }
+      back.delete();
+      assertTrue(client.transferFile(local.getAbsolutePath(), local.getName(),
+                                     true));
+      for (int i = 0; i < 3; i++) {
+        assertTrue(client.transferFile(back.getAbsolutePath(),
+                                       local.getName(), false));
+        assertArrayEquals(content, readFile(back));
+        back.delete();
+      }
+      local.delete();
+    } finally {
+      client.logout();
+    }
+  }
+
+  /**
+   * Within one session, each retrieve must give back the content of the
+   * store just before it
+   */
+  private static boolean storeThenRetrieve(final String id,
+                                           final int nbIteration) {
+    final Ftp4JClientTransactionTest client =
+        new Ftp4JClientTransactionTest("127.0.0.1", 2021, "fred", "fred2", "a",
+                                       0);
+    if (!client.connect()) {
+      logger.error("{} cannot connect", id);
+      return false;
+    }
+    try {
+      client.changeMode(true);
+      client.makeDir(id);
+      if (!client.changeDir(id)) {
+        logger.error("{} cannot change dir", id);
+        return false;
+      }
+      for (int i = 0; i < nbIteration; i++) {
+        final File local = new File("/tmp/ftppool" + id + ".bin");
+        final File back = new File("/tmp/ftppool" + id + ".back");
+        final byte[] content = new byte[100000 + i * 1000];
+        Arrays.fill(content, (byte) (id.hashCode() + i));
+        final FileOutputStream out = new FileOutputStream(local);
+        try {
+          out.write(content);
+        } finally {
+          out.close();
+        }
+        back.delete();
+        // The remote file has the name of the local one
+        if (!client.transferFile(local.getAbsolutePath(), local.getName(),
+                                 true) ||
+            !client.transferFile(back.getAbsolutePath(), local.getName(),
+                                 false)) {
+          logger.error("{} transfer {} failed", id, i);
+          return false;
+        }
+        if (!Arrays.equals(content, readFile(back))) {
+          logger.error("{} retrieve {} out of order", id, i);
+          return false;
+        }
+      }
+      return true;
+    } catch (final IOException e) {
+      logger.error(id, e);
+      return false;
+    } finally {
+      client.logout();
+    }
+  }
+
+  private static byte[] readFile(final File file) throws IOException {
+    final byte[] content = new byte[(int) file.length()];
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      int read = 0;
+      while (read < content.length) {
+        final int nb = in.read(content, read, content.length - read);
+        if (nb < 0) {
+          break;
+        }
+        read += nb;
+      }
+    } finally {
+      in.close();
+    }
+    return content;
+  }
+
 }
@@ -274,6 +274,11 @@ public class FileBasedConfiguration extends FtpConfiguration {
    * Default number of threads in pool for Client.
    */
   private static final String XML_CLIENT_THREAD = "clientthread";
+
+  /**
+   * Number of threads shared by all sessions for data transfers.
+   */
+  private static final String XML_TRANSFER_THREAD = "transferthread";
   /**
    * Memory Limit to use.
    */
@@ -367,6 +372,7 @@ public class FileBasedConfiguration extends FtpConfiguration {
       new XmlDecl(XmlType.LONG, XML_LIMITDELAY),
       new XmlDecl(XmlType.INTEGER, XML_SERVER_THREAD),
       new XmlDecl(XmlType.INTEGER, XML_CLIENT_THREAD),
+      new XmlDecl(XmlType.INTEGER, XML_TRANSFER_THREAD),
       new XmlDecl(XmlType.LONG, XML_MEMORY_LIMIT),
       new XmlDecl(XmlType.BOOLEAN, XML_CSTRT_USECPULIMIT),
       new XmlDecl(XmlType.BOOLEAN, XML_CSTRT_USECPUJDKLIMIT),
@@ -980,6 +986,10 @@ public class FileBasedConfiguration extends FtpConfiguration {
     if (getServerThread() == 0 || getClientThread() == 0) {
       computeNbThreads();
     }
+    value = hashConfig.get(XML_TRANSFER_THREAD);
+    if (value != null && !value.isEmpty()) {
+      setTransferThread(value.getInteger());
+    }
     value = hashConfig.get(XML_MEMORY_LIMIT);
     if (value != null && !value.isEmpty()) {
       long lvalue = value.getLong();
@@ -33,6 +33,10 @@ import org.waarp.common.database.exception.WaarpDatabaseNoConnectionException;
 import org.waarp.common.future.WaarpFuture;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.metrics.Counter;
+import org.waarp.common.metrics.Histogram;
+import org.waarp.common.metrics.MetricFamily;
+import org.waarp.common.metrics.MetricsRegistry;
 import org.waarp.ftp.core.command.AbstractCommand;
 import org.waarp.ftp.core.command.FtpCommandCode;
 import org.waarp.ftp.core.command.access.QUIT;
@@ -66,6 +70,23 @@ public class ExecBusinessHandler extends BusinessHandler {
       POST_EXECUTION_IN_ERROR_FOR_TRANSFER_SINCE_NO_FILE_FOUND =
       "PostExecution in Error for Transfer since No File found";
 
+  /**
+   * Finished transfers, by command and status
+   */
+  private static final MetricFamily<Counter> TRANSFERS =
+      MetricsRegistry.getInstance().counter(
+          "ftp_gateway_transfers_total",
+          "Transfers finished by the FTP gateway",
+          "command", "status");
+  /**
+   * Time spent in the pre and post actions, by command and phase
+   */
+  private static final MetricFamily<Histogram> ACTIONS =
+      MetricsRegistry.getInstance().histogram(
+          "ftp_gateway_action_seconds",
+          "Time spent running the pre and post actions of the FTP gateway",
+          "command", "phase");
+
   /**
    * Internal Logger
    */
@@ -99,6 +120,13 @@ public class ExecBusinessHandler extends BusinessHandler {
                                                           ReplyCode.REPLY_250_REQUESTED_FILE_ACTION_OKAY &&
                                                           replyCode !=
                                                           ReplyCode.REPLY_226_CLOSING_DATA_CONNECTION));
+    if (MetricsRegistry.isEnabled()) {
+      final boolean success =
+          replyCode == ReplyCode.REPLY_250_REQUESTED_FILE_ACTION_OKAY ||
+          replyCode == ReplyCode.REPLY_226_CLOSING_DATA_CONNECTION;
+      TRANSFERS.labels(String.valueOf(transfer.getCommand()),
+                       success? "ok" : "error").inc();
+    }
     if (replyCode != ReplyCode.REPLY_250_REQUESTED_FILE_ACTION_OKAY &&
         replyCode != ReplyCode.REPLY_226_CLOSING_DATA_CONNECTION) {
       // Do nothing
@@ -193,8 +221,12 @@ public class ExecBusinessHandler extends BusinessHandler {
         args[5] = Long.toString(specialId);
         final AbstractExecutor executor = AbstractExecutor
             .createAbstractExecutor(auth, args, true, futureCompletion);
+        final long start = MetricsRegistry.startTimer();
         executor.run();
         futureCompletion.awaitOrInterruptible();
+        if (start != 0) {
+          ACTIONS.labels(code.name(), "post").observeSince(start);
+        }
         if (futureCompletion.isSuccess()) {
           // All done
           WaarpActionLogger
@@ -333,8 +365,12 @@ public class ExecBusinessHandler extends BusinessHandler {
         args[5] = Long.toString(specialId);
         final AbstractExecutor executor = AbstractExecutor
             .createAbstractExecutor(auth, args, false, futureCompletion);
+        final long start = MetricsRegistry.startTimer();
         executor.run();
         futureCompletion.awaitOrInterruptible();
+        if (start != 0) {
+          ACTIONS.labels(code.name(), "pre").observeSince(start);
+        }
         if (futureCompletion.isSuccess()) {
           // File should be ready
           if (!file.canRead()) {
@@ -170,6 +170,14 @@ public class SpooledDirectoryTransfer implements Runnable {
 
   protected final boolean ignoreAlreadyUsed;
 
+  protected final int digestSample;
+
+  protected final boolean incrementalScan;
+
+  protected final int scanThreads;
+
+  protected final int statusJournal;
+
   protected final NetworkTransaction networkTransaction;
 
   protected FileMonitor monitor;
@@ -215,6 +223,10 @@ public class SpooledDirectoryTransfer implements Runnable {
     this.minimalSize = arguments.minimalSize;
     normalInfoAsWarn = arguments.logWarn;
     this.ignoreAlreadyUsed = arguments.ignoreAlreadyUsed;
+    digestSample = arguments.digestSample;
+    incrementalScan = arguments.incrementalScan;
+    scanThreads = arguments.scanThreads;
+    statusJournal = arguments.statusJournal;
     this.networkTransaction = networkTransaction;
   }
 
@@ -446,6 +458,10 @@ public class SpooledDirectoryTransfer implements Runnable {
                               recurs, commandValidFile, waarpRemovedCommand,
                               null);
     monitor.setIgnoreAlreadyUsed(ignoreAlreadyUsed);
+    monitor.setDigestSampleSize(digestSample);
+    monitor.setIncrementalScan(incrementalScan);
+    monitor.setScanThreads(scanThreads);
+    monitor.setStatusJournalMax(statusJournal);
     return commandValidFile;
   }
 
@@ -806,6 +822,10 @@ public class SpooledDirectoryTransfer implements Runnable {
     private long minimalSize;
     private boolean logWarn = true;
     private boolean ignoreAlreadyUsed = false;
+    private int digestSample = -1;
+    private boolean incrementalScan = false;
+    private int scanThreads;
+    private int statusJournal;
 
     public String getName() {
       return name;
@@ -962,6 +982,38 @@ public class SpooledDirectoryTransfer implements Runnable {
     public void setIgnoreAlreadyUsed(final boolean ignoreAlreadyUsed) {
       this.ignoreAlreadyUsed = ignoreAlreadyUsed;
     }
+
+    public int getDigestSample() {
+      return digestSample;
+    }
+
+    public void setDigestSample(final int digestSample) {
+      this.digestSample = digestSample;
+    }
+
+    public boolean isIncrementalScan() {
+      return incrementalScan;
+    }
+
+    public void setIncrementalScan(final boolean incrementalScan) {
+      this.incrementalScan = incrementalScan;
+    }
+
+    public int getScanThreads() {
+      return scanThreads;
+    }
+
+    public void setScanThreads(final int scanThreads) {
+      this.scanThreads = scanThreads;
+    }
+
+    public int getStatusJournal() {
+      return statusJournal;
+    }
+
+    public void setStatusJournal(final int statusJournal) {
+      this.statusJournal = statusJournal;
+    }
   }
 
   protected static final List<Arguments> arguments = new ArrayList<Arguments>();
@@ -989,6 +1041,10 @@ public class SpooledDirectoryTransfer implements Runnable {
   private static final String XML_MINIMAL_SIZE = "minimalSize";
   private static final String XML_LOG_WARN = "logWarn";
   private static final String XML_IGNORED_ALREADY_USED = "ignoreAlreadyUsed";
+  private static final String XML_DIGEST_SAMPLE = "digestSample";
+  private static final String XML_INCREMENTAL_SCAN = "incrementalScan";
+  private static final String XML_SCAN_THREADS = "scanThreads";
+  private static final String XML_STATUS_JOURNAL = "statusJournal";
 
   private static final XmlDecl[] subSpooled = {
       new XmlDecl(XmlType.STRING, XML_NAME),
@@ -1009,6 +1065,10 @@ public class SpooledDirectoryTransfer implements Runnable {
       new XmlDecl(XML_WAARP, XmlType.STRING, XML_WAARP, true),
       new XmlDecl(XmlType.LONG, XML_ELAPSE_WAARP),
       new XmlDecl(XmlType.BOOLEAN, XML_IGNORED_ALREADY_USED),
+      new XmlDecl(XmlType.INTEGER, XML_DIGEST_SAMPLE),
+      new XmlDecl(XmlType.BOOLEAN, XML_INCREMENTAL_SCAN),
+      new XmlDecl(XmlType.INTEGER, XML_SCAN_THREADS),
+      new XmlDecl(XmlType.INTEGER, XML_STATUS_JOURNAL),
       new XmlDecl(XmlType.LONG, XML_MINIMAL_SIZE)
   };
   private static final XmlDecl[] spooled = {
@@ -1172,6 +1232,22 @@ public class SpooledDirectoryTransfer implements Runnable {
         if (value != null && !value.isEmpty()) {
           arg.setIgnoreAlreadyUsed(value.getBoolean());
         }
+        value = subHash.get(XML_DIGEST_SAMPLE);
+        if (value != null && !value.isEmpty()) {
+          arg.setDigestSample(value.getInteger());
+        }
+        value = subHash.get(XML_INCREMENTAL_SCAN);
+        if (value != null && !value.isEmpty()) {
+          arg.setIncrementalScan(value.getBoolean());
+        }
+        value = subHash.get(XML_SCAN_THREADS);
+        if (value != null && !value.isEmpty()) {
+          arg.setScanThreads(value.getInteger());
+        }
+        value = subHash.get(XML_STATUS_JOURNAL);
+        if (value != null && !value.isEmpty()) {
+          arg.setStatusJournal(value.getInteger());
+        }
         arguments.add(arg);
       }
     }
@@ -1303,6 +1379,17 @@ public class SpooledDirectoryTransfer implements Runnable {
             arg.setParallel(false);
           } else if ("-ignoreAlreadyUsed".equalsIgnoreCase(args[i])) {
             arg.setIgnoreAlreadyUsed(true);
+          } else if ("-digestSample".equalsIgnoreCase(args[i])) {
+            i++;
+            arg.setDigestSample(Integer.parseInt(args[i]));
+          } else if ("-incrementalScan".equalsIgnoreCase(args[i])) {
+            arg.setIncrementalScan(true);
+          } else if ("-scanThreads".equalsIgnoreCase(args[i])) {
+            i++;
+            arg.setScanThreads(Integer.parseInt(args[i]));
+          } else if ("-statusJournal".equalsIgnoreCase(args[i])) {
+            i++;
+            arg.setStatusJournal(Integer.parseInt(args[i]));
           }
         }
       } catch (final NumberFormatException e) {
@@ -100,6 +100,7 @@ public class TransferArgs {
             .desc("Specify if the transfer should not integrate a FOLLOW id")
             .build();
   public static final String FOLLOW_JSON_KEY = "follow";
+  public static final String PRIORITY_JSON_KEY = "priority";
   private static final String INFO = "info";
   public static final String INFO_ARG = "-" + INFO;
   private static final Option INFO_OPTION =
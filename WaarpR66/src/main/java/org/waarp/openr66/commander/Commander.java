@@ -458,8 +458,9 @@ public class Commander implements CommanderInterface {
           }
           continue;
         }
-        internalRunner.submitTaskRunner(taskRunner);
-        totalRuns++;
+        if (internalRunner.submitTaskRunner(taskRunner)) {
+          totalRuns++;
+        }
       }
     }
   }
@@ -23,19 +23,25 @@ import org.waarp.common.database.exception.WaarpDatabaseNoConnectionException;
 import org.waarp.common.database.exception.WaarpDatabaseSqlException;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.utility.WaarpShutdownHook;
 import org.waarp.common.utility.WaarpThreadFactory;
 import org.waarp.openr66.database.data.DbTaskRunner;
 import org.waarp.openr66.protocol.configuration.Configuration;
 import org.waarp.openr66.protocol.networkhandler.NetworkTransaction;
 
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class launch and control the Commander and enable TaskRunner job
@@ -54,6 +60,53 @@ public class InternalRunner {
   private volatile boolean isRunning = true;
   private final ThreadPoolExecutor threadPoolExecutor;
   private final NetworkTransaction networkTransaction;
+  /**
+   * Number of transfers submitted locally that may wait, per runner thread
+   */
+  private static final int SUBMIT_QUEUE_PER_THREAD = 32;
+  /**
+   * Transfers submitted locally, waiting for a free runner thread
+   */
+  private final SubmitQueue<DbTaskRunner> submitQueue;
+  /**
+   * Transfers currently handled by a runner thread
+   */
+  private final Set<String> submitted =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final boolean eventDriven;
+  private final Runnable submitQueueConsumer = new Runnable() {
+    @Override
+    public void run() {
+      consumeSubmitQueue();
+    }
+  };
+  private final AtomicLong submitCount = new AtomicLong();
+  private final AtomicLong submitLatencyCount = new AtomicLong();
+  private final AtomicLong submitLatencyTotal = new AtomicLong();
+  private final AtomicLong submitLatencyMax = new AtomicLong();
+
+  /**
+   * Runner thread wrapper, in order to know which transfers are running
+   */
+  private class SubmittedRunner implements Runnable {
+    private final ClientRunner runner;
+    private final SubmitQueue.Entry<DbTaskRunner> entry;
+
+    private SubmittedRunner(final ClientRunner runner,
+                            final SubmitQueue.Entry<DbTaskRunner> entry) {
+      this.runner = runner;
+      this.entry = entry;
+    }
+
+    @Override
+    public void run() {
+      try {
+        runner.run();
+      } finally {
+        release(entry.getKey());
+      }
+    }
+  }
 
   /**
    * Create the structure to enable submission by database
@@ -64,10 +117,16 @@ public class InternalRunner {
   public InternalRunner()
       throws WaarpDatabaseNoConnectionException, WaarpDatabaseSqlException {
     commander = new Commander(this, true);
+    eventDriven =
+        Configuration.configuration.getCommanderReconciliationDelay() > 0 &&
+        Configuration.configuration.getMultipleMonitors() <= 1;
     // This is not daemon intentionally
     scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
         new WaarpThreadFactory("InternalRunner", false));
     isRunning = true;
+    submitQueue = new SubmitQueue<DbTaskRunner>(
+        Configuration.configuration.getRunnerThread() *
+        SUBMIT_QUEUE_PER_THREAD);
     final BlockingQueue<Runnable> workQueue = new SynchronousQueue<Runnable>();
     threadPoolExecutor =
         new ThreadPoolExecutor(Configuration.configuration.getRunnerThread(),
@@ -80,17 +139,154 @@ public class InternalRunner {
                                      final Runnable runnable,
                                      final ThreadPoolExecutor threadPoolExecutor) {
                                    logger.debug("Task rescheduled");
+                                   if (runnable instanceof SubmittedRunner) {
+                                     rejected((SubmittedRunner) runnable);
+                                   }
                                  }
                                });
     scheduledFuture = scheduledExecutorService.scheduleWithFixedDelay(commander,
-                                                                      Configuration.configuration
-                                                                          .getDelayCommander(),
-                                                                      Configuration.configuration
-                                                                          .getDelayCommander(),
+                                                                      getCommanderDelay(),
+                                                                      getCommanderDelay(),
                                                                       TimeUnit.MILLISECONDS);
     networkTransaction = new NetworkTransaction();
   }
 
+  /**
+   * @return the delay between 2 database checks by the Commander, longer
+   *     when local submissions are event driven
+   */
+  private long getCommanderDelay() {
+    if (eventDriven) {
+      return Configuration.configuration.getCommanderReconciliationDelay();
+    }
+    return Configuration.configuration.getDelayCommander();
+  }
+
+  private static String getKey(final DbTaskRunner taskRunner) {
+    return taskRunner.getRequested() + ' ' + taskRunner.getRequester() + ' ' +
+           taskRunner.getSpecialId();
+  }
+
+  /**
+   * Submit directly a transfer just inserted or updated as TOSUBMIT by this
+   * server, without waiting for the next Commander database check (at its
+   * start time if it is before the next check)
+   *
+   * @param taskRunner
+   *
+   * @return True if the transfer is queued for submission
+   */
+  public boolean offerSubmission(final DbTaskRunner taskRunner) {
+    if (!eventDriven || !isRunning ||
+        Configuration.configuration.isShutdown() ||
+        taskRunner.isSelfRequested()) {
+      return false;
+    }
+    final long delay = getDelayBeforeStart(taskRunner);
+    if (delay >= getCommanderDelay()) {
+      // Let the Commander handle it
+      return false;
+    }
+    final long now = System.currentTimeMillis();
+    if (!submitQueue.offer(getKey(taskRunner), taskRunner, now + delay, now)) {
+      // Queue full: let the Commander handle it
+      logger.debug("Submit queue full {}", taskRunner);
+      return false;
+    }
+    try {
+      if (delay > 0) {
+        scheduledExecutorService
+            .schedule(submitQueueConsumer, delay, TimeUnit.MILLISECONDS);
+      } else {
+        scheduledExecutorService.execute(submitQueueConsumer);
+      }
+    } catch (final RejectedExecutionException e) {
+      // Stopping: the Commander will handle it at next startup
+      return false;
+    }
+    return true;
+  }
+
+  private static long getDelayBeforeStart(final DbTaskRunner taskRunner) {
+    if (taskRunner.getStart() == null) {
+      return 0;
+    }
+    return taskRunner.getStart().getTime() - System.currentTimeMillis();
+  }
+
+  /**
+   * Submit as many queued transfers, whose start time is reached, as runner
+   * threads allow
+   */
+  private void consumeSubmitQueue() {
+    int allowed = allowedToSubmit();
+    while (allowed > 0 && isRunning) {
+      if (WaarpShutdownHook.isShutdownStarting()) {
+        logger.info("Will not start transfers, server is in shutdown.");
+        return;
+      }
+      final SubmitQueue.Entry<DbTaskRunner> entry =
+          submitQueue.pollDue(System.currentTimeMillis());
+      if (entry == null) {
+        return;
+      }
+      if (Configuration.configuration.getLocalTransaction()
+                                     .getFromRequest(entry.getKey()) != null) {
+        // already running
+        continue;
+      }
+      if (launch(entry.getElement(), entry)) {
+        allowed--;
+      } else if (submitted.contains(entry.getKey())) {
+        // Retry set by its own runner thread: wait for its release
+        submitQueue.park(entry);
+        if (!submitted.contains(entry.getKey())) {
+          // Released meanwhile
+          submitQueue.unpark(entry.getKey());
+        }
+      } else {
+        // No free runner thread: back to the queue until the next release
+        submitQueue.requeue(entry);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Called when the runner thread pool refuses a transfer: if local
+   * submissions are event driven, it goes back to the queue until the next
+   * release of a runner thread, else it is still TOSUBMIT so it will be
+   * retried by the Commander
+   *
+   * @param submittedRunner
+   */
+  private void rejected(final SubmittedRunner submittedRunner) {
+    submitted.remove(submittedRunner.entry.getKey());
+    if (eventDriven && isRunning) {
+      submitQueue.requeue(submittedRunner.entry);
+    }
+  }
+
+  /**
+   * Called once the transfer is no more handled by a runner thread, so
+   * that its retry, if parked, can be launched
+   *
+   * @param key
+   */
+  private void release(final String key) {
+    submitted.remove(key);
+    if (eventDriven && isRunning) {
+      submitQueue.unpark(key);
+      if (!submitQueue.isEmpty()) {
+        try {
+          scheduledExecutorService.execute(submitQueueConsumer);
+        } catch (final RejectedExecutionException ignored) {
+          // nothing
+        }
+      }
+    }
+  }
+
   public NetworkTransaction getNetworkTransaction() {
     return networkTransaction;
   }
@@ -108,13 +304,40 @@ public class InternalRunner {
    * Submit a task
    *
    * @param taskRunner
+   *
+   * @return True if the task is launched
+   */
+  public boolean submitTaskRunner(final DbTaskRunner taskRunner) {
+    return launch(taskRunner, null);
+  }
+
+  /**
+   * @param taskRunner
+   * @param entry the entry taken from the submit queue, or null
+   *
+   * @return True if the task is launched
    */
-  public void submitTaskRunner(final DbTaskRunner taskRunner) {
+  private boolean launch(final DbTaskRunner taskRunner,
+                         final SubmitQueue.Entry<DbTaskRunner> entry) {
     if (isRunning || !Configuration.configuration.isShutdown()) {
       // last check: number can have raised up since Commander checks
       if (threadPoolExecutor.getActiveCount() <
           Configuration.configuration.getRunnerThread()) {
+        final String key = getKey(taskRunner);
+        final SubmitQueue.Entry<DbTaskRunner> queued = submitQueue.remove(key);
+        if (!submitted.add(key)) {
+          logger.debug("Already submitted {}", taskRunner);
+          return false;
+        }
         logger.debug("Will run {}", taskRunner);
+        SubmitQueue.Entry<DbTaskRunner> origin = entry != null? entry : queued;
+        if (origin != null) {
+          updateSubmitLatency(origin);
+        } else {
+          final long now = System.currentTimeMillis();
+          origin = SubmitQueue.newEntry(key, taskRunner, now, now);
+        }
+        submitCount.incrementAndGet();
         final ClientRunner runner =
             new ClientRunner(networkTransaction, taskRunner, null);
         if (taskRunner.isSendThrough() && (taskRunner.isRescheduledTransfer() ||
@@ -123,12 +346,64 @@ public class InternalRunner {
           taskRunner.checkThroughMode();
         }
         // create the client, connect and run
-        threadPoolExecutor.execute(runner);
+        threadPoolExecutor.execute(new SubmittedRunner(runner, origin));
+        return true;
       } else {
         // too many current active threads
         logger.debug("Task rescheduled {}", taskRunner);
       }
     }
+    return false;
+  }
+
+  /**
+   * Record the delay between the submission of a transfer to the queue (or
+   * its planned start if later) and its launch
+   *
+   * @param entry
+   */
+  private void updateSubmitLatency(final SubmitQueue.Entry<DbTaskRunner> entry) {
+    final long latency = Math.max(0, System.currentTimeMillis() -
+                                     Math.max(entry.getEnqueued(),
+                                              entry.getStart()));
+    submitLatencyCount.incrementAndGet();
+    submitLatencyTotal.addAndGet(latency);
+    long max = submitLatencyMax.get();
+    while (latency > max && !submitLatencyMax.compareAndSet(max, latency)) {
+      max = submitLatencyMax.get();
+    }
+  }
+
+  /**
+   * @return the number of transfers launched since startup
+   */
+  public long getSubmitCount() {
+    return submitCount.get();
+  }
+
+  /**
+   * @return the average delay in ms between the local submission of the
+   *     transfers (or their planned start if later) and their launch
+   */
+  public long getAverageSubmitLatency() {
+    final long count = submitLatencyCount.get();
+    return count == 0? 0 : submitLatencyTotal.get() / count;
+  }
+
+  /**
+   * @return the maximum delay in ms between the local submission of a
+   *     transfer (or its planned start if later) and its launch
+   */
+  public long getMaxSubmitLatency() {
+    return submitLatencyMax.get();
+  }
+
+  public String hashStatus() {
+    final int queued = submitQueue.size();
+    return "InternalRunner: [eventDriven: " + eventDriven + " queued: " +
+           queued + " parked: " + submitQueue.parkedSize() + " submitted: " + submitted.size() + " launched: " +
+           getSubmitCount() + " avgLatency: " + getAverageSubmitLatency() +
+           " maxLatency: " + getMaxSubmitLatency() + ']';
   }
 
   /**
@@ -173,10 +448,8 @@ public class InternalRunner {
     commander = new Commander(this);
     scheduledFuture = scheduledExecutorService.scheduleWithFixedDelay(commander,
                                                                       2 *
-                                                                      Configuration.configuration
-                                                                          .getDelayCommander(),
-                                                                      Configuration.configuration
-                                                                          .getDelayCommander(),
+                                                                      getCommanderDelay(),
+                                                                      getCommanderDelay(),
                                                                       TimeUnit.MILLISECONDS);
   }
 }
@@ -0,0 +1,232 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.commander;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded queue of the transfers submitted locally, waiting for their start
+ * time and a free runner thread, in submission order
+ * <p>
+ * When full, new transfers are refused and left to the Commander database
+ * check, while transfers taken from the queue but not launched can always
+ * be put back. Transfers still handled by their previous runner thread (as
+ * a retry set from this thread) are parked until this thread releases
+ * them.
+ *
+ * @param <E> the type of the queued transfers
+ */
+final class SubmitQueue<E> {
+  /**
+   * Queued transfer
+   *
+   * @param <E>
+   */
+  static final class Entry<E> {
+    private final String key;
+    private final E element;
+    private final long start;
+    private final long enqueued;
+
+    private Entry(final String key, final E element, final long start,
+                  final long enqueued) {
+      this.key = key;
+      this.element = element;
+      this.start = start;
+      this.enqueued = enqueued;
+    }
+
+    String getKey() {
+      return key;
+    }
+
+    E getElement() {
+      return element;
+    }
+
+    /**
+     * @return the planned start time
+     */
+    long getStart() {
+      return start;
+    }
+
+    /**
+     * @return the time of the first submission to the queue
+     */
+    long getEnqueued() {
+      return enqueued;
+    }
+  }
+
+  private final int capacity;
+  private final Map<String, Entry<E>> entries =
+      new LinkedHashMap<String, Entry<E>>();
+  /**
+   * Transfers waiting for the release of their previous runner thread
+   */
+  private final Map<String, Entry<E>> parked =
+      new HashMap<String, Entry<E>>();
+
+  /**
+   * @param capacity the maximum number of queued transfers
+   */
+  SubmitQueue(final int capacity) {
+    this.capacity = Math.max(1, capacity);
+  }
+
+  /**
+   * Add or replace a transfer, keeping its first submission time if
+   * already queued
+   *
+   * @param key
+   * @param element
+   * @param start the planned start time
+   * @param now the current time
+   *
+   * @return False if the queue is full
+   */
+  synchronized boolean offer(final String key, final E element,
+                             final long start, final long now) {
+    final Entry<E> waiting = parked.get(key);
+    if (waiting != null) {
+      parked.put(key, new Entry<E>(key, element, start, waiting.enqueued));
+      return true;
+    }
+    final Entry<E> previous = entries.get(key);
+    if (previous == null && entries.size() >= capacity) {
+      return false;
+    }
+    entries.put(key, new Entry<E>(key, element, start,
+                                  previous == null? now : previous.enqueued));
+    return true;
+  }
+
+  /**
+   * @param key
+   * @param element
+   * @param start the planned start time
+   * @param now the current time
+   *
+   * @return a new entry, not queued
+   */
+  static <E> Entry<E> newEntry(final String key, final E element,
+                               final long start, final long now) {
+    return new Entry<E>(key, element, start, now);
+  }
+
+  /**
+   * Put back first a transfer taken from the queue but not launched, even if
+   * the queue is full
+   *
+   * @param entry
+   */
+  synchronized void requeue(final Entry<E> entry) {
+    if (entries.containsKey(entry.key)) {
+      return;
+    }
+    final Map<String, Entry<E>> previous =
+        new LinkedHashMap<String, Entry<E>>(entries);
+    entries.clear();
+    entries.put(entry.key, entry);
+    entries.putAll(previous);
+  }
+
+  /**
+   * Keep aside a transfer taken from the queue but not launched since its
+   * previous runner thread still handles it, until unpark is called
+   *
+   * @param entry
+   */
+  synchronized void park(final Entry<E> entry) {
+    if (!entries.containsKey(entry.key)) {
+      parked.put(entry.key, entry);
+    }
+  }
+
+  /**
+   * Put back first the transfer parked for this key, if any
+   *
+   * @param key
+   *
+   * @return True if a transfer was parked for this key
+   */
+  synchronized boolean unpark(final String key) {
+    final Entry<E> entry = parked.remove(key);
+    if (entry == null) {
+      return false;
+    }
+    requeue(entry);
+    return true;
+  }
+
+  /**
+   * @param now the current time
+   *
+   * @return the first transfer whose start time is reached, removed from the
+   *     queue, or null if none
+   */
+  synchronized Entry<E> pollDue(final long now) {
+    final Iterator<Entry<E>> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      final Entry<E> next = iterator.next();
+      if (next.start <= now) {
+        iterator.remove();
+        return next;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param key
+   *
+   * @return the removed transfer, or null if neither queued nor parked
+   */
+  synchronized Entry<E> remove(final String key) {
+    final Entry<E> entry = entries.remove(key);
+    if (entry != null) {
+      return entry;
+    }
+    return parked.remove(key);
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of parked transfers
+   */
+  synchronized int parkedSize() {
+    return parked.size();
+  }
+
+  synchronized boolean isEmpty() {
+    return entries.isEmpty();
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+}
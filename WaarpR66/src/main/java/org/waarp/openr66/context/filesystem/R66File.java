@@ -19,6 +19,8 @@
  */
 package org.waarp.openr66.context.filesystem;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelFuture;
 import org.waarp.common.command.exception.CommandAbstractException;
 import org.waarp.common.digest.FilesystemBasedDigest;
@@ -30,6 +32,7 @@ import org.waarp.common.file.FileUtils;
 import org.waarp.common.file.filesystembased.FilesystemBasedFileImpl;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.metrics.MetricsRegistry;
 import org.waarp.common.utility.WaarpNettyUtil;
 import org.waarp.openr66.context.ErrorCode;
 import org.waarp.openr66.context.R66Result;
@@ -37,11 +40,14 @@ import org.waarp.openr66.context.R66Session;
 import org.waarp.openr66.context.task.exception.OpenR66RunnerErrorException;
 import org.waarp.openr66.database.data.DbTaskRunner;
 import org.waarp.openr66.protocol.configuration.Configuration;
+import org.waarp.openr66.protocol.configuration.PartnerConfiguration;
 import org.waarp.openr66.protocol.exception.OpenR66ProtocolPacketException;
 import org.waarp.openr66.protocol.exception.OpenR66ProtocolSystemException;
 import org.waarp.openr66.protocol.localhandler.LocalChannelReference;
 import org.waarp.openr66.protocol.localhandler.RetrieveRunner;
+import org.waarp.openr66.protocol.localhandler.SendWindow;
 import org.waarp.openr66.protocol.utils.ChannelUtils;
+import org.waarp.openr66.protocol.utils.R66Metrics;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -103,6 +109,20 @@ public class R66File extends FilesystemBasedFileImpl {
    */
   public void retrieveBlocking(final AtomicBoolean running)
       throws OpenR66RunnerErrorException, OpenR66ProtocolSystemException {
+    final long start = MetricsRegistry.startTimer();
+    try {
+      retrieveBlocks(running);
+    } finally {
+      final DbTaskRunner runner = ((R66Session) session).getRunner();
+      if (start != 0 && runner != null) {
+        R66Metrics.FILE_RETRIEVE.labels(runner.getRuleId())
+                                .observeSince(start);
+      }
+    }
+  }
+
+  private void retrieveBlocks(final AtomicBoolean running)
+      throws OpenR66RunnerErrorException, OpenR66ProtocolSystemException {
     boolean retrieveDone = false;
     final LocalChannelReference localChannelReference =
         getSession().getLocalChannelReference();
@@ -115,6 +135,24 @@ public class R66File extends FilesystemBasedFileImpl {
       if (!isReady) {
         return;
       }
+      // With a sliding window, blocks in flight cannot share a reused
+      // buffer, so they are read into pooled direct buffers
+      if (Configuration.configuration.isSendDirect() ||
+          SendWindow.getWindowSize(localChannelReference) > 1) {
+        final ByteBuf firstBuffer;
+        try {
+          firstBuffer = readByteBuf(ByteBufAllocator.DEFAULT,
+                                    getSession().getBlockSize());
+        } catch (final FileEndOfTransferException e) {
+          // Last block (in fact, no data to read)
+          retrieveDone = true;
+          return;
+        }
+        digestGlobal = getGlobalDigest();
+        retrieveDone =
+            retrieveDirect(firstBuffer, running, digestGlobal, digestBlock);
+        return;
+      }
       try {
         block = readDataBlock();
       } catch (final FileEndOfTransferException e) {
@@ -127,14 +165,7 @@ public class R66File extends FilesystemBasedFileImpl {
         retrieveDone = true;
         return;
       }
-      if (Configuration.configuration.isGlobalDigest()) {
-        try {
-          digestGlobal = new FilesystemBasedDigest(
-              Configuration.configuration.getDigest());
-        } catch (final NoSuchAlgorithmException e2) {
-          // ignore
-        }
-      }
+      digestGlobal = getGlobalDigest();
       ChannelFuture future1 = null;
       ChannelFuture future2;
       if (running.get() && !Thread.interrupted()) {
@@ -235,6 +266,98 @@ public class R66File extends FilesystemBasedFileImpl {
     }
   }
 
+  /**
+   * @return the global digest to compute if needed, else null; its
+   *     algorithm is the one advertised to the partner if it knows it, else
+   *     the digest algorithm
+   */
+  private FilesystemBasedDigest getGlobalDigest() {
+    if (Configuration.configuration.isGlobalDigest()) {
+      final PartnerConfiguration partner =
+          getSession().getLocalChannelReference() != null?
+              getSession().getLocalChannelReference().getPartner() : null;
+      try {
+        return new FilesystemBasedDigest(
+            partner != null && partner.useGlobalDigestAlgo()?
+                Configuration.configuration.getGlobalDigestAlgo() :
+                Configuration.configuration.getDigest());
+      } catch (final NoSuchAlgorithmException e2) {
+        // ignore
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Send the file reading blocks directly into pooled direct buffers which
+   * are handed to the network layer without heap copy. The sliding window
+   * is used if negotiated with the partner, else each write is awaited
+   * before the next one (the next block being read meanwhile).
+   *
+   * @param firstBuffer the first block already read
+   * @param running When false, should stop the runner
+   * @param digestGlobal
+   * @param digestBlock
+   *
+   * @return True if all blocks were sent successfully
+   *
+   * @throws FileTransferException
+   * @throws OpenR66ProtocolPacketException
+   */
+  private boolean retrieveDirect(final ByteBuf firstBuffer,
+                                 final AtomicBoolean running,
+                                 final FilesystemBasedDigest digestGlobal,
+                                 final FilesystemBasedDigest digestBlock)
+      throws FileTransferException, OpenR66ProtocolPacketException {
+    final LocalChannelReference localChannelReference =
+        getSession().getLocalChannelReference();
+    final int blockSize = getSession().getBlockSize();
+    final int windowSize = SendWindow.getWindowSize(localChannelReference);
+    final SendWindow window;
+    if (windowSize > 1) {
+      window =
+          new SendWindow(localChannelReference.getNetworkChannelObject(),
+                         windowSize,
+                         Configuration.configuration.getSendWindowBytes());
+    } else {
+      window =
+          new SendWindow(localChannelReference.getNetworkChannelObject(), 1,
+                         0);
+    }
+    logger.debug("Send direct using {} for {}", window, this);
+    ByteBuf buffer = firstBuffer;
+    try {
+      while (buffer != null) {
+        if (!running.get() || Thread.interrupted()) {
+          return false;
+        }
+        final int size = buffer.readableBytes();
+        if (!window.acquire(size, running)) {
+          return false;
+        }
+        final ByteBuf toSend = buffer;
+        buffer = null;
+        final ChannelFuture future = RetrieveRunner
+            .writeWhenPossible(toSend, localChannelReference, digestGlobal,
+                               digestBlock);
+        window.register(future, size);
+        if (size < blockSize) {
+          break;
+        }
+        try {
+          buffer = readByteBuf(ByteBufAllocator.DEFAULT, blockSize);
+        } catch (final FileEndOfTransferException e) {
+          break;
+        }
+      }
+    } finally {
+      if (buffer != null) {
+        buffer.release();
+      }
+    }
+    return window.awaitAll(running);
+  }
+
   /**
    * This method is a good to have in a true FileInterface implementation.
    *
@@ -0,0 +1,135 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.dao.database;
+
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.openr66.dao.exception.DAOConnectionException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Cursor over the result of a query, reading rows one by one so that the
+ * memory used does not depend on the number of rows
+ * <p>
+ * Rows are fetched by blocks of {@link #FETCH_SIZE}; since some drivers
+ * (as PostgreSQL) only do so outside auto commit mode, the cursor holds its
+ * own read transaction until it is closed.
+ *
+ * @param <E> the type of the rows
+ */
+public class DBCursor<E> {
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(DBCursor.class);
+
+  /**
+   * Number of rows fetched at once from the database
+   */
+  public static final int FETCH_SIZE = 100;
+
+  private final StatementExecutor<E> executor;
+  private final Connection connection;
+  private final boolean autoCommit;
+  private PreparedStatement stm;
+  private ResultSet res;
+  private boolean closed;
+
+  /**
+   * @param executor the DAO building the rows, whose connection is used
+   * @param query
+   * @param params
+   *
+   * @throws DAOConnectionException
+   */
+  DBCursor(final StatementExecutor<E> executor, final String query,
+           final Object[] params) throws DAOConnectionException {
+    this.executor = executor;
+    connection = executor.connection;
+    try {
+      autoCommit = connection.getAutoCommit();
+      if (autoCommit) {
+        connection.setAutoCommit(false);
+      }
+    } catch (final SQLException e) {
+      throw new DAOConnectionException(e);
+    }
+    try {
+      stm = connection.prepareStatement(query);
+      stm.setFetchSize(FETCH_SIZE);
+      executor.setParameters(stm, params);
+      res = executor.executeQuery(stm);
+    } catch (final SQLException e) {
+      close();
+      throw new DAOConnectionException(e);
+    }
+  }
+
+  /**
+   * @return the next row, or null if there is no more row, the cursor being
+   *     then closed
+   *
+   * @throws DAOConnectionException
+   */
+  public E next() throws DAOConnectionException {
+    if (res == null) {
+      return null;
+    }
+    try {
+      if (res.next()) {
+        return executor.getFromResultSet(res);
+      }
+    } catch (final SQLException e) {
+      close();
+      throw new DAOConnectionException(e);
+    }
+    close();
+    return null;
+  }
+
+  /**
+   * Release the statement and end the read transaction, the connection
+   * itself being closed with its DAO
+   */
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (res != null) {
+      executor.closeResultSet(res);
+      res = null;
+    }
+    if (stm != null) {
+      executor.closeStatement(stm);
+      stm = null;
+    }
+    if (autoCommit) {
+      try {
+        connection.commit();
+        connection.setAutoCommit(true);
+      } catch (final SQLException e) {
+        logger.debug("Cannot restore auto commit", e);
+      }
+    }
+  }
+}
@@ -78,13 +78,27 @@ public class DBHostDAO extends StatementExecutor<Host> implements HostDAO {
       reentrantConcurrentHashMap =
       new SynchronizedLruCache<String, Host>(500, 180000);
 
+  /**
+   * Cluster-wide version of the cache in multiple monitors mode
+   */
+  private static final DbCacheVersion cacheVersion =
+      new DbCacheVersion(reentrantConcurrentHashMap, TABLE);
+
   public DBHostDAO(final Connection con) {
     super(con);
   }
 
   @Override
   protected boolean isCachedEnable() {
-    return Configuration.configuration.getMultipleMonitors() <= 1;
+    return Configuration.configuration.getMultipleMonitors() <= 1 ||
+           cacheVersion.isValid(connection);
+  }
+
+  @Override
+  protected void notifyChange() {
+    if (Configuration.configuration.getMultipleMonitors() > 1) {
+      cacheVersion.increment(connection);
+    }
   }
 
   @Override
@@ -20,19 +20,27 @@
 
 package org.waarp.openr66.dao.database;
 
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.metrics.Histogram;
+import org.waarp.common.metrics.MetricsRegistry;
 import org.waarp.openr66.context.ErrorCode;
 import org.waarp.openr66.dao.Filter;
 import org.waarp.openr66.dao.TransferDAO;
 import org.waarp.openr66.dao.exception.DAOConnectionException;
 import org.waarp.openr66.dao.exception.DAONoDataException;
+import org.waarp.openr66.database.data.DbTaskRunner;
 import org.waarp.openr66.pojo.Transfer;
 import org.waarp.openr66.pojo.UpdatedInfo;
+import org.waarp.openr66.protocol.configuration.Configuration;
+import org.waarp.openr66.protocol.utils.R66Metrics;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -44,8 +52,30 @@ import static org.waarp.openr66.database.DbConstantR66.*;
 public abstract class DBTransferDAO extends StatementExecutor<Transfer>
     implements TransferDAO {
 
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(DBTransferDAO.class);
+
   private static final String LIMIT2 = " LIMIT ";
 
+  // Ids reserved by this node, shared by all DAO instances
+  private static final Object ID_LOCK = new Object();
+  private static long[] reservedIds;
+  private static int nextReservedId;
+
+  // Timings of the main operations, when metrics are enabled
+  private static final Histogram INSERT_TIME =
+      R66Metrics.DAO.labels("insert");
+  private static final Histogram UPDATE_TIME =
+      R66Metrics.DAO.labels("update");
+  private static final Histogram UPDATE_RANK_TIME =
+      R66Metrics.DAO.labels("update_rank");
+  private static final Histogram UPDATE_BATCH_TIME =
+      R66Metrics.DAO.labels("update_batch");
+  private static final Histogram DELETE_TIME =
+      R66Metrics.DAO.labels("delete");
+  private static final Histogram SELECT_TIME =
+      R66Metrics.DAO.labels("select");
+
   // Table name
   protected static final String TABLE = "runner";
 
@@ -72,6 +102,7 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
   public static final String REQUESTED_FIELD = "requested";
   public static final String REQUESTER_FIELD = "requester";
   public static final String UPDATED_INFO_FIELD = "updatedInfo";
+  public static final String FOLLOW_ID_FIELD = "followid";
 
   // CRUD requests
   protected static final String SQL_DELETE =
@@ -94,7 +125,8 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
       TRANSFER_START_FIELD + ", " + TRANSFER_STOP_FIELD + ", " +
       INFO_STATUS_FIELD + ", " + OWNER_REQUEST_FIELD + ", " + REQUESTED_FIELD +
       ", " + REQUESTER_FIELD + ", " + ID_FIELD + ", " + UPDATED_INFO_FIELD +
-      ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+      ", " + FOLLOW_ID_FIELD +
+      ") VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
   protected static final String SQL_SELECT =
       "SELECT * FROM " + TABLE + WHERE + ID_FIELD + " = ? AND " +
       REQUESTER_FIELD + " = ? AND " + REQUESTED_FIELD + " = ? AND " +
@@ -113,9 +145,9 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
       TRANSFER_STOP_FIELD + PARAMETER_COMMA + INFO_STATUS_FIELD +
       PARAMETER_COMMA + OWNER_REQUEST_FIELD + PARAMETER_COMMA +
       REQUESTED_FIELD + PARAMETER_COMMA + REQUESTER_FIELD + PARAMETER_COMMA +
-      UPDATED_INFO_FIELD + " = ?  WHERE " + OWNER_REQUEST_FIELD + " = ? AND " +
-      REQUESTER_FIELD + " = ? AND " + REQUESTED_FIELD + " = ? AND " + ID_FIELD +
-      " = ?";
+      UPDATED_INFO_FIELD + PARAMETER_COMMA + FOLLOW_ID_FIELD + " = ?  WHERE " +
+      OWNER_REQUEST_FIELD + " = ? AND " + REQUESTER_FIELD + " = ? AND " +
+      REQUESTED_FIELD + " = ? AND " + ID_FIELD + " = ?";
   private static final String SQL_UPDATE_LIMITED_RANK =
       "UPDATE " + TABLE + " SET " + RANK_FIELD + PARAMETER_COMMA +
       TRANSFER_STOP_FIELD + " = ?  WHERE " + OWNER_REQUEST_FIELD + " = ? AND " +
@@ -171,10 +203,22 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
         transfer.getStart(), transfer.getStop(),
         transfer.getInfoStatus().getCode(), transfer.getOwnerRequest(),
         transfer.getRequested(), transfer.getRequester(), transfer.getId(),
-        transfer.getUpdatedInfo().ordinal()
+        transfer.getUpdatedInfo().ordinal(),
+        getFollowIdValue(transfer)
     };
   }
 
+  /**
+   * @param transfer
+   *
+   * @return the value of the Follow Id column of this transfer
+   */
+  private static Object getFollowIdValue(final Transfer transfer) {
+    final String followId =
+        DbTaskRunner.getFollowIdFromTransferInfo(transfer.getTransferInfo());
+    return followId == null? NULL_VARCHAR : followId;
+  }
+
   @Override
   protected Object[] getUpdateValues(final Transfer transfer) {
     return new Object[] {
@@ -188,8 +232,10 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
         transfer.getStart(), transfer.getStop(),
         transfer.getInfoStatus().getCode(), transfer.getOwnerRequest(),
         transfer.getRequested(), transfer.getRequester(),
-        transfer.getUpdatedInfo().ordinal(), transfer.getOwnerRequest(),
-        transfer.getRequester(), transfer.getRequested(), transfer.getId()
+        transfer.getUpdatedInfo().ordinal(),
+        getFollowIdValue(transfer), transfer.getOwnerRequest(),
+        transfer.getRequester(),
+        transfer.getRequested(), transfer.getId()
     };
   }
 
@@ -203,7 +249,7 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
   public void updateRank(final Transfer e1)
       throws DAOConnectionException, DAONoDataException {
     final Object[] params = getUpdateLimitedRankValues(e1);
-
+    final long start = MetricsRegistry.startTimer();
     PreparedStatement stm = null;
     try {
       stm = connection.prepareStatement(getUpdateLimitedRankRequest());
@@ -217,6 +263,51 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
       throw new DAOConnectionException(e);
     } finally {
       closeStatement(stm);
+      UPDATE_RANK_TIME.observeSince(start);
+    }
+  }
+
+  /**
+   * Update all given transfers using one JDBC batch
+   *
+   * @param transfers
+   * @param rankOnly if True, only rank and stop time are updated
+   *
+   * @throws DAOConnectionException
+   * @throws DAONoDataException
+   */
+  public void updateBatch(final List<Transfer> transfers,
+                          final boolean rankOnly)
+      throws DAOConnectionException, DAONoDataException {
+    if (transfers.isEmpty()) {
+      return;
+    }
+    final long start = MetricsRegistry.startTimer();
+    PreparedStatement stm = null;
+    try {
+      stm = connection.prepareStatement(
+          rankOnly? getUpdateLimitedRankRequest() : getUpdateRequest());
+      for (final Transfer transfer : transfers) {
+        setParameters(stm, rankOnly? getUpdateLimitedRankValues(transfer) :
+            getUpdateValues(transfer));
+        stm.addBatch();
+      }
+      try {
+        stm.executeBatch();
+      } catch (final SQLException e2) {
+        throw new DAONoDataException(e2);
+      }
+      if (!rankOnly) {
+        for (final Transfer transfer : transfers) {
+          Configuration.configuration.getTransferStatistics()
+                                     .changed(transfer);
+        }
+      }
+    } catch (final SQLException e) {
+      throw new DAOConnectionException(e);
+    } finally {
+      closeStatement(stm);
+      UPDATE_BATCH_TIME.observeSince(start);
     }
   }
 
@@ -228,6 +319,7 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
         transfer.getId(), transfer.getRequester(), transfer.getRequested(),
         transfer.getOwnerRequest()
     };
+    final long start = MetricsRegistry.startTimer();
     try {
       stm = connection.prepareStatement(getDeleteRequest());
       setParameters(stm, params);
@@ -236,13 +328,21 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
       } catch (final SQLException e2) {
         throw new DAONoDataException(e2);
       }
+      Configuration.configuration.getTransferStatistics().removed(transfer);
     } catch (final SQLException e) {
       throw new DAOConnectionException(e);
     } finally {
       closeStatement(stm);
+      DELETE_TIME.observeSince(start);
     }
   }
 
+  @Override
+  public void deleteAll() throws DAOConnectionException {
+    super.deleteAll();
+    Configuration.configuration.getTransferStatistics().invalidate();
+  }
+
   private String prepareFindQuery(final List<Filter> filters,
                                   final Object[] params) {
     final StringBuilder query = new StringBuilder(getGetAllRequest());
@@ -263,23 +363,107 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
     return query.toString();
   }
 
-  @Override
-  public List<Transfer> find(final List<Filter> filters, final int limit)
+  /**
+   * Find transfers, LIMIT and OFFSET being passed as parameters so that the
+   * SQL text only depends on the shape of the filters, and therefore the
+   * prepared statement can be reused from the statement pool
+   *
+   * @param filters
+   * @param column the ORDER BY column or null
+   * @param ascend
+   * @param limit the limit or 0 if no limit
+   * @param offset the offset or a negative value if no offset
+   *
+   * @return the list of transfers
+   *
+   * @throws DAOConnectionException
+   */
+  private List<Transfer> findTransfers(final List<Filter> filters,
+                                       final String column,
+                                       final boolean ascend, final int limit,
+                                       final int offset)
       throws DAOConnectionException {
-    final ArrayList<Transfer> transfers = new ArrayList<Transfer>();
-    // Create the SQL query
-    final Object[] params = new Object[filters.size()];
-    final StringBuilder query =
-        new StringBuilder(prepareFindQuery(filters, params));
+    final StringBuilder query = new StringBuilder();
+    final Object[] params =
+        prepareFind(query, filters, column, ascend, limit, offset);
+    return executeFind(query.toString(), params);
+  }
+
+  /**
+   * Same as find with limit and offset, but returning a cursor reading
+   * transfers from the database only as they are consumed
+   *
+   * @param filters
+   * @param column the ORDER BY column or null
+   * @param ascend
+   * @param limit the limit or 0 if no limit
+   * @param offset the offset or a negative value if no offset
+   *
+   * @return the cursor, to be closed before this DAO
+   *
+   * @throws DAOConnectionException
+   */
+  public DBCursor<Transfer> findCursor(final List<Filter> filters,
+                                       final String column,
+                                       final boolean ascend, final int limit,
+                                       final int offset)
+      throws DAOConnectionException {
+    final StringBuilder query = new StringBuilder();
+    final Object[] params =
+        prepareFind(query, filters, column, ascend, limit, offset);
+    return new DBCursor<Transfer>(this, query.toString(), params);
+  }
+
+  /**
+   * @param query the StringBuilder receiving the SQL query
+   * @param filters
+   * @param column
+   * @param ascend
+   * @param limit
+   * @param offset
+   *
+   * @return the parameters of the query
+   */
+  private Object[] prepareFind(final StringBuilder query,
+                               final List<Filter> filters,
+                               final String column, final boolean ascend,
+                               final int limit, final int offset) {
+    final int nbFilters = filters.size();
+    final boolean withLimit = limit > 0;
+    final boolean withOffset = withLimit && offset >= 0;
+    final Object[] params =
+        new Object[nbFilters + (withLimit? 1 : 0) + (withOffset? 1 : 0)];
+    query.append(prepareFindQuery(filters, params));
+    // Set ORDER BY, the Special Id breaking ties in the same order as for
+    // findAfter, so that its cursors follow exactly this page
+    if (column != null && !column.isEmpty()) {
+      final String direction = ascend? "" : " DESC";
+      query.append(" ORDER BY ").append(column).append(direction);
+      if (!ID_FIELD.equals(column)) {
+        query.append(", ").append(ID_FIELD).append(direction);
+      }
+    }
     // Set LIMIT
-    if (limit > 0) {
-      query.append(LIMIT2).append(limit);
+    if (withLimit) {
+      query.append(LIMIT2).append('?');
+      params[nbFilters] = limit;
+    }
+    // Set OFFSET
+    if (withOffset) {
+      query.append(" OFFSET ?");
+      params[nbFilters + 1] = offset;
     }
-    // Execute query
+    return params;
+  }
+
+  private List<Transfer> executeFind(final String query,
+                                     final Object[] params)
+      throws DAOConnectionException {
+    final ArrayList<Transfer> transfers = new ArrayList<Transfer>();
     PreparedStatement stm = null;
     ResultSet res = null;
     try {
-      stm = connection.prepareStatement(query.toString());
+      stm = connection.prepareStatement(query);
       setParameters(stm, params);
       res = executeQuery(stm);
       while (res.next()) {
@@ -294,154 +478,134 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
     return transfers;
   }
 
-  @Override
-  public List<Transfer> find(final List<Filter> filters, final int limit,
-                             final int offset) throws DAOConnectionException {
-    final ArrayList<Transfer> transfers = new ArrayList<Transfer>();
-    // Create the SQL query
-    final Object[] params = new Object[filters.size()];
-    final StringBuilder query =
-        new StringBuilder(prepareFindQuery(filters, params));
-    // Set LIMIT
-    if (limit > 0) {
-      query.append(LIMIT2).append(limit);
+  /**
+   * Find the transfers following the given one in the given order (keyset
+   * pagination), the Special Id breaking ties, so that the cost of a page
+   * does not depend on how far it is from the first one, as with an OFFSET
+   *
+   * @param filters
+   * @param column the ORDER BY column
+   * @param ascend
+   * @param lastValue the value of the ORDER BY column for the last
+   *     transfer of the previous page, ignored if column is the Special Id
+   * @param lastId the Special Id of the last transfer of the previous page
+   * @param limit the limit or 0 if no limit
+   *
+   * @return the list of transfers
+   *
+   * @throws DAOConnectionException
+   */
+  public List<Transfer> findAfter(final List<Filter> filters,
+                                  final String column, final boolean ascend,
+                                  final Object lastValue, final long lastId,
+                                  final int limit)
+      throws DAOConnectionException {
+    final StringBuilder query = new StringBuilder();
+    final Object[] params =
+        prepareFindAfter(query, filters, column, ascend, lastValue, lastId,
+                         limit);
+    return executeFind(query.toString(), params);
+  }
+
+  /**
+   * Same as findAfter, but returning a cursor reading transfers from the
+   * database only as they are consumed
+   *
+   * @param filters
+   * @param column the ORDER BY column
+   * @param ascend
+   * @param lastValue the value of the ORDER BY column for the last
+   *     transfer of the previous page, ignored if column is the Special Id
+   * @param lastId the Special Id of the last transfer of the previous page
+   * @param limit the limit or 0 if no limit
+   *
+   * @return the cursor, to be closed before this DAO
+   *
+   * @throws DAOConnectionException
+   */
+  public DBCursor<Transfer> findAfterCursor(final List<Filter> filters,
+                                            final String column,
+                                            final boolean ascend,
+                                            final Object lastValue,
+                                            final long lastId,
+                                            final int limit)
+      throws DAOConnectionException {
+    final StringBuilder query = new StringBuilder();
+    final Object[] params =
+        prepareFindAfter(query, filters, column, ascend, lastValue, lastId,
+                         limit);
+    return new DBCursor<Transfer>(this, query.toString(), params);
+  }
+
+  private Object[] prepareFindAfter(final StringBuilder query,
+                                    final List<Filter> filters,
+                                    final String column,
+                                    final boolean ascend,
+                                    final Object lastValue, final long lastId,
+                                    final int limit) {
+    final int nbFilters = filters.size();
+    final boolean byId = ID_FIELD.equals(column);
+    final int nbKeys = byId? 1 : 3;
+    final boolean withLimit = limit > 0;
+    final Object[] params =
+        new Object[nbFilters + nbKeys + (withLimit? 1 : 0)];
+    query.append(prepareFindQuery(filters, params));
+    query.append(nbFilters == 0? WHERE : " AND ");
+    final String operand = ascend? " > ?" : " < ?";
+    if (byId) {
+      query.append(ID_FIELD).append(operand);
+      params[nbFilters] = lastId;
+    } else {
+      query.append('(').append(column).append(operand).append(" OR (")
+           .append(column).append(" = ? AND ").append(ID_FIELD)
+           .append(operand).append("))");
+      params[nbFilters] = lastValue;
+      params[nbFilters + 1] = lastValue;
+      params[nbFilters + 2] = lastId;
     }
-    // Set OFFSET
-    if (limit > 0) {
-      query.append(" OFFSET ").append(offset);
+    final String direction = ascend? "" : " DESC";
+    query.append(" ORDER BY ").append(column).append(direction);
+    if (!byId) {
+      query.append(", ").append(ID_FIELD).append(direction);
     }
-    // Execute query
-    PreparedStatement stm = null;
-    ResultSet res = null;
-    try {
-      stm = connection.prepareStatement(query.toString());
-      setParameters(stm, params);
-      res = executeQuery(stm);
-      while (res.next()) {
-        transfers.add(getFromResultSet(res));
-      }
-    } catch (final SQLException e) {
-      throw new DAOConnectionException(e);
-    } finally {
-      closeResultSet(res);
-      closeStatement(stm);
+    if (withLimit) {
+      query.append(LIMIT2).append('?');
+      params[nbFilters + nbKeys] = limit;
     }
-    return transfers;
+    return params;
+  }
+
+  @Override
+  public List<Transfer> find(final List<Filter> filters, final int limit)
+      throws DAOConnectionException {
+    return findTransfers(filters, null, true, limit, -1);
+  }
+
+  @Override
+  public List<Transfer> find(final List<Filter> filters, final int limit,
+                             final int offset) throws DAOConnectionException {
+    return findTransfers(filters, null, true, limit, offset);
   }
 
   @Override
   public List<Transfer> find(final List<Filter> filters, final String column,
                              final boolean ascend)
       throws DAOConnectionException {
-    final ArrayList<Transfer> transfers = new ArrayList<Transfer>();
-    // Create the SQL query
-    final Object[] params = new Object[filters.size()];
-    final StringBuilder query =
-        new StringBuilder(prepareFindQuery(filters, params));
-    // Set ORDER BY
-    if (column != null && !column.isEmpty()) {
-      query.append(" ORDER BY ").append(column);
-      if (!ascend) {
-        query.append(" DESC");
-      }
-    }
-    // Execute query
-    PreparedStatement stm = null;
-    ResultSet res = null;
-    try {
-      stm = connection.prepareStatement(query.toString());
-      setParameters(stm, params);
-      res = executeQuery(stm);
-      while (res.next()) {
-        transfers.add(getFromResultSet(res));
-      }
-    } catch (final SQLException e) {
-      throw new DAOConnectionException(e);
-    } finally {
-      closeResultSet(res);
-      closeStatement(stm);
-    }
-    return transfers;
+    return findTransfers(filters, column, ascend, 0, -1);
   }
 
   @Override
   public List<Transfer> find(final List<Filter> filters, final String column,
                              final boolean ascend, final int limit)
       throws DAOConnectionException {
-    final ArrayList<Transfer> transfers = new ArrayList<Transfer>();
-    // Create the SQL query
-    final Object[] params = new Object[filters.size()];
-    final StringBuilder query =
-        new StringBuilder(prepareFindQuery(filters, params));
-    // Set ORDER BY
-    if (column != null && !column.isEmpty()) {
-      query.append(" ORDER BY ").append(column);
-      if (!ascend) {
-        query.append(" DESC");
-      }
-    }
-    // Set LIMIT
-    if (limit > 0) {
-      query.append(LIMIT2).append(limit);
-    }
-    // Execute query
-    PreparedStatement stm = null;
-    ResultSet res = null;
-    try {
-      stm = connection.prepareStatement(query.toString());
-      setParameters(stm, params);
-      res = executeQuery(stm);
-      while (res.next()) {
-        transfers.add(getFromResultSet(res));
-      }
-    } catch (final SQLException e) {
-      throw new DAOConnectionException(e);
-    } finally {
-      closeResultSet(res);
-      closeStatement(stm);
-    }
-    return transfers;
+    return findTransfers(filters, column, ascend, limit, -1);
   }
 
   @Override
   public List<Transfer> find(final List<Filter> filters, final String column,
                              final boolean ascend, final int limit,
                              final int offset) throws DAOConnectionException {
-    final ArrayList<Transfer> transfers = new ArrayList<Transfer>();
-    // Create the SQL query
-    final Object[] params = new Object[filters.size()];
-    final StringBuilder query =
-        new StringBuilder(prepareFindQuery(filters, params));
-    // Set ORDER BY
-    query.append(" ORDER BY ").append(column);
-    if (!ascend) {
-      query.append(" DESC");
-    }
-    // Set LIMIT
-    if (limit > 0) {
-      query.append(LIMIT2).append(limit);
-    }
-    // Set OFFSET
-    if (limit > 0) {
-      query.append(" OFFSET ").append(offset);
-    }
-    // Execute query
-    PreparedStatement stm = null;
-    ResultSet res = null;
-    try {
-      stm = connection.prepareStatement(query.toString());
-      setParameters(stm, params);
-      res = executeQuery(stm);
-      while (res.next()) {
-        transfers.add(getFromResultSet(res));
-      }
-    } catch (final SQLException e) {
-      throw new DAOConnectionException(e);
-    } finally {
-      closeResultSet(res);
-      closeStatement(stm);
-    }
-    return transfers;
+    return findTransfers(filters, column, ascend, limit, offset);
   }
 
   @Override
@@ -471,6 +635,7 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
     PreparedStatement stm = null;
     ResultSet res = null;
     final Object[] params = { id, requester, requested, owner };
+    final long start = MetricsRegistry.startTimer();
     try {
       stm = connection.prepareStatement(getSelectRequest());
       setParameters(stm, params);
@@ -485,43 +650,211 @@ public abstract class DBTransferDAO extends StatementExecutor<Transfer>
     } finally {
       closeResultSet(res);
       closeStatement(stm);
+      SELECT_TIME.observeSince(start);
     }
   }
 
   protected abstract long getNextId() throws DAOConnectionException;
 
+  /**
+   * Reserve a range of ids from the sequence in one round trip
+   *
+   * @param count the number of ids to reserve
+   *
+   * @return the reserved ids
+   *
+   * @throws DAOConnectionException
+   */
+  protected abstract long[] getNextIds(int count)
+      throws DAOConnectionException;
+
+  /**
+   * Reserve a range of ids using a request returning one id per row
+   *
+   * @param request the request with one parameter, the number of ids
+   * @param count the number of ids to reserve
+   *
+   * @return the reserved ids
+   *
+   * @throws DAOConnectionException
+   */
+  protected long[] getNextIds(final String request, final int count)
+      throws DAOConnectionException {
+    final long[] ids = new long[count];
+    int nb = 0;
+    PreparedStatement stm = null;
+    ResultSet res = null;
+    try {
+      stm = connection.prepareStatement(request);
+      setParameters(stm, count);
+      res = executeQuery(stm);
+      while (nb < count && res.next()) {
+        ids[nb] = res.getLong(1);
+        nb++;
+      }
+    } catch (final SQLException e) {
+      throw new DAOConnectionException(e);
+    } finally {
+      closeResultSet(res);
+      closeStatement(stm);
+    }
+    if (nb == 0) {
+      throw new DAOConnectionException(
+          "Error no id available, you should purge the database.");
+    }
+    return nb == count? ids : Arrays.copyOf(ids, nb);
+  }
+
+  /**
+   * @return the next id, taken from the ids reserved by this node if
+   *     ranges of ids are enabled
+   *
+   * @throws DAOConnectionException
+   */
+  private long allocateId() throws DAOConnectionException {
+    final int blockSize = Configuration.configuration.getTransferIdBlockSize();
+    if (blockSize <= 1) {
+      return getNextId();
+    }
+    synchronized (ID_LOCK) {
+      if (reservedIds == null || nextReservedId >= reservedIds.length) {
+        reservedIds = getNextIds(blockSize);
+        nextReservedId = 0;
+      }
+      final long id = reservedIds[nextReservedId];
+      nextReservedId++;
+      return id;
+    }
+  }
+
   @Override
   public void insert(final Transfer transfer) throws DAOConnectionException {
-    if (transfer.getId() == ILLEGALVALUE) {
-      transfer.setId(getNextId());
+    final long start = MetricsRegistry.startTimer();
+    try {
+      if (transfer.getId() == ILLEGALVALUE) {
+        transfer.setId(allocateId());
+      }
+      super.insert(transfer);
+    } finally {
+      INSERT_TIME.observeSince(start);
+    }
+    Configuration.configuration.getTransferStatistics().changed(transfer);
+  }
+
+  /**
+   * Insert all given transfers using one JDBC batch within one transaction:
+   * either all transfers are inserted or none
+   *
+   * @param transfers
+   *
+   * @throws DAOConnectionException
+   */
+  public void insertBatch(final List<Transfer> transfers)
+      throws DAOConnectionException {
+    if (transfers.isEmpty()) {
+      return;
+    }
+    final long start = MetricsRegistry.startTimer();
+    // Reserve missing ids with as few round trips as possible
+    int missing = 0;
+    for (final Transfer transfer : transfers) {
+      if (transfer.getId() == ILLEGALVALUE) {
+        missing++;
+      }
+    }
+    final Iterator<Transfer> toSet = transfers.iterator();
+    while (missing > 0) {
+      final long[] ids = getNextIds(missing);
+      int nb = 0;
+      while (nb < ids.length) {
+        final Transfer transfer = toSet.next();
+        if (transfer.getId() == ILLEGALVALUE) {
+          transfer.setId(ids[nb]);
+          nb++;
+        }
+      }
+      missing -= ids.length;
+    }
+    PreparedStatement stm = null;
+    boolean autoCommit = true;
+    try {
+      autoCommit = connection.getAutoCommit();
+      if (autoCommit) {
+        connection.setAutoCommit(false);
+      }
+      stm = connection.prepareStatement(getInsertRequest());
+      for (final Transfer transfer : transfers) {
+        setParameters(stm, getInsertValues(transfer));
+        stm.addBatch();
+      }
+      stm.executeBatch();
+      if (autoCommit) {
+        connection.commit();
+      }
+    } catch (final SQLException e) {
+      if (autoCommit) {
+        try {
+          connection.rollback();
+        } catch (final SQLException e1) {
+          logger.debug("Cannot rollback", e1);
+        }
+      }
+      throw new DAOConnectionException(e);
+    } finally {
+      closeStatement(stm);
+      if (autoCommit) {
+        try {
+          connection.setAutoCommit(true);
+        } catch (final SQLException e) {
+          logger.debug("Cannot restore auto commit", e);
+        }
+      }
+      INSERT_TIME.observeSince(start);
+    }
+    for (final Transfer transfer : transfers) {
+      Configuration.configuration.getTransferStatistics().changed(transfer);
+    }
+  }
+
+  @Override
+  public void update(final Transfer transfer)
+      throws DAOConnectionException, DAONoDataException {
+    final long start = MetricsRegistry.startTimer();
+    try {
+      super.update(transfer);
+    } finally {
+      UPDATE_TIME.observeSince(start);
     }
-    super.insert(transfer);
+    Configuration.configuration.getTransferStatistics().changed(transfer);
   }
 
   @Override
   public Transfer getFromResultSet(final ResultSet set) throws SQLException {
-    return new Transfer(set.getLong(ID_FIELD), set.getString(ID_RULE_FIELD),
-                        set.getInt(TRANSFER_MODE_FIELD),
-                        set.getString(FILENAME_FIELD),
-                        set.getString(ORIGINAL_NAME_FIELD),
-                        set.getString(FILE_INFO_FIELD),
-                        set.getBoolean(IS_MOVED_FIELD),
-                        set.getInt(BLOCK_SIZE_FIELD),
-                        set.getBoolean(RETRIEVE_MODE_FIELD),
-                        set.getString(OWNER_REQUEST_FIELD),
-                        set.getString(REQUESTER_FIELD),
-                        set.getString(REQUESTED_FIELD),
-                        set.getString(TRANSFER_INFO_FIELD), Transfer.TASKSTEP
-                            .valueOf(set.getInt(GLOBAL_STEP_FIELD)),
-                        Transfer.TASKSTEP
-                            .valueOf(set.getInt(GLOBAL_LAST_STEP_FIELD)),
-                        set.getInt(STEP_FIELD),
-                        ErrorCode.getFromCode(set.getString(STEP_STATUS_FIELD)),
-                        ErrorCode.getFromCode(set.getString(INFO_STATUS_FIELD)),
-                        set.getInt(RANK_FIELD),
-                        set.getTimestamp(TRANSFER_START_FIELD),
-                        set.getTimestamp(TRANSFER_STOP_FIELD),
-                        UpdatedInfo.valueOf(set.getInt(UPDATED_INFO_FIELD)));
+    final Transfer transfer =
+        new Transfer(set.getLong(ID_FIELD), set.getString(ID_RULE_FIELD),
+                     set.getInt(TRANSFER_MODE_FIELD),
+                     set.getString(FILENAME_FIELD),
+                     set.getString(ORIGINAL_NAME_FIELD),
+                     set.getString(FILE_INFO_FIELD),
+                     set.getBoolean(IS_MOVED_FIELD),
+                     set.getInt(BLOCK_SIZE_FIELD),
+                     set.getBoolean(RETRIEVE_MODE_FIELD),
+                     set.getString(OWNER_REQUEST_FIELD),
+                     set.getString(REQUESTER_FIELD),
+                     set.getString(REQUESTED_FIELD),
+                     set.getString(TRANSFER_INFO_FIELD),
+                     Transfer.TASKSTEP.valueOf(set.getInt(GLOBAL_STEP_FIELD)),
+                     Transfer.TASKSTEP
+                         .valueOf(set.getInt(GLOBAL_LAST_STEP_FIELD)),
+                     set.getInt(STEP_FIELD),
+                     ErrorCode.getFromCode(set.getString(STEP_STATUS_FIELD)),
+                     ErrorCode.getFromCode(set.getString(INFO_STATUS_FIELD)),
+                     set.getInt(RANK_FIELD),
+                     set.getTimestamp(TRANSFER_START_FIELD),
+                     set.getTimestamp(TRANSFER_STOP_FIELD),
+                     UpdatedInfo.valueOf(set.getInt(UPDATED_INFO_FIELD)));
+    Configuration.configuration.getTransferStatistics().loaded(transfer);
+    return transfer;
   }
 
 
@@ -0,0 +1,190 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.dao.database;
+
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.lru.SynchronizedLruCache;
+import org.waarp.openr66.protocol.configuration.Configuration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Cluster-wide version of a DAO cache
+ * <p>
+ * In multiple monitors mode, a dedicated row of the CACHEVERSION table,
+ * named from the host id shared by the cluster and the cached table, is used
+ * as a version: each local write increments it, and each node reads it at
+ * most once per check delay, clearing its own cache as soon as another node
+ * changed it. If this version cannot be read, the cache is not used at all.
+ * <p>
+ * This table is kept apart from MULTIPLEMONITOR, whose row is locked by the
+ * Commander while it updates hosts and rules.
+ */
+public class DbCacheVersion {
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(DbCacheVersion.class);
+
+  public static final String TABLE = "cacheversion";
+  public static final String NAME_FIELD = "name";
+  public static final String VERSION_FIELD = "versioncount";
+
+  private static final String SQL_SELECT =
+      "SELECT " + VERSION_FIELD + " FROM " + TABLE + StatementExecutor.WHERE +
+      NAME_FIELD + StatementExecutor.PARAMETER;
+  private static final String SQL_INCREMENT =
+      "UPDATE " + TABLE + " SET " + VERSION_FIELD + " = " + VERSION_FIELD +
+      " + 1" + StatementExecutor.WHERE + NAME_FIELD +
+      StatementExecutor.PARAMETER;
+  private static final String SQL_INSERT =
+      "INSERT INTO " + TABLE + " (" + NAME_FIELD + ", " + VERSION_FIELD +
+      ") VALUES (?, 1)";
+
+  private final SynchronizedLruCache<String, ?> cache;
+  private final String table;
+  private long lastCheck;
+  private boolean known;
+  private int version;
+
+  /**
+   * @param cache the cache to keep consistent
+   * @param table the cached table
+   */
+  public DbCacheVersion(final SynchronizedLruCache<String, ?> cache,
+                        final String table) {
+    this.cache = cache;
+    this.table = table;
+  }
+
+  /**
+   * @return True if the cache may be used in multiple monitors mode
+   */
+  private static boolean isEnabled() {
+    return Configuration.configuration.getCacheCheckDelay() > 0;
+  }
+
+  /**
+   * @return the name of the version row of this cache for this cluster
+   */
+  private String getName() {
+    return Configuration.configuration.getHostId() + '.' + table;
+  }
+
+  /**
+   * Check, at most once per check delay, the cluster-wide version, clearing
+   * the cache if it changed
+   *
+   * @param connection
+   *
+   * @return True if the cache can be used
+   */
+  public synchronized boolean isValid(final Connection connection) {
+    if (!isEnabled()) {
+      return false;
+    }
+    final long now = System.currentTimeMillis();
+    if (known &&
+        now - lastCheck < Configuration.configuration.getCacheCheckDelay()) {
+      return true;
+    }
+    PreparedStatement stm = null;
+    ResultSet res = null;
+    try {
+      stm = connection.prepareStatement(SQL_SELECT);
+      stm.setString(1, getName());
+      res = stm.executeQuery();
+      // No row yet: no write since the creation of the table
+      final int newVersion = res.next()? res.getInt(1) : 0;
+      if (!known || newVersion != version) {
+        cache.clear();
+        version = newVersion;
+      }
+      known = true;
+      lastCheck = now;
+      return true;
+    } catch (final SQLException e) {
+      logger.warn("Cannot check cache version: {}", e.getMessage());
+      known = false;
+      cache.clear();
+      return false;
+    } finally {
+      close(res, stm);
+    }
+  }
+
+  /**
+   * Increment the cluster-wide version after a local write, so that other
+   * nodes clear their cache at their next check
+   *
+   * @param connection
+   */
+  public synchronized void increment(final Connection connection) {
+    if (!isEnabled()) {
+      return;
+    }
+    // Own cache is already up to date, but force a new check
+    known = false;
+    final String name = getName();
+    try {
+      if (execute(connection, SQL_INCREMENT, name) == 0) {
+        try {
+          execute(connection, SQL_INSERT, name);
+        } catch (final SQLException e) {
+          // Inserted meanwhile by another node
+          execute(connection, SQL_INCREMENT, name);
+        }
+      }
+    } catch (final SQLException e) {
+      logger.warn("Cannot increment cache version: {}", e.getMessage());
+    }
+  }
+
+  private static int execute(final Connection connection, final String sql,
+                             final String name) throws SQLException {
+    PreparedStatement stm = null;
+    try {
+      stm = connection.prepareStatement(sql);
+      stm.setString(1, name);
+      return stm.executeUpdate();
+    } finally {
+      close(null, stm);
+    }
+  }
+
+  private static void close(final ResultSet res, final PreparedStatement stm) {
+    if (res != null) {
+      try {
+        res.close();
+      } catch (final SQLException e) {
+        logger.debug("An error occurs while closing the resultSet.", e);
+      }
+    }
+    if (stm != null) {
+      try {
+        stm.close();
+      } catch (final SQLException e) {
+        logger.debug("An error occurs while closing the statement.", e);
+      }
+    }
+  }
+}
@@ -33,6 +33,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -90,6 +91,30 @@ public abstract class StatementExecutor<E> implements AbstractDAO<E> {
     return false;
   }
 
+  /**
+   * Called after each successful write (insert, update, delete), so that
+   * caches shared by several servers can be invalidated
+   */
+  protected void notifyChange() {
+    // nothing by default
+  }
+
+  /**
+   * Parameter value to bind as a SQL NULL of the given type
+   */
+  protected static final class NullValue {
+    private final int sqlType;
+
+    NullValue(final int sqlType) {
+      this.sqlType = sqlType;
+    }
+  }
+
+  /**
+   * NULL value for optional VARCHAR columns
+   */
+  protected static final NullValue NULL_VARCHAR = new NullValue(Types.VARCHAR);
+
   protected StatementExecutor(final Connection con) {
     connection = con;
   }
@@ -97,7 +122,11 @@ public abstract class StatementExecutor<E> implements AbstractDAO<E> {
   protected void setParameters(final PreparedStatement stm,
                                final Object... values) throws SQLException {
     for (int i = 0; i < values.length; i++) {
-      stm.setObject(i + 1, values[i]);
+      if (values[i] instanceof NullValue) {
+        stm.setNull(i + 1, ((NullValue) values[i]).sqlType);
+      } else {
+        stm.setObject(i + 1, values[i]);
+      }
     }
   }
 
@@ -189,6 +218,7 @@ public abstract class StatementExecutor<E> implements AbstractDAO<E> {
       } catch (final SQLException e2) {
         throw new DAONoDataException(e2);
       }
+      notifyChange();
     } catch (final SQLException e) {
       throw new DAOConnectionException(e);
     } finally {
@@ -203,6 +233,7 @@ public abstract class StatementExecutor<E> implements AbstractDAO<E> {
     try {
       stm = connection.prepareStatement(getDeleteAllRequest());
       executeAction(stm);
+      notifyChange();
     } catch (final SQLException e) {
       throw new DAOConnectionException(e);
     } finally {
@@ -333,6 +364,7 @@ public abstract class StatementExecutor<E> implements AbstractDAO<E> {
       stm = connection.prepareStatement(getInsertRequest());
       setParameters(stm, params);
       executeUpdate(stm);
+      notifyChange();
     } catch (final SQLException e) {
       throw new DAOConnectionException(e);
     } finally {
@@ -358,6 +390,7 @@ public abstract class StatementExecutor<E> implements AbstractDAO<E> {
       } catch (final SQLException e2) {
         throw new DAONoDataException(e2);
       }
+      notifyChange();
     } catch (final SQLException e) {
       throw new DAOConnectionException(e);
     } finally {
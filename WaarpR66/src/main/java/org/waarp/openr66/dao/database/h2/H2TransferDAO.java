@@ -31,6 +31,8 @@ import java.sql.SQLException;
 public class H2TransferDAO extends DBTransferDAO {
 
   protected static final String SQL_GET_ID = "SELECT NEXTVAL('RUNSEQ')";
+  protected static final String SQL_GET_IDS =
+      "SELECT NEXTVAL('RUNSEQ') FROM SYSTEM_RANGE(1, ?)";
 
   public H2TransferDAO(final Connection con) throws DAOConnectionException {
     super(con);
@@ -62,4 +64,9 @@ public class H2TransferDAO extends DBTransferDAO {
       closeStatement(ps);
     }
   }
+
+  @Override
+  protected long[] getNextIds(final int count) throws DAOConnectionException {
+    return getNextIds(SQL_GET_IDS, count);
+  }
 }
@@ -34,6 +34,10 @@ public class MariaDBTransferDAO extends DBTransferDAO {
       "SELECT seq FROM Sequences " + "WHERE name='RUNSEQ' FOR UPDATE";
   private static final String SQL_UPDATE_ID =
       "UPDATE Sequences SET seq = ? " + "WHERE name='RUNSEQ'";
+  private static final String SQL_RESERVE_IDS =
+      "UPDATE Sequences SET seq = LAST_INSERT_ID(seq + ?) " +
+      "WHERE name='RUNSEQ'";
+  private static final String SQL_GET_RESERVED_IDS = "SELECT LAST_INSERT_ID()";
 
   public MariaDBTransferDAO(final Connection con)
       throws DAOConnectionException {
@@ -73,4 +77,48 @@ public class MariaDBTransferDAO extends DBTransferDAO {
       closeStatement(ps2);
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * The range is reserved atomically in one update, LAST_INSERT_ID being
+   * specific to the current connection
+   */
+  @Override
+  protected long[] getNextIds(final int count) throws DAOConnectionException {
+    PreparedStatement ps = null;
+    PreparedStatement ps2 = null;
+    ResultSet rs = null;
+    try {
+      ps = connection.prepareStatement(SQL_RESERVE_IDS);
+      ps.setLong(1, count);
+      if (ps.executeUpdate() < 1) {
+        throw new DAOConnectionException(
+            "Error no id available, you should purge the database.");
+      }
+      ps2 = connection.prepareStatement(SQL_GET_RESERVED_IDS);
+      rs = ps2.executeQuery();
+      if (rs.next()) {
+        final long first = rs.getLong(1) - count;
+        final long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+          ids[i] = first + i;
+        }
+        return ids;
+      } else {
+        throw new DAOConnectionException(
+            "Error no id available, you should purge the database.");
+      }
+    } catch (final SQLException e) {
+      throw new DAOConnectionException(e);
+    } finally {
+      try {
+        if (rs != null) {
+          rs.close();
+        }
+      } catch (final SQLException e) {
+        // ignore
+      }
+      closeStatement(ps);
+      closeStatement(ps2);
+    }
+  }
+}
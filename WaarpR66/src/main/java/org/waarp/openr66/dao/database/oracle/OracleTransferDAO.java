@@ -31,6 +31,8 @@ import java.sql.SQLException;
 public class OracleTransferDAO extends DBTransferDAO {
 
   protected static final String SQL_GET_ID = "SELECT runseq.nextval FROM DUAL";
+  protected static final String SQL_GET_IDS =
+      "SELECT runseq.nextval FROM DUAL CONNECT BY LEVEL <= ?";
 
   public OracleTransferDAO(final Connection con) throws DAOConnectionException {
     super(con);
@@ -62,4 +64,9 @@ public class OracleTransferDAO extends DBTransferDAO {
       closeStatement(ps);
     }
   }
+
+  @Override
+  protected long[] getNextIds(final int count) throws DAOConnectionException {
+    return getNextIds(SQL_GET_IDS, count);
+  }
 }
@@ -31,6 +31,8 @@ import java.sql.SQLException;
 public class PostgreSQLTransferDAO extends DBTransferDAO {
 
   protected static final String SQL_GET_ID = "SELECT NEXTVAL('runseq')";
+  protected static final String SQL_GET_IDS =
+      "SELECT NEXTVAL('runseq') FROM generate_series(1, ?)";
 
   public PostgreSQLTransferDAO(final Connection con)
       throws DAOConnectionException {
@@ -63,4 +65,9 @@ public class PostgreSQLTransferDAO extends DBTransferDAO {
       closeStatement(ps);
     }
   }
+
+  @Override
+  protected long[] getNextIds(final int count) throws DAOConnectionException {
+    return getNextIds(SQL_GET_IDS, count);
+  }
 }
@@ -0,0 +1,230 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.dao.xml;
+
+import org.waarp.common.guid.LongUuid;
+import org.waarp.openr66.dao.Filter;
+import org.waarp.openr66.dao.TransferDAO;
+import org.waarp.openr66.dao.exception.DAOConnectionException;
+import org.waarp.openr66.dao.exception.DAONoDataException;
+import org.waarp.openr66.database.DbConstantR66;
+import org.waarp.openr66.pojo.Transfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * TransferDAO of the no database mode storing transfers in a
+ * {@link TransferJournal} instead of one XML file per transfer
+ */
+public class JournalTransferDAO implements TransferDAO {
+
+  private final TransferJournal journal;
+
+  /**
+   * @param directory the directory of the journal segments
+   * @param maxSegmentSize the maximum size in bytes of one segment
+   *
+   * @throws DAOConnectionException if the journal cannot be opened
+   */
+  public JournalTransferDAO(final File directory, final long maxSegmentSize)
+      throws DAOConnectionException {
+    try {
+      journal = TransferJournal.getInstance(directory, maxSegmentSize);
+    } catch (final IOException e) {
+      throw new DAOConnectionException(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    // ignore: the journal is shared
+  }
+
+  @Override
+  public void delete(final Transfer transfer) throws DAOConnectionException {
+    try {
+      journal.remove(transfer);
+    } catch (final IOException e) {
+      throw new DAOConnectionException(e);
+    }
+  }
+
+  @Override
+  public void deleteAll() throws DAOConnectionException {
+    try {
+      journal.clear();
+    } catch (final IOException e) {
+      throw new DAOConnectionException(e);
+    }
+  }
+
+  @Override
+  public List<Transfer> getAll() throws DAOConnectionException {
+    try {
+      return journal.getAll();
+    } catch (final IOException e) {
+      throw new DAOConnectionException(e);
+    }
+  }
+
+  @Override
+  public boolean exist(final long id, final String requester,
+                       final String requested, final String owner) {
+    return journal.contains(id, requester, requested, owner);
+  }
+
+  /**
+   * {@link DAOConnectionException}
+   *
+   * @return never
+   */
+  @Override
+  public List<Transfer> find(final List<Filter> filters)
+      throws DAOConnectionException {
+    throw new DAOConnectionException("Operation not supported on XML DAO");
+  }
+
+  /**
+   * {@link UnsupportedOperationException}
+   *
+   * @return never
+   */
+  @Override
+  public Transfer select(final String id) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * {@link UnsupportedOperationException}
+   *
+   * @return never
+   */
+  @Override
+  public boolean exist(final String id) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * {@link DAOConnectionException}
+   *
+   * @return never
+   */
+  @Override
+  public List<Transfer> find(final List<Filter> filters, final int limit)
+      throws DAOConnectionException {
+    throw new DAOConnectionException("Operation not supported on XML DAO");
+  }
+
+  /**
+   * {@link DAOConnectionException}
+   *
+   * @return never
+   */
+  @Override
+  public List<Transfer> find(final List<Filter> filters, final int limit,
+                             final int offset) throws DAOConnectionException {
+    throw new DAOConnectionException("Operation not supported on XML DAO");
+  }
+
+  /**
+   * {@link DAOConnectionException}
+   *
+   * @return never
+   */
+  @Override
+  public List<Transfer> find(final List<Filter> filters, final String column,
+                             final boolean ascend)
+      throws DAOConnectionException {
+    throw new DAOConnectionException("Operation not supported on XML DAO");
+  }
+
+  /**
+   * {@link DAOConnectionException}
+   *
+   * @return never
+   */
+  @Override
+  public List<Transfer> find(final List<Filter> filters, final String column,
+                             final boolean ascend, final int limit)
+      throws DAOConnectionException {
+    throw new DAOConnectionException("Operation not supported on XML DAO");
+  }
+
+  /**
+   * {@link DAOConnectionException}
+   *
+   * @return never
+   */
+  @Override
+  public List<Transfer> find(final List<Filter> filters, final String column,
+                             final boolean ascend, final int limit,
+                             final int offset) throws DAOConnectionException {
+    throw new DAOConnectionException("Operation not supported on XML DAO");
+  }
+
+  @Override
+  public void insert(final Transfer transfer) throws DAOConnectionException {
+    // Set unique Id
+    if (transfer.getId() == DbConstantR66.ILLEGALVALUE) {
+      transfer.setId(new LongUuid().getLong());
+    }
+    final boolean inserted;
+    try {
+      inserted = journal.insert(transfer);
+    } catch (final IOException e) {
+      throw new DAOConnectionException(e);
+    }
+    if (!inserted) {
+      throw new DAOConnectionException("Transfer already exist");
+    }
+  }
+
+  @Override
+  public Transfer select(final long id, final String requester,
+                         final String requested, final String owner)
+      throws DAOConnectionException, DAONoDataException {
+    final Transfer transfer;
+    try {
+      transfer = journal.get(id, requester, requested, owner);
+    } catch (final IOException e) {
+      throw new DAOConnectionException(e);
+    }
+    if (transfer == null) {
+      throw new DAONoDataException("Transfer cannot be found");
+    }
+    return transfer;
+  }
+
+  @Override
+  public void update(final Transfer transfer)
+      throws DAOConnectionException, DAONoDataException {
+    final boolean updated;
+    try {
+      updated = journal.update(transfer);
+    } catch (final IOException e) {
+      throw new DAOConnectionException(e);
+    }
+    if (!updated) {
+      throw new DAONoDataException("Transfer cannot be found");
+    }
+  }
+}
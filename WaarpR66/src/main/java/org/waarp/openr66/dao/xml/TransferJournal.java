@@ -0,0 +1,785 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.dao.xml;
+
+import org.waarp.common.file.FileUtils;
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.utility.WaarpStringUtils;
+import org.waarp.common.utility.WaarpThreadFactory;
+import org.waarp.openr66.context.ErrorCode;
+import org.waarp.openr66.pojo.Transfer;
+import org.waarp.openr66.pojo.UpdatedInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the transfers, used in no database mode
+ * <p>
+ * Each insert, update or delete appends one record (length, CRC32 and
+ * content) to the current segment file, without rewriting anything. An
+ * in-memory index gives, for each live transfer, the position of its last
+ * record, so that reads are one positional read. When the current segment
+ * exceeds its maximum size, a new one is started and, if obsolete records
+ * weigh more than live ones, a background thread copies live records of all
+ * previous segments to the new one and deletes previous segments. Records
+ * are copied by batches, the lock of the journal being only held to append
+ * a batch, so that reads and writes are not stalled by the compaction.
+ * <p>
+ * At startup, segments are read once in order to rebuild the index, a
+ * truncated or corrupted end of the last segment (crash while writing)
+ * being cut off.
+ */
+public class TransferJournal {
+  /**
+   * Internal Logger
+   */
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(TransferJournal.class);
+
+  public static final String SEGMENT_PREFIX = "transfers_";
+  public static final String SEGMENT_EXTENSION = ".journal";
+
+  private static final byte OP_PUT = 1;
+  private static final byte OP_DELETE = 2;
+  private static final int HEADER_SIZE = 8;
+  private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+  /**
+   * Number of records copied at once by the compaction
+   */
+  private static final int COMPACTION_BATCH = 256;
+
+  private static final ExecutorService compactor =
+      Executors.newSingleThreadExecutor(
+          new WaarpThreadFactory("TransferJournalCompaction", true));
+
+  private static final Map<String, TransferJournal> journals =
+      new HashMap<String, TransferJournal>();
+
+  /**
+   * Position of the last record of one transfer
+   */
+  private static class Location {
+    private final long segment;
+    private final long offset;
+    private final int size;
+
+    private Location(final long segment, final long offset, final int size) {
+      this.segment = segment;
+      this.offset = offset;
+      this.size = size;
+    }
+  }
+
+  private final File directory;
+  private final long maxSegmentSize;
+  private final TreeMap<Long, RandomAccessFile> segments =
+      new TreeMap<Long, RandomAccessFile>();
+  private final Map<String, Location> index = new HashMap<String, Location>();
+  private long activeSegment;
+  private long activeSize;
+  private long totalSize;
+  private long liveSize;
+  private boolean compacting;
+  private Future<?> compaction;
+  /**
+   * Changed by clear(), so that a running compaction stops
+   */
+  private long generation;
+  private boolean closed;
+
+  /**
+   * @param directory the directory of the segments
+   * @param maxSegmentSize the maximum size in bytes of one segment
+   *
+   * @return the journal shared by all users of this directory
+   *
+   * @throws IOException if the journal cannot be opened
+   */
+  public static TransferJournal getInstance(final File directory,
+                                            final long maxSegmentSize)
+      throws IOException {
+    final String path = directory.getAbsolutePath();
+    synchronized (journals) {
+      TransferJournal journal = journals.get(path);
+      if (journal == null || journal.closed) {
+        journal = new TransferJournal(directory, maxSegmentSize);
+        journals.put(path, journal);
+      }
+      return journal;
+    }
+  }
+
+  /**
+   * @param directory the directory of the segments
+   * @param maxSegmentSize the maximum size in bytes of one segment
+   *
+   * @throws IOException if the journal cannot be opened
+   */
+  TransferJournal(final File directory, final long maxSegmentSize)
+      throws IOException {
+    this.directory = directory;
+    this.maxSegmentSize = maxSegmentSize;
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create journal directory " + directory);
+    }
+    recover();
+  }
+
+  /**
+   * @param id
+   * @param requester
+   * @param requested
+   * @param owner
+   *
+   * @return the key of one transfer in the index
+   */
+  private static String getKey(final long id, final String requester,
+                               final String requested, final String owner) {
+    return id + " " + requester + ' ' + requested + ' ' + owner;
+  }
+
+  private static String getKey(final Transfer transfer) {
+    return getKey(transfer.getId(), transfer.getRequester(),
+                  transfer.getRequested(), transfer.getOwnerRequest());
+  }
+
+  private File getSegmentFile(final long segment) {
+    return new File(directory,
+                    SEGMENT_PREFIX + String.format("%016d", segment) +
+                    SEGMENT_EXTENSION);
+  }
+
+  /**
+   * Read all segments to rebuild the index
+   *
+   * @throws IOException
+   */
+  private void recover() throws IOException {
+    final File[] files = directory.listFiles();
+    final List<Long> found = new ArrayList<Long>();
+    if (files != null) {
+      for (final File file : files) {
+        final String name = file.getName();
+        if (name.startsWith(SEGMENT_PREFIX) &&
+            name.endsWith(SEGMENT_EXTENSION)) {
+          try {
+            found.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                                    name.length() -
+                                                    SEGMENT_EXTENSION
+                                                        .length())));
+          } catch (final NumberFormatException e) {
+            logger.warn("Ignore unknown journal file {}", name);
+          }
+        }
+      }
+    }
+    Collections.sort(found);
+    for (int i = 0; i < found.size(); i++) {
+      final long segment = found.get(i);
+      final RandomAccessFile file =
+          new RandomAccessFile(getSegmentFile(segment), "rw");
+      segments.put(segment, file);
+      final long end = replay(segment, file);
+      if (end < file.length()) {
+        if (i == found.size() - 1) {
+          logger.warn("Truncate journal segment {} from {} to {}", segment,
+                      file.length(), end);
+          file.setLength(end);
+        } else {
+          logger.error("Journal segment {} corrupted after {}", segment, end);
+        }
+      }
+      totalSize += file.length();
+    }
+    if (segments.isEmpty()) {
+      openSegment(0);
+    } else {
+      activeSegment = segments.lastKey();
+      activeSize = segments.get(activeSegment).length();
+    }
+    logger.info("Transfer journal {}: {} transfers in {} segments",
+                directory, index.size(), segments.size());
+  }
+
+  /**
+   * Replay all valid records of one segment into the index
+   *
+   * @return the offset after the last valid record
+   */
+  private long replay(final long segment, final RandomAccessFile file)
+      throws IOException {
+    final long length = file.length();
+    final byte[] header = new byte[HEADER_SIZE];
+    long offset = 0;
+    file.seek(0);
+    while (offset + HEADER_SIZE <= length) {
+      file.readFully(header);
+      final ByteBuffer buffer = ByteBuffer.wrap(header);
+      final int bodySize = buffer.getInt();
+      final int crc = buffer.getInt();
+      if (bodySize <= 0 || bodySize > MAX_RECORD_SIZE ||
+          offset + HEADER_SIZE + bodySize > length) {
+        break;
+      }
+      final byte[] body = new byte[bodySize];
+      file.readFully(body);
+      if (crc(body) != crc) {
+        break;
+      }
+      final DataInputStream input =
+          new DataInputStream(new ByteArrayInputStream(body));
+      final byte op = input.readByte();
+      final String key =
+          getKey(input.readLong(), readString(input), readString(input),
+                 readString(input));
+      final int size = HEADER_SIZE + bodySize;
+      final Location previous;
+      if (op == OP_PUT) {
+        previous = index.put(key, new Location(segment, offset, size));
+        liveSize += size;
+      } else {
+        previous = index.remove(key);
+      }
+      if (previous != null) {
+        liveSize -= previous.size;
+      }
+      offset += size;
+    }
+    return offset;
+  }
+
+  private static int crc(final byte[] body) {
+    final CRC32 crc32 = new CRC32();
+    crc32.update(body, 0, body.length);
+    return (int) crc32.getValue();
+  }
+
+  private void openSegment(final long segment) throws IOException {
+    final RandomAccessFile file =
+        new RandomAccessFile(getSegmentFile(segment), "rw");
+    segments.put(segment, file);
+    activeSegment = segment;
+    activeSize = file.length();
+  }
+
+  /**
+   * Append one record to the active segment
+   *
+   * @return the location of the record
+   */
+  private Location append(final byte[] body) throws IOException {
+    if (closed) {
+      throw new IOException("Transfer journal closed");
+    }
+    final int size = HEADER_SIZE + body.length;
+    if (activeSize > 0 && activeSize + size > maxSegmentSize) {
+      roll();
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate(size);
+    buffer.putInt(body.length).putInt(crc(body)).put(body).flip();
+    final RandomAccessFile file = segments.get(activeSegment);
+    final long offset = activeSize;
+    while (buffer.hasRemaining()) {
+      file.getChannel().write(buffer, offset + buffer.position());
+    }
+    activeSize += size;
+    totalSize += size;
+    return new Location(activeSegment, offset, size);
+  }
+
+  /**
+   * Seal the active segment, start a new one and start a compaction in
+   * background if needed
+   */
+  private void roll() throws IOException {
+    segments.get(activeSegment).getChannel().force(false);
+    openSegment(activeSegment + 1);
+    if (!compacting && totalSize - liveSize > liveSize &&
+        totalSize - liveSize > maxSegmentSize) {
+      compacting = true;
+      try {
+        compaction = compactor.submit(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              doCompact();
+            } catch (final IOException e) {
+              logger.warn("Cannot compact transfer journal: {}",
+                          e.getMessage());
+            }
+          }
+        });
+      } catch (final RejectedExecutionException e) {
+        compacting = false;
+      }
+    }
+  }
+
+  /**
+   * Copy live records of all sealed segments to the active one and delete
+   * sealed segments, unless a compaction is already running
+   *
+   * @throws IOException
+   */
+  public void compact() throws IOException {
+    synchronized (this) {
+      if (closed || compacting) {
+        return;
+      }
+      compacting = true;
+    }
+    doCompact();
+  }
+
+  /**
+   * Wait for the end of the last compaction started in background
+   *
+   * @throws InterruptedException
+   * @throws ExecutionException
+   */
+  void awaitCompaction() throws InterruptedException, ExecutionException {
+    final Future<?> future;
+    synchronized (this) {
+      future = compaction;
+    }
+    if (future != null) {
+      future.get();
+    }
+  }
+
+  /**
+   * Compaction itself, compacting being already set: sealed segments are
+   * never written again, so their records are read without the lock, which
+   * is only taken to append the copies of records not changed meanwhile
+   *
+   * @throws IOException
+   */
+  private void doCompact() throws IOException {
+    try {
+      final long firstKept;
+      final long current;
+      final long before;
+      final List<Map.Entry<String, Location>> live =
+          new ArrayList<Map.Entry<String, Location>>();
+      final Map<Long, RandomAccessFile> sealed;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        firstKept = activeSegment;
+        current = generation;
+        before = totalSize;
+        for (final Map.Entry<String, Location> entry : index.entrySet()) {
+          if (entry.getValue().segment < firstKept) {
+            live.add(new SimpleEntry<String, Location>(entry));
+          }
+        }
+        sealed = new HashMap<Long, RandomAccessFile>(
+            segments.headMap(firstKept));
+      }
+      for (int start = 0; start < live.size(); start += COMPACTION_BATCH) {
+        final int end = Math.min(start + COMPACTION_BATCH, live.size());
+        final byte[][] bodies = new byte[end - start][];
+        try {
+          for (int i = start; i < end; i++) {
+            final Location location = live.get(i).getValue();
+            bodies[i - start] =
+                readRecord(sealed.get(location.segment), location);
+          }
+        } catch (final IOException e) {
+          synchronized (this) {
+            if (closed || generation != current) {
+              // Segments closed meanwhile
+              return;
+            }
+          }
+          throw e;
+        }
+        synchronized (this) {
+          if (closed || generation != current) {
+            return;
+          }
+          for (int i = start; i < end; i++) {
+            final Map.Entry<String, Location> entry = live.get(i);
+            // Else updated or removed since: nothing to keep
+            if (index.get(entry.getKey()) == entry.getValue()) {
+              index.put(entry.getKey(), append(bodies[i - start]));
+            }
+          }
+        }
+      }
+      synchronized (this) {
+        if (closed || generation != current) {
+          return;
+        }
+        segments.get(activeSegment).getChannel().force(false);
+        // Oldest first, so that a delete is never lost before its transfer
+        final Iterator<Map.Entry<Long, RandomAccessFile>> iterator =
+            segments.headMap(firstKept).entrySet().iterator();
+        while (iterator.hasNext()) {
+          final Map.Entry<Long, RandomAccessFile> entry = iterator.next();
+          final long length = entry.getValue().length();
+          FileUtils.close(entry.getValue());
+          iterator.remove();
+          totalSize -= length;
+          if (!getSegmentFile(entry.getKey()).delete()) {
+            logger.warn("Cannot delete journal segment {}", entry.getKey());
+          }
+        }
+        logger.debug("Transfer journal compacted from {} to {} bytes",
+                     before, totalSize);
+      }
+    } finally {
+      synchronized (this) {
+        compacting = false;
+      }
+    }
+  }
+
+  /**
+   * @return the body of the record at this location
+   */
+  private byte[] readRecord(final Location location) throws IOException {
+    return readRecord(segments.get(location.segment), location);
+  }
+
+  /**
+   * @return the body of the record at this location of this segment
+   */
+  private static byte[] readRecord(final RandomAccessFile file,
+                                   final Location location)
+      throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(location.size);
+    while (buffer.hasRemaining()) {
+      if (file.getChannel()
+              .read(buffer, location.offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of journal segment");
+      }
+    }
+    buffer.flip();
+    final int bodySize = buffer.getInt();
+    final int crc = buffer.getInt();
+    final byte[] body = new byte[bodySize];
+    buffer.get(body);
+    if (crc(body) != crc) {
+      throw new IOException("Corrupted journal record");
+    }
+    return body;
+  }
+
+  /**
+   * Insert one transfer
+   *
+   * @param transfer
+   *
+   * @return False if the transfer already exists
+   *
+   * @throws IOException
+   */
+  public synchronized boolean insert(final Transfer transfer)
+      throws IOException {
+    final String key = getKey(transfer);
+    if (index.containsKey(key)) {
+      return false;
+    }
+    put(key, transfer);
+    return true;
+  }
+
+  /**
+   * Replace one transfer
+   *
+   * @param transfer
+   *
+   * @return False if the transfer does not exist
+   *
+   * @throws IOException
+   */
+  public synchronized boolean update(final Transfer transfer)
+      throws IOException {
+    final String key = getKey(transfer);
+    if (!index.containsKey(key)) {
+      return false;
+    }
+    put(key, transfer);
+    return true;
+  }
+
+  private void put(final String key, final Transfer transfer)
+      throws IOException {
+    final Location location = append(encode(transfer));
+    final Location previous = index.put(key, location);
+    liveSize += location.size;
+    if (previous != null) {
+      liveSize -= previous.size;
+    }
+  }
+
+  /**
+   * Remove one transfer
+   *
+   * @param transfer
+   *
+   * @return True if the transfer existed
+   *
+   * @throws IOException
+   */
+  public synchronized boolean remove(final Transfer transfer)
+      throws IOException {
+    final String key = getKey(transfer);
+    if (!index.containsKey(key)) {
+      return false;
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(OP_DELETE);
+    writeKey(output, transfer);
+    output.flush();
+    append(bytes.toByteArray());
+    liveSize -= index.remove(key).size;
+    return true;
+  }
+
+  /**
+   * Remove all transfers
+   *
+   * @throws IOException
+   */
+  public synchronized void clear() throws IOException {
+    for (final RandomAccessFile file : segments.values()) {
+      FileUtils.close(file);
+    }
+    for (final Long segment : segments.keySet()) {
+      if (!getSegmentFile(segment).delete()) {
+        logger.warn("Cannot delete journal segment {}", segment);
+      }
+    }
+    segments.clear();
+    index.clear();
+    totalSize = 0;
+    liveSize = 0;
+    generation++;
+    openSegment(activeSegment + 1);
+  }
+
+  /**
+   * @param id
+   * @param requester
+   * @param requested
+   * @param owner
+   *
+   * @return the transfer or null if it does not exist
+   *
+   * @throws IOException
+   */
+  public synchronized Transfer get(final long id, final String requester,
+                                   final String requested, final String owner)
+      throws IOException {
+    final Location location =
+        index.get(getKey(id, requester, requested, owner));
+    if (location == null) {
+      return null;
+    }
+    return decode(readRecord(location));
+  }
+
+  /**
+   * @param id
+   * @param requester
+   * @param requested
+   * @param owner
+   *
+   * @return True if the transfer exists
+   */
+  public synchronized boolean contains(final long id, final String requester,
+                                       final String requested,
+                                       final String owner) {
+    return index.containsKey(getKey(id, requester, requested, owner));
+  }
+
+  /**
+   * @return all transfers
+   *
+   * @throws IOException
+   */
+  public synchronized List<Transfer> getAll() throws IOException {
+    final List<Transfer> transfers = new ArrayList<Transfer>(index.size());
+    for (final Location location : index.values()) {
+      transfers.add(decode(readRecord(location)));
+    }
+    return transfers;
+  }
+
+  /**
+   * @return the number of transfers
+   */
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /**
+   * @return the number of segments
+   */
+  public synchronized int getSegments() {
+    return segments.size();
+  }
+
+  /**
+   * @return the total size in bytes of the segments
+   */
+  public synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  /**
+   * Flush to disk and close all segments
+   */
+  public synchronized void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (final RandomAccessFile file : segments.values()) {
+      try {
+        file.getChannel().force(false);
+      } catch (final IOException e) {
+        logger.warn("Cannot flush transfer journal: {}", e.getMessage());
+      }
+      FileUtils.close(file);
+    }
+    segments.clear();
+    index.clear();
+  }
+
+  private static void writeKey(final DataOutputStream output,
+                               final Transfer transfer) throws IOException {
+    output.writeLong(transfer.getId());
+    writeString(output, transfer.getRequester());
+    writeString(output, transfer.getRequested());
+    writeString(output, transfer.getOwnerRequest());
+  }
+
+  private static byte[] encode(final Transfer transfer) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+    final DataOutputStream output = new DataOutputStream(bytes);
+    output.writeByte(OP_PUT);
+    writeKey(output, transfer);
+    writeString(output, transfer.getRule());
+    output.writeBoolean(transfer.getRetrieveMode());
+    output.writeInt(transfer.getTransferMode());
+    writeString(output, transfer.getFilename());
+    writeString(output, transfer.getOriginalName());
+    writeString(output, transfer.getFileInfo());
+    output.writeBoolean(transfer.getIsMoved());
+    output.writeInt(transfer.getBlockSize());
+    writeString(output, transfer.getTransferInfo());
+    output.writeInt(transfer.getGlobalStep().getTaskNo());
+    output.writeInt(transfer.getLastGlobalStep().getTaskNo());
+    output.writeInt(transfer.getStep());
+    writeString(output, transfer.getStepStatus().getCode());
+    writeString(output, transfer.getInfoStatus().getCode());
+    output.writeInt(transfer.getRank());
+    output.writeLong(transfer.getStart().getTime());
+    output.writeLong(transfer.getStop().getTime());
+    output.writeInt(transfer.getUpdatedInfo().getID());
+    output.flush();
+    return bytes.toByteArray();
+  }
+
+  private static Transfer decode(final byte[] body) throws IOException {
+    final DataInputStream input =
+        new DataInputStream(new ByteArrayInputStream(body));
+    if (input.readByte() != OP_PUT) {
+      throw new IOException("Not a transfer record");
+    }
+    final Transfer transfer = new Transfer();
+    transfer.setId(input.readLong());
+    transfer.setRequester(readString(input));
+    transfer.setRequested(readString(input));
+    transfer.setOwnerRequest(readString(input));
+    transfer.setRule(readString(input));
+    transfer.setRetrieveMode(input.readBoolean());
+    transfer.setTransferMode(input.readInt());
+    transfer.setFilename(readString(input));
+    transfer.setOriginalName(readString(input));
+    transfer.setFileInfo(readString(input));
+    transfer.setIsMoved(input.readBoolean());
+    transfer.setBlockSize(input.readInt());
+    transfer.setTransferInfo(readString(input));
+    transfer.setGlobalStep(Transfer.TASKSTEP.valueOf(input.readInt()));
+    transfer.setLastGlobalStep(Transfer.TASKSTEP.valueOf(input.readInt()));
+    transfer.setStep(input.readInt());
+    transfer.setStepStatus(ErrorCode.getFromCode(readString(input)));
+    transfer.setInfoStatus(ErrorCode.getFromCode(readString(input)));
+    transfer.setRank(input.readInt());
+    transfer.setStart(new Timestamp(input.readLong()));
+    transfer.setStop(new Timestamp(input.readLong()));
+    transfer.setUpdatedInfo(UpdatedInfo.valueOf(input.readInt()));
+    return transfer;
+  }
+
+  private static void writeString(final DataOutputStream output,
+                                  final String value) throws IOException {
+    if (value == null) {
+      output.writeInt(-1);
+      return;
+    }
+    final byte[] bytes = value.getBytes(WaarpStringUtils.UTF8);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(final DataInputStream input)
+      throws IOException {
+    final int length = input.readInt();
+    if (length < 0) {
+      return null;
+    }
+    if (length > MAX_RECORD_SIZE) {
+      throw new IOException("Invalid string length in journal record");
+    }
+    final byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return new String(bytes, WaarpStringUtils.UTF8);
+  }
+}
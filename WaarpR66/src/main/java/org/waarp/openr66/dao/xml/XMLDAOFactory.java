@@ -30,8 +30,15 @@ import org.waarp.openr66.dao.TransferDAO;
 import org.waarp.openr66.dao.exception.DAOConnectionException;
 import org.waarp.openr66.protocol.configuration.Configuration;
 
+import java.io.File;
+
 public class XMLDAOFactory extends DAOFactory {
 
+  /**
+   * Sub directory of the archive directory holding the transfer journal
+   */
+  public static final String JOURNAL_DIRECTORY = "/journal";
+
   private final String confDir = Configuration.configuration.getConfigPath();
 
   private final String businessFile = confDir + "/business.xml";
@@ -73,7 +80,14 @@ public class XMLDAOFactory extends DAOFactory {
   }
 
   @Override
-  public TransferDAO getTransferDAO() {
+  public TransferDAO getTransferDAO() throws DAOConnectionException {
+    final int segmentSize =
+        Configuration.configuration.getTransferJournalSegmentSize();
+    if (segmentSize > 0) {
+      return new JournalTransferDAO(new File(
+          Configuration.configuration.getBaseDirectory() + transferFile +
+          JOURNAL_DIRECTORY), segmentSize * 1024L * 1024L);
+    }
     return new XMLTransferDAO(transferFile);
   }
 }
@@ -22,6 +22,7 @@ package org.waarp.openr66.database.data;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.waarp.common.crypto.Des;
 import org.waarp.common.database.DbPreparedStatement;
 import org.waarp.common.database.DbSession;
 import org.waarp.common.database.exception.WaarpDatabaseException;
@@ -32,6 +33,7 @@ import org.waarp.common.digest.FilesystemBasedDigest;
 import org.waarp.common.json.JsonHandler;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.lru.SynchronizedLruCache;
 import org.waarp.common.role.RoleDefault;
 import org.waarp.common.utility.WaarpStringUtils;
 import org.waarp.openr66.context.R66Session;
@@ -52,6 +54,7 @@ import java.net.SocketAddress;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -77,6 +80,30 @@ public class DbHostAuth extends AbstractDbDataDao<Host> {
       Pattern.compile("\"", Pattern.LITERAL);
   private static final Pattern COMMA = Pattern.compile(",", Pattern.LITERAL);
 
+  /**
+   * Decrypted host keys by HostId, to not decrypt them on each
+   * authentication
+   */
+  private static final SynchronizedLruCache<String, DecryptedKey>
+      hostkeyCache = new SynchronizedLruCache<String, DecryptedKey>(500, 180000);
+
+  /**
+   * Decrypted host key with the crypted value and the crypto key it comes
+   * from, so that any change of one of them is detected
+   */
+  private static final class DecryptedKey {
+    private final byte[] crypted;
+    private final Des cryptoKey;
+    private final byte[] key;
+
+    private DecryptedKey(final byte[] crypted, final Des cryptoKey,
+                         final byte[] key) {
+      this.crypted = crypted;
+      this.cryptoKey = cryptoKey;
+      this.key = key;
+    }
+  }
+
   public enum Columns {
     ADDRESS, PORT, ISSSL, HOSTKEY, ADMINROLE, ISCLIENT, ISACTIVE, ISPROXIFIED,
     UPDATEDINFO, HOSTID
@@ -467,6 +494,18 @@ public class DbHostAuth extends AbstractDbDataDao<Host> {
     return preparedStatement;
   }
 
+  @Override
+  public void update() throws WaarpDatabaseException {
+    hostkeyCache.remove(pojo.getHostid());
+    super.update();
+  }
+
+  @Override
+  public void delete() throws WaarpDatabaseException {
+    hostkeyCache.remove(pojo.getHostid());
+    super.delete();
+  }
+
   @Override
   public void changeUpdatedInfo(final UpdatedInfo info) {
     pojo.setUpdatedInfo(org.waarp.openr66.pojo.UpdatedInfo.fromLegacy(info));
@@ -518,16 +557,41 @@ public class DbHostAuth extends AbstractDbDataDao<Host> {
       return false;
     }
     try {
-      return FilesystemBasedDigest.equalPasswd(
-          Configuration.configuration.getCryptoKey()
-                                     .decryptHexInBytes(pojo.getHostkey()),
-          newkey);
+      return FilesystemBasedDigest
+          .equalPasswd(getDecryptedHostkey(), newkey);
     } catch (final Exception e) {
       logger.info("Error while checking key", e);
       return false;
     }
   }
 
+  /**
+   * @return the decrypted hostkey, from the cache if still valid (not to be
+   *     modified)
+   *
+   * @throws Exception
+   */
+  private byte[] getDecryptedHostkey() throws Exception {
+    final byte[] crypted = pojo.getHostkey();
+    final Des cryptoKey = Configuration.configuration.getCryptoKey();
+    final DecryptedKey cached = hostkeyCache.get(pojo.getHostid());
+    if (cached != null && cached.cryptoKey == cryptoKey &&
+        Arrays.equals(cached.crypted, crypted)) {
+      return cached.key;
+    }
+    final byte[] key = cryptoKey.decryptHexInBytes(crypted);
+    hostkeyCache.put(pojo.getHostid(),
+                     new DecryptedKey(crypted.clone(), cryptoKey, key));
+    return key;
+  }
+
+  /**
+   * Remove all decrypted host keys from memory
+   */
+  public static void clearHostkeyCache() {
+    hostkeyCache.clear();
+  }
+
   /**
    * @return the hostkey
    */
@@ -536,8 +600,7 @@ public class DbHostAuth extends AbstractDbDataDao<Host> {
       return null;
     }
     try {
-      return Configuration.configuration.getCryptoKey()
-                                        .decryptHexInBytes(pojo.getHostkey());
+      return getDecryptedHostkey().clone();
     } catch (final Exception e) {
       logger.info("Error while checking key", e);
       return VALUE_0_BYTE;
@@ -45,9 +45,11 @@ import org.waarp.common.file.FileUtils;
 import org.waarp.common.json.JsonHandler;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.metrics.MetricsRegistry;
 import org.waarp.common.utility.WaarpStringUtils;
 import org.waarp.common.xml.XmlUtil;
 import org.waarp.openr66.client.TransferArgs;
+import org.waarp.openr66.commander.InternalRunner;
 import org.waarp.openr66.context.ErrorCode;
 import org.waarp.openr66.context.R66FiniteDualStates;
 import org.waarp.openr66.context.R66Result;
@@ -84,6 +86,7 @@ import org.waarp.openr66.protocol.networkhandler.NetworkServerHandler;
 import org.waarp.openr66.protocol.utils.ChannelUtils;
 import org.waarp.openr66.protocol.utils.NbAndSpecialId;
 import org.waarp.openr66.protocol.utils.R66Future;
+import org.waarp.openr66.protocol.utils.R66Metrics;
 import org.xml.sax.SAXException;
 
 import java.io.File;
@@ -92,7 +95,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
@@ -100,6 +106,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import static org.waarp.common.database.DbConstant.*;
 
@@ -185,6 +192,21 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
       Columns.SPECIALID
   };
 
+  /**
+   * Indexed column holding the Follow Id extracted from TRANSFERINFO at
+   * insert or update time. It is not part of Columns since it is only a
+   * derived value, neither exported nor imported.
+   */
+  public static final String FOLLOWID_COLUMN = "FOLLOWID";
+  public static final int FOLLOWID_TYPE = Types.NVARCHAR;
+  public static final String FOLLOWID_INDEX = "IDX_RUNNER_FOLLOWID";
+  /**
+   * Longest Follow Id stored in the indexed column (NVARCHAR is 255 long
+   * on MySQL/MariaDB): longer ones are stored and searched on their first
+   * characters only
+   */
+  public static final int FOLLOWID_MAX_LENGTH = 255;
+
   public static final String XMLRUNNERS = "taskrunners";
   public static final String XMLRUNNER = "runner";
   public static final String XMLEXTENSION = "_singlerunner.xml";
@@ -217,6 +239,16 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
   public static final int NBPRKEY = 4;
   // ALL TABLE SHOULD IMPLEMENT THIS
 
+  private static final String primaryKeyFields =
+      Columns.OWNERREQ.name() + ',' + Columns.REQUESTER.name() + ',' +
+      Columns.REQUESTED.name() + ',' + Columns.SPECIALID.name();
+
+  private static final String deleteByKeyRequest =
+      "DELETE FROM " + table + " WHERE " + Columns.OWNERREQ.name() +
+      " = ? AND " + Columns.REQUESTER.name() + " = ? AND " +
+      Columns.REQUESTED.name() + " = ? AND " + Columns.SPECIALID.name() +
+      " = ?";
+
   protected static final String selectAllFields =
       Columns.GLOBALSTEP.name() + ',' + Columns.GLOBALLASTSTEP.name() + ',' +
       Columns.STEP.name() + ',' + Columns.RANK.name() + ',' +
@@ -843,6 +875,11 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
    */
   private void optimizedRankUpdate() throws WaarpDatabaseException {
     setStopNow();
+    final RunnerStateJournal journal =
+        Configuration.configuration.getRunnerStateJournal();
+    if (journal != null && journal.offer(pojo, true)) {
+      return;
+    }
     TransferDAO transferAccess = null;
     try {
       transferAccess = DAOFactory.getInstance().getTransferDAO();
@@ -860,6 +897,15 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
     }
   }
 
+  @Override
+  public void insert() throws WaarpDatabaseException {
+    final boolean alreadySaved = isSaved;
+    super.insert();
+    if (!alreadySaved) {
+      offerSubmission();
+    }
+  }
+
   @Override
   public void update() throws WaarpDatabaseException {
     // SNMP notification
@@ -877,6 +923,24 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
     } else {
       optimizedUpdate();
     }
+    offerSubmission();
+  }
+
+  /**
+   * If this transfer is to be submitted by this server, give it directly to
+   * the InternalRunner (if enabled) instead of waiting for the Commander
+   */
+  private void offerSubmission() {
+    if (pojo.getUpdatedInfo() != org.waarp.openr66.pojo.UpdatedInfo.TOSUBMIT ||
+        !Configuration.configuration.getHostId()
+                                    .equals(pojo.getOwnerRequest())) {
+      return;
+    }
+    final InternalRunner internalRunner =
+        Configuration.configuration.getInternalRunner();
+    if (internalRunner != null && internalRunner.offerSubmission(this)) {
+      logger.debug("Transfer directly submitted: {}", pojo.getId());
+    }
   }
 
   /**
@@ -886,10 +950,20 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
    */
   protected void optimizedUpdate() throws WaarpDatabaseException {
     setStopNow();
+    final RunnerStateJournal journal =
+        Configuration.configuration.getRunnerStateJournal();
+    if (journal != null && isJournalable() && journal.offer(pojo, false)) {
+      return;
+    }
     TransferDAO transferAccess = null;
     try {
-      transferAccess = DAOFactory.getInstance().getTransferDAO();
-      transferAccess.update(pojo);
+      if (journal != null) {
+        // Replaces any pending update of this transfer
+        journal.writeNow(pojo);
+      } else {
+        transferAccess = DAOFactory.getInstance().getTransferDAO();
+        transferAccess.update(pojo);
+      }
     } catch (final DAOConnectionException e) {
       throw new WaarpDatabaseException(e);
     } catch (final DAONoDataException e) {
@@ -899,6 +973,16 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
     }
   }
 
+  /**
+   * @return True if this update might be delayed through the Runner journal,
+   *     i.e. the transfer is currently running its data step
+   */
+  private boolean isJournalable() {
+    return pojo.getUpdatedInfo() ==
+           org.waarp.openr66.pojo.UpdatedInfo.RUNNING &&
+           pojo.getGlobalStep() == Transfer.TASKSTEP.TRANSFERTASK;
+  }
+
   public void clean() {
     // ignore
   }
@@ -1122,14 +1206,31 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
       final boolean transfer, final boolean error, final boolean done,
       final boolean all)
       throws WaarpDatabaseNoConnectionException, WaarpDatabaseSqlException {
+    getFilterCondition(preparedStatement, selectAllFields, srcrequest, limit,
+                       orderby, startid, stopid, start, stop, rule, req,
+                       pending, transfer, error, done, all);
+  }
+
+  /**
+   * Same as previous, specifying the fields selected by srcrequest, needed
+   * when a limit is set
+   */
+  private static void getFilterCondition(
+      final DbPreparedStatement preparedStatement, final String fields,
+      final String srcrequest, final int limit, final String orderby,
+      final String startid, final String stopid, final Timestamp start,
+      final Timestamp stop, final String rule, final String req,
+      final boolean pending, final boolean transfer, final boolean error,
+      final boolean done, final boolean all)
+      throws WaarpDatabaseNoConnectionException, WaarpDatabaseSqlException {
     String request = srcrequest;
     if (startid == null && stopid == null && start == null && stop == null &&
         rule == null && req == null && all) {
       // finish
       if (limit > 0) {
         request = preparedStatement.getDbSession().getAdmin().getDbModel()
-                                   .limitRequest(selectAllFields,
-                                                 request + orderby, limit);
+                                   .limitRequest(fields, request + orderby,
+                                                 limit);
       } else {
         request += orderby;
       }
@@ -1233,7 +1334,7 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
       scondition.insert(0, request).append(orderby);
       request = scondition.toString();
       request = preparedStatement.getDbSession().getAdmin().getDbModel()
-                                 .limitRequest(selectAllFields, request, limit);
+                                 .limitRequest(fields, request, limit);
     } else {
       scondition.insert(0, request).append(orderby);
       request = scondition.toString();
@@ -1376,9 +1477,46 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
    * @return the associated Filter
    */
   public static Filter getFollowIdFilter(final String followId) {
-    return new Filter(DBTransferDAO.TRANSFER_INFO_FIELD, "LIKE",
-                      "%" + TransferArgs.FOLLOW_JSON_KEY + "%" + followId +
-                      "%");
+    return new Filter(DBTransferDAO.FOLLOW_ID_FIELD, "=",
+                      truncateFollowId(followId));
+  }
+
+  /**
+   * @param followId
+   *
+   * @return the Follow Id as indexed, i.e. truncated to {@link
+   *     #FOLLOWID_MAX_LENGTH} characters
+   */
+  private static String truncateFollowId(final String followId) {
+    if (followId == null || followId.length() <= FOLLOWID_MAX_LENGTH) {
+      return followId;
+    }
+    logger.info("Follow Id longer than {} characters indexed on its start: {}",
+                FOLLOWID_MAX_LENGTH, followId);
+    return followId.substring(0, FOLLOWID_MAX_LENGTH);
+  }
+
+  /**
+   * @param transferInfo the transfer information of one transfer
+   *
+   * @return the Follow Id contained in this transfer information as indexed
+   *     (truncated if too long), or null if none
+   */
+  public static String getFollowIdFromTransferInfo(final String transferInfo) {
+    if (transferInfo == null ||
+        !transferInfo.contains(TransferArgs.FOLLOW_JSON_KEY)) {
+      return null;
+    }
+    final Object followId =
+        getMapFromString(transferInfo).get(TransferArgs.FOLLOW_JSON_KEY);
+    if (followId == null) {
+      return null;
+    }
+    final String value = followId.toString();
+    if (value.isEmpty()) {
+      return null;
+    }
+    return truncateFollowId(value);
   }
 
   /**
@@ -1844,6 +1982,10 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
                                              final Timestamp start,
                                              final Timestamp stop)
       throws WaarpDatabaseNoConnectionException, WaarpDatabaseSqlException {
+    final int chunkSize = Configuration.configuration.getPurgeChunkSize();
+    if (chunkSize > 0) {
+      return purgeLogByChunks(session, start, stop, chunkSize);
+    }
     final DbPreparedStatement preparedStatement =
         new DbPreparedStatement(session);
     String request =
@@ -1949,12 +2091,21 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
                   getLimitWhereCondition();// limit by field
       }
     }
+    final int chunkSize = Configuration.configuration.getPurgeChunkSize();
     int nb;
     try {
-      getFilterCondition(preparedStatement, request, 0, orderby, startid,
-                         stopid, start, stop, rule, req, pending, transfer,
-                         error, done, all);
-      nb = preparedStatement.executeUpdate();
+      if (chunkSize > 0) {
+        getFilterCondition(preparedStatement, primaryKeyFields,
+                           "SELECT " + primaryKeyFields + " FROM " + table,
+                           chunkSize, orderby, startid, stopid, start, stop,
+                           rule, req, pending, transfer, error, done, all);
+        nb = deleteSelectedByChunks(preparedStatement, chunkSize);
+      } else {
+        getFilterCondition(preparedStatement, request, 0, orderby, startid,
+                           stopid, start, stop, rule, req, pending, transfer,
+                           error, done, all);
+        nb = preparedStatement.executeUpdate();
+      }
       logger.info("Purge {} from {}", nb, request);
     } finally {
       preparedStatement.realClose();
@@ -1962,6 +2113,268 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
     return nb;
   }
 
+  /**
+   * Purge as purgeLogPrepareStatement(session, start, stop) but by bounded
+   * chunks, each chunk being deleted by primary key in its own short
+   * statement batch, so that active transfers are never blocked for long
+   *
+   * @param session
+   * @param start
+   * @param stop
+   * @param chunkSize
+   *
+   * @return the number of log purged
+   *
+   * @throws WaarpDatabaseNoConnectionException
+   * @throws WaarpDatabaseSqlException
+   */
+  private static int purgeLogByChunks(final DbSession session,
+                                      final Timestamp start,
+                                      final Timestamp stop,
+                                      final int chunkSize)
+      throws WaarpDatabaseNoConnectionException, WaarpDatabaseSqlException {
+    String request =
+        "SELECT " + primaryKeyFields + " FROM " + table + " WHERE (" +
+        Columns.GLOBALLASTSTEP + " = " + TASKSTEP.ALLDONETASK.ordinal() +
+        " OR " + Columns.UPDATEDINFO + " = " + UpdatedInfo.DONE.ordinal() +
+        ") AND " + getLimitWhereCondition();
+    if (start != null) {
+      request += " AND " + Columns.STARTTRANS.name() + " >= ? ";
+    }
+    if (stop != null) {
+      request += " AND " + Columns.STOPTRANS.name() + " <= ? ";
+    }
+    request = session.getAdmin().getDbModel()
+                     .limitRequest(primaryKeyFields, request, chunkSize);
+    final DbPreparedStatement preparedStatement =
+        new DbPreparedStatement(session);
+    try {
+      preparedStatement.createPrepareStatement(request);
+      int rank = 1;
+      try {
+        if (start != null) {
+          preparedStatement.getPreparedStatement().setTimestamp(rank, start);
+          rank++;
+        }
+        if (stop != null) {
+          preparedStatement.getPreparedStatement().setTimestamp(rank, stop);
+        }
+      } catch (final SQLException e) {
+        throw new WaarpDatabaseSqlException(e);
+      }
+      final int nb = deleteSelectedByChunks(preparedStatement, chunkSize);
+      logger.info("Purge {} by chunks of {} from {}", nb, chunkSize, request);
+      return nb;
+    } finally {
+      preparedStatement.realClose();
+    }
+  }
+
+  /**
+   * Delete by chunks the runners selected by the given statement, which
+   * must return at most chunkSize primary keys of this host's runners. The
+   * statement is executed again after each chunk until exhausted.
+   *
+   * @param select
+   * @param chunkSize
+   *
+   * @return the number of deleted runners
+   *
+   * @throws WaarpDatabaseNoConnectionException
+   * @throws WaarpDatabaseSqlException
+   */
+  private static int deleteSelectedByChunks(final DbPreparedStatement select,
+                                            final int chunkSize)
+      throws WaarpDatabaseNoConnectionException, WaarpDatabaseSqlException {
+    final List<Object[]> keys = new ArrayList<Object[]>(chunkSize);
+    final DbPreparedStatement delete =
+        new DbPreparedStatement(select.getDbSession());
+    int total = 0;
+    try {
+      delete.createPrepareStatement(deleteByKeyRequest);
+      while (true) {
+        select.executeQuery();
+        try {
+          while (select.getNext()) {
+            final ResultSet resultSet = select.getResultSet();
+            keys.add(new Object[] {
+                resultSet.getString(Columns.REQUESTER.name()),
+                resultSet.getString(Columns.REQUESTED.name()),
+                resultSet.getLong(Columns.SPECIALID.name())
+            });
+          }
+        } catch (final SQLException e) {
+          throw new WaarpDatabaseSqlException(e);
+        } finally {
+          select.close();
+        }
+        if (keys.isEmpty()) {
+          break;
+        }
+        final int nb = deleteByKeys(delete, keys);
+        total += nb;
+        if (nb == 0 || keys.size() < chunkSize) {
+          break;
+        }
+        keys.clear();
+      }
+    } finally {
+      delete.realClose();
+    }
+    return total;
+  }
+
+  /**
+   * Delete in one batch the runners of this host from their keys (requester,
+   * requested, specialId)
+   *
+   * @param delete the prepared deleteByKeyRequest
+   * @param keys
+   *
+   * @return the number of deleted runners
+   *
+   * @throws WaarpDatabaseSqlException
+   */
+  private static int deleteByKeys(final DbPreparedStatement delete,
+                                  final List<Object[]> keys)
+      throws WaarpDatabaseSqlException, WaarpDatabaseNoConnectionException {
+    final PreparedStatement preparedStatement = delete.getPreparedStatement();
+    try {
+      for (final Object[] key : keys) {
+        preparedStatement.setString(1, Configuration.configuration.getHostId());
+        preparedStatement.setString(2, (String) key[0]);
+        preparedStatement.setString(3, (String) key[1]);
+        preparedStatement.setLong(4, (Long) key[2]);
+        preparedStatement.addBatch();
+      }
+      int nb = 0;
+      for (final int result : preparedStatement.executeBatch()) {
+        if (result > 0) {
+          nb += result;
+        } else if (result == Statement.SUCCESS_NO_INFO) {
+          nb++;
+        }
+      }
+      return nb;
+    } catch (final SQLException e) {
+      DbSession.error(e);
+      throw new WaarpDatabaseSqlException(e);
+    }
+  }
+
+  /**
+   * Archive and purge all runners of this host with globallaststep as
+   * ALLDONETASK or UpdatedInfo as Done, stopped before the given time.
+   * Runners are streamed by bounded chunks to a GZIP compressed XML file
+   * (same format than writeXMLWriter), each chunk being deleted once
+   * written.
+   *
+   * @param session
+   * @param stop
+   * @param chunkSize
+   * @param filename the archive file, removed if nothing is archived
+   *
+   * @return the NbAndSpecialId for the number of archived transfers and
+   *     higher rank found
+   *
+   * @throws WaarpDatabaseNoConnectionException
+   * @throws WaarpDatabaseSqlException
+   * @throws OpenR66ProtocolBusinessException
+   */
+  public static NbAndSpecialId archiveLogByChunks(final DbSession session,
+                                                  final Timestamp stop,
+                                                  final int chunkSize,
+                                                  final String filename)
+      throws WaarpDatabaseNoConnectionException, WaarpDatabaseSqlException,
+             OpenR66ProtocolBusinessException {
+    final String request = session.getAdmin().getDbModel().limitRequest(
+        selectAllFields,
+        "SELECT " + selectAllFields + " FROM " + table + " WHERE (" +
+        Columns.GLOBALLASTSTEP + " = " + TASKSTEP.ALLDONETASK.ordinal() +
+        " OR " + Columns.UPDATEDINFO + " = " + UpdatedInfo.DONE.ordinal() +
+        ") AND " + getLimitWhereCondition() + " AND " +
+        Columns.STOPTRANS.name() + " <= ? ", chunkSize);
+    final NbAndSpecialId nbAndSpecialId = new NbAndSpecialId();
+    final List<Object[]> keys = new ArrayList<Object[]>(chunkSize);
+    final DbPreparedStatement select = new DbPreparedStatement(session);
+    final DbPreparedStatement delete = new DbPreparedStatement(session);
+    OutputStream outputStream = null;
+    XMLWriter xmlWriter = null;
+    boolean isOk = false;
+    try {
+      select.createPrepareStatement(request);
+      try {
+        select.getPreparedStatement().setTimestamp(1, stop);
+      } catch (final SQLException e) {
+        throw new WaarpDatabaseSqlException(e);
+      }
+      delete.createPrepareStatement(deleteByKeyRequest);
+      outputStream = new GZIPOutputStream(new FileOutputStream(filename));
+      final OutputFormat format = OutputFormat.createPrettyPrint();
+      format.setEncoding(WaarpStringUtils.UTF_8);
+      xmlWriter = new XMLWriter(outputStream, format);
+      final Element root = new DefaultElement(XMLRUNNERS);
+      xmlWriter.writeOpen(root);
+      while (true) {
+        select.executeQuery();
+        try {
+          while (select.getNext()) {
+            final DbTaskRunner runner = getFromStatementNoRule(select);
+            if (nbAndSpecialId.higherSpecialId < runner.getSpecialId()) {
+              nbAndSpecialId.higherSpecialId = runner.getSpecialId();
+            }
+            xmlWriter.write(getElementFromRunner(runner));
+            keys.add(new Object[] {
+                runner.getRequester(), runner.getRequested(),
+                runner.getSpecialId()
+            });
+          }
+        } finally {
+          select.close();
+        }
+        if (keys.isEmpty()) {
+          break;
+        }
+        // Only delete what is already written
+        xmlWriter.flush();
+        final int nb = deleteByKeys(delete, keys);
+        nbAndSpecialId.nb += keys.size();
+        if (nb == 0 || keys.size() < chunkSize) {
+          break;
+        }
+        keys.clear();
+      }
+      xmlWriter.writeClose(root);
+      xmlWriter.endDocument();
+      xmlWriter.close();
+      isOk = true;
+    } catch (final FileNotFoundException e) {
+      logger.error(CANNOT_WRITE_XML_FILE, e);
+      throw new OpenR66ProtocolBusinessException("File not found");
+    } catch (final IOException e) {
+      logger.error(CANNOT_WRITE_XML_FILE, e);
+      throw new OpenR66ProtocolBusinessException(
+          "Cannot write file: " + e.getMessage());
+    } catch (final SAXException e) {
+      logger.error(CANNOT_WRITE_XML_FILE, e);
+      throw new OpenR66ProtocolBusinessException(UNSUPPORTED_ENCODING);
+    } finally {
+      select.realClose();
+      delete.realClose();
+      if (!isOk || nbAndSpecialId.nb == 0) {
+        FileUtils.close(outputStream);
+        if (nbAndSpecialId.nb == 0) {
+          final File file = new File(filename);
+          if (!file.delete()) {
+            logger.debug("Cannot delete empty archive file");
+          }
+        }
+      }
+    }
+    logger.info("Archive {} transfers into {}", nbAndSpecialId.nb, filename);
+    return nbAndSpecialId;
+  }
+
   /**
    * Change RUNNING, INTERRUPTED to TOSUBMIT TaskRunner from database. This
    * method is to be used when the
@@ -2679,6 +3092,9 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
    * Set the global step as finished (after post task in success)
    */
   public void setAllDone() {
+    if (pojo.getGlobalStep() != Transfer.TASKSTEP.ALLDONETASK) {
+      R66Metrics.transferEnded(this, ErrorCode.CompleteOk);
+    }
     setStopNow();
     pojo.setGlobalStep(Transfer.TASKSTEP.ALLDONETASK);
     pojo.setLastGlobalStep(Transfer.TASKSTEP.ALLDONETASK);
@@ -2897,6 +3313,19 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
    * @throws OpenR66RunnerErrorException
    */
   public void run() throws OpenR66RunnerErrorException {
+    final long start = MetricsRegistry.startTimer();
+    final TASKSTEP step = getGlobalStep();
+    try {
+      runSteps();
+    } finally {
+      if (start != 0) {
+        R66Metrics.TASK_STEP.labels(step.name(), getRuleId())
+                            .observeSince(start);
+      }
+    }
+  }
+
+  private void runSteps() throws OpenR66RunnerErrorException {
     R66Future future;
     if (logger.isDebugEnabled()) {
       try {
@@ -3213,6 +3642,7 @@ public class DbTaskRunner extends AbstractDbDataDao<Transfer> {
     if (getGlobalStep() != TASKSTEP.ERRORTASK) {
       // errorstep was not already executed
       // real error
+      R66Metrics.transferEnded(this, finalValue.getCode());
       if (localChannelReference != null) {
         localChannelReference
             .setErrorMessage(finalValue.getMessage(), finalValue.getCode());
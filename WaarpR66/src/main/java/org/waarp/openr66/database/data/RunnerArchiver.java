@@ -0,0 +1,115 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.database.data;
+
+import org.waarp.common.database.DbSession;
+import org.waarp.common.database.exception.WaarpDatabaseException;
+import org.waarp.common.file.DirInterface;
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.openr66.protocol.configuration.Configuration;
+import org.waarp.openr66.protocol.exception.OpenR66ProtocolBusinessException;
+import org.waarp.openr66.protocol.utils.NbAndSpecialId;
+
+import java.sql.Timestamp;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static org.waarp.openr66.database.DbConstantR66.*;
+
+/**
+ * Background archiver of the finished Runners
+ * <p>
+ * Regularly, all transfers of this host finished for more than the retention
+ * delay are streamed by bounded chunks to a GZIP compressed XML file in the
+ * archive directory, then deleted from the database chunk by chunk, so that
+ * the runner table is kept small without any long-held lock on it.
+ */
+public class RunnerArchiver {
+  /**
+   * Internal Logger
+   */
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(RunnerArchiver.class);
+
+  private final Timer timer = new Timer("R66RunnerArchiver", true);
+  private final long retention;
+  private final int chunkSize;
+
+  /**
+   * @param delay the delay in ms between 2 archiving runs
+   * @param retention the delay in ms after their end before transfers
+   *     are archived
+   * @param chunkSize the number of transfers archived and deleted at once
+   */
+  public RunnerArchiver(final long delay, final long retention,
+                        final int chunkSize) {
+    this.retention = retention;
+    this.chunkSize = chunkSize;
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        archive();
+      }
+    }, delay, delay);
+  }
+
+  /**
+   * Archive and purge now the transfers finished for more than the retention
+   * delay
+   *
+   * @return the number of archived transfers
+   */
+  public synchronized int archive() {
+    if (admin == null || admin.getSession() == null) {
+      return 0;
+    }
+    final long now = System.currentTimeMillis();
+    final String filename = Configuration.configuration.getBaseDirectory() +
+                            Configuration.configuration.getArchivePath() +
+                            DirInterface.SEPARATOR +
+                            Configuration.configuration.getHostId() + '_' +
+                            now + "_runners.xml.gz";
+    final DbSession session = admin.getSession();
+    try {
+      final NbAndSpecialId nbAndSpecialId = DbTaskRunner
+          .archiveLogByChunks(session, new Timestamp(now - retention),
+                              chunkSize, filename);
+      if (nbAndSpecialId.nb > 0) {
+        logger.info("Archived {} transfers up to {} into {}",
+                    nbAndSpecialId.nb, nbAndSpecialId.higherSpecialId,
+                    filename);
+      }
+      return nbAndSpecialId.nb;
+    } catch (final WaarpDatabaseException e) {
+      logger.warn("Cannot archive transfers: {}", e.getMessage());
+    } catch (final OpenR66ProtocolBusinessException e) {
+      logger.warn("Cannot archive transfers: {}", e.getMessage());
+    }
+    return 0;
+  }
+
+  /**
+   * Stop the background archiver
+   */
+  public void close() {
+    timer.cancel();
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.database.data;
+
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.openr66.dao.DAOFactory;
+import org.waarp.openr66.dao.TransferDAO;
+import org.waarp.openr66.dao.database.DBTransferDAO;
+import org.waarp.openr66.dao.exception.DAOConnectionException;
+import org.waarp.openr66.dao.exception.DAONoDataException;
+import org.waarp.openr66.pojo.Transfer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Write-behind journal of the Runner states
+ * <p>
+ * While a transfer is running its data step, rank and step updates are only
+ * kept in memory, as snapshots coalesced per transfer, and regularly flushed
+ * to the database by a background writer using batch updates. Any other
+ * update (final status, error, interruption, submission) is written
+ * synchronously and replaces any pending one.
+ * <p>
+ * If a batch fails, its updates are written one by one: only those of
+ * transfers no longer in the database are dropped, the others are kept for
+ * the next flush.
+ * <p>
+ * In case of crash, at most one flush delay of rank progression is lost: the
+ * restart will then simply resend the corresponding blocks according to the
+ * restart marker.
+ */
+public class RunnerStateJournal {
+  /**
+   * Internal Logger
+   */
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(RunnerStateJournal.class);
+
+  /**
+   * Pending update of one transfer
+   */
+  private static class PendingUpdate {
+    private final String key;
+    private Transfer transfer;
+    private boolean full;
+
+    private PendingUpdate(final String key, final Transfer transfer,
+                          final boolean full) {
+      this.key = key;
+      this.transfer = transfer;
+      this.full = full;
+    }
+  }
+
+  private final Map<String, PendingUpdate> pending =
+      new LinkedHashMap<String, PendingUpdate>();
+  /**
+   * Transfers currently written by a flush
+   */
+  private final Set<String> flushing = new HashSet<String>();
+  private final Timer timer = new Timer("R66RunnerStateJournal", true);
+  private volatile boolean closed;
+
+  /**
+   * @param delay the delay in ms between 2 flushes
+   */
+  public RunnerStateJournal(final long delay) {
+    timer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        flush();
+      }
+    }, delay, delay);
+  }
+
+  private static String getKey(final Transfer transfer) {
+    return transfer.getOwnerRequest() + ' ' + transfer.getRequester() + ' ' +
+           transfer.getRequested() + ' ' + transfer.getId();
+  }
+
+  /**
+   * @return a new TransferDAO
+   *
+   * @throws DAOConnectionException
+   */
+  protected TransferDAO getTransferDAO() throws DAOConnectionException {
+    return DAOFactory.getInstance().getTransferDAO();
+  }
+
+  /**
+   * Add one update of this transfer to the journal
+   *
+   * @param transfer
+   * @param rankOnly True if only the rank (and stop time) changed
+   *
+   * @return False if the journal is closed, so that the update must be
+   *     done synchronously
+   */
+  public boolean offer(final Transfer transfer, final boolean rankOnly) {
+    final String key = getKey(transfer);
+    final Transfer snapshot = new Transfer(transfer);
+    synchronized (pending) {
+      if (closed) {
+        return false;
+      }
+      final PendingUpdate update = pending.get(key);
+      if (update == null) {
+        pending.put(key, new PendingUpdate(key, snapshot, !rankOnly));
+      } else {
+        update.transfer = snapshot;
+        update.full |= !rankOnly;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Write synchronously this transfer, dropping any pending update of it
+   * <p>
+   * Only waits for a flush currently writing this very transfer, so that
+   * an older state cannot be written after this one, nor put back by this
+   * flush if it fails.
+   *
+   * @param transfer
+   *
+   * @throws DAOConnectionException
+   * @throws DAONoDataException
+   */
+  public void writeNow(final Transfer transfer)
+      throws DAOConnectionException, DAONoDataException {
+    final String key = getKey(transfer);
+    synchronized (pending) {
+      pending.remove(key);
+      while (flushing.contains(key)) {
+        try {
+          pending.wait();
+        } catch (final InterruptedException e) {//NOSONAR
+          logger.debug("Interrupted while waiting for the Runner journal");
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      // A failed flush may have put back its older snapshot meanwhile
+      pending.remove(key);
+    }
+    TransferDAO transferAccess = null;
+    try {
+      transferAccess = getTransferDAO();
+      transferAccess.update(transfer);
+    } finally {
+      DAOFactory.closeDAO(transferAccess);
+    }
+  }
+
+  /**
+   * Write all pending updates
+   */
+  public synchronized void flush() {
+    final List<PendingUpdate> updates;
+    synchronized (pending) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      updates = new ArrayList<PendingUpdate>(pending.values());
+      pending.clear();
+      for (final PendingUpdate update : updates) {
+        flushing.add(update.key);
+      }
+    }
+    final List<PendingUpdate> full = new ArrayList<PendingUpdate>();
+    final List<PendingUpdate> ranks = new ArrayList<PendingUpdate>();
+    for (final PendingUpdate update : updates) {
+      if (update.full) {
+        full.add(update);
+      } else {
+        ranks.add(update);
+      }
+    }
+    TransferDAO transferAccess = null;
+    final List<PendingUpdate> failed = new ArrayList<PendingUpdate>();
+    try {
+      transferAccess = getTransferDAO();
+      write(transferAccess, full, false, failed);
+      write(transferAccess, ranks, true, failed);
+      logger.debug("Runner journal flushed {} full and {} rank updates",
+                   full.size(), ranks.size());
+    } catch (final DAOConnectionException e) {
+      logger.warn("Cannot flush Runner journal: {}", e.getMessage());
+      failed.clear();
+      failed.addAll(updates);
+    } finally {
+      DAOFactory.closeDAO(transferAccess);
+      requeue(failed);
+    }
+  }
+
+  /**
+   * Write the given updates with one batch if possible, else one by one
+   *
+   * @param transferAccess
+   * @param updates
+   * @param rankOnly
+   * @param failed the list to which updates to retry are added
+   */
+  private static void write(final TransferDAO transferAccess,
+                            final List<PendingUpdate> updates,
+                            final boolean rankOnly,
+                            final List<PendingUpdate> failed) {
+    if (updates.isEmpty()) {
+      return;
+    }
+    if (transferAccess instanceof DBTransferDAO) {
+      final List<Transfer> transfers = new ArrayList<Transfer>(updates.size());
+      for (final PendingUpdate update : updates) {
+        transfers.add(update.transfer);
+      }
+      try {
+        ((DBTransferDAO) transferAccess).updateBatch(transfers, rankOnly);
+        return;
+      } catch (final DAOConnectionException e) {
+        logger.warn("Cannot flush Runner journal: {}", e.getMessage());
+        failed.addAll(updates);
+        return;
+      } catch (final DAONoDataException e) {
+        logger.info("Runner journal batch failed, write one by one: {}",
+                    e.getMessage());
+      }
+    }
+    for (int i = 0; i < updates.size(); i++) {
+      final PendingUpdate update = updates.get(i);
+      try {
+        if (rankOnly && transferAccess instanceof DBTransferDAO) {
+          ((DBTransferDAO) transferAccess).updateRank(update.transfer);
+        } else {
+          transferAccess.update(update.transfer);
+        }
+      } catch (final DAOConnectionException e) {
+        logger.warn("Cannot flush Runner journal: {}", e.getMessage());
+        failed.addAll(updates.subList(i, updates.size()));
+        return;
+      } catch (final DAONoDataException e) {
+        if (exists(transferAccess, update.transfer)) {
+          logger.warn("Cannot write Runner {}: {}", update.key,
+                      e.getMessage());
+          failed.add(update);
+        } else {
+          logger.info("Runner {} no longer exists: update dropped",
+                      update.key);
+        }
+      }
+    }
+  }
+
+  private static boolean exists(final TransferDAO transferAccess,
+                                final Transfer transfer) {
+    try {
+      return transferAccess.exist(transfer.getId(), transfer.getRequester(),
+                                  transfer.getRequested(),
+                                  transfer.getOwnerRequest());
+    } catch (final DAOConnectionException e) {
+      // Keep it for the next flush
+      return true;
+    }
+  }
+
+  /**
+   * Put back the updates not superseded in the meantime, and release the
+   * writers waiting for this flush
+   *
+   * @param updates
+   */
+  private void requeue(final List<PendingUpdate> updates) {
+    synchronized (pending) {
+      flushing.clear();
+      pending.notifyAll();
+      if (closed && !updates.isEmpty()) {
+        logger.warn("Runner journal closed: {} updates lost",
+                    updates.size());
+        return;
+      }
+      for (final PendingUpdate update : updates) {
+        final PendingUpdate newer = pending.get(update.key);
+        if (newer == null) {
+          pending.put(update.key, update);
+        } else {
+          newer.full |= update.full;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of transfers with pending updates
+   */
+  public int size() {
+    synchronized (pending) {
+      return pending.size();
+    }
+  }
+
+  /**
+   * Stop the background writer and flush synchronously all pending updates
+   */
+  public void close() {
+    synchronized (pending) {
+      closed = true;
+    }
+    timer.cancel();
+    flush();
+  }
+}
@@ -20,6 +20,7 @@
 package org.waarp.openr66.database.model;
 
 import org.waarp.common.database.DbAdmin;
+import org.waarp.common.database.DbPreparedStatement;
 import org.waarp.common.database.DbRequest;
 import org.waarp.common.database.DbSession;
 import org.waarp.common.database.exception.WaarpDatabaseException;
@@ -35,11 +36,16 @@ import org.waarp.openr66.database.data.DbHostAuth;
 import org.waarp.openr66.database.data.DbHostConfiguration;
 import org.waarp.openr66.database.data.DbMultipleMonitor;
 import org.waarp.openr66.database.data.DbRule;
+import org.waarp.openr66.client.TransferArgs;
+import org.waarp.openr66.dao.database.DbCacheVersion;
 import org.waarp.openr66.database.data.DbTaskRunner;
 import org.waarp.openr66.protocol.configuration.Configuration;
 import org.waarp.openr66.protocol.configuration.PartnerConfiguration;
 import org.waarp.openr66.protocol.utils.R66Versions;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Types;
 
 import static org.waarp.common.database.DbConstant.*;
@@ -52,6 +58,7 @@ public class DbModelFactoryR66 extends DbModelFactory {
   private static final String ALTER_TABLE = "ALTER TABLE ";
   private static final String ADD_COLUMN = " ADD COLUMN ";
   private static final String AFTER = " AFTER ";
+  private static final int FOLLOWID_BATCH = 1000;
 
   /**
    * Initialize the Database Model according to arguments.
@@ -173,9 +180,207 @@ public class DbModelFactoryR66 extends DbModelFactory {
         return true;
       }
     }
+    if (PartnerConfiguration
+        .isVersion2GTVersion1(version, R66Versions.V3_5_2.getVersion())) {
+      if (upgradeDbFollowId(dbTypeResolver, session, version) &&
+          !createCacheVersionTable(dbTypeResolver, session)) {
+        DbHostConfiguration
+            .updateVersionDb(Configuration.configuration.getHostId(),
+                             R66Versions.V3_5_2.getVersion());
+      } else {
+        return true;
+      }
+    }
     return false;
   }
 
+  /**
+   * Create the index on the FollowId column of the runner table
+   *
+   * @param dbTypeResolver
+   * @param session
+   *
+   * @return True if the connection is lost (as executeRequestAction)
+   *
+   * @throws WaarpDatabaseNoConnectionException
+   */
+  static boolean createFollowIdIndex(final DbTypeResolver dbTypeResolver,
+                                     final DbSession session)
+      throws WaarpDatabaseNoConnectionException {
+    final String action =
+        dbTypeResolver.getCreateIndex() + DbTaskRunner.FOLLOWID_INDEX + " ON " +
+        DbTaskRunner.table + '(' + DbTaskRunner.FOLLOWID_COLUMN + ')';
+    SysErrLogger.FAKE_LOGGER.sysout(action);
+    return executeRequestAction(session, action);
+  }
+
+  /**
+   * Create the table of the cluster-wide versions of the DAO caches if
+   * missing
+   *
+   * @param dbTypeResolver
+   * @param session
+   *
+   * @return True if the connection is lost (as executeRequestAction)
+   *
+   * @throws WaarpDatabaseNoConnectionException
+   */
+  static boolean createCacheVersionTable(final DbTypeResolver dbTypeResolver,
+                                         final DbSession session)
+      throws WaarpDatabaseNoConnectionException {
+    final DbRequest request = new DbRequest(session);
+    try {
+      request.select(
+          "select " + DbCacheVersion.NAME_FIELD + " from " +
+          DbCacheVersion.TABLE + " where " + DbCacheVersion.NAME_FIELD +
+          " = ''");
+      // Table already there
+      return false;
+    } catch (final WaarpDatabaseSqlException e) {
+      // Table to create
+    } finally {
+      request.close();
+    }
+    final String action =
+        "CREATE TABLE " + DbCacheVersion.TABLE + " (" +
+        DbCacheVersion.NAME_FIELD + dbTypeResolver.getType(Types.NVARCHAR) +
+        " NOT NULL PRIMARY KEY, " + DbCacheVersion.VERSION_FIELD +
+        dbTypeResolver.getType(Types.INTEGER) + " NOT NULL)";
+    SysErrLogger.FAKE_LOGGER.sysout(action);
+    return executeRequestAction(session, action);
+  }
+
+  /**
+   * Add the indexed FollowId column to the runner table if missing, then fill
+   * it from the TransferInfo of the already existing transfers
+   *
+   * @param dbTypeResolver
+   * @param session
+   * @param version
+   *
+   * @return False if the upgrade failed
+   *
+   * @throws WaarpDatabaseNoConnectionException
+   */
+  static boolean upgradeDbFollowId(final DbTypeResolver dbTypeResolver,
+                                   final DbSession session,
+                                   final String version)
+      throws WaarpDatabaseNoConnectionException {
+    if (!PartnerConfiguration
+        .isVersion2GTVersion1(version, R66Versions.V3_5_2.getVersion())) {
+      return true;
+    }
+    SysErrLogger.FAKE_LOGGER.sysout(
+        version + " to " + R66Versions.V3_5_2.getVersion() + "? " + true);
+    DbRequest request = new DbRequest(session);
+    try {
+      request.select(
+          "select " + DbTaskRunner.FOLLOWID_COLUMN + " from " +
+          DbTaskRunner.table + " where " + DbTaskRunner.Columns.SPECIALID +
+          " = " + ILLEGALVALUE);
+      // Column already there
+      return true;
+    } catch (final WaarpDatabaseSqlException e) {
+      // Column to add
+    } finally {
+      request.close();
+    }
+    final String command =
+        ALTER_TABLE + DbTaskRunner.table + " ADD " +
+        DbTaskRunner.FOLLOWID_COLUMN + ' ' +
+        dbTypeResolver.getType(DbTaskRunner.FOLLOWID_TYPE);
+    SysErrLogger.FAKE_LOGGER.sysout("Command: " + command);
+    request = new DbRequest(session);
+    try {
+      request.query(command);
+    } catch (final WaarpDatabaseSqlException e) {
+      SysErrLogger.FAKE_LOGGER.syserr(e);
+      return false;
+    } finally {
+      request.close();
+    }
+    if (createFollowIdIndex(dbTypeResolver, session)) {
+      return false;
+    }
+    fillFollowId(session);
+    return true;
+  }
+
+  /**
+   * Fill the FollowId column of the existing transfers having one Follow Id
+   * within their TransferInfo
+   *
+   * @param session
+   *
+   * @throws WaarpDatabaseNoConnectionException
+   */
+  private static void fillFollowId(final DbSession session)
+      throws WaarpDatabaseNoConnectionException {
+    final DbRequest request = new DbRequest(session);
+    DbPreparedStatement update = null;
+    int count = 0;
+    try {
+      update = new DbPreparedStatement(session,
+                                       "UPDATE " + DbTaskRunner.table +
+                                       " SET " + DbTaskRunner.FOLLOWID_COLUMN +
+                                       " = ? WHERE " +
+                                       DbTaskRunner.Columns.OWNERREQ.name() +
+                                       " = ? AND " +
+                                       DbTaskRunner.Columns.REQUESTER.name() +
+                                       " = ? AND " +
+                                       DbTaskRunner.Columns.REQUESTED.name() +
+                                       " = ? AND " +
+                                       DbTaskRunner.Columns.SPECIALID.name() +
+                                       " = ?");
+      final PreparedStatement preparedStatement =
+          update.getPreparedStatement();
+      request.select(
+          "SELECT " + DbTaskRunner.Columns.OWNERREQ.name() + ", " +
+          DbTaskRunner.Columns.REQUESTER.name() + ", " +
+          DbTaskRunner.Columns.REQUESTED.name() + ", " +
+          DbTaskRunner.Columns.SPECIALID.name() + ", " +
+          DbTaskRunner.Columns.TRANSFERINFO.name() + " FROM " +
+          DbTaskRunner.table + " WHERE " +
+          DbTaskRunner.Columns.TRANSFERINFO.name() + " LIKE '%" +
+          TransferArgs.FOLLOW_JSON_KEY + "%'");
+      while (request.getNext()) {
+        final ResultSet resultSet = request.getResultSet();
+        final String followId = DbTaskRunner.getFollowIdFromTransferInfo(
+            resultSet.getString(DbTaskRunner.Columns.TRANSFERINFO.name()));
+        if (followId == null) {
+          continue;
+        }
+        preparedStatement.setString(1, followId);
+        preparedStatement.setString(2, resultSet.getString(
+            DbTaskRunner.Columns.OWNERREQ.name()));
+        preparedStatement.setString(3, resultSet.getString(
+            DbTaskRunner.Columns.REQUESTER.name()));
+        preparedStatement.setString(4, resultSet.getString(
+            DbTaskRunner.Columns.REQUESTED.name()));
+        preparedStatement.setLong(5, resultSet.getLong(
+            DbTaskRunner.Columns.SPECIALID.name()));
+        preparedStatement.addBatch();
+        count++;
+        if (count % FOLLOWID_BATCH == 0) {
+          preparedStatement.executeBatch();
+        }
+      }
+      if (count % FOLLOWID_BATCH != 0) {
+        preparedStatement.executeBatch();
+      }
+    } catch (final WaarpDatabaseSqlException e) {
+      SysErrLogger.FAKE_LOGGER.syserr(e);
+    } catch (final SQLException e) {
+      SysErrLogger.FAKE_LOGGER.syserr(e);
+    } finally {
+      request.close();
+      if (update != null) {
+        update.realClose();
+      }
+    }
+    SysErrLogger.FAKE_LOGGER.sysout("FollowId set for " + count + " transfers");
+  }
+
   static DbRequest subCreateTableMariaDbMySQLPostgreSQL(
       final DbTypeResolver dbTypeResolver, final DbSession session,
       final String createTableH2, final String primaryKey, final String notNull)
@@ -286,6 +491,9 @@ public class DbModelFactoryR66 extends DbModelFactory {
       }
       action.append(", ");
     }
+    action.append(DbTaskRunner.FOLLOWID_COLUMN)
+          .append(dbTypeResolver.getType(DbTaskRunner.FOLLOWID_TYPE))
+          .append(", ");
     // Several columns for primary key
     action.append(" CONSTRAINT runner_pk ").append(primaryKey).append('(');
     for (int i = DbTaskRunner.NBPRKEY; i > 1; i--) {
@@ -351,6 +559,10 @@ public class DbModelFactoryR66 extends DbModelFactory {
     if (executeRequestAction(session, action)) {
       return;
     }
+    if (createFollowIdIndex(dbTypeResolver, session) ||
+        createCacheVersionTable(dbTypeResolver, session)) {
+      return;
+    }
     // cptrunner
     /*
      * # Table to handle any number of sequences
@@ -371,7 +583,7 @@ public class DbModelFactoryR66 extends DbModelFactory {
     }
 
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
   }
 
   static boolean upgradeDbMariaDbMySQL(final DbTypeResolver dbTypeResolver,
@@ -486,8 +698,12 @@ public class DbModelFactoryR66 extends DbModelFactory {
         return false;
       }
     }
+    if (!upgradeDbFollowId(dbTypeResolver, session, version) ||
+        createCacheVersionTable(dbTypeResolver, session)) {
+      return false;
+    }
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
     return true;
   }
 }
@@ -89,6 +89,11 @@ public class DbModelH2R66 extends DbModelH2 {
       request.close();
     }
 
+    if (DbModelFactoryR66.createFollowIdIndex(dbTypeResolver, session) ||
+        DbModelFactoryR66.createCacheVersionTable(dbTypeResolver, session)) {
+      return;
+    }
+
     // cptrunner
     action = new StringBuilder(
         "CREATE SEQUENCE IF NOT EXISTS " + DbTaskRunner.fieldseq +
@@ -123,7 +128,7 @@ public class DbModelH2R66 extends DbModelH2 {
     }
 
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
   }
 
   @Override
@@ -253,8 +258,13 @@ public class DbModelH2R66 extends DbModelH2 {
         request.close();
       }
     }
+    if (!DbModelFactoryR66.upgradeDbFollowId(dbTypeResolver, session,
+                                             version) ||
+        DbModelFactoryR66.createCacheVersionTable(dbTypeResolver, session)) {
+      return false;
+    }
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
     return true;
   }
 
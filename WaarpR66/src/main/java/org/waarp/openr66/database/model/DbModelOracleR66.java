@@ -219,6 +219,8 @@ public class DbModelOracleR66 extends DbModelOracle {
             .append(DBType.getType(DbTaskRunner.dbTypes[i])).append(notNull)
             .append(", ");
     }
+    action.append(DbTaskRunner.FOLLOWID_COLUMN)
+          .append(DBType.getType(DbTaskRunner.FOLLOWID_TYPE)).append(", ");
     // Several columns for primary key
     action.append(constraint + " runner_pk " + primaryKey + '(');
     for (int i = DbTaskRunner.NBPRKEY; i > 1; i--) {
@@ -258,6 +260,11 @@ public class DbModelOracleR66 extends DbModelOracle {
       request.close();
     }
 
+    if (DbModelFactoryR66.createFollowIdIndex(dbTypeResolver, session) ||
+        DbModelFactoryR66.createCacheVersionTable(dbTypeResolver, session)) {
+      return;
+    }
+
     // cptrunner
     action = new StringBuilder(
         "CREATE SEQUENCE " + DbTaskRunner.fieldseq + " MINVALUE " +
@@ -276,7 +283,7 @@ public class DbModelOracleR66 extends DbModelOracle {
     }
 
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
   }
 
   @Override
@@ -391,8 +398,13 @@ public class DbModelOracleR66 extends DbModelOracle {
         request.close();
       }
     }
+    if (!DbModelFactoryR66.upgradeDbFollowId(dbTypeResolver, session,
+                                             version) ||
+        DbModelFactoryR66.createCacheVersionTable(dbTypeResolver, session)) {
+      return false;
+    }
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
     return true;
   }
 
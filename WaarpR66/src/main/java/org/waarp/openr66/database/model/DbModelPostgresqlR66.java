@@ -115,6 +115,11 @@ public class DbModelPostgresqlR66 extends DbModelPostgresql {
       }
     }
 
+    if (DbModelFactoryR66.createFollowIdIndex(dbTypeResolver, session) ||
+        DbModelFactoryR66.createCacheVersionTable(dbTypeResolver, session)) {
+      return;
+    }
+
     // cptrunner
     action = new StringBuilder(
         "CREATE SEQUENCE " + DbTaskRunner.fieldseq + " MINVALUE " +
@@ -133,7 +138,7 @@ public class DbModelPostgresqlR66 extends DbModelPostgresql {
     }
 
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
   }
 
   @Override
@@ -256,8 +261,13 @@ public class DbModelPostgresqlR66 extends DbModelPostgresql {
         request.close();
       }
     }
+    if (!DbModelFactoryR66.upgradeDbFollowId(dbTypeResolver, session,
+                                             version) ||
+        DbModelFactoryR66.createCacheVersionTable(dbTypeResolver, session)) {
+      return false;
+    }
     DbHostConfiguration.updateVersionDb(Configuration.configuration.getHostId(),
-                                        R66Versions.V2_4_25.getVersion());
+                                        R66Versions.V3_5_2.getVersion());
     return true;
   }
 
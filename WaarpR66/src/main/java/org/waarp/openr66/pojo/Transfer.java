@@ -343,6 +343,25 @@ public class Transfer {
          new Timestamp(new Date().getTime()));
   }
 
+  /**
+   * Copy constructor, giving a snapshot of the given transfer
+   *
+   * @param transfer
+   */
+  public Transfer(final Transfer transfer) {
+    this(transfer.id, transfer.rule, transfer.transferMode, transfer.filename,
+         transfer.originalName, transfer.fileInfo, transfer.isMoved,
+         transfer.blockSize, transfer.retrieveMode, transfer.ownerRequest,
+         transfer.requester, transfer.requested, transfer.transferInfo,
+         transfer.globalStep, transfer.lastGlobalStep, transfer.step,
+         transfer.stepStatus, transfer.infoStatus, transfer.rank,
+         copy(transfer.start), copy(transfer.stop), transfer.updatedInfo);
+  }
+
+  private static Timestamp copy(final Timestamp timestamp) {
+    return timestamp == null? null : (Timestamp) timestamp.clone();
+  }
+
   /**
    * Empty constructor
    */
@@ -39,12 +39,14 @@ import org.waarp.common.database.exception.WaarpDatabaseNoConnectionException;
 import org.waarp.common.database.exception.WaarpDatabaseSqlException;
 import org.waarp.common.digest.FilesystemBasedDigest;
 import org.waarp.common.digest.FilesystemBasedDigest.DigestAlgo;
+import org.waarp.common.digest.ParallelDigests;
 import org.waarp.common.file.filesystembased.FilesystemBasedFileParameterImpl;
 import org.waarp.common.future.WaarpFuture;
 import org.waarp.common.logging.SysErrLogger;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
 import org.waarp.common.logging.WaarpSlf4JLoggerFactory;
+import org.waarp.common.metrics.MetricsRegistry;
 import org.waarp.common.role.RoleDefault;
 import org.waarp.common.utility.DetectionUtils;
 import org.waarp.common.utility.SystemPropertyUtil;
@@ -65,6 +67,8 @@ import org.waarp.openr66.context.R66FiniteDualStates;
 import org.waarp.openr66.context.task.localexec.LocalExecClient;
 import org.waarp.openr66.database.data.DbHostAuth;
 import org.waarp.openr66.database.data.DbTaskRunner;
+import org.waarp.openr66.database.data.RunnerArchiver;
+import org.waarp.openr66.database.data.RunnerStateJournal;
 import org.waarp.openr66.exception.ServerException;
 import org.waarp.openr66.protocol.exception.OpenR66ProtocolNoSslException;
 import org.waarp.openr66.protocol.http.HttpInitializer;
@@ -76,6 +80,7 @@ import org.waarp.openr66.protocol.http.restv2.RestServiceInitializer;
 import org.waarp.openr66.protocol.localhandler.LocalTransaction;
 import org.waarp.openr66.protocol.localhandler.Monitoring;
 import org.waarp.openr66.protocol.localhandler.RetrieveRunner;
+import org.waarp.openr66.protocol.localhandler.TransferStatistics;
 import org.waarp.openr66.protocol.networkhandler.NetworkServerInitializer;
 import org.waarp.openr66.protocol.networkhandler.NetworkTransaction;
 import org.waarp.openr66.protocol.networkhandler.R66ConstraintLimitHandler;
@@ -610,6 +615,9 @@ public class Configuration {
    */
   private R66ThriftServerService thriftService;
   private int thriftport = -1;
+  private int thriftWorkers;
+  private int thriftBatchMax = 256;
+  private long thriftSyncWait = 60000;
 
   private boolean isExecuteErrorBeforeTransferAllowed = true;
 
@@ -632,6 +640,49 @@ public class Configuration {
 
   private long timeLimitCache = 180000;
 
+  private int sendWindowBlocks;
+
+  private long sendWindowBytes;
+
+  private boolean sendDirect;
+
+  private boolean recvDirect;
+
+  private long runnerJournalDelay;
+
+  private volatile RunnerStateJournal runnerStateJournal;
+
+  private int transferIdBlockSize = 1;
+
+  private long commanderReconciliationDelay;
+
+  private int purgeChunkSize;
+
+  private long archiveDelay;
+
+  private long archiveRetention = 7 * 24 * 3600 * 1000L;
+
+  private RunnerArchiver runnerArchiver;
+
+  private long cacheCheckDelay;
+
+  private int networkChannelsPerPartner = 1;
+
+  private boolean networkFairScheduling;
+
+  private int compressionLevel;
+
+  private int digestThreads;
+
+  private DigestAlgo globalDigestAlgo;
+
+  private int transferJournalSegmentSize;
+
+  private long monitoringReconciliationDelay;
+
+  private final TransferStatistics transferStatistics =
+      new TransferStatistics();
+
   private final java.util.Timer timerCleanLruCache =
       new java.util.Timer("CleanLruCache", true);
 
@@ -711,6 +762,72 @@ public class Configuration {
     if (isHostProxyfied()) {
       setBlacklistBadAuthent(false);
     }
+    setSendWindowBlocks(SystemPropertyUtil.getInt(
+        R66SystemProperties.OPENR66_SEND_WINDOW_BLOCKS, 0));
+    if (getSendWindowBlocks() < 0) {
+      setSendWindowBlocks(0);
+    }
+    setSendWindowBytes(SystemPropertyUtil.getLong(
+        R66SystemProperties.OPENR66_SEND_WINDOW_BYTES, 0));
+    if (getSendWindowBytes() < 0) {
+      setSendWindowBytes(0);
+    }
+    setSendDirect(SystemPropertyUtil
+                      .getBoolean(R66SystemProperties.OPENR66_SEND_DIRECT,
+                                  false));
+    setRecvDirect(SystemPropertyUtil
+                      .getBoolean(R66SystemProperties.OPENR66_RECV_DIRECT,
+                                  false));
+    setRunnerJournalDelay(SystemPropertyUtil.getLong(
+        R66SystemProperties.OPENR66_RUNNER_JOURNAL_DELAY, 0));
+    setTransferIdBlockSize(SystemPropertyUtil
+                               .getInt(R66SystemProperties.OPENR66_TRANSFER_ID_BLOCK,
+                                       1));
+    if (getTransferIdBlockSize() < 1) {
+      setTransferIdBlockSize(1);
+    }
+    setCommanderReconciliationDelay(SystemPropertyUtil.getLong(
+        R66SystemProperties.OPENR66_COMMANDER_RECONCILIATION_DELAY, 0));
+    setPurgeChunkSize(SystemPropertyUtil
+                          .getInt(R66SystemProperties.OPENR66_PURGE_CHUNK, 0));
+    if (getPurgeChunkSize() < 0) {
+      setPurgeChunkSize(0);
+    }
+    setArchiveDelay(SystemPropertyUtil
+                        .getLong(R66SystemProperties.OPENR66_ARCHIVE_DELAY, 0));
+    setArchiveRetention(SystemPropertyUtil.getLong(
+        R66SystemProperties.OPENR66_ARCHIVE_RETENTION, getArchiveRetention()));
+    setCacheCheckDelay(SystemPropertyUtil
+                           .getLong(R66SystemProperties.OPENR66_DAO_CACHE_CHECK,
+                                    0));
+    setNetworkChannelsPerPartner(SystemPropertyUtil.getInt(
+        R66SystemProperties.OPENR66_NETWORK_CHANNELS_PER_PARTNER, 1));
+    setNetworkFairScheduling(SystemPropertyUtil.getBoolean(
+        R66SystemProperties.OPENR66_NETWORK_FAIR, false));
+    setCompressionLevel(
+        SystemPropertyUtil.getInt(R66SystemProperties.OPENR66_COMPRESSION, 0));
+    setDigestThreads(SystemPropertyUtil
+                         .getInt(R66SystemProperties.OPENR66_DIGEST_THREADS, 0));
+    final String globalDigestName =
+        SystemPropertyUtil.get(R66SystemProperties.OPENR66_DIGEST_GLOBAL, "");
+    for (final DigestAlgo algo : DigestAlgo.values()) {
+      if (algo.algoName.equalsIgnoreCase(globalDigestName) ||
+          algo.name().equalsIgnoreCase(globalDigestName)) {
+        setGlobalDigestAlgo(algo);
+      }
+    }
+    setTransferJournalSegmentSize(SystemPropertyUtil
+        .getInt(R66SystemProperties.OPENR66_TRANSFER_JOURNAL, 0));
+    setMonitoringReconciliationDelay(SystemPropertyUtil.getLong(
+        R66SystemProperties.OPENR66_MONITORING_RECONCILIATION, 0));
+    setMetricsEnabled(SystemPropertyUtil.getBoolean(
+        R66SystemProperties.OPENR66_METRICS, false));
+    setThriftWorkers(SystemPropertyUtil
+                         .getInt(R66SystemProperties.OPENR66_THRIFT_WORKERS, 0));
+    setThriftBatchMax(SystemPropertyUtil.getInt(
+        R66SystemProperties.OPENR66_THRIFT_BATCH_MAX, 256));
+    setThriftSyncWait(SystemPropertyUtil.getLong(
+        R66SystemProperties.OPENR66_THRIFT_SYNC_WAIT, 60000));
   }
 
   private String arrayToString(final String[] array) {
@@ -874,6 +991,7 @@ public class Configuration {
     startHttpSupport();
     startMonitoring();
     launchStatistics();
+    launchRunnerArchiver();
     startRestSupport();
 
     logger.info("Current launched threads: " +
@@ -890,6 +1008,28 @@ public class Configuration {
     }
   }
 
+  /**
+   * Start the background archiver of finished transfers if enabled
+   */
+  public synchronized void launchRunnerArchiver() {
+    if (getArchiveDelay() > 0 && runnerArchiver == null) {
+      runnerArchiver = new RunnerArchiver(getArchiveDelay(),
+                                          getArchiveRetention(),
+                                          getPurgeChunkSize() > 0?
+                                              getPurgeChunkSize() : 1000);
+    }
+  }
+
+  /**
+   * Stop the background archiver of finished transfers if any
+   */
+  public synchronized void closeRunnerArchiver() {
+    if (runnerArchiver != null) {
+      runnerArchiver.close();
+      runnerArchiver = null;
+    }
+  }
+
   private Channel bindTo(final String ip, final int port,
                          final ServerBootstrap serverBootstrapToBind,
                          final String messageError) throws ServerException {
@@ -977,7 +1117,8 @@ public class Configuration {
 
     if (getThriftport() > 0) {
       setThriftService(
-          new R66ThriftServerService(new WaarpFuture(true), getThriftport()));
+          new R66ThriftServerService(new WaarpFuture(true), getThriftport(),
+                                     getThriftWorkers()));
       execOtherWorker.execute(getThriftService());
       getThriftService().awaitInitialization();
     } else {
@@ -1157,6 +1298,7 @@ public class Configuration {
     if (internalRunner != null) {
       internalRunner.stopInternalRunner();
     }
+    closeRunnerArchiver();
     if (scheduledExecutorService != null) {
       scheduledExecutorService.shutdown();
     }
@@ -1528,6 +1670,13 @@ public class Configuration {
     } catch (final Exception e) {
       logger.warn(ISSUE_WHILE_DEBUGGING, e);
     }
+    try {
+      if (configuration.internalRunner != null) {
+        result += configuration.internalRunner.hashStatus() + '\n';
+      }
+    } catch (final Exception e) {
+      logger.warn(ISSUE_WHILE_DEBUGGING, e);
+    }
     try {
       result += NetworkTransaction.hashStatus();
     } catch (final Exception e) {
@@ -2681,4 +2830,397 @@ public class Configuration {
     }
 
   }
+
+  /**
+   * @return the maximum number of DataPackets in flight for one send
+   *     operation (0 or 1 meaning no sliding window)
+   */
+  public int getSendWindowBlocks() {
+    return sendWindowBlocks;
+  }
+
+  /**
+   * @param sendWindowBlocks the sendWindowBlocks to set
+   */
+  public void setSendWindowBlocks(final int sendWindowBlocks) {
+    this.sendWindowBlocks = sendWindowBlocks;
+  }
+
+  /**
+   * @return the maximum number of bytes in flight for one send operation (0
+   *     meaning no limit in bytes)
+   */
+  public long getSendWindowBytes() {
+    return sendWindowBytes;
+  }
+
+  /**
+   * @param sendWindowBytes the sendWindowBytes to set
+   */
+  public void setSendWindowBytes(final long sendWindowBytes) {
+    this.sendWindowBytes = sendWindowBytes;
+  }
+
+  /**
+   * @return True if file blocks are sent from direct buffers without heap
+   *     copy
+   */
+  public boolean isSendDirect() {
+    return sendDirect;
+  }
+
+  /**
+   * @param sendDirect the sendDirect to set
+   */
+  public void setSendDirect(final boolean sendDirect) {
+    this.sendDirect = sendDirect;
+  }
+
+  /**
+   * @return True if received file blocks are written from the network
+   *     buffers without heap copy
+   */
+  public boolean isRecvDirect() {
+    return recvDirect;
+  }
+
+  /**
+   * @param recvDirect the recvDirect to set
+   */
+  public void setRecvDirect(final boolean recvDirect) {
+    this.recvDirect = recvDirect;
+  }
+
+  /**
+   * @return the delay in ms between 2 flushes of the Runner states journal,
+   *     0 meaning synchronous updates
+   */
+  public long getRunnerJournalDelay() {
+    return runnerJournalDelay;
+  }
+
+  /**
+   * @param runnerJournalDelay the runnerJournalDelay to set
+   */
+  public void setRunnerJournalDelay(final long runnerJournalDelay) {
+    this.runnerJournalDelay = runnerJournalDelay;
+  }
+
+  /**
+   * @return the Runner states journal, or null if updates are synchronous
+   */
+  public RunnerStateJournal getRunnerStateJournal() {
+    if (runnerStateJournal == null && runnerJournalDelay > 0) {
+      synchronized (this) {
+        if (runnerStateJournal == null && runnerJournalDelay > 0) {
+          runnerStateJournal = new RunnerStateJournal(runnerJournalDelay);
+        }
+      }
+    }
+    return runnerStateJournal;
+  }
+
+  /**
+   * Flush and stop the Runner states journal, if any, falling back to
+   * synchronous updates
+   */
+  public void closeRunnerStateJournal() {
+    final RunnerStateJournal journal;
+    synchronized (this) {
+      journal = runnerStateJournal;
+      runnerStateJournal = null;
+      runnerJournalDelay = 0;
+    }
+    if (journal != null) {
+      journal.close();
+    }
+  }
+
+  /**
+   * @return the number of transfer ids reserved at once from the database
+   */
+  public int getTransferIdBlockSize() {
+    return transferIdBlockSize;
+  }
+
+  /**
+   * @param transferIdBlockSize the transferIdBlockSize to set
+   */
+  public void setTransferIdBlockSize(final int transferIdBlockSize) {
+    this.transferIdBlockSize = transferIdBlockSize;
+  }
+
+  /**
+   * @return the delay in ms between 2 database checks of the Commander when
+   *     local submissions are launched directly, 0 if not enabled
+   */
+  public long getCommanderReconciliationDelay() {
+    return commanderReconciliationDelay;
+  }
+
+  /**
+   * @param commanderReconciliationDelay the commanderReconciliationDelay
+   *     to set
+   */
+  public void setCommanderReconciliationDelay(
+      final long commanderReconciliationDelay) {
+    this.commanderReconciliationDelay = commanderReconciliationDelay;
+  }
+
+  /**
+   * @return the number of transfers deleted at once by the purge of logs, 0
+   *     meaning one single DELETE statement
+   */
+  public int getPurgeChunkSize() {
+    return purgeChunkSize;
+  }
+
+  /**
+   * @param purgeChunkSize the purgeChunkSize to set
+   */
+  public void setPurgeChunkSize(final int purgeChunkSize) {
+    this.purgeChunkSize = purgeChunkSize;
+  }
+
+  /**
+   * @return the delay in ms between 2 runs of the background archiver, 0 if
+   *     not enabled
+   */
+  public long getArchiveDelay() {
+    return archiveDelay;
+  }
+
+  /**
+   * @param archiveDelay the archiveDelay to set
+   */
+  public void setArchiveDelay(final long archiveDelay) {
+    this.archiveDelay = archiveDelay;
+  }
+
+  /**
+   * @return the delay in ms after their end before finished transfers are
+   *     archived
+   */
+  public long getArchiveRetention() {
+    return archiveRetention;
+  }
+
+  /**
+   * @param archiveRetention the archiveRetention to set
+   */
+  public void setArchiveRetention(final long archiveRetention) {
+    this.archiveRetention = archiveRetention;
+  }
+
+  /**
+   * @return the background archiver of finished transfers, or null if not
+   *     enabled
+   */
+  public synchronized RunnerArchiver getRunnerArchiver() {
+    return runnerArchiver;
+  }
+
+  /**
+   * @return the delay in ms between 2 checks of the cluster-wide version of
+   *     the hosts and rules caches, 0 meaning no cache in multiple monitors
+   *     mode
+   */
+  public long getCacheCheckDelay() {
+    return cacheCheckDelay;
+  }
+
+  /**
+   * @param cacheCheckDelay the cacheCheckDelay to set
+   */
+  public void setCacheCheckDelay(final long cacheCheckDelay) {
+    this.cacheCheckDelay = cacheCheckDelay;
+  }
+
+  /**
+   * @return the maximum number of network connections opened by this host
+   *     to the same partner
+   */
+  public int getNetworkChannelsPerPartner() {
+    return networkChannelsPerPartner;
+  }
+
+  /**
+   * @param networkChannelsPerPartner the networkChannelsPerPartner to set
+   *     (between 1 and 255)
+   */
+  public void setNetworkChannelsPerPartner(
+      final int networkChannelsPerPartner) {
+    this.networkChannelsPerPartner =
+        Math.max(1, Math.min(255, networkChannelsPerPartner));
+  }
+
+  /**
+   * @return True if DataPackets sharing one network channel are scheduled
+   *     in weighted round-robin order
+   */
+  public boolean isNetworkFairScheduling() {
+    return networkFairScheduling;
+  }
+
+  /**
+   * @param networkFairScheduling the networkFairScheduling to set (only
+   *     used by network channels opened afterwards)
+   */
+  public void setNetworkFairScheduling(final boolean networkFairScheduling) {
+    this.networkFairScheduling = networkFairScheduling;
+  }
+
+  /**
+   * @return the Deflate level used to compress data blocks sent, 0 meaning
+   *     no compression
+   */
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * @param compressionLevel the compressionLevel to set (between 0 and 9)
+   */
+  public void setCompressionLevel(final int compressionLevel) {
+    this.compressionLevel = Math.max(0, Math.min(9, compressionLevel));
+  }
+
+  /**
+   * @return the number of threads computing digests in parallel, 0 if
+   *     digests are computed sequentially
+   */
+  public int getDigestThreads() {
+    return digestThreads;
+  }
+
+  /**
+   * @param digestThreads the digestThreads to set
+   */
+  public void setDigestThreads(final int digestThreads) {
+    final int threads = Math.max(0, digestThreads);
+    if (threads != this.digestThreads) {
+      this.digestThreads = threads;
+      ParallelDigests.setThreads(threads);
+    }
+  }
+
+  /**
+   * @return the maximum size in MB of one segment of the transfer journal
+   *     used in no database mode, 0 meaning one XML file per transfer
+   */
+  public int getTransferJournalSegmentSize() {
+    return transferJournalSegmentSize;
+  }
+
+  /**
+   * @param transferJournalSegmentSize the transferJournalSegmentSize to
+   *     set
+   */
+  public void setTransferJournalSegmentSize(
+      final int transferJournalSegmentSize) {
+    this.transferJournalSegmentSize = Math.max(0, transferJournalSegmentSize);
+  }
+
+  /**
+   * @return the delay in ms between 2 reconciliations of the incremental
+   *     transfer figures of the Monitoring, 0 if not incremental
+   */
+  public long getMonitoringReconciliationDelay() {
+    return monitoringReconciliationDelay;
+  }
+
+  /**
+   * @param monitoringReconciliationDelay the monitoringReconciliationDelay
+   *     to set
+   */
+  public void setMonitoringReconciliationDelay(
+      final long monitoringReconciliationDelay) {
+    this.monitoringReconciliationDelay =
+        Math.max(0, monitoringReconciliationDelay);
+  }
+
+  /**
+   * @return the incremental transfer figures of the Monitoring
+   */
+  public TransferStatistics getTransferStatistics() {
+    return transferStatistics;
+  }
+
+  /**
+   * @return True if metrics are collected
+   */
+  public boolean isMetricsEnabled() {
+    return MetricsRegistry.isEnabled();
+  }
+
+  /**
+   * @param metricsEnabled True to collect metrics in this JVM
+   */
+  public void setMetricsEnabled(final boolean metricsEnabled) {
+    MetricsRegistry.setEnabled(metricsEnabled);
+  }
+
+  /**
+   * @return the number of worker threads of the non blocking Thrift
+   *     service (0 meaning one thread per connected client)
+   */
+  public int getThriftWorkers() {
+    return thriftWorkers;
+  }
+
+  /**
+   * @param thriftWorkers the thriftWorkers to set
+   */
+  public void setThriftWorkers(final int thriftWorkers) {
+    this.thriftWorkers = Math.max(0, thriftWorkers);
+  }
+
+  /**
+   * @return the maximum number of requests of a Thrift batchQuery
+   */
+  public int getThriftBatchMax() {
+    return thriftBatchMax;
+  }
+
+  /**
+   * @param thriftBatchMax the thriftBatchMax to set
+   */
+  public void setThriftBatchMax(final int thriftBatchMax) {
+    this.thriftBatchMax = Math.max(1, thriftBatchMax);
+  }
+
+  /**
+   * @return the maximum time in ms a worker of the non blocking Thrift
+   *     service waits for synchronous transfers
+   */
+  public long getThriftSyncWait() {
+    return thriftSyncWait;
+  }
+
+  /**
+   * @param thriftSyncWait the thriftSyncWait to set
+   */
+  public void setThriftSyncWait(final long thriftSyncWait) {
+    this.thriftSyncWait = Math.max(0, thriftSyncWait);
+  }
+
+  /**
+   * @return the digest algorithm of the end of transfer hash: if not set,
+   *     the digest algorithm unless it is only a block checksum (CRC32C),
+   *     SHA-256 being then used
+   */
+  public DigestAlgo getGlobalDigestAlgo() {
+    if (globalDigestAlgo != null) {
+      return globalDigestAlgo;
+    }
+    return digest == DigestAlgo.CRC32C? DigestAlgo.SHA256 : digest;
+  }
+
+  /**
+   * @param globalDigestAlgo the globalDigestAlgo to set, null to use the
+   *     default
+   */
+  public void setGlobalDigestAlgo(final DigestAlgo globalDigestAlgo) {
+    this.globalDigestAlgo = globalDigestAlgo;
+  }
 }
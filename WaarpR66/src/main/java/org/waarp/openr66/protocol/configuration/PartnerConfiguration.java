@@ -24,6 +24,7 @@ import org.waarp.common.digest.FilesystemBasedDigest.DigestAlgo;
 import org.waarp.common.json.JsonHandler;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.openr66.protocol.utils.BlockCompressor;
 import org.waarp.openr66.protocol.utils.R66Versions;
 import org.waarp.openr66.protocol.utils.Version;
 
@@ -62,7 +63,8 @@ public class PartnerConfiguration {
   public enum FIELDS {
     HOSTID("nohostid"), VERSION(R66Versions.V2_4_12.getVersion()),
     DIGESTALGO(DigestAlgo.MD5.algoName), FILESIZE(false), FINALHASH(false),
-    PROXIFIED(false), SEPARATOR(BLANK_SEPARATOR_FIELD);
+    PROXIFIED(false), SEPARATOR(BLANK_SEPARATOR_FIELD), SENDWINDOW(0),
+    COMPRESSION(""), GLOBALDIGESTALGO("");
 
     final String name;
     final Object defaultValue;
@@ -78,6 +80,7 @@ public class PartnerConfiguration {
   private final boolean useJson;
   private boolean changeFileInfoEnabled;
   private final DigestAlgo digestAlgo;
+  private final DigestAlgo globalDigestAlgo;
 
   /**
    * Constructor for an external HostId
@@ -124,6 +127,12 @@ public class PartnerConfiguration {
       changeFileInfoEnabled = true;
     }
     JsonHandler.setValue(root, FIELDS.SEPARATOR, sep);
+    JsonHandler.setValue(root, FIELDS.SENDWINDOW,
+                         (Integer) FIELDS.SENDWINDOW.defaultValue);
+    JsonHandler.setValue(root, FIELDS.COMPRESSION,
+                         (String) FIELDS.COMPRESSION.defaultValue);
+    JsonHandler.setValue(root, FIELDS.GLOBALDIGESTALGO,
+                         (String) FIELDS.GLOBALDIGESTALGO.defaultValue);
 
     if (json != null && pos > 1) {
       final String realjson = json.substring(pos);
@@ -136,6 +145,7 @@ public class PartnerConfiguration {
       Configuration.configuration.setBlacklistBadAuthent(false);
     }
     digestAlgo = getDigestAlgoInternal();
+    globalDigestAlgo = getGlobalDigestAlgoInternal();
     logger.debug("Info on HostId: {}", root);
   }
 
@@ -156,8 +166,17 @@ public class PartnerConfiguration {
     JsonHandler.setValue(root, FIELDS.PROXIFIED,
                          Configuration.configuration.isHostProxyfied());
     JsonHandler.setValue(root, FIELDS.SEPARATOR, getSEPARATOR_FIELD());
+    JsonHandler.setValue(root, FIELDS.SENDWINDOW,
+                         Configuration.configuration.getSendWindowBlocks());
+    // Always able to receive compressed blocks
+    JsonHandler.setValue(root, FIELDS.COMPRESSION,
+                         BlockCompressor.DEFLATE_NAME);
+    JsonHandler.setValue(root, FIELDS.GLOBALDIGESTALGO,
+                         Configuration.configuration.getGlobalDigestAlgo()
+                             .algoName);
     useJson = true;
     digestAlgo = getDigestAlgoInternal();
+    globalDigestAlgo = getGlobalDigestAlgoInternal();
     logger.debug("Info on HostId: {}", root);
   }
 
@@ -208,6 +227,35 @@ public class PartnerConfiguration {
     return getDigestAlgo(algo);
   }
 
+  /**
+   * @return True if this Host advertises the digest algorithm of its end of
+   *     transfer hash, so knows the one advertised by this server (older
+   *     partners do not)
+   */
+  public boolean useGlobalDigestAlgo() {
+    return !root.path(FIELDS.GLOBALDIGESTALGO.name).asText().isEmpty();
+  }
+
+  /**
+   * @return the DigestAlgo of the end of transfer hash sent by this Host,
+   *     its DigestAlgo for older partners
+   */
+  public DigestAlgo getGlobalDigestAlgo() {
+    return globalDigestAlgo;
+  }
+
+  /**
+   * Used to initialize the global DigestAlgo for this partner
+   *
+   * @return the global DigestAlgo
+   */
+  private DigestAlgo getGlobalDigestAlgoInternal() {
+    if (!useGlobalDigestAlgo()) {
+      return digestAlgo;
+    }
+    return getDigestAlgo(root.path(FIELDS.GLOBALDIGESTALGO.name).asText());
+  }
+
   /**
    * @return True if this Host is proxified
    */
@@ -223,6 +271,24 @@ public class PartnerConfiguration {
     return root.path(FIELDS.SEPARATOR.name).asText();
   }
 
+  /**
+   * @return the sliding window (in blocks) advertised by this Host, 0 if
+   *     none (older partners)
+   */
+  public int getSendWindow() {
+    return root.path(FIELDS.SENDWINDOW.name)
+               .asInt((Integer) FIELDS.SENDWINDOW.defaultValue);
+  }
+
+  /**
+   * @return True if this Host accepts compressed data blocks (older partners
+   *     do not)
+   */
+  public boolean useCompression() {
+    return BlockCompressor.DEFLATE_NAME
+        .equals(root.path(FIELDS.COMPRESSION.name).asText());
+  }
+
   /**
    * @return the useJson
    */
@@ -120,6 +120,150 @@ public final class R66SystemProperties {
    */
   public static final String OPENR66_CACHE_TIMELIMIT =
       "openr66.cache.timelimit";
+  /**
+   * Maximum number of DataPackets in flight (not yet written to the network)
+   * for one send operation (default 0, meaning the legacy behavior where each
+   * block write is awaited before reading the next one). Only used with
+   * partners advertising a sliding window too.
+   */
+  public static final String OPENR66_SEND_WINDOW_BLOCKS =
+      "openr66.send.window.blocks";
+  /**
+   * Maximum number of bytes in flight for one send operation when the
+   * sliding
+   * window is active (default 0, meaning only limited by the number of
+   * blocks)
+   */
+  public static final String OPENR66_SEND_WINDOW_BYTES =
+      "openr66.send.window.bytes";
+  /**
+   * Shall the send operation read file blocks directly into pooled direct
+   * buffers and hand them to the network layer without any heap copy
+   * (default false)
+   */
+  public static final String OPENR66_SEND_DIRECT = "openr66.send.direct";
+  /**
+   * Option to write received file blocks directly from the network buffers
+   * to the file channel without any heap copy (default false)
+   */
+  public static final String OPENR66_RECV_DIRECT = "openr66.recv.direct";
+  /**
+   * Delay in ms between 2 flushes of the Runner states journal, where rank
+   * and step updates of running transfers are coalesced and written in batch
+   * (default 0 meaning synchronous updates)
+   */
+  public static final String OPENR66_RUNNER_JOURNAL_DELAY =
+      "openr66.runner.journal.delay";
+  /**
+   * Number of transfer ids reserved at once from the database sequence and
+   * then given locally (default 1 meaning one database access per new
+   * transfer)
+   */
+  public static final String OPENR66_TRANSFER_ID_BLOCK =
+      "openr66.transfer.id.block";
+  /**
+   * Delay in ms between 2 database checks of the Commander when transfers
+   * submitted by this server are launched without waiting for the Commander
+   * (default 0 meaning no such direct submission, the Commander checking the
+   * database every delay of the configuration)
+   */
+  public static final String OPENR66_COMMANDER_RECONCILIATION_DELAY =
+      "openr66.commander.reconciliation.delay";
+  /**
+   * Number of transfers deleted at once by the purge of logs, each chunk
+   * being a separate short batch of deletes (default 0 meaning one single
+   * DELETE statement)
+   */
+  public static final String OPENR66_PURGE_CHUNK = "openr66.purge.chunk";
+  /**
+   * Delay in ms between 2 runs of the background archiver, which exports
+   * finished transfers to compressed XML files in the archive directory then
+   * purges them (default 0 meaning no background archiver)
+   */
+  public static final String OPENR66_ARCHIVE_DELAY = "openr66.archive.delay";
+  /**
+   * Delay in ms after their end before finished transfers are archived by the
+   * background archiver (default 7 days)
+   */
+  public static final String OPENR66_ARCHIVE_RETENTION =
+      "openr66.archive.retention";
+  /**
+   * Delay in ms between 2 checks of the cluster-wide version of the hosts
+   * and rules caches in multiple monitors mode (default 0 meaning those
+   * caches are not used in multiple monitors mode)
+   */
+  public static final String OPENR66_DAO_CACHE_CHECK = "openr66.dao.cache.check";
+  /**
+   * Maximum number of network connections opened by this host to the same
+   * partner, new transfers using the least loaded one or opening a new one
+   * while this maximum is not reached (default 1, maximum 255)
+   */
+  public static final String OPENR66_NETWORK_CHANNELS_PER_PARTNER =
+      "openr66.network.channels.partner";
+  /**
+   * True to schedule DataPackets of LocalChannels sharing one network
+   * channel in weighted round-robin order, control packets being written
+   * before queued data (default false)
+   */
+  public static final String OPENR66_NETWORK_FAIR = "openr66.network.fair";
+  /**
+   * Deflate level (1 for speed to 9 for ratio) used to compress data blocks
+   * sent to partners advertising compression support (default 0 meaning no
+   * compression)
+   */
+  public static final String OPENR66_COMPRESSION = "openr66.compression";
+  /**
+   * Number of threads computing the global and local digests of a block
+   * while the transfer thread computes its block digest (default 0 meaning
+   * all digests are computed sequentially by the transfer thread)
+   */
+  public static final String OPENR66_DIGEST_THREADS = "openr66.digest.threads";
+  /**
+   * Name of the digest algorithm of the end of transfer hash, advertised to
+   * partners (default the digest algorithm, or SHA-256 if the latter is
+   * CRC32C which is only a block checksum)
+   */
+  public static final String OPENR66_DIGEST_GLOBAL = "openr66.digest.global";
+  /**
+   * Maximum size in MB of each segment of the append-only journal storing
+   * transfers in no database mode (default 0 meaning one XML file per
+   * transfer in the archive directory)
+   */
+  public static final String OPENR66_TRANSFER_JOURNAL =
+      "openr66.transfer.journal";
+  /**
+   * Delay in ms between 2 reconciliations of the transfer figures of the
+   * Monitoring with the database, figures being maintained from the
+   * transfer changes in between (default 0 meaning figures are computed by
+   * requests on the database at each refresh)
+   */
+  public static final String OPENR66_MONITORING_RECONCILIATION =
+      "openr66.monitoring.reconciliation";
+  /**
+   * True to collect the metrics of transfers, tasks, DAO and gateways, exposed
+   * by the REST V2 service on /v2/metrics (default false)
+   */
+  public static final String OPENR66_METRICS = "openr66.metrics";
+  /**
+   * Number of worker threads of the Thrift service: if positive, the service
+   * uses selector threads and a bounded pool of workers, so that idle clients
+   * do not hold any thread, clients having then to use a framed transport
+   * (default 0 meaning one thread per connected client)
+   */
+  public static final String OPENR66_THRIFT_WORKERS = "openr66.thrift.workers";
+  /**
+   * Maximum number of requests of a Thrift batchQuery, larger batches being
+   * rejected as a whole (default 256)
+   */
+  public static final String OPENR66_THRIFT_BATCH_MAX =
+      "openr66.thrift.batchmax";
+  /**
+   * Maximum time in ms a worker of the non blocking Thrift service waits for
+   * synchronous transfers, their current status being answered beyond it
+   * (default 60000)
+   */
+  public static final String OPENR66_THRIFT_SYNC_WAIT =
+      "openr66.thrift.syncwait";
 
   private R66SystemProperties() {
   }
@@ -118,6 +118,13 @@ public final class RestConstants {
   public static final AsciiString AUTH_SIGNATURE =
       AsciiString.cached("X-Auth-Signature");
 
+  /**
+   * Name of the internal HTTP header storing the id of the channel which
+   * received a request, always set by the server itself.
+   */
+  public static final AsciiString CHANNEL_ID =
+      AsciiString.cached("X-Waarp-Channel-Id");
+
   // ########################## ENTRY POINTS URI ##############################
 
   /**
@@ -191,6 +198,11 @@ public final class RestConstants {
   public static final String CONFIG_HANDLER_URI =
       VERSION_PREFIX + "hostconfig/";
 
+  /**
+   * Access point of the metrics.
+   */
+  public static final String METRICS_HANDLER_URI = VERSION_PREFIX + "metrics";
+
   /**
    * The names of all the sub-paths of the {@link ServerHandler} corresponding
    * to the server commands.
@@ -436,6 +448,7 @@ public final class RestConstants {
     public static final String START_TRANS = "startTrans";
     public static final String STOP_TRANS = "stopTrans";
     public static final String FOLLOW_ID = "followId";
+    public static final String AFTER = "after";
 
     private GetTransfersParams() {
     }
@@ -40,6 +40,7 @@ import org.waarp.openr66.protocol.http.restv2.dbhandlers.HostConfigHandler;
 import org.waarp.openr66.protocol.http.restv2.dbhandlers.HostIdHandler;
 import org.waarp.openr66.protocol.http.restv2.dbhandlers.HostsHandler;
 import org.waarp.openr66.protocol.http.restv2.dbhandlers.LimitsHandler;
+import org.waarp.openr66.protocol.http.restv2.dbhandlers.MetricsHandler;
 import org.waarp.openr66.protocol.http.restv2.dbhandlers.RuleIdHandler;
 import org.waarp.openr66.protocol.http.restv2.dbhandlers.RulesHandler;
 import org.waarp.openr66.protocol.http.restv2.dbhandlers.ServerHandler;
@@ -111,6 +112,8 @@ public final class RestServiceInitializer {
     final byte configCRUD =
         config.getResthandlersCrud()[DbHostConfiguration.ordinal()];
     final byte limitCRUD = config.getResthandlersCrud()[Bandwidth.ordinal()];
+    final byte metricsCRUD =
+        config.getResthandlersCrud()[Information.ordinal()];
     final int serverCRUD = config.getResthandlersCrud()[Business.ordinal()] +
                            config.getResthandlersCrud()[Config.ordinal()] +
                            config.getResthandlersCrud()[Information.ordinal()] +
@@ -142,6 +145,9 @@ public final class RestServiceInitializer {
     if (spooledCRUD != 0) {
       handlers.add(new SpooledHandler(spooledCRUD));
     }
+    if (metricsCRUD != 0) {
+      handlers.add(new MetricsHandler(metricsCRUD));
+    }
   }
 
   /**
@@ -0,0 +1,106 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.waarp.openr66.protocol.http.restv2.dbhandlers;
+
+import io.cdap.http.AbstractHttpHandler;
+import io.cdap.http.HttpResponder;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import org.waarp.common.metrics.MetricsRegistry;
+import org.waarp.common.role.RoleDefault.ROLE;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.OPTIONS;
+import javax.ws.rs.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.*;
+import static javax.ws.rs.core.HttpHeaders.*;
+import static javax.ws.rs.core.MediaType.*;
+import static org.waarp.openr66.protocol.http.restv2.RestConstants.*;
+
+/**
+ * This is the {@link AbstractHttpHandler} exposing the metrics of the server
+ * in the Prometheus text exposition format. Metrics are only collected when
+ * the {@code openr66.metrics} property is set.
+ */
+@Path(METRICS_HANDLER_URI)
+public class MetricsHandler extends AbstractRestDbHandler {
+
+  /**
+   * The content of the 'Allow' header sent when an 'OPTIONS' request is made
+   * on the handler.
+   */
+  private static final HttpHeaders OPTIONS_HEADERS;
+
+  static {
+    OPTIONS_HEADERS = new DefaultHttpHeaders();
+    final List<HttpMethod> allow = new ArrayList<HttpMethod>();
+    allow.add(HttpMethod.GET);
+    allow.add(HttpMethod.OPTIONS);
+    OPTIONS_HEADERS.add(ALLOW, allow);
+  }
+
+  /**
+   * Initializes the handler with the given CRUD mask.
+   *
+   * @param crud the CRUD mask for this handler
+   */
+  public MetricsHandler(final byte crud) {
+    super(crud);
+  }
+
+  /**
+   * Method called to obtain all the metrics of the server, as plain text.
+   *
+   * @param request the HttpRequest made on the resource
+   * @param responder the HttpResponder which sends the reply to the request
+   */
+  @GET
+  @Consumes(WILDCARD)
+  @RequiredRole(ROLE.READONLY)
+  public void getMetrics(final HttpRequest request,
+                         final HttpResponder responder) {
+    final HttpHeaders headers = new DefaultHttpHeaders();
+    headers.add(CONTENT_TYPE, MetricsRegistry.CONTENT_TYPE);
+    responder.sendString(OK, MetricsRegistry.getInstance().scrape(), headers);
+  }
+
+  /**
+   * Method called to get a list of all allowed HTTP methods on this entry
+   * point. The HTTP methods are sent as an array in the reply's headers.
+   *
+   * @param request the HttpRequest made on the resource
+   * @param responder the HttpResponder which sends the reply to the
+   *     request
+   */
+  @OPTIONS
+  @Consumes(WILDCARD)
+  @RequiredRole(ROLE.NOACCESS)
+  public void options(final HttpRequest request,
+                      final HttpResponder responder) {
+    responder.sendStatus(OK, OPTIONS_HEADERS);
+  }
+}
@@ -20,6 +20,8 @@
 
 package org.waarp.openr66.protocol.http.restv2.dbhandlers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -30,15 +32,20 @@ import io.netty.handler.codec.http.HttpRequest;
 import org.joda.time.DateTime;
 import org.waarp.common.database.data.AbstractDbData;
 import org.waarp.common.role.RoleDefault.ROLE;
+import org.waarp.common.utility.BaseXx;
 import org.waarp.openr66.dao.DAOFactory;
 import org.waarp.openr66.dao.Filter;
 import org.waarp.openr66.dao.TransferDAO;
+import org.waarp.openr66.dao.database.DBCursor;
+import org.waarp.openr66.dao.database.DBTransferDAO;
 import org.waarp.openr66.dao.exception.DAOConnectionException;
 import org.waarp.openr66.database.data.DbTaskRunner;
 import org.waarp.openr66.pojo.Transfer;
 import org.waarp.openr66.protocol.http.restv2.converters.TransferConverter;
 import org.waarp.openr66.protocol.http.restv2.errors.RestError;
 import org.waarp.openr66.protocol.http.restv2.errors.RestErrorException;
+import org.waarp.openr66.protocol.http.restv2.resthandlers.RestVersionHandler;
+import org.waarp.openr66.protocol.http.restv2.utils.JsonStreamProducer;
 import org.waarp.openr66.protocol.http.restv2.utils.JsonUtils;
 
 import javax.ws.rs.Consumes;
@@ -49,6 +56,8 @@ import javax.ws.rs.OPTIONS;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
+import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -97,7 +106,8 @@ public class TransfersHandler extends AbstractRestDbHandler {
    * filters given as parameters of the
    * query. The response is sent as a JSON array containing all the requested
    * entries, unless an unexpected
-   * error prevents it or if the request is invalid.
+   * error prevents it or if the request is invalid. With a database, the
+   * entries are streamed from the database as a chunked response.
    *
    * @param request the HttpRequest made on the resource
    * @param responder the HttpResponder which sends the reply to the
@@ -117,6 +127,9 @@ public class TransfersHandler extends AbstractRestDbHandler {
    * @param stopTrans upper bound for the transfers' starting date
    * @param followId the followId to find, should be the only one, except
    *     LIMIT, OFFSET, ORDER
+   * @param after the cursor returned as 'nextCursor' by the previous
+   *     page: if set, the entries following this page in the same order are
+   *     returned and the offset is ignored
    */
   @GET
   @Consumes(APPLICATION_FORM_URLENCODED)
@@ -142,7 +155,9 @@ public class TransfersHandler extends AbstractRestDbHandler {
                              @QueryParam(STOP_TRANS) @DefaultValue("")
                              final String stopTrans,
                              @QueryParam(FOLLOW_ID) @DefaultValue("")
-                             final String followId) {
+                             final String followId,
+                             @QueryParam(AFTER) @DefaultValue("")
+                             final String after) {
 
     final ArrayList<RestError> errors = new ArrayList<RestError>();
 
@@ -203,6 +218,19 @@ public class TransfersHandler extends AbstractRestDbHandler {
     if (!followId.isEmpty()) {
       filters.add(DbTaskRunner.getFollowIdFilter(followId));
     }
+    long afterId = 0;
+    Object afterValue = null;
+    if (!after.isEmpty()) {
+      try {
+        final String cursor = new String(
+            BaseXx.getFromBase64UrlWithoutPadding(after), UTF8_CHARSET);
+        final int pos = cursor.indexOf(';');
+        afterId = Long.parseLong(cursor.substring(0, pos));
+        afterValue = cursorValue(order, cursor.substring(pos + 1));
+      } catch (final RuntimeException e) {
+        errors.add(ILLEGAL_PARAMETER_VALUE(AFTER, after));
+      }
+    }
 
     if (!errors.isEmpty()) {
       throw new RestErrorException(errors);
@@ -212,6 +240,30 @@ public class TransfersHandler extends AbstractRestDbHandler {
     List<Transfer> transferList;
     try {
       transferDAO = DAO_FACTORY.getTransferDAO();
+      if (transferDAO instanceof DBTransferDAO) {
+        final DBTransferDAO dbTransferDAO = (DBTransferDAO) transferDAO;
+        final DBCursor<Transfer> cursor;
+        if (after.isEmpty()) {
+          cursor = dbTransferDAO
+              .findCursor(filters, order.column, order.ascend, limit, offset);
+        } else {
+          cursor = dbTransferDAO
+              .findAfterCursor(filters, order.column, order.ascend,
+                               afterValue, afterId, limit);
+        }
+        // From now, the cursor and the DAO are closed by the producer
+        transferDAO = null;
+        final DefaultHttpHeaders headers = new DefaultHttpHeaders();
+        headers.add(CONTENT_TYPE, APPLICATION_JSON);
+        new TransferStreamProducer(cursor, dbTransferDAO, order, limit)
+            .send(responder, RestVersionHandler.getChannel(request), OK,
+                  headers);
+        return;
+      }
+      if (!after.isEmpty()) {
+        throw new DAOConnectionException(
+            "Keyset pagination not supported without database");
+      }
       transferList =
           transferDAO.find(filters, order.column, order.ascend, limit, offset);
     } catch (final DAOConnectionException e) {
@@ -230,11 +282,88 @@ public class TransfersHandler extends AbstractRestDbHandler {
     responder.sendJson(OK, responseText);
   }
 
+  /**
+   * Producer of a listing of transfers streamed from the database
+   */
+  private static class TransferStreamProducer
+      extends JsonStreamProducer<Transfer> {
+    private final TransferConverter.Order order;
+    private final int limit;
+
+    private TransferStreamProducer(final DBCursor<Transfer> cursor,
+                                   final DBTransferDAO dao,
+                                   final TransferConverter.Order order,
+                                   final int limit) {
+      super(cursor, dao);
+      this.order = order;
+      this.limit = limit;
+    }
+
+    @Override
+    protected void writeEntry(final JsonGenerator generator,
+                              final Transfer entry) throws IOException {
+      generator.writeTree(TransferConverter.transferToNode(entry));
+    }
+
+    @Override
+    protected void writeTrailer(final JsonGenerator generator,
+                                final int count, final Transfer last)
+        throws IOException {
+      super.writeTrailer(generator, count, last);
+      if (limit > 0 && count == limit) {
+        generator.writeStringField("nextCursor", nextCursor(order, last));
+      }
+    }
+  }
+
+  /**
+   * @param order
+   * @param transfer the last transfer of a page
+   *
+   * @return the cursor giving access to the next page in this order
+   */
+  private static String nextCursor(final TransferConverter.Order order,
+                                   final Transfer transfer) {
+    final Object value;
+    if (TRANSFER_START_FIELD.equals(order.column)) {
+      value = transfer.getStart();
+    } else if (TRANSFER_STOP_FIELD.equals(order.column)) {
+      value = transfer.getStop();
+    } else if (ORIGINAL_NAME_FIELD.equals(order.column)) {
+      value = transfer.getOriginalName();
+    } else {
+      value = "";
+    }
+    final String cursor = transfer.getId() + ";" + value;
+    return BaseXx
+        .getBase64UrlWithoutPadding(cursor.getBytes(UTF8_CHARSET));
+  }
+
+  /**
+   * @param order
+   * @param value the value part of a cursor
+   *
+   * @return the value of the ORDER BY column of the last transfer of the
+   *     previous page
+   *
+   * @throws IllegalArgumentException if the value is not valid for this
+   *     order
+   */
+  private static Object cursorValue(final TransferConverter.Order order,
+                                    final String value) {
+    if (TRANSFER_START_FIELD.equals(order.column) ||
+        TRANSFER_STOP_FIELD.equals(order.column)) {
+      return Timestamp.valueOf(value);
+    }
+    return value;
+  }
+
   /**
    * Method called to create a new transfer on the server. The reply will
    * contain the created entry in JSON
    * format, unless an unexpected error prevents it or if the request is
-   * invalid.
+   * invalid. If the content is an array, all its transfers are created at
+   * once.
    *
    * @param request the HttpRequest made on the resource
    * @param responder the HttpResponder which sends the reply to the
@@ -246,7 +375,12 @@ public class TransfersHandler extends AbstractRestDbHandler {
   public void createTransfer(final HttpRequest request,
                              final HttpResponder responder) {
 
-    final ObjectNode requestObject = JsonUtils.deserializeRequest(request);
+    final JsonNode requestNode = JsonUtils.deserializeRequestNode(request);
+    if (requestNode.isArray()) {
+      createTransfers((ArrayNode) requestNode, responder);
+      return;
+    }
+    final ObjectNode requestObject = (ObjectNode) requestNode;
     final Transfer transfer =
         TransferConverter.nodeToNewTransfer(requestObject);
 
@@ -271,6 +405,56 @@ public class TransfersHandler extends AbstractRestDbHandler {
     responder.sendString(CREATED, responseText, headers);
   }
 
+  /**
+   * Creates all the transfers of the given array at once: all of them are
+   * checked first, then inserted within one transaction, so that either all
+   * or none are created. The reply contains the created entries in the
+   * same order.
+   *
+   * @param requestArray the array of transfers to create
+   * @param responder the HttpResponder which sends the reply to the
+   *     request
+   */
+  private void createTransfers(final ArrayNode requestArray,
+                               final HttpResponder responder) {
+    final List<Transfer> transfers =
+        new ArrayList<Transfer>(requestArray.size());
+    for (final JsonNode node : requestArray) {
+      if (!node.isObject()) {
+        throw new RestErrorException(MALFORMED_JSON(0, 0,
+                                                    "The root JSON array contains a non object element"));
+      }
+      transfers.add(TransferConverter.nodeToNewTransfer((ObjectNode) node));
+    }
+
+    TransferDAO transferDAO = null;
+    try {
+      transferDAO = DAO_FACTORY.getTransferDAO();
+      if (transferDAO instanceof DBTransferDAO) {
+        ((DBTransferDAO) transferDAO).insertBatch(transfers);
+      } else {
+        for (final Transfer transfer : transfers) {
+          transferDAO.insert(transfer);
+        }
+      }
+    } catch (final DAOConnectionException e) {
+      throw new InternalServerErrorException(e);
+    } finally {
+      DAOFactory.closeDAO(transferDAO);
+    }
+
+    final ObjectNode responseObject = new ObjectNode(JsonNodeFactory.instance);
+    final ArrayNode resultList = responseObject.putArray("results");
+    for (final Transfer transfer : transfers) {
+      resultList.add(TransferConverter.transferToNode(transfer));
+    }
+    responseObject.put("totalResults", transfers.size());
+    final String responseText = JsonUtils.nodeToString(responseObject);
+    final DefaultHttpHeaders headers = new DefaultHttpHeaders();
+    headers.add(CONTENT_TYPE, APPLICATION_JSON);
+    responder.sendString(CREATED, responseText, headers);
+  }
+
   /**
    * Method called to get a list of all allowed HTTP methods on this entry
    * point. The HTTP methods are sent as
@@ -20,14 +20,21 @@
 
 package org.waarp.openr66.protocol.http.restv2.resthandlers;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpRequest;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
 import org.waarp.gateway.kernel.rest.RestConfiguration;
 import org.waarp.openr66.protocol.http.rest.HttpRestR66Handler;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import static org.waarp.openr66.protocol.http.restv2.RestConstants.*;
 
 /**
@@ -61,6 +68,12 @@ public class RestVersionHandler
    */
   private final HttpRestR66Handler restV1Handler;
 
+  /**
+   * Open channels having received a v2 request, by channel id
+   */
+  private static final ConcurrentMap<String, Channel> channels =
+      new ConcurrentHashMap<String, Channel>();
+
   /**
    * Initializes the REST version splitter and handler with the given {@link
    * RestConfiguration}
@@ -89,6 +102,7 @@ public class RestVersionHandler
       if (ctx.pipeline().get(V1_HANDLER) != null) {
         ctx.pipeline().remove(V1_HANDLER);
       }
+      register(ctx.channel(), request);
 
       ctx.fireChannelRead(request);
     } else {
@@ -98,4 +112,36 @@ public class RestVersionHandler
       ctx.fireChannelRead(request);
     }
   }
+
+  /**
+   * Tag the request with the id of its channel, replacing any value sent
+   * by the client, so that the handler can reach the channel
+   *
+   * @param channel
+   * @param request
+   */
+  private static void register(final Channel channel,
+                               final HttpRequest request) {
+    final String id = channel.id().asLongText();
+    request.headers().set(CHANNEL_ID, id);
+    if (channels.putIfAbsent(id, channel) == null) {
+      channel.closeFuture().addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(final ChannelFuture future) {
+          channels.remove(id);
+        }
+      });
+    }
+  }
+
+  /**
+   * @param request a v2 request
+   *
+   * @return the channel which received this request, or null if it is
+   *     closed
+   */
+  public static Channel getChannel(final HttpRequest request) {
+    final String id = request.headers().get(CHANNEL_ID);
+    return id == null? null : channels.get(id);
+  }
 }
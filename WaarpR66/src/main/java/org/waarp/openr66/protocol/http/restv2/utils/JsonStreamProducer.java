@@ -0,0 +1,267 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.http.restv2.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cdap.http.ChunkResponder;
+import io.cdap.http.HttpResponder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.openr66.dao.AbstractDAO;
+import org.waarp.openr66.dao.DAOFactory;
+import org.waarp.openr66.dao.database.DBCursor;
+import org.waarp.openr66.protocol.configuration.Configuration;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Producer of a chunked JSON response of the form
+ * {@code {"results":[...], <trailer fields>}}, whose entries are read from a
+ * database cursor, so that the memory used does not depend on the number of
+ * entries.
+ * <p>
+ * Entries are read, serialized and written as chunks by the handler thread
+ * calling {@link #send(HttpResponder, Channel, HttpResponseStatus,
+ * HttpHeaders)}, so that the network threads never wait for the database.
+ * Before each chunk, this thread waits for the channel to be writable: if
+ * the client stops reading for more than the connection timeout, or if the
+ * entries cannot be read, the channel is closed. The cursor and its DAO are
+ * closed as soon as all entries are written or the response is aborted.
+ *
+ * @param <E> the type of the entries
+ */
+public abstract class JsonStreamProducer<E> {
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(JsonStreamProducer.class);
+
+  /**
+   * Size from which a chunk is written to the network
+   */
+  private static final int CHUNK_SIZE = 8192;
+  /**
+   * Delay in ms between 2 checks of the channel writability
+   */
+  private static final long WRITABILITY_CHECK = 10;
+
+  private final DBCursor<E> cursor;
+  private final AbstractDAO<?> dao;
+  private final long timeout = Configuration.configuration.getTimeoutCon();
+
+  /**
+   * Output stream writing into the current chunk
+   */
+  private static class ChunkOutputStream extends OutputStream {
+    private ByteBuf chunk;
+
+    @Override
+    public void write(final int b) {
+      chunk.writeByte(b);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+      chunk.writeBytes(b, off, len);
+    }
+  }
+
+  /**
+   * @param cursor the cursor on the entries
+   * @param dao the DAO owning the cursor
+   */
+  protected JsonStreamProducer(final DBCursor<E> cursor,
+                               final AbstractDAO<?> dao) {
+    this.cursor = cursor;
+    this.dao = dao;
+  }
+
+  /**
+   * Write one entry
+   *
+   * @param generator
+   * @param entry
+   *
+   * @throws IOException
+   */
+  protected abstract void writeEntry(JsonGenerator generator, E entry)
+      throws IOException;
+
+  /**
+   * Write the fields following the array of entries, by default
+   * "totalResults", the number of entries
+   *
+   * @param generator
+   * @param count the number of entries
+   * @param last the last entry or null if none
+   *
+   * @throws IOException
+   */
+  protected void writeTrailer(final JsonGenerator generator, final int count,
+                              final E last) throws IOException {
+    generator.writeNumberField("totalResults", count);
+  }
+
+  /**
+   * Send the response, reading and writing the entries until all are
+   * written or the response is aborted, the cursor and its DAO being closed
+   * in any case
+   *
+   * @param responder
+   * @param channel the channel of the request, used to wait for the
+   *     client, or null if unknown (no flow control)
+   * @param status
+   * @param headers
+   */
+  public void send(final HttpResponder responder, final Channel channel,
+                   final HttpResponseStatus status, final HttpHeaders headers) {
+    ChunkResponder chunkResponder = null;
+    boolean done = false;
+    try {
+      chunkResponder = responder.sendChunkStart(status, headers);
+      done = produce(chunkResponder, channel);
+    } finally {
+      cursor.close();
+      DAOFactory.closeDAO(dao);
+      if (chunkResponder != null) {
+        end(chunkResponder, channel, done);
+      }
+    }
+  }
+
+  /**
+   * @param chunkResponder
+   * @param channel
+   *
+   * @return True if all entries are written
+   */
+  private boolean produce(final ChunkResponder chunkResponder,
+                          final Channel channel) {
+    final ChunkOutputStream output = new ChunkOutputStream();
+    int count = 0;
+    E last = null;
+    boolean end = false;
+    try {
+      final JsonGenerator generator =
+          new ObjectMapper().getFactory().createGenerator(output);
+      output.chunk = Unpooled.buffer(CHUNK_SIZE + CHUNK_SIZE / 2);
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("results");
+      while (!end) {
+        while (output.chunk.readableBytes() < CHUNK_SIZE) {
+          final E entry = cursor.next();
+          if (entry == null) {
+            generator.writeEndArray();
+            writeTrailer(generator, count, last);
+            generator.writeEndObject();
+            end = true;
+            break;
+          }
+          writeEntry(generator, entry);
+          count++;
+          last = entry;
+          generator.flush();
+        }
+        generator.flush();
+        if (!waitWritable(channel)) {
+          return false;
+        }
+        final ByteBuf chunk = output.chunk;
+        output.chunk = null;
+        try {
+          chunkResponder.sendChunk(chunk);
+        } catch (final IOException e) {
+          // Refused before any write
+          chunk.release();
+          throw e;
+        }
+        chunkResponder.flush();
+        if (!end) {
+          output.chunk = Unpooled.buffer(CHUNK_SIZE + CHUNK_SIZE / 2);
+        }
+      }
+      return true;
+    } catch (final InterruptedException e) {//NOSONAR
+      logger.warn("Streamed response interrupted");
+      Thread.currentThread().interrupt();
+    } catch (final Exception e) {
+      logger.warn("Cannot produce streamed response: {}", e.getMessage());
+    } finally {
+      if (output.chunk != null) {
+        output.chunk.release();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param channel
+   *
+   * @return True if the channel is writable, False if the client does not
+   *     read the response anymore
+   *
+   * @throws InterruptedException
+   */
+  private boolean waitWritable(final Channel channel)
+      throws InterruptedException {
+    if (channel == null) {
+      return true;
+    }
+    final long limit = System.currentTimeMillis() + timeout;
+    while (!channel.isWritable()) {
+      if (!channel.isActive()) {
+        logger.info("Streamed response aborted: connection closed");
+        return false;
+      }
+      if (System.currentTimeMillis() >= limit) {
+        logger.warn("Streamed response aborted: client not reading");
+        return false;
+      }
+      Thread.sleep(WRITABILITY_CHECK);
+    }
+    return true;
+  }
+
+  /**
+   * End the response, closing the channel if it is incomplete so that the
+   * client cannot take it for a complete one
+   *
+   * @param chunkResponder
+   * @param channel
+   * @param done
+   */
+  private static void end(final ChunkResponder chunkResponder,
+                          final Channel channel, final boolean done) {
+    if (!done && channel != null) {
+      channel.close();
+      return;
+    }
+    try {
+      chunkResponder.close();
+    } catch (final IOException e) {
+      logger.debug("Cannot end streamed response: {}", e.getMessage());
+    }
+  }
+}
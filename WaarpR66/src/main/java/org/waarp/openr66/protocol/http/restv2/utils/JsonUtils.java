@@ -91,6 +91,30 @@ public final class JsonUtils {
    *     occurred
    */
   public static ObjectNode deserializeRequest(final HttpRequest request) {
+    final JsonNode node = deserializeRequestNode(request);
+    if (node.isObject()) {
+      return (ObjectNode) node;
+    } else {
+      throw new RestErrorException(
+          MALFORMED_JSON(0, 0, "The root JSON element is not an object"));
+    }
+  }
+
+  /**
+   * Deserializes a request's content as a JsonNode, either an object or an
+   * array
+   *
+   * @param request the request to deserialize
+   *
+   * @return the deserialized JSON object or array
+   *
+   * @throws RestErrorException If the content is not a valid JSON
+   *     object or array.
+   * @throws NotSupportedException If the content type is not JSON.
+   * @throws InternalServerErrorException if an unexpected error
+   *     occurred
+   */
+  public static JsonNode deserializeRequestNode(final HttpRequest request) {
     if (!(request instanceof FullHttpRequest)) {
       throw new RestErrorException(MISSING_BODY());
     }
@@ -108,11 +132,11 @@ public final class JsonUtils {
       mapper.enable(DeserializationFeature.FAIL_ON_READING_DUP_TREE_KEY);
       final JsonNode node = mapper.readTree(body);
 
-      if (node.isObject()) {
-        return (ObjectNode) node;
+      if (node.isObject() || node.isArray()) {
+        return node;
       } else {
-        throw new RestErrorException(
-            MALFORMED_JSON(0, 0, "The root JSON element is not an object"));
+        throw new RestErrorException(MALFORMED_JSON(0, 0,
+                                                    "The root JSON element is not an object nor an array"));
       }
     } catch (final JsonParseException e) {
       final String contentType = request.headers().get(CONTENT_TYPE);
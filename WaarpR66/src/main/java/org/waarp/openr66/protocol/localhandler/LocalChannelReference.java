@@ -26,6 +26,7 @@ import org.waarp.common.guid.IntegerUuid;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
 import org.waarp.openr66.client.RecvThroughHandler;
+import org.waarp.openr66.client.TransferArgs;
 import org.waarp.openr66.commander.ClientRunner;
 import org.waarp.openr66.context.ErrorCode;
 import org.waarp.openr66.context.R66FiniteDualStates;
@@ -39,6 +40,7 @@ import org.waarp.openr66.protocol.exception.OpenR66Exception;
 import org.waarp.openr66.protocol.exception.OpenR66ProtocolNoConnectionException;
 import org.waarp.openr66.protocol.exception.OpenR66ProtocolRemoteShutdownException;
 import org.waarp.openr66.protocol.networkhandler.NetworkChannelReference;
+import org.waarp.openr66.protocol.networkhandler.NetworkChannelScheduler;
 import org.waarp.openr66.protocol.networkhandler.NetworkServerHandler;
 import org.waarp.openr66.protocol.networkhandler.NetworkServerInitializer;
 import org.waarp.openr66.protocol.networkhandler.NetworkTransaction;
@@ -156,6 +158,12 @@ public class LocalChannelReference {
    */
   private volatile PartnerConfiguration partner;
 
+  /**
+   * Weight of this LocalChannel in the outbound scheduler (0 if not yet
+   * computed)
+   */
+  private int schedulingWeight;
+
   /**
    * @param networkChannelRef
    * @param remoteId
@@ -748,6 +756,46 @@ public class LocalChannelReference {
     }
   }
 
+  /**
+   * @return the Deflate level to use for data blocks sent to the partner, 0
+   *     if they are not compressed (disabled or partner not compatible)
+   */
+  public int getCompressionLevel() {
+    final int level = Configuration.configuration.getCompressionLevel();
+    if (level <= 0 || partner == null || !partner.useCompression()) {
+      return 0;
+    }
+    return level;
+  }
+
+  /**
+   * @return the weight of this LocalChannel in the outbound scheduler of its
+   *     network channel, from the priority set in the transfer information
+   *     (default 1)
+   */
+  public int getSchedulingWeight() {
+    if (schedulingWeight > 0) {
+      return schedulingWeight;
+    }
+    if (session == null || session.getRunner() == null) {
+      return 1;
+    }
+    int weight = 1;
+    final Object priority = session.getRunner().getFromTransferMap(
+        TransferArgs.PRIORITY_JSON_KEY);
+    if (priority instanceof Number) {
+      weight = ((Number) priority).intValue();
+    } else if (priority != null) {
+      try {
+        weight = Integer.parseInt(priority.toString().trim());
+      } catch (final NumberFormatException e) {
+        logger.debug("Bad priority: {}", priority);
+      }
+    }
+    schedulingWeight = NetworkChannelScheduler.checkWeight(weight);
+    return schedulingWeight;
+  }
+
   /**
    * @return the requestId
    */
@@ -73,6 +73,7 @@ public class Monitoring implements WaarpInterfaceMonitor {
   private long currentLimit;
   private final long minimalDelay;
   private long lastTry;
+  private long lastReconciliation;
   private DbSession dbSession;
   private final TrafficCounter trafficCounter =
       Configuration.configuration.getGlobalTrafficShapingHandler()
@@ -422,225 +423,456 @@ public class Monitoring implements WaarpInterfaceMonitor {
         limitDate -= nbMs;
         currentLimit = limitDate;
         // Update value
-        try {
-          // Overall status including past, future and current transfers
-          nbCountInfoUnknown = DbTaskRunner
-              .getResultCountPrepareStatement(countInfo, UpdatedInfo.UNKNOWN,
-                                              limitDate);
-          nbCountInfoNotUpdated = DbTaskRunner
-              .getResultCountPrepareStatement(countInfo, UpdatedInfo.NOTUPDATED,
-                                              limitDate);
-          nbCountInfoInterrupted = DbTaskRunner
-              .getResultCountPrepareStatement(countInfo,
-                                              UpdatedInfo.INTERRUPTED,
-                                              limitDate);
-          nbCountInfoToSubmit = DbTaskRunner
-              .getResultCountPrepareStatement(countInfo, UpdatedInfo.TOSUBMIT,
-                                              limitDate);
-          nbCountInfoError = DbTaskRunner
-              .getResultCountPrepareStatement(countInfo, UpdatedInfo.INERROR,
-                                              limitDate);
-          nbCountInfoRunning = DbTaskRunner
-              .getResultCountPrepareStatement(countInfo, UpdatedInfo.RUNNING,
-                                              limitDate);
-          nbCountInfoDone = DbTaskRunner
-              .getResultCountPrepareStatement(countInfo, UpdatedInfo.DONE,
-                                              limitDate);
+        if (nbMs == pastLimit && TransferStatistics.isEnabled()) {
+          countIncrementally(limitDate);
+        } else {
+          countFromDatabase(limitDate, detail);
+        }
+      }
+    }
+  }
 
-          // Current situation of all transfers, running or not
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countInActiveTransfer,
-                                                   limitDate);
-          nbInActiveTransfer = DbTaskRunner
-              .getResultCountPrepareStatement(countInActiveTransfer);
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countOutActiveTransfer,
-                                                   limitDate);
-          nbOutActiveTransfer = DbTaskRunner
-              .getResultCountPrepareStatement(countOutActiveTransfer);
-          DbTaskRunner.finishSelectOrCountPrepareStatement(countInTotalTransfer,
-                                                           limitDate);
-          nbInTotalTransfer =
-              DbTaskRunner.getResultCountPrepareStatement(countInTotalTransfer);
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countOutTotalTransfer,
-                                                   limitDate);
-          nbOutTotalTransfer = DbTaskRunner
-              .getResultCountPrepareStatement(countOutTotalTransfer);
+  /**
+   * Use the transfer figures maintained from the transfer changes, after a
+   * reconciliation with the database if needed
+   *
+   * @param limitDate
+   */
+  private void countIncrementally(final long limitDate) {
+    final TransferStatistics statistics =
+        Configuration.configuration.getTransferStatistics();
+    final long now = System.currentTimeMillis();
+    final long delay =
+        Configuration.configuration.getMonitoringReconciliationDelay();
+    if (statistics.isReconciled() && now < lastReconciliation + delay) {
+      setCounters(statistics.getAll());
+      return;
+    }
+    countFromDatabase(limitDate, true);
+    statistics.endReconciliation(limitDate, getCounters());
+    lastReconciliation = now;
+  }
 
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countOutErrorTransfer,
-                                                   limitDate);
-          nbOutErrorTransfer = DbTaskRunner
-              .getResultCountPrepareStatement(countOutErrorTransfer);
-          DbTaskRunner.finishSelectOrCountPrepareStatement(countInErrorTransfer,
-                                                           limitDate);
-          nbInErrorTransfer =
-              DbTaskRunner.getResultCountPrepareStatement(countInErrorTransfer);
+  /**
+   * @return the transfer figures as TransferStatistics counters
+   */
+  private long[] getCounters() {
+    final long[] values = new long[TransferStatistics.SIZE];
+    values[TransferStatistics.info(UpdatedInfo.UNKNOWN.ordinal())] =
+        nbCountInfoUnknown;
+    values[TransferStatistics.info(UpdatedInfo.NOTUPDATED.ordinal())] =
+        nbCountInfoNotUpdated;
+    values[TransferStatistics.info(UpdatedInfo.INTERRUPTED.ordinal())] =
+        nbCountInfoInterrupted;
+    values[TransferStatistics.info(UpdatedInfo.TOSUBMIT.ordinal())] =
+        nbCountInfoToSubmit;
+    values[TransferStatistics.info(UpdatedInfo.INERROR.ordinal())] =
+        nbCountInfoError;
+    values[TransferStatistics.info(UpdatedInfo.RUNNING.ordinal())] =
+        nbCountInfoRunning;
+    values[TransferStatistics.info(UpdatedInfo.DONE.ordinal())] =
+        nbCountInfoDone;
+    values[TransferStatistics.IN_ACTIVE] = nbInActiveTransfer;
+    values[TransferStatistics.OUT_ACTIVE] = nbOutActiveTransfer;
+    values[TransferStatistics.IN_TOTAL] = nbInTotalTransfer;
+    values[TransferStatistics.OUT_TOTAL] = nbOutTotalTransfer;
+    values[TransferStatistics.IN_ERROR] = nbInErrorTransfer;
+    values[TransferStatistics.OUT_ERROR] = nbOutErrorTransfer;
+    values[TransferStatistics.STEP_ALL] = nbCountStepAllTransfer;
+    values[TransferStatistics.ALL_RUNNING] = nbCountAllRunningStep;
+    values[TransferStatistics.step(TASKSTEP.NOTASK.ordinal())] =
+        nbCountStepNotask;
+    values[TransferStatistics.step(TASKSTEP.PRETASK.ordinal())] =
+        nbCountStepPretask;
+    values[TransferStatistics.step(TASKSTEP.TRANSFERTASK.ordinal())] =
+        nbCountStepTransfer;
+    values[TransferStatistics.step(TASKSTEP.POSTTASK.ordinal())] =
+        nbCountStepPosttask;
+    values[TransferStatistics.step(TASKSTEP.ALLDONETASK.ordinal())] =
+        nbCountStepAllDone;
+    values[TransferStatistics.step(TASKSTEP.ERRORTASK.ordinal())] =
+        nbCountStepError;
+    values[TransferStatistics.runningStatus(ErrorCode.Running)] =
+        nbCountRunningStep;
+    values[TransferStatistics.runningStatus(ErrorCode.InitOk)] =
+        nbCountInitOkStep;
+    values[TransferStatistics.runningStatus(ErrorCode.PreProcessingOk)] =
+        nbCountPreProcessingOkStep;
+    values[TransferStatistics.runningStatus(ErrorCode.TransferOk)] =
+        nbCountTransferOkStep;
+    values[TransferStatistics.runningStatus(ErrorCode.PostProcessingOk)] =
+        nbCountPostProcessingOkStep;
+    values[TransferStatistics.runningStatus(ErrorCode.CompleteOk)] =
+        nbCountCompleteOkStep;
+    values[TransferStatistics.status(ErrorCode.ConnectionImpossible)] =
+        nbCountStatusConnectionImpossible;
+    values[TransferStatistics.status(ErrorCode.ServerOverloaded)] =
+        nbCountStatusServerOverloaded;
+    values[TransferStatistics.status(ErrorCode.BadAuthent)] =
+        nbCountStatusBadAuthent;
+    values[TransferStatistics.status(ErrorCode.ExternalOp)] =
+        nbCountStatusExternalOp;
+    values[TransferStatistics.status(ErrorCode.TransferError)] =
+        nbCountStatusTransferError;
+    values[TransferStatistics.status(ErrorCode.MD5Error)] =
+        nbCountStatusMD5Error;
+    values[TransferStatistics.status(ErrorCode.Disconnection)] =
+        nbCountStatusDisconnection;
+    values[TransferStatistics.status(ErrorCode.FinalOp)] = nbCountStatusFinalOp;
+    values[TransferStatistics.status(ErrorCode.Unimplemented)] =
+        nbCountStatusUnimplemented;
+    values[TransferStatistics.status(ErrorCode.Internal)] =
+        nbCountStatusInternal;
+    values[TransferStatistics.status(ErrorCode.Warning)] = nbCountStatusWarning;
+    values[TransferStatistics.status(ErrorCode.QueryAlreadyFinished)] =
+        nbCountStatusQueryAlreadyFinished;
+    values[TransferStatistics.status(ErrorCode.QueryStillRunning)] =
+        nbCountStatusQueryStillRunning;
+    values[TransferStatistics.status(ErrorCode.NotKnownHost)] =
+        nbCountStatusNotKnownHost;
+    values[TransferStatistics.status(ErrorCode.QueryRemotelyUnknown)] =
+        nbCountStatusQueryRemotelyUnknown;
+    values[TransferStatistics.status(ErrorCode.CommandNotFound)] =
+        nbCountStatusCommandNotFound;
+    values[TransferStatistics.status(ErrorCode.PassThroughMode)] =
+        nbCountStatusPassThroughMode;
+    values[TransferStatistics.status(ErrorCode.RemoteShutdown)] =
+        nbCountStatusRemoteShutdown;
+    values[TransferStatistics.status(ErrorCode.Shutdown)] =
+        nbCountStatusShutdown;
+    values[TransferStatistics.status(ErrorCode.RemoteError)] =
+        nbCountStatusRemoteError;
+    values[TransferStatistics.status(ErrorCode.StoppedTransfer)] =
+        nbCountStatusStopped;
+    values[TransferStatistics.status(ErrorCode.CanceledTransfer)] =
+        nbCountStatusCanceled;
+    values[TransferStatistics.status(ErrorCode.FileNotFound)] =
+        nbCountStatusFileNotFound;
+    values[TransferStatistics.status(ErrorCode.Unknown)] = nbCountStatusUnknown;
+    return values;
+  }
 
-          DbTaskRunner.finishSelectOrCountPrepareStatement(countStepAllTransfer,
-                                                           limitDate);
-          nbCountStepAllTransfer =
-              DbTaskRunner.getResultCountPrepareStatement(countStepAllTransfer);
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countStepNotask, limitDate);
-          nbCountStepNotask =
-              DbTaskRunner.getResultCountPrepareStatement(countStepNotask);
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countStepPretask, limitDate);
-          nbCountStepPretask =
-              DbTaskRunner.getResultCountPrepareStatement(countStepPretask);
-          DbTaskRunner.finishSelectOrCountPrepareStatement(countStepTransfer,
-                                                           limitDate);
-          nbCountStepTransfer =
-              DbTaskRunner.getResultCountPrepareStatement(countStepTransfer);
-          DbTaskRunner.finishSelectOrCountPrepareStatement(countStepPosttask,
-                                                           limitDate);
-          nbCountStepPosttask =
-              DbTaskRunner.getResultCountPrepareStatement(countStepPosttask);
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countStepAllDone, limitDate);
-          nbCountStepAllDone =
-              DbTaskRunner.getResultCountPrepareStatement(countStepAllDone);
-          DbTaskRunner
-              .finishSelectOrCountPrepareStatement(countStepError, limitDate);
-          nbCountStepError =
-              DbTaskRunner.getResultCountPrepareStatement(countStepError);
+  /**
+   * @param values the transfer figures as TransferStatistics counters
+   */
+  private void setCounters(final long[] values) {
+    nbCountInfoUnknown =
+        values[TransferStatistics.info(UpdatedInfo.UNKNOWN.ordinal())];
+    nbCountInfoNotUpdated =
+        values[TransferStatistics.info(UpdatedInfo.NOTUPDATED.ordinal())];
+    nbCountInfoInterrupted =
+        values[TransferStatistics.info(UpdatedInfo.INTERRUPTED.ordinal())];
+    nbCountInfoToSubmit =
+        values[TransferStatistics.info(UpdatedInfo.TOSUBMIT.ordinal())];
+    nbCountInfoError =
+        values[TransferStatistics.info(UpdatedInfo.INERROR.ordinal())];
+    nbCountInfoRunning =
+        values[TransferStatistics.info(UpdatedInfo.RUNNING.ordinal())];
+    nbCountInfoDone =
+        values[TransferStatistics.info(UpdatedInfo.DONE.ordinal())];
+    nbInActiveTransfer = values[TransferStatistics.IN_ACTIVE];
+    nbOutActiveTransfer = values[TransferStatistics.OUT_ACTIVE];
+    nbInTotalTransfer = values[TransferStatistics.IN_TOTAL];
+    nbOutTotalTransfer = values[TransferStatistics.OUT_TOTAL];
+    nbInErrorTransfer = values[TransferStatistics.IN_ERROR];
+    nbOutErrorTransfer = values[TransferStatistics.OUT_ERROR];
+    nbCountStepAllTransfer = values[TransferStatistics.STEP_ALL];
+    nbCountAllRunningStep = values[TransferStatistics.ALL_RUNNING];
+    nbCountStepNotask =
+        values[TransferStatistics.step(TASKSTEP.NOTASK.ordinal())];
+    nbCountStepPretask =
+        values[TransferStatistics.step(TASKSTEP.PRETASK.ordinal())];
+    nbCountStepTransfer =
+        values[TransferStatistics.step(TASKSTEP.TRANSFERTASK.ordinal())];
+    nbCountStepPosttask =
+        values[TransferStatistics.step(TASKSTEP.POSTTASK.ordinal())];
+    nbCountStepAllDone =
+        values[TransferStatistics.step(TASKSTEP.ALLDONETASK.ordinal())];
+    nbCountStepError =
+        values[TransferStatistics.step(TASKSTEP.ERRORTASK.ordinal())];
+    nbCountRunningStep =
+        values[TransferStatistics.runningStatus(ErrorCode.Running)];
+    nbCountInitOkStep =
+        values[TransferStatistics.runningStatus(ErrorCode.InitOk)];
+    nbCountPreProcessingOkStep =
+        values[TransferStatistics.runningStatus(ErrorCode.PreProcessingOk)];
+    nbCountTransferOkStep =
+        values[TransferStatistics.runningStatus(ErrorCode.TransferOk)];
+    nbCountPostProcessingOkStep =
+        values[TransferStatistics.runningStatus(ErrorCode.PostProcessingOk)];
+    nbCountCompleteOkStep =
+        values[TransferStatistics.runningStatus(ErrorCode.CompleteOk)];
+    nbCountStatusConnectionImpossible =
+        values[TransferStatistics.status(ErrorCode.ConnectionImpossible)];
+    nbCountStatusServerOverloaded =
+        values[TransferStatistics.status(ErrorCode.ServerOverloaded)];
+    nbCountStatusBadAuthent =
+        values[TransferStatistics.status(ErrorCode.BadAuthent)];
+    nbCountStatusExternalOp =
+        values[TransferStatistics.status(ErrorCode.ExternalOp)];
+    nbCountStatusTransferError =
+        values[TransferStatistics.status(ErrorCode.TransferError)];
+    nbCountStatusMD5Error =
+        values[TransferStatistics.status(ErrorCode.MD5Error)];
+    nbCountStatusDisconnection =
+        values[TransferStatistics.status(ErrorCode.Disconnection)];
+    nbCountStatusFinalOp = values[TransferStatistics.status(ErrorCode.FinalOp)];
+    nbCountStatusUnimplemented =
+        values[TransferStatistics.status(ErrorCode.Unimplemented)];
+    nbCountStatusInternal =
+        values[TransferStatistics.status(ErrorCode.Internal)];
+    nbCountStatusWarning = values[TransferStatistics.status(ErrorCode.Warning)];
+    nbCountStatusQueryAlreadyFinished =
+        values[TransferStatistics.status(ErrorCode.QueryAlreadyFinished)];
+    nbCountStatusQueryStillRunning =
+        values[TransferStatistics.status(ErrorCode.QueryStillRunning)];
+    nbCountStatusNotKnownHost =
+        values[TransferStatistics.status(ErrorCode.NotKnownHost)];
+    nbCountStatusQueryRemotelyUnknown =
+        values[TransferStatistics.status(ErrorCode.QueryRemotelyUnknown)];
+    nbCountStatusCommandNotFound =
+        values[TransferStatistics.status(ErrorCode.CommandNotFound)];
+    nbCountStatusPassThroughMode =
+        values[TransferStatistics.status(ErrorCode.PassThroughMode)];
+    nbCountStatusRemoteShutdown =
+        values[TransferStatistics.status(ErrorCode.RemoteShutdown)];
+    nbCountStatusShutdown =
+        values[TransferStatistics.status(ErrorCode.Shutdown)];
+    nbCountStatusRemoteError =
+        values[TransferStatistics.status(ErrorCode.RemoteError)];
+    nbCountStatusStopped =
+        values[TransferStatistics.status(ErrorCode.StoppedTransfer)];
+    nbCountStatusCanceled =
+        values[TransferStatistics.status(ErrorCode.CanceledTransfer)];
+    nbCountStatusFileNotFound =
+        values[TransferStatistics.status(ErrorCode.FileNotFound)];
+    nbCountStatusUnknown = values[TransferStatistics.status(ErrorCode.Unknown)];
+  }
 
-          DbTaskRunner.finishSelectOrCountPrepareStatement(countAllRunningStep,
-                                                           limitDate);
-          nbCountAllRunningStep =
-              DbTaskRunner.getResultCountPrepareStatement(countAllRunningStep);
+  /**
+   * Compute the transfer figures from the database
+   *
+   * @param limitDate
+   * @param detail
+   */
+  private void countFromDatabase(final long limitDate, final boolean detail) {
+    try {
+      // Overall status including past, future and current transfers
+      nbCountInfoUnknown = DbTaskRunner
+          .getResultCountPrepareStatement(countInfo, UpdatedInfo.UNKNOWN,
+                                          limitDate);
+      nbCountInfoNotUpdated = DbTaskRunner
+          .getResultCountPrepareStatement(countInfo, UpdatedInfo.NOTUPDATED,
+                                          limitDate);
+      nbCountInfoInterrupted = DbTaskRunner
+          .getResultCountPrepareStatement(countInfo,
+                                          UpdatedInfo.INTERRUPTED,
+                                          limitDate);
+      nbCountInfoToSubmit = DbTaskRunner
+          .getResultCountPrepareStatement(countInfo, UpdatedInfo.TOSUBMIT,
+                                          limitDate);
+      nbCountInfoError = DbTaskRunner
+          .getResultCountPrepareStatement(countInfo, UpdatedInfo.INERROR,
+                                          limitDate);
+      nbCountInfoRunning = DbTaskRunner
+          .getResultCountPrepareStatement(countInfo, UpdatedInfo.RUNNING,
+                                          limitDate);
+      nbCountInfoDone = DbTaskRunner
+          .getResultCountPrepareStatement(countInfo, UpdatedInfo.DONE,
+                                          limitDate);
 
-          if (detail) {
-            // First on Running Transfers only
-            DbTaskRunner.finishSelectOrCountPrepareStatement(countRunningStep,
-                                                             limitDate);
-            nbCountRunningStep =
-                DbTaskRunner.getResultCountPrepareStatement(countRunningStep);
-            DbTaskRunner.finishSelectOrCountPrepareStatement(countInitOkStep,
-                                                             limitDate);
-            nbCountInitOkStep =
-                DbTaskRunner.getResultCountPrepareStatement(countInitOkStep);
-            DbTaskRunner
-                .finishSelectOrCountPrepareStatement(countPreProcessingOkStep,
-                                                     limitDate);
-            nbCountPreProcessingOkStep = DbTaskRunner
-                .getResultCountPrepareStatement(countPreProcessingOkStep);
-            DbTaskRunner
-                .finishSelectOrCountPrepareStatement(countTransferOkStep,
-                                                     limitDate);
-            nbCountTransferOkStep = DbTaskRunner
-                .getResultCountPrepareStatement(countTransferOkStep);
-            DbTaskRunner
-                .finishSelectOrCountPrepareStatement(countPostProcessingOkStep,
-                                                     limitDate);
-            nbCountPostProcessingOkStep = DbTaskRunner
-                .getResultCountPrepareStatement(countPostProcessingOkStep);
-            DbTaskRunner
-                .finishSelectOrCountPrepareStatement(countCompleteOkStep,
-                                                     limitDate);
-            nbCountCompleteOkStep = DbTaskRunner
-                .getResultCountPrepareStatement(countCompleteOkStep);
+      // Current situation of all transfers, running or not
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countInActiveTransfer,
+                                               limitDate);
+      nbInActiveTransfer = DbTaskRunner
+          .getResultCountPrepareStatement(countInActiveTransfer);
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countOutActiveTransfer,
+                                               limitDate);
+      nbOutActiveTransfer = DbTaskRunner
+          .getResultCountPrepareStatement(countOutActiveTransfer);
+      DbTaskRunner.finishSelectOrCountPrepareStatement(countInTotalTransfer,
+                                                       limitDate);
+      nbInTotalTransfer =
+          DbTaskRunner.getResultCountPrepareStatement(countInTotalTransfer);
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countOutTotalTransfer,
+                                               limitDate);
+      nbOutTotalTransfer = DbTaskRunner
+          .getResultCountPrepareStatement(countOutTotalTransfer);
 
-            // Error Status on all transfers
-            nbCountStatusConnectionImpossible = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.ConnectionImpossible,
-                                                limitDate);
-            nbCountStatusServerOverloaded = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.ServerOverloaded,
-                                                limitDate);
-            nbCountStatusBadAuthent = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.BadAuthent,
-                                                limitDate);
-            nbCountStatusExternalOp = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.ExternalOp,
-                                                limitDate);
-            nbCountStatusTransferError = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.TransferError,
-                                                limitDate);
-            nbCountStatusMD5Error = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus, ErrorCode.MD5Error,
-                                                limitDate);
-            nbCountStatusDisconnection = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.Disconnection,
-                                                limitDate);
-            nbCountStatusFinalOp = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus, ErrorCode.FinalOp,
-                                                limitDate);
-            nbCountStatusUnimplemented = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.Unimplemented,
-                                                limitDate);
-            nbCountStatusInternal = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus, ErrorCode.Internal,
-                                                limitDate);
-            nbCountStatusWarning = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus, ErrorCode.Warning,
-                                                limitDate);
-            nbCountStatusQueryAlreadyFinished = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.QueryAlreadyFinished,
-                                                limitDate);
-            nbCountStatusQueryStillRunning = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.QueryStillRunning,
-                                                limitDate);
-            nbCountStatusNotKnownHost = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.NotKnownHost,
-                                                limitDate);
-            nbCountStatusQueryRemotelyUnknown = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.QueryRemotelyUnknown,
-                                                limitDate);
-            nbCountStatusCommandNotFound = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.CommandNotFound,
-                                                limitDate);
-            nbCountStatusPassThroughMode = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.PassThroughMode,
-                                                limitDate);
-            nbCountStatusRemoteShutdown = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.RemoteShutdown,
-                                                limitDate);
-            nbCountStatusShutdown = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus, ErrorCode.Shutdown,
-                                                limitDate);
-            nbCountStatusRemoteError = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.RemoteError,
-                                                limitDate);
-            nbCountStatusStopped = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.StoppedTransfer,
-                                                limitDate);
-            nbCountStatusCanceled = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.CanceledTransfer,
-                                                limitDate);
-            nbCountStatusFileNotFound = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus,
-                                                ErrorCode.FileNotFound,
-                                                limitDate);
-            nbCountStatusUnknown = DbTaskRunner
-                .getResultCountPrepareStatement(countStatus, ErrorCode.Unknown,
-                                                limitDate);
-          }
-        } catch (final WaarpDatabaseNoConnectionException ignored) {
-          // ignore
-        } catch (final WaarpDatabaseSqlException ignored) {
-          // ignore
-        }
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countOutErrorTransfer,
+                                               limitDate);
+      nbOutErrorTransfer = DbTaskRunner
+          .getResultCountPrepareStatement(countOutErrorTransfer);
+      DbTaskRunner.finishSelectOrCountPrepareStatement(countInErrorTransfer,
+                                                       limitDate);
+      nbInErrorTransfer =
+          DbTaskRunner.getResultCountPrepareStatement(countInErrorTransfer);
+
+      DbTaskRunner.finishSelectOrCountPrepareStatement(countStepAllTransfer,
+                                                       limitDate);
+      nbCountStepAllTransfer =
+          DbTaskRunner.getResultCountPrepareStatement(countStepAllTransfer);
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countStepNotask, limitDate);
+      nbCountStepNotask =
+          DbTaskRunner.getResultCountPrepareStatement(countStepNotask);
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countStepPretask, limitDate);
+      nbCountStepPretask =
+          DbTaskRunner.getResultCountPrepareStatement(countStepPretask);
+      DbTaskRunner.finishSelectOrCountPrepareStatement(countStepTransfer,
+                                                       limitDate);
+      nbCountStepTransfer =
+          DbTaskRunner.getResultCountPrepareStatement(countStepTransfer);
+      DbTaskRunner.finishSelectOrCountPrepareStatement(countStepPosttask,
+                                                       limitDate);
+      nbCountStepPosttask =
+          DbTaskRunner.getResultCountPrepareStatement(countStepPosttask);
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countStepAllDone, limitDate);
+      nbCountStepAllDone =
+          DbTaskRunner.getResultCountPrepareStatement(countStepAllDone);
+      DbTaskRunner
+          .finishSelectOrCountPrepareStatement(countStepError, limitDate);
+      nbCountStepError =
+          DbTaskRunner.getResultCountPrepareStatement(countStepError);
+
+      DbTaskRunner.finishSelectOrCountPrepareStatement(countAllRunningStep,
+                                                       limitDate);
+      nbCountAllRunningStep =
+          DbTaskRunner.getResultCountPrepareStatement(countAllRunningStep);
+
+      if (detail) {
+        // First on Running Transfers only
+        DbTaskRunner.finishSelectOrCountPrepareStatement(countRunningStep,
+                                                         limitDate);
+        nbCountRunningStep =
+            DbTaskRunner.getResultCountPrepareStatement(countRunningStep);
+        DbTaskRunner.finishSelectOrCountPrepareStatement(countInitOkStep,
+                                                         limitDate);
+        nbCountInitOkStep =
+            DbTaskRunner.getResultCountPrepareStatement(countInitOkStep);
+        DbTaskRunner
+            .finishSelectOrCountPrepareStatement(countPreProcessingOkStep,
+                                                 limitDate);
+        nbCountPreProcessingOkStep = DbTaskRunner
+            .getResultCountPrepareStatement(countPreProcessingOkStep);
+        DbTaskRunner
+            .finishSelectOrCountPrepareStatement(countTransferOkStep,
+                                                 limitDate);
+        nbCountTransferOkStep = DbTaskRunner
+            .getResultCountPrepareStatement(countTransferOkStep);
+        DbTaskRunner
+            .finishSelectOrCountPrepareStatement(countPostProcessingOkStep,
+                                                 limitDate);
+        nbCountPostProcessingOkStep = DbTaskRunner
+            .getResultCountPrepareStatement(countPostProcessingOkStep);
+        DbTaskRunner
+            .finishSelectOrCountPrepareStatement(countCompleteOkStep,
+                                                 limitDate);
+        nbCountCompleteOkStep = DbTaskRunner
+            .getResultCountPrepareStatement(countCompleteOkStep);
+
+        // Error Status on all transfers
+        nbCountStatusConnectionImpossible = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.ConnectionImpossible,
+                                            limitDate);
+        nbCountStatusServerOverloaded = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.ServerOverloaded,
+                                            limitDate);
+        nbCountStatusBadAuthent = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.BadAuthent,
+                                            limitDate);
+        nbCountStatusExternalOp = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.ExternalOp,
+                                            limitDate);
+        nbCountStatusTransferError = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.TransferError,
+                                            limitDate);
+        nbCountStatusMD5Error = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus, ErrorCode.MD5Error,
+                                            limitDate);
+        nbCountStatusDisconnection = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.Disconnection,
+                                            limitDate);
+        nbCountStatusFinalOp = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus, ErrorCode.FinalOp,
+                                            limitDate);
+        nbCountStatusUnimplemented = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.Unimplemented,
+                                            limitDate);
+        nbCountStatusInternal = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus, ErrorCode.Internal,
+                                            limitDate);
+        nbCountStatusWarning = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus, ErrorCode.Warning,
+                                            limitDate);
+        nbCountStatusQueryAlreadyFinished = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.QueryAlreadyFinished,
+                                            limitDate);
+        nbCountStatusQueryStillRunning = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.QueryStillRunning,
+                                            limitDate);
+        nbCountStatusNotKnownHost = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.NotKnownHost,
+                                            limitDate);
+        nbCountStatusQueryRemotelyUnknown = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.QueryRemotelyUnknown,
+                                            limitDate);
+        nbCountStatusCommandNotFound = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.CommandNotFound,
+                                            limitDate);
+        nbCountStatusPassThroughMode = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.PassThroughMode,
+                                            limitDate);
+        nbCountStatusRemoteShutdown = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.RemoteShutdown,
+                                            limitDate);
+        nbCountStatusShutdown = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus, ErrorCode.Shutdown,
+                                            limitDate);
+        nbCountStatusRemoteError = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.RemoteError,
+                                            limitDate);
+        nbCountStatusStopped = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.StoppedTransfer,
+                                            limitDate);
+        nbCountStatusCanceled = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.CanceledTransfer,
+                                            limitDate);
+        nbCountStatusFileNotFound = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus,
+                                            ErrorCode.FileNotFound,
+                                            limitDate);
+        nbCountStatusUnknown = DbTaskRunner
+            .getResultCountPrepareStatement(countStatus, ErrorCode.Unknown,
+                                            limitDate);
       }
+    } catch (final WaarpDatabaseNoConnectionException ignored) {
+      // ignore
+    } catch (final WaarpDatabaseSqlException ignored) {
+      // ignore
     }
   }
 
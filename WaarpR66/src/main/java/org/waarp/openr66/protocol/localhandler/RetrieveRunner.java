@@ -19,6 +19,7 @@
  */
 package org.waarp.openr66.protocol.localhandler;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import org.waarp.common.digest.FilesystemBasedDigest;
 import org.waarp.common.file.DataBlock;
@@ -295,6 +296,28 @@ public class RetrieveRunner extends Thread {
                             digestBlock);
   }
 
+  /**
+   * Write the next block from a ByteBuf (direct send mode)
+   *
+   * @param block the ByteBuf is owned by the write operation from now
+   * @param localChannelReference
+   * @param digestGlobal
+   * @param digestBlock
+   *
+   * @return the ChannelFuture on the write operation
+   *
+   * @throws OpenR66ProtocolPacketException
+   */
+  public static ChannelFuture writeWhenPossible(final ByteBuf block,
+                                                final LocalChannelReference localChannelReference,
+                                                final FilesystemBasedDigest digestGlobal,
+                                                final FilesystemBasedDigest digestBlock)
+      throws OpenR66ProtocolPacketException {
+    return ChannelUtils
+        .writeBackDataBlock(localChannelReference, digestGlobal, block,
+                            digestBlock);
+  }
+
   public int getLocalId() {
     return localChannelReference.getLocalId();
   }
@@ -0,0 +1,199 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.localhandler;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.openr66.protocol.configuration.Configuration;
+import org.waarp.openr66.protocol.configuration.PartnerConfiguration;
+import org.waarp.openr66.protocol.networkhandler.NetworkChannelReference;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding window of DataPackets in flight for one send operation.
+ * <p>
+ * Instead of awaiting each block write before reading the next one, the
+ * sender may keep up to a maximum number of blocks (and optionally of bytes)
+ * not yet written, as long as the network channel stays writable. The network
+ * channel writability (high/low water marks) and the write completions both
+ * wake up the waiting sender.
+ */
+public class SendWindow {
+  /**
+   * Internal Logger
+   */
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(SendWindow.class);
+
+  private final NetworkChannelReference networkChannelReference;
+  private final Object monitor;
+  private final int maxBlocks;
+  private final long maxBytes;
+  private final AtomicInteger inFlightBlocks = new AtomicInteger();
+  private final AtomicLong inFlightBytes = new AtomicLong();
+  private volatile boolean failed;
+
+  /**
+   * @param networkChannelReference might be null (then only write
+   *     completions are taken into account)
+   * @param maxBlocks
+   * @param maxBytes 0 meaning no limit in bytes
+   */
+  public SendWindow(final NetworkChannelReference networkChannelReference,
+                    final int maxBlocks, final long maxBytes) {
+    this.networkChannelReference = networkChannelReference;
+    monitor = networkChannelReference != null?
+        networkChannelReference.getWritabilityMonitor() : new Object();
+    this.maxBlocks = maxBlocks;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Compute the window size to use with the partner of this
+   * LocalChannelReference
+   *
+   * @param localChannelReference
+   *
+   * @return the number of blocks allowed in flight, 1 or less meaning the
+   *     legacy behavior
+   */
+  public static int getWindowSize(
+      final LocalChannelReference localChannelReference) {
+    final int local = Configuration.configuration.getSendWindowBlocks();
+    if (local <= 1 || localChannelReference == null ||
+        localChannelReference.getNetworkChannelObject() == null) {
+      return 0;
+    }
+    final PartnerConfiguration partner = localChannelReference.getPartner();
+    if (partner == null) {
+      return 0;
+    }
+    return Math.min(local, partner.getSendWindow());
+  }
+
+  /**
+   * Wait until one more block of the given size can be written
+   *
+   * @param size the size of the next block
+   * @param running When false, should stop waiting
+   *
+   * @return True if the block may be written, False if the window is in
+   *     error, stopped or interrupted
+   */
+  public boolean acquire(final int size, final AtomicBoolean running) {
+    synchronized (monitor) {
+      while (!failed && running.get() && !isOpen(size)) {
+        try {
+          monitor.wait(Configuration.WAITFORNETOP);
+        } catch (final InterruptedException e) {//NOSONAR
+          logger.debug("Interrupted while waiting for send window");
+          return false;
+        }
+      }
+    }
+    if (failed || !running.get()) {
+      return false;
+    }
+    inFlightBlocks.incrementAndGet();
+    inFlightBytes.addAndGet(size);
+    return true;
+  }
+
+  private boolean isOpen(final int size) {
+    final int blocks = inFlightBlocks.get();
+    if (blocks == 0) {
+      // Always allow at least one block
+      return true;
+    }
+    if (blocks >= maxBlocks) {
+      return false;
+    }
+    if (maxBytes > 0 && inFlightBytes.get() + size > maxBytes) {
+      return false;
+    }
+    return networkChannelReference == null ||
+           networkChannelReference.isWritable();
+  }
+
+  /**
+   * Register the write future of one block previously acquired
+   *
+   * @param future
+   * @param size
+   */
+  public void register(final ChannelFuture future, final int size) {
+    future.addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(final ChannelFuture future) {
+        if (!future.isSuccess()) {
+          failed = true;
+        }
+        inFlightBlocks.decrementAndGet();
+        inFlightBytes.addAndGet(-size);
+        if (networkChannelReference != null) {
+          networkChannelReference.signalWritability();
+        } else {
+          synchronized (monitor) {
+            monitor.notifyAll();
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Wait for all blocks in flight to be written
+   *
+   * @param running When false, should stop waiting
+   *
+   * @return True if all writes are done successfully
+   */
+  public boolean awaitAll(final AtomicBoolean running) {
+    synchronized (monitor) {
+      while (!failed && running.get() && inFlightBlocks.get() > 0) {
+        try {
+          monitor.wait(Configuration.WAITFORNETOP);
+        } catch (final InterruptedException e) {//NOSONAR
+          logger.debug("Interrupted while waiting for send window");
+          return false;
+        }
+      }
+    }
+    return !failed && inFlightBlocks.get() == 0;
+  }
+
+  /**
+   * @return True if one write was in error
+   */
+  public boolean isFailed() {
+    return failed;
+  }
+
+  @Override
+  public String toString() {
+    return "SendWindow: " + inFlightBlocks.get() + '/' + maxBlocks + " (" +
+           inFlightBytes.get() + '/' + maxBytes + ')';
+  }
+}
@@ -888,11 +888,28 @@ public class TransferActions extends ServerActions {
         return;
       }
     }
+    try {
+      packet.uncompress(session.getRunner().getBlocksize());
+    } catch (final OpenR66ProtocolPacketException e) {
+      logger.error("Bad compressed block at rank {}: {}",
+                   packet.getPacketRank(), e.getMessage());
+      errorToSend("Bad compressed block: " + packet.getPacketRank(),
+                  ErrorCode.TransferError, 96);
+      packet.clear();
+      return;
+    }
+    final boolean recvThrough = session.getRunner().isRecvThrough() &&
+                                localChannelReference.isRecvThroughMode();
+    // Direct mode: digests and write are done on the network buffer itself
+    final boolean recvDirect =
+        !recvThrough && Configuration.configuration.isRecvDirect();
+    if (!recvDirect) {
+      // Get reusable buffer and set internal content to byte Array
+      final byte[] reusableBuffer =
+          session.getReusableBuffer(packet.getLengthPacket());
+      packet.createByteBufFromRecv(reusableBuffer);
+    }
     // if MD5 check MD5
-    // Get reusable buffer and set internal content to byte Array
-    final byte[] reusableBuffer =
-        session.getReusableBuffer(packet.getLengthPacket());
-    packet.createByteBufFromRecv(reusableBuffer);
     if (RequestPacket.isMD5Mode(session.getRunner().getMode())) {
       logger.debug("AlgoDigest: {}",
                    (localChannelReference.getPartner() != null?
@@ -932,10 +949,15 @@ public class TransferActions extends ServerActions {
       }
     } else if (Configuration.configuration.isGlobalDigest()) {
       // Only Global digests
-      FileUtils.computeGlobalHash(globalDigest, localDigest, packet.getData());
+      if (recvDirect) {
+        FileUtils.computeGlobalHash(globalDigest, localDigest,
+                                    packet.getRecvData());
+      } else {
+        FileUtils
+            .computeGlobalHash(globalDigest, localDigest, packet.getData());
+      }
     }
-    if (session.getRunner().isRecvThrough() &&
-        localChannelReference.isRecvThroughMode()) {
+    if (recvThrough) {
       try {
         localChannelReference.getRecvThroughHandler()
                              .writeBytes(packet.getData());
@@ -947,6 +969,19 @@ public class TransferActions extends ServerActions {
       } finally {
         packet.clear();
       }
+    } else if (recvDirect) {
+      try {
+        session.getFile().writeByteBuf(packet.getRecvData());
+        session.getRunner().incrementRank();
+        if (packet.getPacketRank() % 100 == 1) {
+          logger.debug("Good RANK: {} : {}", packet.getPacketRank(),
+                       session.getRunner().getRank());
+        }
+      } catch (final FileTransferException e) {
+        errorToSend("Transfer in error", ErrorCode.TransferError, 22);
+      } finally {
+        packet.clear();
+      }
     } else {
       final DataBlock dataBlock = new DataBlock();
       dataBlock.setBlock(packet.getData());
@@ -977,7 +1012,7 @@ public class TransferActions extends ServerActions {
           if (localChannelReference.getPartner() != null &&
               localChannelReference.getPartner().useFinalHash()) {
             final DigestAlgo algo =
-                localChannelReference.getPartner().getDigestAlgo();
+                localChannelReference.getPartner().getGlobalDigestAlgo();
             if (algo != Configuration.configuration.getDigest()) {
               globalDigest = new FilesystemBasedDigest(algo);
               if (Configuration.configuration.isLocalDigest() &&
@@ -998,7 +1033,7 @@ public class TransferActions extends ServerActions {
           // nothing
         }
         logger.debug("GlobalDigest: {} different? {}",
-                     localChannelReference.getPartner().getDigestAlgo(),
+                     localChannelReference.getPartner().getGlobalDigestAlgo(),
                      localDigest != null);
       }
     } else if (Configuration.configuration.isLocalDigest()) {
@@ -1083,7 +1118,7 @@ public class TransferActions extends ServerActions {
   private boolean checkGlobalDigest(final EndTransferPacket packet) {
     final String hash = packet.getOptional();
     logger.debug("GlobalDigest: {} different? {} remoteHash? {}",
-                 localChannelReference.getPartner().getDigestAlgo(),
+                 localChannelReference.getPartner().getGlobalDigestAlgo(),
                  localDigest != null, hash != null);
     if (hash != null && globalDigest != null) {
       String localhash = FilesystemBasedDigest.getHex(globalDigest.Final());
@@ -1094,7 +1129,8 @@ public class TransferActions extends ServerActions {
                     localChannelReference.getPartner());
         final R66Result result = new R66Result(new OpenR66RunnerErrorException(
             Messages.getString("LocalServerHandler.19") + //$NON-NLS-1$
-            localChannelReference.getPartner().getDigestAlgo().algoName + ')'),
+            localChannelReference.getPartner().getGlobalDigestAlgo().algoName +
+            ')'),
                                                session, true,
                                                ErrorCode.MD5Error,
                                                session.getRunner());
@@ -1107,7 +1143,8 @@ public class TransferActions extends ServerActions {
         }
         final ErrorPacket error = new ErrorPacket(
             "Global Hash in error, transfer in error and rank should be reset to 0 (using " +
-            localChannelReference.getPartner().getDigestAlgo().algoName + ')',
+            localChannelReference.getPartner().getGlobalDigestAlgo().algoName +
+            ')',
             ErrorCode.MD5Error.getCode(), ErrorPacket.FORWARDCLOSECODE);
         try {
           ChannelUtils
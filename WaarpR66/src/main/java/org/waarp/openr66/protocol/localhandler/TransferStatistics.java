@@ -0,0 +1,331 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.localhandler;
+
+import org.waarp.openr66.context.ErrorCode;
+import org.waarp.openr66.pojo.Transfer;
+import org.waarp.openr66.pojo.UpdatedInfo;
+import org.waarp.openr66.protocol.configuration.Configuration;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Transfer figures of the Monitoring maintained from the transfer changes
+ * <p>
+ * Each insert, update or delete of a transfer by the DAO moves it from the
+ * counters of its previous state to the counters of its new state, using
+ * atomic counters only. The previous state is the one last written or read
+ * for the same database row, whatever the Transfer instance used, and is
+ * only kept for transfers within the time window of the Monitoring.
+ * <p>
+ * The figures are the result of the last reconciliation (the COUNT requests
+ * on the database) plus the changes made after the end of these requests,
+ * never below 0. This is an approximation: changes made while the COUNT
+ * requests run may be missed or counted twice, and transfers leaving the
+ * time window or changed by other nodes are only taken into account, until
+ * the next reconciliation.
+ */
+public class TransferStatistics {
+  private static final int NB_INFO = UpdatedInfo.values().length;
+  private static final int NB_STEP = Transfer.TASKSTEP.values().length;
+  private static final int NB_CODE = ErrorCode.values().length;
+
+  public static final int IN_ACTIVE = 0;
+  public static final int OUT_ACTIVE = 1;
+  public static final int IN_TOTAL = 2;
+  public static final int OUT_TOTAL = 3;
+  public static final int IN_ERROR = 4;
+  public static final int OUT_ERROR = 5;
+  public static final int STEP_ALL = 6;
+  public static final int ALL_RUNNING = 7;
+  private static final int INFO = 8;
+  private static final int STEP = INFO + NB_INFO;
+  private static final int RUNNING_STATUS = STEP + NB_STEP;
+  private static final int STATUS = RUNNING_STATUS + NB_CODE;
+  /**
+   * Number of counters
+   */
+  public static final int SIZE = STATUS + NB_CODE;
+
+  /**
+   * Counters in which one transfer is counted
+   */
+  public static final class State {
+    private final long start;
+    private final int[] slots;
+
+    private State(final long start, final int[] slots) {
+      this.start = start;
+      this.slots = slots;
+    }
+  }
+
+  /**
+   * Result of the last reconciliation
+   */
+  private static final class Baseline {
+    private final long limit;
+    private final long[] values;
+    private final long[] offsets;
+
+    private Baseline(final long limit, final long[] values,
+                     final long[] offsets) {
+      this.limit = limit;
+      this.values = values;
+      this.offsets = offsets;
+    }
+  }
+
+  private final AtomicLongArray counters = new AtomicLongArray(SIZE);
+  /**
+   * State in which each known transfer is counted, by database row
+   */
+  private final ConcurrentHashMap<String, State> states =
+      new ConcurrentHashMap<String, State>();
+  private volatile Baseline baseline;
+
+  /**
+   * @param updatedInfo the ordinal of the UpdatedInfo
+   *
+   * @return the counter of transfers with this UpdatedInfo
+   */
+  public static int info(final int updatedInfo) {
+    return INFO + updatedInfo;
+  }
+
+  /**
+   * @param globalStep the number of the global step
+   *
+   * @return the counter of transfers in this global step
+   */
+  public static int step(final int globalStep) {
+    return STEP + globalStep;
+  }
+
+  /**
+   * @param code
+   *
+   * @return the counter of running transfers with this step status
+   */
+  public static int runningStatus(final ErrorCode code) {
+    return RUNNING_STATUS + code.ordinal();
+  }
+
+  /**
+   * @param code
+   *
+   * @return the counter of transfers with this info status
+   */
+  public static int status(final ErrorCode code) {
+    return STATUS + code.ordinal();
+  }
+
+  /**
+   * @return True if figures are maintained from the transfer changes
+   */
+  public static boolean isEnabled() {
+    return Configuration.configuration.getMonitoringReconciliationDelay() > 0;
+  }
+
+  private static boolean isLocal(final String host) {
+    return host != null &&
+           (host.equals(Configuration.configuration.getHostId()) ||
+            host.equals(Configuration.configuration.getHostSslId()));
+  }
+
+  /**
+   * @param transfer
+   *
+   * @return the counters in which this transfer is counted, null if none
+   */
+  static State getState(final Transfer transfer) {
+    final String owner = transfer.getOwnerRequest();
+    if (owner == null ||
+        !owner.equals(Configuration.configuration.getHostId())) {
+      return null;
+    }
+    final int[] slots = new int[10];
+    int nb = 0;
+    final UpdatedInfo info = transfer.getUpdatedInfo();
+    final boolean running = info == UpdatedInfo.RUNNING;
+    slots[nb++] = info(info.ordinal());
+    slots[nb++] = STEP_ALL;
+    slots[nb++] = step(transfer.getGlobalStep().getTaskNo());
+    slots[nb++] = status(transfer.getInfoStatus());
+    if (running) {
+      slots[nb++] = ALL_RUNNING;
+      slots[nb++] = runningStatus(transfer.getStepStatus());
+    }
+    if (isLocal(transfer.getRequested())) {
+      slots[nb++] = IN_TOTAL;
+      if (running) {
+        slots[nb++] = IN_ACTIVE;
+      } else if (info == UpdatedInfo.INERROR) {
+        slots[nb++] = IN_ERROR;
+      }
+    }
+    if (isLocal(transfer.getRequester())) {
+      slots[nb++] = OUT_TOTAL;
+      if (running) {
+        slots[nb++] = OUT_ACTIVE;
+      } else if (info == UpdatedInfo.INERROR) {
+        slots[nb++] = OUT_ERROR;
+      }
+    }
+    final int[] used = new int[nb];
+    System.arraycopy(slots, 0, used, 0, nb);
+    return new State(transfer.getStart().getTime(), used);
+  }
+
+  private static String getKey(final Transfer transfer) {
+    return transfer.getOwnerRequest() + ' ' + transfer.getRequester() + ' ' +
+           transfer.getRequested() + ' ' + transfer.getId();
+  }
+
+  private long getLimit() {
+    final Baseline current = baseline;
+    return current == null? 0 : current.limit;
+  }
+
+  /**
+   * Remember the state of a transfer read from the database, unless a more
+   * recent one is already known for this row
+   *
+   * @param transfer
+   */
+  public void loaded(final Transfer transfer) {
+    if (isEnabled()) {
+      final State state = getState(transfer);
+      if (state != null && state.start >= getLimit()) {
+        states.putIfAbsent(getKey(transfer), state);
+      }
+    }
+  }
+
+  /**
+   * Move a transfer inserted or updated in the database to the counters of
+   * its new state
+   *
+   * @param transfer
+   */
+  public void changed(final Transfer transfer) {
+    if (isEnabled()) {
+      final String key = getKey(transfer);
+      final State state = getState(transfer);
+      final State previous;
+      if (state == null || state.start < getLimit()) {
+        previous = states.remove(key);
+      } else {
+        previous = states.put(key, state);
+      }
+      move(previous, state);
+    }
+  }
+
+  /**
+   * Remove a transfer deleted from the database from the counters
+   *
+   * @param transfer
+   */
+  public void removed(final Transfer transfer) {
+    if (isEnabled()) {
+      move(states.remove(getKey(transfer)), null);
+    }
+  }
+
+  private void move(final State previous, final State state) {
+    final long limit = getLimit();
+    if (previous != null && previous.start >= limit) {
+      for (final int slot : previous.slots) {
+        counters.decrementAndGet(slot);
+      }
+    }
+    if (state != null && state.start >= limit) {
+      for (final int slot : state.slots) {
+        counters.incrementAndGet(slot);
+      }
+    }
+  }
+
+  /**
+   * @return True if a reconciliation was done
+   */
+  public boolean isReconciled() {
+    return baseline != null;
+  }
+
+  /**
+   * Set the result of a reconciliation, to be called just after the COUNT
+   * requests: only the changes from now on are added to it
+   *
+   * @param limit the start time limit used by the COUNT requests
+   * @param values the result of the COUNT requests
+   */
+  public void endReconciliation(final long limit, final long[] values) {
+    final long[] offsets = new long[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      offsets[i] = counters.get(i);
+    }
+    baseline = new Baseline(limit, values.clone(), offsets);
+    // Forget the transfers now out of the time window
+    final Iterator<State> iterator = states.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().start < limit) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Forget the last reconciliation and the known states (to do after a
+   * global change)
+   */
+  public void invalidate() {
+    baseline = null;
+    states.clear();
+  }
+
+  /**
+   * @param slot
+   *
+   * @return the current value of this counter
+   */
+  public long get(final int slot) {
+    final Baseline current = baseline;
+    if (current == null) {
+      return 0;
+    }
+    return Math.max(0, current.values[slot] + counters.get(slot) -
+                       current.offsets[slot]);
+  }
+
+  /**
+   * @return the current values of all counters
+   */
+  public long[] getAll() {
+    final long[] values = new long[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      values[i] = get(i);
+    }
+    return values;
+  }
+}
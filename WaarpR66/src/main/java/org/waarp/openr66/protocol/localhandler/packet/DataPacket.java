@@ -23,12 +23,14 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import org.waarp.common.digest.FilesystemBasedDigest;
+import org.waarp.common.digest.ParallelDigests;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
 import org.waarp.common.utility.ParametersChecker;
 import org.waarp.common.utility.WaarpNettyUtil;
 import org.waarp.openr66.protocol.exception.OpenR66ProtocolPacketException;
 import org.waarp.openr66.protocol.localhandler.LocalChannelReference;
+import org.waarp.openr66.protocol.utils.BlockCompressor;
 import org.waarp.openr66.protocol.utils.FileUtils;
 
 import java.util.Arrays;
@@ -36,7 +38,8 @@ import java.util.Arrays;
 /**
  * Data packet
  * <p>
- * header = packetRank middle = data end = key
+ * header = packetRank (+ compression + original length if compressed) middle
+ * = data end = key
  */
 public class DataPacket extends AbstractLocalPacket {
   private static final WaarpLogger logger =
@@ -46,6 +49,8 @@ public class DataPacket extends AbstractLocalPacket {
 
   private final int lengthPacket;
 
+  private byte compression;
+
   private byte[] data;
   private ByteBuf dataRecv;
 
@@ -73,28 +78,65 @@ public class DataPacket extends AbstractLocalPacket {
       throw new OpenR66ProtocolPacketException("Not enough data");
     }
     final int packetRank = buf.readInt();
+    byte compression = BlockCompressor.NONE;
+    int originalLength = 0;
+    if (headerLength - 1 > 4) {
+      compression = buf.readByte();
+      originalLength = buf.readInt();
+    }
     final int index = buf.readerIndex();
-    final ByteBuf recvData = buf.retainedSlice(index, middleLength);
+    ByteBuf recvData = buf.retainedSlice(index, middleLength);
     buf.skipBytes(middleLength);
     final byte[] key = endLength > 0? new byte[endLength] : EMPTY_ARRAY;
     if (endLength > 0) {
       buf.readBytes(key);
     }
+    if (compression != BlockCompressor.NONE) {
+      if (originalLength <= 0) {
+        WaarpNettyUtil.release(recvData);
+        throw new OpenR66ProtocolPacketException(
+            "Bad compressed block length: " + originalLength);
+      }
+      // Uncompressed later, once the block size of the transfer is known
+      return new DataPacket(packetRank, recvData, key, compression,
+                            originalLength);
+    }
     return new DataPacket(packetRank, recvData, key);
   }
 
   /**
    * @param packetRank
-   * @param data
+   * @param data the ByteBuf is owned by this packet and released once
+   *     written
    * @param key
    */
-  private DataPacket(final int packetRank, final ByteBuf data,
-                     final byte[] key) {
+  public DataPacket(final int packetRank, final ByteBuf data,
+                    final byte[] key) {
     this.packetRank = packetRank;
     this.dataRecv = data;
     this.data = null;
     this.key = key == null? EMPTY_ARRAY : key;
     lengthPacket = dataRecv.readableBytes();
+    compression = BlockCompressor.NONE;
+  }
+
+  /**
+   * @param packetRank
+   * @param data the compressed network incoming buffer, owned by this
+   *     packet
+   * @param key
+   * @param compression the compression algorithm
+   * @param originalLength the length of the uncompressed data
+   */
+  private DataPacket(final int packetRank, final ByteBuf data,
+                     final byte[] key, final byte compression,
+                     final int originalLength) {
+    this.packetRank = packetRank;
+    this.dataRecv = data;
+    this.data = null;
+    this.key = key == null? EMPTY_ARRAY : key;
+    this.compression = compression;
+    lengthPacket = originalLength;
   }
 
   /**
@@ -103,11 +145,24 @@ public class DataPacket extends AbstractLocalPacket {
    * @param key
    */
   public DataPacket(final int packetRank, final byte[] data, final byte[] key) {
+    this(packetRank, data, key, BlockCompressor.NONE, data.length);
+  }
+
+  /**
+   * @param packetRank
+   * @param data the compressed data
+   * @param key the key computed on the uncompressed data
+   * @param compression the compression algorithm
+   * @param originalLength the length of the uncompressed data
+   */
+  public DataPacket(final int packetRank, final byte[] data, final byte[] key,
+                    final byte compression, final int originalLength) {
     this.packetRank = packetRank;
     this.data = data;
     this.dataRecv = null;
     this.key = key == null? EMPTY_ARRAY : key;
-    lengthPacket = data.length;
+    this.compression = compression;
+    lengthPacket = originalLength;
   }
 
   @Override
@@ -123,11 +178,24 @@ public class DataPacket extends AbstractLocalPacket {
 
   @Override
   public void createEnd(final LocalChannelReference lcr) {
-    end = Unpooled.wrappedBuffer(key);
+    if (dataRecv != null && dataRecv.isDirect() && key.length > 0) {
+      // Keep the whole packet direct so that it is written without copy
+      end = ByteBufAllocator.DEFAULT.directBuffer(key.length, key.length);
+      end.writeBytes(key);
+    } else {
+      end = Unpooled.wrappedBuffer(key);
+    }
   }
 
   @Override
   public void createHeader(final LocalChannelReference lcr) {
+    if (compression != BlockCompressor.NONE) {
+      header = ByteBufAllocator.DEFAULT.buffer(9, 9);
+      header.writeInt(packetRank);
+      header.writeByte(compression);
+      header.writeInt(lengthPacket);
+      return;
+    }
     header = ByteBufAllocator.DEFAULT.buffer(4, 4);
     header.writeInt(packetRank);
   }
@@ -165,6 +233,32 @@ public class DataPacket extends AbstractLocalPacket {
     return lengthPacket;
   }
 
+  /**
+   * Uncompress the network incoming buffer if it was sent compressed, before
+   * any access to its data
+   *
+   * @param maxLength the block size of the transfer, which the
+   *     uncompressed data cannot exceed
+   *
+   * @throws OpenR66ProtocolPacketException if the compressed block is
+   *     too large or corrupted
+   */
+  public void uncompress(final int maxLength)
+      throws OpenR66ProtocolPacketException {
+    if (compression == BlockCompressor.NONE || dataRecv == null) {
+      return;
+    }
+    final ByteBuf compressed = dataRecv;
+    dataRecv = null;
+    try {
+      dataRecv = BlockCompressor
+          .decompress(compression, compressed, lengthPacket, maxLength);
+      compression = BlockCompressor.NONE;
+    } finally {
+      WaarpNettyUtil.release(compressed);
+    }
+  }
+
   /**
    * Only for Network incoming buffer
    *
@@ -201,8 +295,9 @@ public class DataPacket extends AbstractLocalPacket {
   public boolean isKeyValid(final FilesystemBasedDigest digestBlock,
                             final FilesystemBasedDigest digestGlobal,
                             final FilesystemBasedDigest digestLocal) {
-    ParametersChecker
-        .checkParameter("Data is not setup correctly", data, logger);
+    if (data == null) {
+      return isRecvKeyValid(digestBlock, digestGlobal, digestLocal);
+    }
     if (key == null || key.length == 0) {
       if (digestGlobal != null || digestLocal != null) {
         FileUtils.computeGlobalHash(digestGlobal, digestLocal, data);
@@ -210,9 +305,9 @@ public class DataPacket extends AbstractLocalPacket {
       logger.error("Should received a Digest but don't");
       return false;
     }
-    digestBlock.Update(data, 0, data.length);
+    ParallelDigests
+        .update(data, 0, data.length, digestBlock, digestGlobal, digestLocal);
     final byte[] newkey = digestBlock.Final();
-    FileUtils.computeGlobalHash(digestGlobal, digestLocal, data);
     final boolean equal = Arrays.equals(key, newkey);
     if (!equal) {
       logger.error("DIGEST {} != {} for {} bytes using {} at rank {}",
@@ -223,6 +318,37 @@ public class DataPacket extends AbstractLocalPacket {
     return equal;
   }
 
+  /**
+   * Same as isKeyValid but directly on the network incoming buffer, when no
+   * byte array was created from it
+   *
+   * @return True if the Hashed key is valid (or no key is set)
+   */
+  private boolean isRecvKeyValid(final FilesystemBasedDigest digestBlock,
+                                 final FilesystemBasedDigest digestGlobal,
+                                 final FilesystemBasedDigest digestLocal) {
+    ParametersChecker
+        .checkParameter("Data is not setup correctly", dataRecv, logger);
+    if (key == null || key.length == 0) {
+      if (digestGlobal != null || digestLocal != null) {
+        FileUtils.computeGlobalHash(digestGlobal, digestLocal, dataRecv);
+      }
+      logger.error("Should received a Digest but don't");
+      return false;
+    }
+    ParallelDigests.update(dataRecv, digestBlock, digestGlobal, digestLocal);
+    final byte[] newkey = digestBlock.Final();
+    final boolean equal = Arrays.equals(key, newkey);
+    if (!equal) {
+      logger.error("DIGEST {} != {} for {} bytes using {} at rank {}",
+                   FilesystemBasedDigest.getHex(key),
+                   FilesystemBasedDigest.getHex(newkey),
+                   dataRecv.readableBytes(), digestBlock.getAlgo(),
+                   packetRank);
+    }
+    return equal;
+  }
+
   @Override
   public void clear() {
     super.clear();
@@ -88,6 +88,20 @@ public class NetworkChannelReference {
    * Is this channel multiplexed using Ssl
    */
   private final boolean isSSL;
+  /**
+   * Monitor used by senders waiting for this channel to become writable
+   */
+  private final Object writabilityMonitor = new Object();
+  /**
+   * Outbound scheduler of DataPackets (null if fair scheduling is not
+   * enabled)
+   */
+  private final NetworkChannelScheduler scheduler;
+  /**
+   * Rank of this channel among the network channels opened to the same
+   * remote address (0 for the first one)
+   */
+  private int slot;
 
   public NetworkChannelReference(final Channel networkChannel,
                                  final WaarpLock lock, final boolean isSSL) {
@@ -97,6 +111,8 @@ public class NetworkChannelReference {
         ((InetSocketAddress) networkAddress).getAddress().getHostAddress();
     this.lock = lock;
     this.isSSL = isSSL;
+    scheduler = Configuration.configuration.isNetworkFairScheduling()?
+        new NetworkChannelScheduler(channel) : null;
   }
 
   public NetworkChannelReference(final SocketAddress address,
@@ -107,6 +123,7 @@ public class NetworkChannelReference {
         ((InetSocketAddress) networkAddress).getAddress().getHostAddress();
     this.lock = lock;
     this.isSSL = isSSL;
+    scheduler = null;
   }
 
   public boolean isSSL() {
@@ -217,6 +234,43 @@ public class NetworkChannelReference {
     toCloseLater.clear();
   }
 
+  /**
+   * @return True if the underlying network channel accepts writes without
+   *     queuing beyond its high water mark
+   */
+  public boolean isWritable() {
+    return channel != null && channel.isWritable();
+  }
+
+  /**
+   * @return the monitor to wait on for writability changes or write
+   *     completions on this network channel
+   */
+  public Object getWritabilityMonitor() {
+    return writabilityMonitor;
+  }
+
+  /**
+   * Wake up all senders waiting for this network channel (writability
+   * changed or one write completed)
+   */
+  public void signalWritability() {
+    if (scheduler != null) {
+      scheduler.drain();
+    }
+    synchronized (writabilityMonitor) {
+      writabilityMonitor.notifyAll();
+    }
+  }
+
+  /**
+   * @return the outbound scheduler of DataPackets, or null if fair
+   *     scheduling is not enabled
+   */
+  public NetworkChannelScheduler getScheduler() {
+    return scheduler;
+  }
+
   public int nbLocalChannels() {
     return localChannelReferences.size();
   }
@@ -241,7 +295,8 @@ public class NetworkChannelReference {
   @Override
   public String toString() {
     return "NC: " + hostId + ':' + (channel != null && channel.isActive()) +
-           ' ' + networkAddress + " Count: " + localChannelReferences.size();
+           ' ' + networkAddress + (slot > 0? "#" + slot : "") + " Count: " +
+           localChannelReferences.size();
   }
 
   @Override
@@ -271,6 +326,40 @@ public class NetworkChannelReference {
     return networkAddress.hashCode();
   }
 
+  /**
+   * @return the rank of this channel among the network channels opened to
+   *     the same remote address
+   */
+  public int getSlot() {
+    return slot;
+  }
+
+  /**
+   * @param slot the slot to set
+   */
+  public void setSlot(final int slot) {
+    this.slot = slot;
+  }
+
+  /**
+   * @return the key of this channel among all the network channels opened
+   *     to any remote address
+   */
+  public long getSlotKey() {
+    return getSlotKey(networkAddress, slot);
+  }
+
+  /**
+   * @param address
+   * @param slot
+   *
+   * @return the key of the network channel of this rank opened to this
+   *     remote address
+   */
+  public static long getSlotKey(final SocketAddress address, final int slot) {
+    return ((long) address.hashCode() << 8) | slot;
+  }
+
   /**
    * Used for BlackList
    *
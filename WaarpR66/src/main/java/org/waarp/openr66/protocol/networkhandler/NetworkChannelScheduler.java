@@ -0,0 +1,206 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.networkhandler;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelPromise;
+import org.waarp.common.logging.WaarpLogger;
+import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.openr66.protocol.exception.OpenR66ProtocolNetworkException;
+import org.waarp.openr66.protocol.networkhandler.packet.NetworkPacket;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Outbound scheduler of the DataPackets of all LocalChannels sharing one
+ * network channel
+ * <p>
+ * Each LocalChannel has its own queue of DataPackets. While the network
+ * channel is writable, queues are served in weighted round-robin order, each
+ * one writing up to its weight in packets before the next one. Everything
+ * else (requests, validations, end of transfer, keep alive...) is not queued
+ * here and is written immediately, so it only waits behind the data already
+ * accepted by the network channel, at most its high water mark.
+ */
+public class NetworkChannelScheduler {
+  /**
+   * Internal Logger
+   */
+  private static final WaarpLogger logger =
+      WaarpLoggerFactory.getLogger(NetworkChannelScheduler.class);
+
+  /**
+   * Maximum weight of one LocalChannel
+   */
+  public static final int MAX_WEIGHT = 16;
+
+  private final Channel channel;
+  private final Map<Integer, Lane> lanes = new HashMap<Integer, Lane>();
+  private final ArrayDeque<Lane> ring = new ArrayDeque<Lane>();
+  private boolean draining;
+  private boolean redo;
+
+  /**
+   * One queue of DataPackets for one LocalChannel
+   */
+  private static class Lane {
+    private final Integer localId;
+    private final int weight;
+    private final ArrayDeque<NetworkPacket> packets =
+        new ArrayDeque<NetworkPacket>();
+    private final ArrayDeque<ChannelPromise> promises =
+        new ArrayDeque<ChannelPromise>();
+    private int credit;
+
+    private Lane(final Integer localId, final int weight) {
+      this.localId = localId;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * @param channel the network channel
+   */
+  public NetworkChannelScheduler(final Channel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * @param weight
+   *
+   * @return the weight within 1 and MAX_WEIGHT
+   */
+  public static int checkWeight(final int weight) {
+    return Math.max(1, Math.min(MAX_WEIGHT, weight));
+  }
+
+  /**
+   * Queue one DataPacket of one LocalChannel and write it as soon as its turn
+   * comes
+   *
+   * @param localId the id of the LocalChannel sending this packet
+   * @param weight the weight of this LocalChannel, used when its queue
+   *     is created
+   * @param packet the NetworkPacket, owned by the scheduler from now
+   *
+   * @return the future of the write operation
+   */
+  public ChannelFuture submit(final Integer localId, final int weight,
+                              final NetworkPacket packet) {
+    final ChannelPromise promise = channel.newPromise();
+    synchronized (this) {
+      Lane lane = lanes.get(localId);
+      if (lane == null) {
+        lane = new Lane(localId, checkWeight(weight));
+        lanes.put(localId, lane);
+        ring.addLast(lane);
+      }
+      lane.packets.addLast(packet);
+      lane.promises.addLast(promise);
+    }
+    drain();
+    return promise;
+  }
+
+  /**
+   * Write queued DataPackets while the network channel is writable, in
+   * weighted round-robin order
+   */
+  public void drain() {
+    synchronized (this) {
+      if (draining) {
+        // Called back while writing (writability change): loop again later
+        redo = true;
+        return;
+      }
+      draining = true;
+      try {
+        do {
+          redo = false;
+          writeWhileWritable();
+        } while (redo);
+      } finally {
+        draining = false;
+      }
+    }
+  }
+
+  private void writeWhileWritable() {
+    if (!channel.isActive()) {
+      failAll();
+      return;
+    }
+    boolean written = false;
+    while (!ring.isEmpty() && channel.isWritable()) {
+      final Lane lane = ring.peekFirst();
+      final NetworkPacket packet = lane.packets.pollFirst();
+      final ChannelPromise promise = lane.promises.pollFirst();
+      lane.credit++;
+      if (lane.packets.isEmpty()) {
+        ring.pollFirst();
+        lanes.remove(lane.localId);
+      } else if (lane.credit >= lane.weight) {
+        ring.pollFirst();
+        lane.credit = 0;
+        ring.addLast(lane);
+      }
+      channel.write(packet, promise);
+      written = true;
+    }
+    if (written) {
+      channel.flush();
+    }
+  }
+
+  private void failAll() {
+    if (ring.isEmpty()) {
+      return;
+    }
+    logger.debug("Network channel closed: {} LocalChannels not sent",
+                 ring.size());
+    final OpenR66ProtocolNetworkException cause =
+        new OpenR66ProtocolNetworkException("Network channel closed");
+    for (final Lane lane : ring) {
+      for (final NetworkPacket packet : lane.packets) {
+        packet.clear();
+      }
+      for (final ChannelPromise promise : lane.promises) {
+        promise.tryFailure(cause);
+      }
+    }
+    ring.clear();
+    lanes.clear();
+  }
+
+  /**
+   * @return the number of LocalChannels having DataPackets waiting
+   */
+  public synchronized int getWaitingLocalChannels() {
+    return ring.size();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "NetworkChannelScheduler: " + ring.size() + " waiting";
+  }
+}
@@ -112,6 +112,8 @@ public class NetworkServerHandler
                                    .remove(ctx.channel());
       }
       if (networkChannelReference != null) {
+        // Release DataPackets still waiting to be written
+        networkChannelReference.signalWritability();
         if (networkChannelReference.nbLocalChannels() > 0) {
           logger.info("Network Channel Closed: {} LocalChannels Left: {}",
                       ctx.channel().id(),
@@ -261,6 +263,15 @@ public class NetworkServerHandler
     }
   }
 
+  @Override
+  public void channelWritabilityChanged(final ChannelHandlerContext ctx)
+      throws Exception {
+    if (networkChannelReference != null) {
+      networkChannelReference.signalWritability();
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
   public void resetKeepAlive() {
     keepAlivedSent.set(0);
     if (networkChannelReference != null) {
@@ -125,6 +125,13 @@ public class NetworkTransaction {
   private static final ConcurrentHashMap<Integer, NetworkChannelReference>
       networkChannelOnSocketAddressConcurrentHashMap =
       new ConcurrentHashMap<Integer, NetworkChannelReference>();
+  /**
+   * Hashmap for currently active additional network channels to the same
+   * remote host (slot 1 and above) based on slot key
+   */
+  private static final ConcurrentHashMap<Long, NetworkChannelReference>
+      additionalNetworkChannelConcurrentHashMap =
+      new ConcurrentHashMap<Long, NetworkChannelReference>();
   /**
    * Remote Client NetworkChannels: used to centralize remote requester hosts
    * (possible different address used)
@@ -211,8 +218,15 @@ public class NetworkTransaction {
       nb += ncr.nbLocalChannels();
       partial.append("\n NetworkChannels: ").append(ncr.toString());
     }
+    for (final NetworkChannelReference ncr : additionalNetworkChannelConcurrentHashMap
+        .values()) {
+      nb += ncr.nbLocalChannels();
+      partial.append("\n NetworkChannels: ").append(ncr.toString());
+    }
     partial.append("\n NetworkChannels: ")
            .append(networkChannelOnSocketAddressConcurrentHashMap.size())
+           .append(" AdditionalNetworkChannels: ")
+           .append(additionalNetworkChannelConcurrentHashMap.size())
            .append(" LockOnSocketAddress: ")
            .append(reentrantLockOnSocketAddressConcurrentHashMap.size())
            .append(" Sum of NetworkChannels LocalClients: ").append(nb)
@@ -229,16 +243,57 @@ public class NetworkTransaction {
   }
 
   private static void addNCR(final NetworkChannelReference ncr) {
+    if (ncr.getSlot() > 0) {
+      additionalNetworkChannelConcurrentHashMap.put(ncr.getSlotKey(), ncr);
+      return;
+    }
     networkChannelOnSocketAddressConcurrentHashMap
         .put(ncr.getSocketHashCode(), ncr);
   }
 
   private static NetworkChannelReference removeNCR(
       final NetworkChannelReference ncr) {
+    if (ncr.getSlot() > 0) {
+      return additionalNetworkChannelConcurrentHashMap
+          .remove(ncr.getSlotKey());
+    }
     return networkChannelOnSocketAddressConcurrentHashMap
         .remove(ncr.getSocketHashCode());
   }
 
+  private static NetworkChannelReference getAdditionalNCR(
+      final SocketAddress sa, final int slot) {
+    return additionalNetworkChannelConcurrentHashMap
+        .get(NetworkChannelReference.getSlotKey(sa, slot));
+  }
+
+  /**
+   * @param channel
+   *
+   * @return the additional NetworkChannelReference (slot 1 and above) of this
+   *     channel, or null if none
+   */
+  private static NetworkChannelReference getAdditionalNCR(
+      final Channel channel) {
+    if (additionalNetworkChannelConcurrentHashMap.isEmpty()) {
+      return null;
+    }
+    final int max = Configuration.configuration.getNetworkChannelsPerPartner();
+    for (int slot = 1; slot < max; slot++) {
+      final NetworkChannelReference ncr =
+          getAdditionalNCR(channel.remoteAddress(), slot);
+      if (ncr != null && ncr.channel() == channel) {
+        return ncr;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isActiveNCR(final NetworkChannelReference ncr) {
+    return ncr != null && !ncr.isShuttingDown && ncr.channel() != null &&
+           ncr.channel().isActive();
+  }
+
   private static NetworkChannelReference getNCR(final SocketAddress sa) {
     return networkChannelOnSocketAddressConcurrentHashMap.get(sa.hashCode());
   }
@@ -517,6 +572,31 @@ public class NetworkTransaction {
       } catch (final OpenR66ProtocolNoDataException e1) {
         networkChannelReference = null;
       }
+      int slot = 0;
+      final int max =
+          Configuration.configuration.getNetworkChannelsPerPartner();
+      if (max > 1) {
+        // Least used active channel, unless a free slot can take it
+        slot = networkChannelReference == null? 0 : -1;
+        for (int i = 1; i < max; i++) {
+          final NetworkChannelReference additional =
+              getAdditionalNCR(socketServerAddress, i);
+          if (!isActiveNCR(additional)) {
+            if (slot < 0) {
+              slot = i;
+            }
+          } else if (networkChannelReference == null ||
+                     additional.nbLocalChannels() <
+                     networkChannelReference.nbLocalChannels()) {
+            networkChannelReference = additional;
+          }
+        }
+        if (networkChannelReference != null && slot >= 0 &&
+            networkChannelReference.nbLocalChannels() > 0) {
+          // Open a new network channel in the free slot
+          networkChannelReference = null;
+        }
+      }
       if (networkChannelReference != null) {
         networkChannelReference.use();
         logger.info("Already Connected: {}", networkChannelReference);
@@ -560,6 +640,7 @@ public class NetworkTransaction {
           }
           networkChannelReference =
               new NetworkChannelReference(channel, socketLock, isSSL);
+          networkChannelReference.setSlot(slot);
           addNCR(networkChannelReference);
           logger.info("New Real Connection: {}", networkChannelReference);
           return networkChannelReference;
@@ -747,7 +828,11 @@ public class NetworkTransaction {
     final WaarpLock socketLock = getChannelLock(socketAddress);
     socketLock.lock();
     try {
-      NetworkChannelReference nc = null;
+      NetworkChannelReference nc = getAdditionalNCR(channel);
+      if (nc != null) {
+        // additional channel just opened by this host
+        return nc;
+      }
       try {
         nc = getRemoteChannel(socketAddress);
       } catch (final OpenR66ProtocolNoDataException ignored) {
@@ -1259,6 +1344,10 @@ public class NetworkTransaction {
   public static NetworkChannelReference getImmediateNetworkChannel(
       final Channel channel) {
     if (channel.remoteAddress() != null) {
+      final NetworkChannelReference nc = getAdditionalNCR(channel);
+      if (nc != null) {
+        return nc;
+      }
       return getNCR(channel.remoteAddress());
     }
     return null;
@@ -1390,6 +1479,7 @@ public class NetworkTransaction {
       SysErrLogger.FAKE_LOGGER.ignoreLog(e);
     }
     stopAllEndRetrieve();
+    Configuration.configuration.closeRunnerStateJournal();
     DbAdmin.closeAllConnection();
     Configuration.configuration.clientStop(quickShutdown);
     if (!Configuration.configuration.isServer()) {
@@ -21,6 +21,7 @@ package org.waarp.openr66.protocol.networkhandler.packet;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.ByteToMessageCodec;
 import org.waarp.common.utility.WaarpNettyUtil;
 import org.waarp.openr66.protocol.exception.OpenR66ProtocolPacketException;
@@ -94,6 +95,21 @@ public class NetworkPacketCodec extends ByteToMessageCodec<NetworkPacket> {
     out.add(networkPacket);
   }
 
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg,
+                    final ChannelPromise promise) throws Exception {
+    if (msg instanceof NetworkPacket &&
+        ((NetworkPacket) msg).getCode() == LocalPacketFactory.DATAPACKET) {
+      final ByteBuf finalBuf = ((NetworkPacket) msg).getNetworkPacket();
+      if (finalBuf.isDirect()) {
+        // Already fully direct (zero copy send): no need to copy it again
+        ctx.write(finalBuf, promise);
+        return;
+      }
+    }
+    super.write(ctx, msg, promise);
+  }
+
   @Override
   protected void encode(final ChannelHandlerContext ctx,
                         final NetworkPacket msg, final ByteBuf out) {
@@ -0,0 +1,180 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.utils;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.waarp.openr66.protocol.exception.OpenR66ProtocolPacketException;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of the data blocks sent in DataPackets
+ * <p>
+ * Each block is compressed on its own, so that ranks, restarts and digests
+ * (always computed on the uncompressed content) keep their usual meaning. A
+ * block is only sent compressed if this makes it smaller.
+ */
+public final class BlockCompressor {
+  /**
+   * No compression
+   */
+  public static final byte NONE = 0;
+  /**
+   * Deflate compression
+   */
+  public static final byte DEFLATE = 1;
+  /**
+   * Name of the Deflate compression as advertised to partners
+   */
+  public static final String DEFLATE_NAME = "deflate";
+
+  private static final ThreadLocal<Deflater> DEFLATER =
+      new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+          return new Deflater();
+        }
+      };
+  private static final ThreadLocal<Inflater> INFLATER =
+      new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+          return new Inflater();
+        }
+      };
+
+  private BlockCompressor() {
+  }
+
+  /**
+   * @param data
+   * @param offset
+   * @param length
+   * @param level the Deflate level (1 for speed to 9 for ratio)
+   *
+   * @return the compressed block, or null if compression does not make it
+   *     smaller
+   */
+  public static byte[] compress(final byte[] data, final int offset,
+                                final int length, final int level) {
+    if (length <= 0) {
+      return null;
+    }
+    final Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setLevel(level);
+    deflater.setInput(data, offset, length);
+    deflater.finish();
+    // Only worth if smaller
+    final byte[] out = new byte[length - 1];
+    int size = 0;
+    while (!deflater.finished() && size < out.length) {
+      size += deflater.deflate(out, size, out.length - size);
+    }
+    if (!deflater.finished()) {
+      return null;
+    }
+    return Arrays.copyOf(out, size);
+  }
+
+  /**
+   * @param data
+   * @param level the Deflate level (1 for speed to 9 for ratio)
+   *
+   * @return the compressed block, or null if compression does not make it
+   *     smaller
+   */
+  public static byte[] compress(final ByteBuf data, final int level) {
+    final int length = data.readableBytes();
+    if (data.hasArray()) {
+      return compress(data.array(), data.arrayOffset() + data.readerIndex(),
+                      length, level);
+    }
+    final byte[] bytes = new byte[length];
+    data.getBytes(data.readerIndex(), bytes);
+    return compress(bytes, 0, length, level);
+  }
+
+  /**
+   * @param compression the compression algorithm
+   * @param data the compressed block (not released)
+   * @param originalLength the length of the uncompressed block
+   * @param maxLength the maximum length allowed for the uncompressed
+   *     block (the block size of the transfer)
+   *
+   * @return the uncompressed block
+   *
+   * @throws OpenR66ProtocolPacketException if the compression is
+   *     unknown, the block too large or corrupted
+   */
+  public static ByteBuf decompress(final byte compression, final ByteBuf data,
+                                   final int originalLength,
+                                   final int maxLength)
+      throws OpenR66ProtocolPacketException {
+    if (compression != DEFLATE) {
+      throw new OpenR66ProtocolPacketException(
+          "Unknown compression: " + compression);
+    }
+    if (originalLength > maxLength) {
+      throw new OpenR66ProtocolPacketException(
+          "Compressed block larger than the block size: " + originalLength +
+          " > " + maxLength);
+    }
+    final int length = data.readableBytes();
+    // Deflate cannot expand more than about 1032 times
+    if (originalLength <= 0 || originalLength > length * 1032L + 1024) {
+      throw new OpenR66ProtocolPacketException(
+          "Bad compressed block length: " + originalLength);
+    }
+    final Inflater inflater = INFLATER.get();
+    inflater.reset();
+    if (data.hasArray()) {
+      inflater.setInput(data.array(), data.arrayOffset() + data.readerIndex(),
+                        length);
+    } else {
+      final byte[] bytes = new byte[length];
+      data.getBytes(data.readerIndex(), bytes);
+      inflater.setInput(bytes);
+    }
+    final byte[] out = new byte[originalLength];
+    int size = 0;
+    try {
+      while (!inflater.finished() && size < originalLength) {
+        final int read = inflater.inflate(out, size, originalLength - size);
+        if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        size += read;
+      }
+    } catch (final DataFormatException e) {
+      throw new OpenR66ProtocolPacketException("Corrupted compressed block",
+                                               e);
+    }
+    if (!inflater.finished() || size != originalLength) {
+      throw new OpenR66ProtocolPacketException(
+          "Corrupted compressed block: " + size + " != " + originalLength);
+    }
+    return Unpooled.wrappedBuffer(out);
+  }
+}
@@ -20,6 +20,7 @@
 package org.waarp.openr66.protocol.utils;
 
 import ch.qos.logback.classic.LoggerContext;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelFuture;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GenericFutureListener;
@@ -27,11 +28,13 @@ import org.slf4j.LoggerFactory;
 import org.waarp.common.database.DbAdmin;
 import org.waarp.common.digest.FilesystemBasedDigest;
 import org.waarp.common.digest.FilesystemBasedDigest.DigestAlgo;
+import org.waarp.common.digest.ParallelDigests;
 import org.waarp.common.file.DataBlock;
 import org.waarp.common.logging.SysErrLogger;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
 import org.waarp.common.logging.WaarpSlf4JLoggerFactory;
+import org.waarp.common.metrics.MetricsRegistry;
 import org.waarp.common.utility.DetectionUtils;
 import org.waarp.common.utility.WaarpNettyUtil;
 import org.waarp.common.utility.WaarpShutdownHook;
@@ -48,10 +51,12 @@ import org.waarp.openr66.protocol.localhandler.packet.EndTransferPacket;
 import org.waarp.openr66.protocol.localhandler.packet.ErrorPacket;
 import org.waarp.openr66.protocol.localhandler.packet.LocalPacketFactory;
 import org.waarp.openr66.protocol.localhandler.packet.RequestPacket;
+import org.waarp.openr66.protocol.networkhandler.NetworkChannelScheduler;
 import org.waarp.openr66.protocol.networkhandler.NetworkServerHandler;
 import org.waarp.openr66.protocol.networkhandler.NetworkTransaction;
 import org.waarp.openr66.protocol.networkhandler.packet.NetworkPacket;
 
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 
 import static org.waarp.openr66.database.DbConstantR66.*;
@@ -151,32 +156,122 @@ public class ChannelUtils extends Thread {
     byte[] md5 = {};
     final DbTaskRunner runner = localChannelReference.getSession().getRunner();
     final byte[] dataBlock = block.getByteBlock();
+    final long start = MetricsRegistry.startTimer();
+    DigestAlgo digestAlgo = null;
     if (digestBlock != null) {
-      if (digestGlobal != null) {
-        digestGlobal.Update(dataBlock, 0, dataBlock.length);
-      }
-      digestBlock.Update(dataBlock, 0, dataBlock.length);
+      ParallelDigests
+          .update(dataBlock, 0, dataBlock.length, digestBlock, digestGlobal);
       md5 = digestBlock.Final();
+      digestAlgo = digestBlock.getAlgo();
     } else if (RequestPacket.isSendThroughMode(runner.getMode()) &&
                RequestPacket.isMD5Mode(runner.getMode())) {
       final DigestAlgo algo =
           localChannelReference.getPartner().getDigestAlgo();
       md5 = FileUtils.getHash(dataBlock, algo, digestGlobal);
+      digestAlgo = algo;
     } else if (digestGlobal != null) {
       digestGlobal.Update(dataBlock, 0, dataBlock.length);
+      digestAlgo = digestGlobal.getAlgo();
+    }
+    if (start != 0 && digestAlgo != null) {
+      R66Metrics.DIGEST.labels(digestAlgo.name()).observeSince(start);
     }
     if (runner.getRank() % 100 == 1 ||
         localChannelReference.getSessionState() != R66FiniteDualStates.DATAS) {
       localChannelReference.sessionNewState(R66FiniteDualStates.DATAS);
     }
-    final DataPacket data =
-        new DataPacket(runner.getRank(), block.getByteBlock(), md5);
+    final int level = localChannelReference.getCompressionLevel();
+    final byte[] compressed = level > 0?
+        BlockCompressor.compress(dataBlock, 0, dataBlock.length, level) : null;
+    final DataPacket data;
+    if (compressed != null) {
+      data = new DataPacket(runner.getRank(), compressed, md5,
+                            BlockCompressor.DEFLATE, dataBlock.length);
+    } else {
+      data = new DataPacket(runner.getRank(), dataBlock, md5);
+    }
     final ChannelFuture future =
         writeAbstractLocalPacket(localChannelReference, data, false);
     runner.incrementRank();
     return future;
   }
 
+  /**
+   * Same as {@link #writeBackDataBlock(LocalChannelReference,
+   * FilesystemBasedDigest, DataBlock, FilesystemBasedDigest)} but from a
+   * ByteBuf (usually direct) which is written as is, without heap copy.
+   *
+   * @param localChannelReference
+   * @param digestGlobal
+   * @param dataBlock the ByteBuf is owned by the write operation from now
+   * @param digestBlock
+   *
+   * @return the ChannelFuture of this write operation
+   *
+   * @throws OpenR66ProtocolPacketException
+   */
+  public static ChannelFuture writeBackDataBlock(
+      final LocalChannelReference localChannelReference,
+      final FilesystemBasedDigest digestGlobal, final ByteBuf dataBlock,
+      final FilesystemBasedDigest digestBlock)
+      throws OpenR66ProtocolPacketException {
+    byte[] md5 = {};
+    final DbTaskRunner runner = localChannelReference.getSession().getRunner();
+    final long start = MetricsRegistry.startTimer();
+    DigestAlgo digestAlgo = null;
+    if (digestBlock != null) {
+      ParallelDigests.update(dataBlock, digestBlock, digestGlobal);
+      md5 = digestBlock.Final();
+      digestAlgo = digestBlock.getAlgo();
+    } else if (RequestPacket.isSendThroughMode(runner.getMode()) &&
+               RequestPacket.isMD5Mode(runner.getMode())) {
+      final DigestAlgo algo =
+          localChannelReference.getPartner().getDigestAlgo();
+      try {
+        md5 = FilesystemBasedDigest.getHash(dataBlock, algo);
+      } catch (final IOException e) {
+        dataBlock.release();
+        throw new OpenR66ProtocolPacketException(e);
+      }
+      if (digestGlobal != null) {
+        digestGlobal.Update(dataBlock);
+      }
+      digestAlgo = algo;
+    } else if (digestGlobal != null) {
+      digestGlobal.Update(dataBlock);
+      digestAlgo = digestGlobal.getAlgo();
+    }
+    if (start != 0 && digestAlgo != null) {
+      R66Metrics.DIGEST.labels(digestAlgo.name()).observeSince(start);
+    }
+    if (runner.getRank() % 100 == 1 ||
+        localChannelReference.getSessionState() != R66FiniteDualStates.DATAS) {
+      localChannelReference.sessionNewState(R66FiniteDualStates.DATAS);
+    }
+    final int level = localChannelReference.getCompressionLevel();
+    final byte[] compressed =
+        level > 0? BlockCompressor.compress(dataBlock, level) : null;
+    final DataPacket data;
+    if (compressed != null) {
+      final int length = dataBlock.readableBytes();
+      dataBlock.release();
+      data = new DataPacket(runner.getRank(), compressed, md5,
+                            BlockCompressor.DEFLATE, length);
+    } else {
+      data = new DataPacket(runner.getRank(), dataBlock, md5);
+    }
+    final ChannelFuture future;
+    try {
+      future = writeAbstractLocalPacket(localChannelReference, data, false);
+    } catch (final OpenR66ProtocolPacketException e) {
+      // Not handed to the network: release the buffer
+      data.clear();
+      throw e;
+    }
+    runner.incrementRank();
+    return future;
+  }
+
   /**
    * Write the EndTransfer
    *
@@ -239,8 +334,20 @@ public class ChannelUtils extends Thread {
     final boolean addListener = packet instanceof ErrorPacket &&
                                 ((ErrorPacket) packet).getCode() ==
                                 ErrorPacket.FORWARDCLOSECODE;
-    final ChannelFuture future =
-        localChannelReference.getNetworkChannel().writeAndFlush(networkPacket);
+    final NetworkChannelScheduler scheduler =
+        localChannelReference.getNetworkChannelObject() != null?
+            localChannelReference.getNetworkChannelObject().getScheduler() :
+            null;
+    final ChannelFuture future;
+    if (scheduler != null && packet instanceof DataPacket) {
+      // Data waits for its turn, other packets go first
+      future = scheduler.submit(localChannelReference.getLocalId(),
+                                localChannelReference.getSchedulingWeight(),
+                                networkPacket);
+    } else {
+      future = localChannelReference.getNetworkChannel()
+                                    .writeAndFlush(networkPacket);
+    }
     if (addListener) {
       future.addListener(new GenericFutureListener<Future<? super Void>>() {
 
@@ -318,6 +425,8 @@ public class ChannelUtils extends Thread {
     logger.info("Exit Shutdown Connected Client");
     terminateClientChannels();
     logger.info("Exit Shutdown Db Connection");
+    Configuration.configuration.closeRunnerArchiver();
+    Configuration.configuration.closeRunnerStateJournal();
     DbAdmin.closeAllConnection();
     logger.info("Exit Shutdown ServerStop");
     Configuration.configuration.serverStop();
@@ -19,9 +19,11 @@
  */
 package org.waarp.openr66.protocol.utils;
 
+import io.netty.buffer.ByteBuf;
 import org.waarp.common.command.exception.CommandAbstractException;
 import org.waarp.common.digest.FilesystemBasedDigest;
 import org.waarp.common.digest.FilesystemBasedDigest.DigestAlgo;
+import org.waarp.common.digest.ParallelDigests;
 import org.waarp.common.file.AbstractDir;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.openr66.context.R66Session;
@@ -132,9 +134,9 @@ public final class FileUtils {
       } else {
         final FilesystemBasedDigest digestPacket =
             new FilesystemBasedDigest(algo);
-        digestPacket.Update(buffer, 0, buffer.length);
+        ParallelDigests
+            .update(buffer, 0, buffer.length, digestPacket, digestGlobal);
         newkey = digestPacket.Final();
-        digestGlobal.Update(buffer, 0, buffer.length);
       }
     } catch (final IOException e) {
       return EMPTY_ARRAY;
@@ -157,11 +159,23 @@ public final class FileUtils {
     if (buffer == null || buffer.length == 0) {
       return;
     }
-    if (digestGlobal != null) {
-      digestGlobal.Update(buffer, 0, buffer.length);
-    }
-    if (digestLocal != null) {
-      digestLocal.Update(buffer, 0, buffer.length);
+    ParallelDigests.update(buffer, 0, buffer.length, digestGlobal, digestLocal);
+  }
+
+  /**
+   * Compute global hash and local hash (if possible) from a ByteBuf, without
+   * changing its reader index
+   *
+   * @param digestGlobal
+   * @param digestLocal
+   * @param buffer
+   */
+  public static void computeGlobalHash(final FilesystemBasedDigest digestGlobal,
+                                       final FilesystemBasedDigest digestLocal,
+                                       final ByteBuf buffer) {
+    if (buffer == null || !buffer.isReadable()) {
+      return;
     }
+    ParallelDigests.update(buffer, digestGlobal, digestLocal);
   }
 }
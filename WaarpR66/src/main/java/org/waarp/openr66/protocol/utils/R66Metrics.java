@@ -0,0 +1,112 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.utils;
+
+import org.waarp.common.metrics.Counter;
+import org.waarp.common.metrics.Histogram;
+import org.waarp.common.metrics.MetricFamily;
+import org.waarp.common.metrics.MetricsRegistry;
+import org.waarp.openr66.context.ErrorCode;
+import org.waarp.openr66.database.data.DbTaskRunner;
+
+/**
+ * Metrics of the R66 transfer lifecycle and of the DAO layer
+ * <p>
+ * All of them are registered in the {@link MetricsRegistry} of the JVM and
+ * only updated when metrics are enabled. Rule and partner labels are bounded
+ * by the registry.
+ */
+public final class R66Metrics {
+  /**
+   * Time spent in the pre, post and error tasks, by step and rule
+   */
+  public static final MetricFamily<Histogram> TASK_STEP =
+      MetricsRegistry.getInstance().histogram(
+          "r66_task_step_seconds",
+          "Time spent running the tasks of a transfer step",
+          "step", "rule");
+  /**
+   * Time spent reading and sending the file of a transfer, by rule
+   */
+  public static final MetricFamily<Histogram> FILE_RETRIEVE =
+      MetricsRegistry.getInstance().histogram(
+          "r66_file_retrieve_seconds",
+          "Time spent reading and sending the file of a transfer",
+          "rule");
+  /**
+   * Time spent computing the digests of the sent blocks, by algorithm
+   */
+  public static final MetricFamily<Histogram> DIGEST =
+      MetricsRegistry.getInstance().histogram(
+          "r66_digest_seconds",
+          "Time spent computing the digests of the sent blocks",
+          "algorithm");
+  /**
+   * Time spent in the transfer DAO, by operation
+   */
+  public static final MetricFamily<Histogram> DAO =
+      MetricsRegistry.getInstance().histogram(
+          "r66_dao_seconds",
+          "Time spent in the transfer DAO",
+          "operation");
+  /**
+   * Finished transfers, by rule, partner and status
+   */
+  public static final MetricFamily<Counter> TRANSFERS =
+      MetricsRegistry.getInstance().counter(
+          "r66_transfers_total",
+          "Finished transfers",
+          "rule", "partner", "status");
+  /**
+   * Duration of successful transfers, by rule and partner
+   */
+  public static final MetricFamily<Histogram> TRANSFER_TIME =
+      MetricsRegistry.getInstance().histogram(
+          "r66_transfer_seconds",
+          "Duration of successful transfers",
+          "rule", "partner");
+
+  private R66Metrics() {
+  }
+
+  /**
+   * Count one finished transfer
+   *
+   * @param runner
+   * @param status the final status of the transfer, null if unknown
+   */
+  public static void transferEnded(final DbTaskRunner runner,
+                                   final ErrorCode status) {
+    if (!MetricsRegistry.isEnabled()) {
+      return;
+    }
+    final String partner =
+        runner.isSelfRequested()? runner.getRequester() :
+            runner.getRequested();
+    TRANSFERS.labels(runner.getRuleId(), partner,
+                     status == null? ErrorCode.Unknown.name() : status.name())
+             .inc();
+    if (status == ErrorCode.CompleteOk && runner.getStart() != null) {
+      TRANSFER_TIME.labels(runner.getRuleId(), partner).record(
+          (System.currentTimeMillis() - runner.getStart().getTime()) *
+          1000000L);
+    }
+  }
+}
@@ -44,7 +44,11 @@ public enum R66Versions {
   /**
    * Add support for FileInformation change
    */
-  V3_0_4;
+  V3_0_4,
+  /**
+   * Add indexed FollowId column to TaskRunner table and CacheVersion table
+   */
+  V3_5_2;
 
   public String getVersion() {
     return name().substring(1).replace('_', '.');
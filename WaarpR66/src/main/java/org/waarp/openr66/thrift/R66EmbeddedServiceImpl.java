@@ -65,6 +65,29 @@ public class R66EmbeddedServiceImpl implements R66Service.Iface {
   private static final WaarpLogger logger =
       WaarpLoggerFactory.getLogger(R66EmbeddedServiceImpl.class);
 
+  /**
+   * Maximum time in ms to wait for synchronous transfers (0 for no limit)
+   */
+  private final long maxSyncWait;
+
+  public R66EmbeddedServiceImpl() {
+    this(0);
+  }
+
+  /**
+   * @param maxSyncWait the maximum time in ms to wait for synchronous
+   *     transfers, their current status being answered beyond it (0 for
+   *     no limit)
+   */
+  public R66EmbeddedServiceImpl(final long maxSyncWait) {
+    this.maxSyncWait = Math.max(0, maxSyncWait);
+  }
+
+  private long getSyncDeadline() {
+    return maxSyncWait > 0? System.currentTimeMillis() + maxSyncWait :
+        Long.MAX_VALUE;
+  }
+
   private DbTaskRunner initRequest(final R66Request request) {
     Timestamp ttimestart = null;
     if (request.isSetStart()) {
@@ -135,56 +158,88 @@ public class R66EmbeddedServiceImpl implements R66Service.Iface {
   public R66Result transferRequestQuery(final R66Request request)
       throws TException {
     final DbTaskRunner runner = initRequest(request);
-    if (runner != null) {
-      runner.changeUpdatedInfo(AbstractDbData.UpdatedInfo.TOSUBMIT);
-      final boolean isSender = runner.isSender();
-      if (!runner.forceSaveStatus()) {
-        logger.warn("Cannot prepare task");
-        return new R66Result(request.getMode(), ErrorCode.CommandNotFound,
-                             "ERROR: Cannot prepare transfer");
-      }
-      final R66Result result =
-          new R66Result(request.getMode(), ErrorCode.InitOk,
-                        "Transfer Scheduled");
-      if (request.getMode() == RequestMode.SYNCTRANSFER) {
-        // now need to wait but first, reload the runner
-        try {
-          runner.select();
-          while (!runner.isFinished()) {
-            try {
-              Thread.sleep(1000);
-              runner.select();
-            } catch (final InterruptedException e) {//NOSONAR
-              SysErrLogger.FAKE_LOGGER.ignoreLog(e);
-              break;
-            }
+    if (runner == null) {
+      logger.warn("ERROR: Transfer NOT scheduled");
+      return new R66Result(request.getMode(), ErrorCode.Internal,
+                           "ERROR: Transfer NOT scheduled");
+    }
+    final boolean isSender = runner.isSender();
+    final R66Result result = scheduleTransfer(request, runner);
+    if (result.getCode() != ErrorCode.InitOk) {
+      return result;
+    }
+    if (request.getMode() == RequestMode.SYNCTRANSFER) {
+      // now need to wait but first, reload the runner
+      final long deadline = getSyncDeadline();
+      try {
+        runner.select();
+        while (!runner.isFinished()) {
+          if (System.currentTimeMillis() >= deadline) {
+            runner.setSender(isSender);
+            setStillRunningResult(runner, result);
+            return result;
+          }
+          try {
+            Thread.sleep(1000);
+            runner.select();
+          } catch (final InterruptedException e) {//NOSONAR
+            SysErrLogger.FAKE_LOGGER.ignoreLog(e);
+            break;
           }
-          runner.setSender(isSender);
-        } catch (final WaarpDatabaseException ignored) {
-          // nothing
-        }
-        setResultFromRunner(runner, result);
-        if (runner.isAllDone()) {
-          result.setCode(ErrorCode.CompleteOk);
-          result.setResultinfo("Transfer Done");
-        } else {
-          result.setCode(ErrorCode.valueOf(runner.getErrorInfo().name()));
-          result.setResultinfo(runner.getErrorInfo().getMesg());
-        }
-      } else {
-        try {
-          runner.select();
-        } catch (final WaarpDatabaseException ignored) {
-          // nothing
         }
-        runner.setSender(isSender);
-        setResultFromRunner(runner, result);
+      } catch (final WaarpDatabaseException ignored) {
+        // nothing
       }
-      return result;
+      runner.setSender(isSender);
+      setFinalResult(runner, result);
     } else {
-      logger.warn("ERROR: Transfer NOT scheduled");
-      return new R66Result(request.getMode(), ErrorCode.Internal,
-                           "ERROR: Transfer NOT scheduled");
+      try {
+        runner.select();
+      } catch (final WaarpDatabaseException ignored) {
+        // nothing
+      }
+      runner.setSender(isSender);
+      setResultFromRunner(runner, result);
+    }
+    return result;
+  }
+
+  /**
+   * Save the runner so that it is submitted by the Commander
+   *
+   * @param request
+   * @param runner
+   *
+   * @return the result, with InitOk as code if the transfer is scheduled
+   */
+  private R66Result scheduleTransfer(final R66Request request,
+                                     final DbTaskRunner runner) {
+    runner.changeUpdatedInfo(AbstractDbData.UpdatedInfo.TOSUBMIT);
+    if (!runner.forceSaveStatus()) {
+      logger.warn("Cannot prepare task");
+      return new R66Result(request.getMode(), ErrorCode.CommandNotFound,
+                           "ERROR: Cannot prepare transfer");
+    }
+    return new R66Result(request.getMode(), ErrorCode.InitOk,
+                         "Transfer Scheduled");
+  }
+
+  private void setStillRunningResult(final DbTaskRunner runner,
+                                     final R66Result result) {
+    setResultFromRunner(runner, result);
+    result.setCode(ErrorCode.Running);
+    result.setResultinfo("Transfer still running");
+  }
+
+  private void setFinalResult(final DbTaskRunner runner,
+                              final R66Result result) {
+    setResultFromRunner(runner, result);
+    if (runner.isAllDone()) {
+      result.setCode(ErrorCode.CompleteOk);
+      result.setResultinfo("Transfer Done");
+    } else {
+      result.setCode(ErrorCode.valueOf(runner.getErrorInfo().name()));
+      result.setResultinfo(runner.getErrorInfo().getMesg());
     }
   }
 
@@ -469,4 +524,124 @@ public class R66EmbeddedServiceImpl implements R66Service.Iface {
     }
   }
 
+  /**
+   * All transfers are scheduled first, then the synchronous ones are waited
+   * for together, so that the whole batch lasts as long as its longest
+   * transfer, not as the sum of them. Batches larger than the configured
+   * maximum are rejected as a whole, and synchronous transfers not finished
+   * after the maximum wait are answered with their current status.
+   */
+  @Override
+  public List<R66Result> batchQuery(final List<R66Request> requests)
+      throws TException {
+    final int size = requests.size();
+    final List<R66Result> results = new ArrayList<R66Result>(size);
+    final int max = Configuration.configuration.getThriftBatchMax();
+    if (size > max) {
+      logger.warn("Batch of " + size + " requests rejected (max " + max + ')');
+      for (final R66Request request : requests) {
+        results.add(new R66Result(request.getMode(), ErrorCode.Internal,
+                                  "ERROR: Batch too large, max " + max));
+      }
+      return results;
+    }
+    final DbTaskRunner[] runners = new DbTaskRunner[size];
+    final boolean[] senders = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      final R66Request request = requests.get(i);
+      final RequestMode mode = request.getMode();
+      if (mode == RequestMode.SYNCTRANSFER ||
+          mode == RequestMode.ASYNCTRANSFER) {
+        final DbTaskRunner runner = initRequest(request);
+        if (runner == null) {
+          logger.warn("ERROR: Transfer NOT scheduled");
+          results.add(new R66Result(mode, ErrorCode.Internal,
+                                    "ERROR: Transfer NOT scheduled"));
+          continue;
+        }
+        senders[i] = runner.isSender();
+        final R66Result result = scheduleTransfer(request, runner);
+        if (result.getCode() == ErrorCode.InitOk) {
+          runners[i] = runner;
+        }
+        results.add(result);
+      } else if (mode == RequestMode.INFOREQUEST) {
+        results.add(infoTransferQuery(request));
+      } else {
+        logger.warn("Mode is uncompatible with batchQuery");
+        results.add(new R66Result(mode, ErrorCode.Unimplemented,
+                                  "Mode is uncompatible with batchQuery"));
+      }
+    }
+    // Asynchronous ones are answered at once
+    int waiting = 0;
+    for (int i = 0; i < size; i++) {
+      final DbTaskRunner runner = runners[i];
+      if (runner == null) {
+        continue;
+      }
+      try {
+        runner.select();
+      } catch (final WaarpDatabaseException ignored) {
+        // nothing
+      }
+      runner.setSender(senders[i]);
+      if (requests.get(i).getMode() == RequestMode.SYNCTRANSFER) {
+        waiting++;
+      } else {
+        setResultFromRunner(runner, results.get(i));
+        runners[i] = null;
+      }
+    }
+    // Synchronous ones are polled together until all are finished
+    final long deadline = getSyncDeadline();
+    boolean interrupted = false;
+    while (waiting > 0) {
+      final boolean expired = System.currentTimeMillis() >= deadline;
+      for (int i = 0; i < size; i++) {
+        final DbTaskRunner runner = runners[i];
+        if (runner == null) {
+          continue;
+        }
+        if (runner.isFinished() || interrupted) {
+          runner.setSender(senders[i]);
+          setFinalResult(runner, results.get(i));
+          runners[i] = null;
+          waiting--;
+        } else if (expired) {
+          runner.setSender(senders[i]);
+          setStillRunningResult(runner, results.get(i));
+          runners[i] = null;
+          waiting--;
+        }
+      }
+      if (waiting == 0) {
+        break;
+      }
+      try {
+        Thread.sleep(1000);
+      } catch (final InterruptedException e) {//NOSONAR
+        SysErrLogger.FAKE_LOGGER.ignoreLog(e);
+        interrupted = true;
+        continue;
+      }
+      for (int i = 0; i < size; i++) {
+        final DbTaskRunner runner = runners[i];
+        if (runner == null) {
+          continue;
+        }
+        try {
+          runner.select();
+        } catch (final WaarpDatabaseException ignored) {
+          // cannot follow it anymore: answer with its last known status
+          runner.setSender(senders[i]);
+          setFinalResult(runner, results.get(i));
+          runners[i] = null;
+          waiting--;
+        }
+      }
+    }
+    return results;
+  }
+
 }
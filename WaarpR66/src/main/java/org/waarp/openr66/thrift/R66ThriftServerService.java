@@ -21,20 +21,34 @@ package org.waarp.openr66.thrift;
 
 import org.apache.thrift.server.TServer;
 import org.apache.thrift.server.TThreadPoolServer;
+import org.apache.thrift.server.TThreadedSelectorServer;
+import org.apache.thrift.transport.TNonblockingServerSocket;
 import org.apache.thrift.transport.TServerSocket;
 import org.apache.thrift.transport.TServerTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.waarp.common.future.WaarpFuture;
 import org.waarp.common.logging.WaarpLogger;
 import org.waarp.common.logging.WaarpLoggerFactory;
+import org.waarp.common.utility.WaarpThreadFactory;
+import org.waarp.openr66.protocol.configuration.Configuration;
 import org.waarp.thrift.r66.R66Service;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main Thrift server service
+ * <p>
+ * By default, each connected client holds one thread. If a number of workers
+ * is given, connections are handled by selector threads and requests are
+ * executed by a bounded pool of workers, so that idle clients cost no
+ * thread; clients must then use a framed transport. When the pool and its
+ * queue are full, the connection of the new request is closed. Workers then
+ * wait for synchronous transfers at most the configured Thrift sync wait.
  */
 public class R66ThriftServerService implements Runnable {
   /**
@@ -47,11 +61,29 @@ public class R66ThriftServerService implements Runnable {
   protected TServerTransport serverTransport;
   protected TServer server;
   protected final WaarpFuture serviceReady;
+  protected final int workers;
+
+  /**
+   * Number of requests waiting for a worker, per worker
+   */
+  private static final int QUEUE_PER_WORKER = 64;
 
   public R66ThriftServerService(final WaarpFuture serviceReady,
                                 final int port) {
+    this(serviceReady, port, 0);
+  }
+
+  /**
+   * @param serviceReady
+   * @param port
+   * @param workers the number of worker threads of the non blocking
+   *     server, 0 meaning one thread per connected client
+   */
+  public R66ThriftServerService(final WaarpFuture serviceReady,
+                                final int port, final int workers) {
     this.serviceReady = serviceReady;
     this.port = port;
+    this.workers = Math.max(0, workers);
   }
 
   public boolean awaitInitialization() {
@@ -81,12 +113,28 @@ public class R66ThriftServerService implements Runnable {
         }
       }
       final InetSocketAddress address = new InetSocketAddress(addr, port);
-      serverTransport = new TServerSocket(address);
       final R66Service.Processor<R66EmbeddedServiceImpl> processor =
           new R66Service.Processor<R66EmbeddedServiceImpl>(
-              new R66EmbeddedServiceImpl());
-      server = new TThreadPoolServer(
-          new TThreadPoolServer.Args(serverTransport).processor(processor));
+              new R66EmbeddedServiceImpl(workers > 0?
+                                             Configuration.configuration
+                                                 .getThriftSyncWait() : 0));
+      if (workers > 0) {
+        final TNonblockingServerSocket nonblockingServerSocket =
+            new TNonblockingServerSocket(address);
+        serverTransport = nonblockingServerSocket;
+        final ThreadPoolExecutor executor =
+            new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                                   new ArrayBlockingQueue<Runnable>(
+                                       workers * QUEUE_PER_WORKER),
+                                   new WaarpThreadFactory("R66ThriftWorker"));
+        server = new TThreadedSelectorServer(
+            new TThreadedSelectorServer.Args(nonblockingServerSocket)
+                .executorService(executor).processor(processor));
+      } else {
+        serverTransport = new TServerSocket(address);
+        server = new TThreadPoolServer(
+            new TThreadPoolServer.Args(serverTransport).processor(processor));
+      }
       serviceReady.setSuccess();
       server.serve();
     } catch (final TTransportException e) {
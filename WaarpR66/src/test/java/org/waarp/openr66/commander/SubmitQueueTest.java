@@ -0,0 +1,108 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.commander;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.utility.TestWatcherJunit4;
+
+import static org.junit.Assert.*;
+
+public class SubmitQueueTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  @Test
+  public void testBound() {
+    final SubmitQueue<String> queue = new SubmitQueue<String>(2);
+    assertEquals(2, queue.getCapacity());
+    assertTrue(queue.offer("a", "A", 0, 10));
+    assertTrue(queue.offer("b", "B", 0, 20));
+    // Full: refused, left to the Commander
+    assertFalse(queue.offer("c", "C", 0, 30));
+    assertEquals(2, queue.size());
+    // Already queued: replaced, keeping its first submission time
+    assertTrue(queue.offer("a", "A2", 0, 40));
+    assertEquals(2, queue.size());
+
+    final SubmitQueue.Entry<String> first = queue.pollDue(50);
+    assertEquals("a", first.getKey());
+    assertEquals("A2", first.getElement());
+    assertEquals(10, first.getEnqueued());
+    assertTrue(queue.offer("c", "C", 0, 60));
+    // Not launched: put back first, even if the queue is full
+    queue.requeue(first);
+    assertEquals(3, queue.size());
+    assertFalse(queue.offer("d", "D", 0, 70));
+    assertEquals("a", queue.pollDue(80).getKey());
+    assertEquals("b", queue.pollDue(80).getKey());
+    assertEquals("c", queue.pollDue(80).getKey());
+    assertNull(queue.pollDue(80));
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void testStartTime() {
+    final SubmitQueue<String> queue = new SubmitQueue<String>(10);
+    assertTrue(queue.offer("later", "L", 1000, 0));
+    assertTrue(queue.offer("now", "N", 0, 0));
+    // Only transfers whose start time is reached are taken
+    assertEquals("now", queue.pollDue(500).getKey());
+    assertNull(queue.pollDue(500));
+    assertEquals(1, queue.size());
+    assertEquals("later", queue.remove("later").getKey());
+    assertNull(queue.remove("later"));
+    assertTrue(queue.isEmpty());
+  }
+
+  @Test
+  public void testParkUntilRelease() {
+    final SubmitQueue<String> queue = new SubmitQueue<String>(1);
+    assertTrue(queue.offer("a", "A", 0, 10));
+    final SubmitQueue.Entry<String> entry = queue.pollDue(20);
+    // Still handled by its previous runner thread
+    queue.park(entry);
+    assertNull(queue.pollDue(30));
+    assertTrue(queue.isEmpty());
+    assertEquals(1, queue.parkedSize());
+    // Parked transfers do not use the bound
+    assertTrue(queue.offer("b", "B", 0, 40));
+    // A newer submission of a parked transfer stays parked
+    assertTrue(queue.offer("a", "A2", 0, 50));
+    assertEquals(1, queue.size());
+
+    // Released: back first
+    assertTrue(queue.unpark("a"));
+    assertFalse(queue.unpark("a"));
+    assertEquals(0, queue.parkedSize());
+    final SubmitQueue.Entry<String> retry = queue.pollDue(60);
+    assertEquals("a", retry.getKey());
+    assertEquals("A2", retry.getElement());
+    assertEquals(10, retry.getEnqueued());
+    assertEquals("b", queue.pollDue(60).getKey());
+
+    // Launched by the Commander meanwhile
+    queue.park(retry);
+    assertSame(retry, queue.remove("a"));
+    assertFalse(queue.unpark("a"));
+    assertTrue(queue.isEmpty());
+  }
+}
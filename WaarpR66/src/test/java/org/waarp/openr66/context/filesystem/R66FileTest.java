@@ -0,0 +1,161 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.context.filesystem;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.exception.FileTransferException;
+import org.waarp.common.file.FileUtils;
+import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.openr66.context.R66Session;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class R66FileTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private static final int BLOCK = 1024;
+
+  private File file;
+  private R66Session session;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("R66FileTest", ".bin");
+    session = new R66Session();
+  }
+
+  @After
+  public void tearDown() {
+    session.clear();
+    if (!file.delete()) {
+      file.deleteOnExit();
+    }
+  }
+
+  private static byte[] content(final int size) {
+    final byte[] bytes = new byte[size];
+    for (int i = 0; i < size; i++) {
+      bytes[i] = (byte) (i * 31 + i / 251);
+    }
+    return bytes;
+  }
+
+  private static ByteBuf direct(final byte[] bytes, final int offset,
+                                final int length) {
+    final ByteBuf buffer = Unpooled.directBuffer(length);
+    buffer.writeBytes(bytes, offset, length);
+    return buffer;
+  }
+
+  private byte[] readFile() throws IOException {
+    final byte[] read = new byte[(int) file.length()];
+    final FileInputStream inputStream = new FileInputStream(file);
+    try {
+      int pos = 0;
+      while (pos < read.length) {
+        final int nb = inputStream.read(read, pos, read.length - pos);
+        if (nb < 0) {
+          break;
+        }
+        pos += nb;
+      }
+    } finally {
+      FileUtils.close(inputStream);
+    }
+    return read;
+  }
+
+  /**
+   * Write and release the buffer, checking the position and the reader
+   * index
+   */
+  private static void write(final R66File r66File, final ByteBuf buffer)
+      throws FileTransferException {
+    final long position = r66File.getPosition();
+    final int readerIndex = buffer.readerIndex();
+    final int length = buffer.readableBytes();
+    try {
+      r66File.writeByteBuf(buffer);
+      assertEquals(position + length, r66File.getPosition());
+      assertEquals(readerIndex, buffer.readerIndex());
+      assertEquals(length, buffer.readableBytes());
+    } finally {
+      buffer.release();
+    }
+  }
+
+  @Test
+  public void testWriteDirectByteBuf() throws Exception {
+    final byte[] bytes = content(BLOCK * 3 + 123);
+    final R66File r66File =
+        new R66File(session, session.getDir(), file.getAbsolutePath());
+    assertEquals(0, r66File.getPosition());
+    // Plain direct buffer
+    write(r66File, direct(bytes, 0, BLOCK));
+    // Direct buffer with a non zero reader index
+    final ByteBuf offset = Unpooled.directBuffer(BLOCK + 10);
+    offset.writeBytes(new byte[10]);
+    offset.writeBytes(bytes, BLOCK, BLOCK);
+    offset.readerIndex(10);
+    write(r66File, offset);
+    // Composite of direct buffers (gathering write)
+    final CompositeByteBuf composite = Unpooled.compositeBuffer();
+    composite.addComponent(true, direct(bytes, BLOCK * 2, 100));
+    composite.addComponent(true, direct(bytes, BLOCK * 2 + 100, BLOCK - 100));
+    write(r66File, composite);
+    // Empty buffer is a no-op
+    write(r66File, Unpooled.directBuffer(0));
+    write(r66File, direct(bytes, BLOCK * 3, 123));
+    r66File.closeFile();
+    assertEquals(bytes.length, file.length());
+    assertArrayEquals(bytes, readFile());
+  }
+
+  @Test
+  public void testWriteDirectByteBufRestart() throws Exception {
+    final byte[] bytes = content(BLOCK * 2);
+    R66File r66File =
+        new R66File(session, session.getDir(), file.getAbsolutePath());
+    write(r66File, direct(bytes, 0, BLOCK));
+    // Extra bytes beyond the restart position must be dropped
+    write(r66File, direct(new byte[BLOCK], 0, 100));
+    r66File.closeFile();
+    assertEquals(BLOCK + 100, file.length());
+
+    r66File = new R66File(session, session.getDir(), file.getAbsolutePath());
+    r66File.setPosition(BLOCK);
+    write(r66File, direct(bytes, BLOCK, BLOCK));
+    r66File.closeFile();
+    assertEquals(bytes.length, file.length());
+    assertArrayEquals(bytes, readFile());
+  }
+}
@@ -20,6 +20,18 @@
 
 package org.waarp.openr66.dao.database;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.cdap.http.AbstractHttpResponder;
+import io.cdap.http.BodyProducer;
+import io.cdap.http.ChunkResponder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponseStatus;
 import org.junit.After;
 import org.junit.Assume;
 import org.junit.Before;
@@ -45,7 +57,9 @@ import org.waarp.openr66.dao.RuleDAO;
 import org.waarp.openr66.dao.TransferDAO;
 import org.waarp.openr66.dao.exception.DAOConnectionException;
 import org.waarp.openr66.dao.exception.DAONoDataException;
+import org.waarp.openr66.database.DbConstantR66;
 import org.waarp.openr66.database.data.DbHostAuth;
+import org.waarp.openr66.database.data.DbTaskRunner;
 import org.waarp.openr66.pojo.Business;
 import org.waarp.openr66.pojo.Host;
 import org.waarp.openr66.pojo.Limit;
@@ -54,6 +68,7 @@ import org.waarp.openr66.pojo.Rule;
 import org.waarp.openr66.pojo.Transfer;
 import org.waarp.openr66.pojo.UpdatedInfo;
 import org.waarp.openr66.protocol.configuration.Configuration;
+import org.waarp.openr66.protocol.http.restv2.utils.JsonStreamProducer;
 import org.waarp.openr66.protocol.junit.TestAbstract;
 import org.waarp.openr66.protocol.localhandler.packet.AbstractLocalPacket;
 import org.waarp.openr66.protocol.localhandler.packet.JsonCommandPacket;
@@ -63,20 +78,27 @@ import org.waarp.openr66.protocol.utils.ChannelUtils;
 import org.waarp.openr66.protocol.utils.R66Future;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 
@@ -686,6 +708,137 @@ public abstract class DBAllDAOTest extends TestAbstract {
     }
   }
 
+  @Test
+  public void test02_ClusterCacheHost() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final String hostId = Configuration.configuration.getHostId();
+    final int multipleMonitors =
+        Configuration.configuration.getMultipleMonitors();
+    final long cacheCheckDelay =
+        Configuration.configuration.getCacheCheckDelay();
+    Configuration.configuration.setHostId("server1");
+    Configuration.configuration.setMultipleMonitors(2);
+    Configuration.configuration.setCacheCheckDelay(60000);
+    final HostDAO dao = getDaoFactory().getHostDAO();
+    try {
+      assertEquals("127.0.0.3", dao.select("server2").getAddress());
+      // Changed by another server: still cached until version changes
+      con.createStatement().executeUpdate(
+          "UPDATE hosts SET address = 'other' WHERE hostid = 'server2'");
+      assertEquals("127.0.0.3", dao.select("server2").getAddress());
+      con.createStatement().executeUpdate(
+          "INSERT INTO cacheversion (name, versioncount) " +
+          "VALUES ('server1.hosts', 1)");
+      Configuration.configuration.setCacheCheckDelay(1);
+      Thread.sleep(5);
+      assertEquals("other", dao.select("server2").getAddress());
+
+      // Local write increments the cluster-wide version, not the HA counts
+      dao.update(new Host("server2", "address", 666,
+                          "password".getBytes(WaarpStringUtils.UTF8), false,
+                          false));
+      assertEquals(2, getCacheVersion("server1.hosts"));
+      assertEquals(18, getMonitorCount("counthost"));
+      assertEquals("address", dao.select("server2").getAddress());
+    } finally {
+      Configuration.configuration.setHostId(hostId);
+      Configuration.configuration.setMultipleMonitors(multipleMonitors);
+      Configuration.configuration.setCacheCheckDelay(cacheCheckDelay);
+      // Clean the shared cache for next tests
+      dao.deleteAll();
+      dao.close();
+    }
+  }
+
+  @Test
+  public void test02_ClusterCacheMultipleMonitor() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final String hostId = Configuration.configuration.getHostId();
+    final int multipleMonitors =
+        Configuration.configuration.getMultipleMonitors();
+    final long cacheCheckDelay =
+        Configuration.configuration.getCacheCheckDelay();
+    Configuration.configuration.setHostId("server1");
+    Configuration.configuration.setMultipleMonitors(2);
+    Configuration.configuration.setCacheCheckDelay(1);
+    final HostDAO hostDAO = getDaoFactory().getHostDAO();
+    final RuleDAO ruleDAO = getDaoFactory().getRuleDAO();
+    // Another monitor holds the row as the Commander does
+    final Connection commander = getConnection();
+    try {
+      commander.setAutoCommit(false);
+      final ResultSet lock = commander.createStatement().executeQuery(
+          "SELECT counthost, countrule FROM multiplemonitor " +
+          "WHERE hostid = 'server1' FOR UPDATE");
+      assertTrue(lock.next());
+      lock.close();
+      final AtomicReference<Exception> error =
+          new AtomicReference<Exception>();
+      final Thread writer = new Thread() {
+        @Override
+        public void run() {
+          try {
+            final Host host = hostDAO.select("server2");
+            host.setAddress("locked");
+            hostDAO.update(host);
+            final Rule rule = ruleDAO.select("default");
+            ruleDAO.update(rule);
+          } catch (final Exception e) {
+            error.set(e);
+          }
+        }
+      };
+      writer.start();
+      writer.join(10000);
+      assertFalse("Blocked by the multiplemonitor lock", writer.isAlive());
+      assertNull(error.get());
+      commander.commit();
+
+      // HA countdowns untouched, versions incremented
+      assertEquals(18, getMonitorCount("counthost"));
+      assertEquals(1, getCacheVersion("server1.hosts"));
+      assertEquals(1, getCacheVersion("server1.rules"));
+      Thread.sleep(5);
+      assertEquals("locked", hostDAO.select("server2").getAddress());
+    } finally {
+      commander.rollback();
+      commander.close();
+      Configuration.configuration.setHostId(hostId);
+      Configuration.configuration.setMultipleMonitors(multipleMonitors);
+      Configuration.configuration.setCacheCheckDelay(cacheCheckDelay);
+      // Clean the shared caches for next tests
+      hostDAO.deleteAll();
+      hostDAO.close();
+      ruleDAO.deleteAll();
+      ruleDAO.close();
+    }
+  }
+
+  private int getCacheVersion(final String name) throws SQLException {
+    final ResultSet res = con.createStatement().executeQuery(
+        "SELECT versioncount FROM cacheversion WHERE name = '" + name + "'");
+    try {
+      return res.next()? res.getInt("versioncount") : 0;
+    } finally {
+      res.close();
+    }
+  }
+
+  private int getMonitorCount(final String field) throws SQLException {
+    final ResultSet res = con.createStatement().executeQuery(
+        "SELECT " + field + " FROM multiplemonitor WHERE hostid = 'server1'");
+    try {
+      assertTrue(res.next());
+      return res.getInt(field);
+    } finally {
+      res.close();
+    }
+  }
+
   /*********************
    * LIMIT
    *********************/
@@ -1313,6 +1466,80 @@ public abstract class DBAllDAOTest extends TestAbstract {
     assertEquals(3, res2.getInt("blocksz"));
   }
 
+  @Test
+  public void test06_InsertTransferWithIdBlock() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final TransferDAO dao = getDAO(getConnection());
+    final int previous = Configuration.configuration.getTransferIdBlockSize();
+    Configuration.configuration.setTransferIdBlockSize(3);
+    final Set<Long> ids = new HashSet<Long>();
+    try {
+      for (int i = 0; i < 3; i++) {
+        final Transfer transfer =
+            new Transfer("server2", "rule", 1, false, "file" + i, "info", 3);
+        transfer.setRequester("dummy");
+        transfer.setOwnerRequest("dummy");
+        dao.insert(transfer);
+        assertTrue(ids.add(transfer.getId()));
+      }
+    } finally {
+      Configuration.configuration.setTransferIdBlockSize(previous);
+    }
+    final ResultSet res = con.createStatement().executeQuery(
+        "SELECT COUNT(1) as count FROM runner");
+    res.next();
+    assertEquals(7, res.getInt("count"));
+  }
+
+  @Test
+  public void test06_InsertTransferBatch() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final DBTransferDAO dao = (DBTransferDAO) getDAO(getConnection());
+    final List<Transfer> transfers = new ArrayList<Transfer>();
+    for (int i = 0; i < 3; i++) {
+      final Transfer transfer =
+          new Transfer("server2", "rule", 1, false, "file" + i, "info", 3);
+      transfer.setRequester("dummy");
+      transfer.setOwnerRequest("dummy");
+      transfers.add(transfer);
+    }
+    dao.insertBatch(transfers);
+    final Set<Long> ids = new HashSet<Long>();
+    for (final Transfer transfer : transfers) {
+      assertTrue(transfer.getId() != DbConstantR66.ILLEGALVALUE);
+      assertTrue(ids.add(transfer.getId()));
+    }
+    ResultSet res = con.createStatement().executeQuery(
+        "SELECT COUNT(1) as count FROM runner");
+    res.next();
+    assertEquals(7, res.getInt("count"));
+
+    // Either all or none: a duplicate cancels the whole batch
+    final Transfer transfer =
+        new Transfer("server2", "rule", 1, false, "file3", "info", 3);
+    transfer.setRequester("dummy");
+    transfer.setOwnerRequest("dummy");
+    transfers.clear();
+    transfers.add(transfer);
+    transfers.add(dao.select(ids.iterator().next(), "dummy", "server2",
+                             "dummy"));
+    try {
+      dao.insertBatch(transfers);
+      fail("Should raise an exception");
+    } catch (final DAOConnectionException e) {
+      // ok
+    }
+    res = con.createStatement().executeQuery(
+        "SELECT COUNT(1) as count FROM runner");
+    res.next();
+    assertEquals(7, res.getInt("count"));
+    dao.close();
+  }
+
   @Test
   public void test06_UpdateTransfer() throws Exception {
     final TransferDAO dao = getDAO(getConnection());
@@ -1405,7 +1632,361 @@ public abstract class DBAllDAOTest extends TestAbstract {
     map.add(new Filter(DBTransferDAO.OWNER_REQUEST_FIELD, "=", "server1"));
 
     final TransferDAO dao = getDAO(getConnection());
-    assertEquals(3, dao.find(map).size());
+    assertEquals(3, dao.find(map, DBTransferDAO.ID_FIELD, true).size());
+  }
+
+  @Test
+  public void test06_FindTransferLimitOffset() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final ArrayList<Filter> map = new ArrayList<Filter>();
+    map.add(new Filter(DBTransferDAO.ID_RULE_FIELD, "=", "default"));
+    map.add(new Filter(DBTransferDAO.OWNER_REQUEST_FIELD, "=", "server1"));
+
+    final TransferDAO dao = getDAO(getConnection());
+    final List<Transfer> all =
+        dao.find(map, DBTransferDAO.ID_FIELD, true, 10, 0);
+    assertEquals(3, all.size());
+    assertEquals(2, dao.find(map, 2).size());
+    // Same query shape with another limit and offset
+    final List<Transfer> page =
+        dao.find(map, DBTransferDAO.ID_FIELD, true, 2, 1);
+    assertEquals(2, page.size());
+    assertEquals(all.get(1).getId(), page.get(0).getId());
+    assertEquals(all.get(2).getId(), page.get(1).getId());
+    final List<Transfer> desc =
+        dao.find(map, DBTransferDAO.ID_FIELD, false, 1);
+    assertEquals(all.get(2).getId(), desc.get(0).getId());
+    dao.close();
+  }
+
+  @Test
+  public void test06_FindTransferAfter() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final ArrayList<Filter> map = new ArrayList<Filter>();
+    map.add(new Filter(DBTransferDAO.ID_RULE_FIELD, "=", "default"));
+    map.add(new Filter(DBTransferDAO.OWNER_REQUEST_FIELD, "=", "server1"));
+
+    final DBTransferDAO dao = (DBTransferDAO) getDAO(getConnection());
+    final List<Transfer> all =
+        dao.find(map, DBTransferDAO.ID_FIELD, true, 10, 0);
+    assertEquals(3, all.size());
+    List<Transfer> page = dao.findAfter(map, DBTransferDAO.ID_FIELD, true, null,
+                                        all.get(0).getId(), 10);
+    assertEquals(2, page.size());
+    assertEquals(all.get(1).getId(), page.get(0).getId());
+    assertEquals(all.get(2).getId(), page.get(1).getId());
+    page = dao.findAfter(map, DBTransferDAO.ID_FIELD, false, null,
+                         all.get(2).getId(), 1);
+    assertEquals(1, page.size());
+    assertEquals(all.get(1).getId(), page.get(0).getId());
+
+    // By start date, one by one, ties being broken by the Special Id
+    final Set<Long> ids = new HashSet<Long>();
+    page = dao.find(map, DBTransferDAO.TRANSFER_START_FIELD, false, 1);
+    while (!page.isEmpty()) {
+      final Transfer last = page.get(0);
+      assertTrue(ids.add(last.getId()));
+      page = dao.findAfter(map, DBTransferDAO.TRANSFER_START_FIELD, false,
+                           last.getStart(), last.getId(), 1);
+    }
+    assertEquals(3, ids.size());
+    dao.close();
+  }
+
+  @Test
+  public void test06_FindTransferAfterEqualStart() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final DBTransferDAO dao = (DBTransferDAO) getDAO(getConnection());
+    final Timestamp start = new Timestamp(1600000000000L);
+    final List<Transfer> transfers = new ArrayList<Transfer>();
+    for (int i = 0; i < 5; i++) {
+      final Transfer transfer =
+          new Transfer("server2", "tie", 1, false, "file" + i, "info", 3);
+      transfer.setRequester("dummy");
+      transfer.setOwnerRequest("dummy");
+      transfer.setStart(start);
+      transfers.add(transfer);
+    }
+    dao.insertBatch(transfers);
+    final ArrayList<Filter> map = new ArrayList<Filter>();
+    map.add(new Filter(DBTransferDAO.ID_RULE_FIELD, "=", "tie"));
+
+    // Pages of 2 across ties on the start date, in both orders
+    for (final boolean ascend : new boolean[] { true, false }) {
+      final List<Long> ids = new ArrayList<Long>();
+      List<Transfer> page =
+          dao.find(map, DBTransferDAO.TRANSFER_START_FIELD, ascend, 2, 0);
+      while (!page.isEmpty()) {
+        for (final Transfer transfer : page) {
+          ids.add(transfer.getId());
+        }
+        final Transfer last = page.get(page.size() - 1);
+        page = dao.findAfter(map, DBTransferDAO.TRANSFER_START_FIELD, ascend,
+                             last.getStart(), last.getId(), 2);
+      }
+      assertEquals(5, ids.size());
+      assertEquals(5, new HashSet<Long>(ids).size());
+      for (int i = 1; i < ids.size(); i++) {
+        assertEquals(ascend, ids.get(i) > ids.get(i - 1));
+      }
+    }
+    dao.close();
+  }
+
+  @Test
+  public void test06_FindTransferCursor() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final ArrayList<Filter> map = new ArrayList<Filter>();
+    map.add(new Filter(DBTransferDAO.ID_RULE_FIELD, "=", "default"));
+    map.add(new Filter(DBTransferDAO.OWNER_REQUEST_FIELD, "=", "server1"));
+
+    final DBTransferDAO dao = (DBTransferDAO) getDAO(getConnection());
+    final List<Transfer> all =
+        dao.find(map, DBTransferDAO.ID_FIELD, true, 10, 0);
+    assertEquals(3, all.size());
+    DBCursor<Transfer> cursor =
+        dao.findCursor(map, DBTransferDAO.ID_FIELD, true, 10, 0);
+    for (final Transfer transfer : all) {
+      assertEquals(transfer.getId(), cursor.next().getId());
+    }
+    assertNull(cursor.next());
+    assertNull(cursor.next());
+    cursor.close();
+
+    cursor = dao.findAfterCursor(map, DBTransferDAO.ID_FIELD, true, null,
+                                 all.get(0).getId(), 1);
+    assertEquals(all.get(1).getId(), cursor.next().getId());
+    assertNull(cursor.next());
+
+    // Closed before its end, the connection is still usable
+    cursor = dao.findCursor(map, DBTransferDAO.ID_FIELD, true, 0, 0);
+    assertNotNull(cursor.next());
+    cursor.close();
+    cursor.close();
+    assertEquals(3, dao.find(map, DBTransferDAO.ID_FIELD, true).size());
+    dao.close();
+  }
+
+  /**
+   * Responder consuming a streamed response as the network does,
+   * optionally making the channel not writable after some chunks, as a
+   * client which stops reading
+   */
+  private static class StreamResponder extends AbstractHttpResponder {
+    private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+    private final int maxChunks;
+    private int chunks;
+    private boolean closed;
+
+    private StreamResponder(final int maxChunks) {
+      this.maxChunks = maxChunks;
+    }
+
+    @Override
+    public void sendContent(final HttpResponseStatus status,
+                            final BodyProducer bodyProducer,
+                            final HttpHeaders headers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ChunkResponder sendChunkStart(final HttpResponseStatus status,
+                                         final HttpHeaders headers) {
+      return new ChunkResponder() {
+        @Override
+        public void sendChunk(final ByteBuffer chunk) throws IOException {
+          sendChunk(Unpooled.wrappedBuffer(chunk));
+        }
+
+        @Override
+        public void sendChunk(final ByteBuf chunk) throws IOException {
+          assertFalse(closed);
+          assertTrue(channel.isWritable());
+          chunk.readBytes(content, chunk.readableBytes());
+          chunk.release();
+          chunks++;
+          if (chunks >= maxChunks) {
+            channel.unsafe().outboundBuffer()
+                   .setUserDefinedWritability(1, false);
+          }
+        }
+
+        @Override
+        public void flush() {
+          // Nothing
+        }
+
+        @Override
+        public void close() {
+          closed = true;
+        }
+      };
+    }
+
+    @Override
+    public void sendContent(final HttpResponseStatus status,
+                            final ByteBuf content, final HttpHeaders headers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void sendFile(final File file, final HttpHeaders headers) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Producer writing only the Special Id, padded to fill one chunk
+   */
+  private static class IdStreamProducer extends JsonStreamProducer<Transfer> {
+    private final int padding;
+
+    private IdStreamProducer(final DBCursor<Transfer> cursor,
+                             final DBTransferDAO dao, final int padding) {
+      super(cursor, dao);
+      this.padding = padding;
+    }
+
+    @Override
+    protected void writeEntry(final JsonGenerator generator,
+                              final Transfer entry) throws IOException {
+      generator.writeStartObject();
+      generator.writeNumberField("id", entry.getId());
+      final char[] pad = new char[padding];
+      Arrays.fill(pad, ' ');
+      generator.writeStringField("pad", new String(pad));
+      generator.writeEndObject();
+    }
+  }
+
+  @Test
+  public void test06_StreamTransfers() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final ArrayList<Filter> map = new ArrayList<Filter>();
+    map.add(new Filter(DBTransferDAO.ID_RULE_FIELD, "=", "default"));
+    map.add(new Filter(DBTransferDAO.OWNER_REQUEST_FIELD, "=", "server1"));
+    DBTransferDAO dao = (DBTransferDAO) getDAO(getConnection());
+    final List<Transfer> all =
+        dao.find(map, DBTransferDAO.ID_FIELD, true, 10, 0);
+    assertEquals(3, all.size());
+    DBCursor<Transfer> cursor =
+        dao.findCursor(map, DBTransferDAO.ID_FIELD, true, 0, 0);
+    StreamResponder responder = new StreamResponder(Integer.MAX_VALUE);
+    new IdStreamProducer(cursor, dao, 10000)
+        .send(responder, responder.channel, HttpResponseStatus.OK,
+              new DefaultHttpHeaders());
+    assertTrue(responder.closed);
+    assertTrue(responder.chunks > 1);
+    final JsonNode node = new ObjectMapper().readTree(
+        responder.content.toString(WaarpStringUtils.UTF8.name()));
+    assertEquals(3, node.get("totalResults").asInt());
+    for (int i = 0; i < all.size(); i++) {
+      assertEquals(all.get(i).getId(),
+                   node.get("results").get(i).get("id").asLong());
+    }
+    // Cursor and DAO closed once all entries are read
+    assertNull(cursor.next());
+
+    // A client which stops reading aborts the response
+    final long timeout = Configuration.configuration.getTimeoutCon();
+    Configuration.configuration.setTimeoutCon(200);
+    try {
+      final List<Transfer> transfers = new ArrayList<Transfer>();
+      for (int i = 0; i < 10; i++) {
+        final Transfer transfer =
+            new Transfer("server2", "stream", 1, false, "file" + i, "info", 3);
+        transfer.setRequester("dummy");
+        transfer.setOwnerRequest("dummy");
+        transfers.add(transfer);
+      }
+      dao = (DBTransferDAO) getDAO(getConnection());
+      dao.insertBatch(transfers);
+      map.clear();
+      map.add(new Filter(DBTransferDAO.ID_RULE_FIELD, "=", "stream"));
+      cursor = dao.findCursor(map, DBTransferDAO.ID_FIELD, true, 0, 0);
+      responder = new StreamResponder(1);
+      final long start = System.currentTimeMillis();
+      new IdStreamProducer(cursor, dao, 10000)
+          .send(responder, responder.channel, HttpResponseStatus.OK,
+                new DefaultHttpHeaders());
+      assertTrue(System.currentTimeMillis() - start < 10000);
+      assertEquals(1, responder.chunks);
+      // Incomplete response: the channel is closed, not ended
+      assertFalse(responder.closed);
+      assertFalse(responder.channel.isOpen());
+      assertNull(cursor.next());
+    } finally {
+      Configuration.configuration.setTimeoutCon(timeout);
+    }
+  }
+
+  @Test
+  public void test06_FindTransferByFollowId() throws Exception {
+    if (checkXml()) {
+      return;
+    }
+    final TransferDAO dao = getDAO(getConnection());
+    final Transfer transfer =
+        new Transfer("server2", "rule", 1, false, "file", "info", 3);
+    transfer.setRequester("dummy");
+    transfer.setOwnerRequest("dummy");
+    transfer.setTransferInfo("transfer info {\"follow\":\"123456789\"}");
+    dao.insert(transfer);
+    final Transfer transfer2 = dao.select(0L, "server1", "server2", "server1");
+    transfer2.setTransferInfo("{\"follow\":123456789,\"ORIGINALSIZE\":-1}");
+    dao.update(transfer2);
+
+    final ResultSet res = con.createStatement().executeQuery(
+        "SELECT followid FROM runner WHERE idrule = 'rule'");
+    assertTrue(res.next());
+    assertEquals("123456789", res.getString("followid"));
+
+    final ArrayList<Filter> map = new ArrayList<Filter>();
+    map.add(DbTaskRunner.getFollowIdFilter("123456789"));
+    assertEquals(2, dao.find(map).size());
+    map.clear();
+    map.add(DbTaskRunner.getFollowIdFilter("12345678"));
+    assertEquals(0, dao.find(map).size());
+
+    // Too long Follow Id: stored and searched on its start
+    final char[] chars = new char[DbTaskRunner.FOLLOWID_MAX_LENGTH + 45];
+    Arrays.fill(chars, '7');
+    final String longId = new String(chars);
+    final Transfer transfer3 =
+        new Transfer("server2", "longfollow", 1, false, "file", "info", 3);
+    transfer3.setRequester("dummy");
+    transfer3.setOwnerRequest("dummy");
+    transfer3.setTransferInfo("{\"follow\":\"" + longId + "\"}");
+    dao.insert(transfer3);
+    final Transfer transfer4 =
+        new Transfer("server2", "longfollow", 1, false, "file", "info", 3);
+    transfer4.setRequester("dummy");
+    transfer4.setOwnerRequest("dummy");
+    transfer4.setTransferInfo("no follow");
+    dao.insert(transfer4);
+    final ResultSet res2 = con.createStatement().executeQuery(
+        "SELECT followid FROM runner WHERE idrule = 'longfollow' " +
+        "ORDER BY specialid");
+    assertTrue(res2.next());
+    assertEquals(longId.substring(0, DbTaskRunner.FOLLOWID_MAX_LENGTH),
+                 res2.getString("followid"));
+    assertTrue(res2.next());
+    assertNull(res2.getString("followid"));
+    res2.close();
+    map.clear();
+    map.add(DbTaskRunner.getFollowIdFilter(longId));
+    assertEquals(1, dao.find(map).size());
   }
 
   private boolean checkXml() {
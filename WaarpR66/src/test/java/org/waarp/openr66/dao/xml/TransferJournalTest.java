@@ -0,0 +1,248 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.dao.xml;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.file.FileUtils;
+import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.openr66.context.ErrorCode;
+import org.waarp.openr66.dao.TransferDAO;
+import org.waarp.openr66.dao.exception.DAONoDataException;
+import org.waarp.openr66.pojo.Transfer;
+import org.waarp.openr66.pojo.Transfer.TASKSTEP;
+import org.waarp.openr66.pojo.UpdatedInfo;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TransferJournalTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private static final File dir = new File("/tmp/R66/journal");
+
+  @Before
+  public void setUp() {
+    FileUtils.forceDeleteRecursiveDir(dir);
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.forceDeleteRecursiveDir(dir);
+  }
+
+  private static Transfer newTransfer(final long id) {
+    return new Transfer(id, "rule", 1, "file" + id, "original" + id,
+                        "fileinfo", false, 65536, true, "server1", "server1",
+                        "server2", "{\"ORIGINALSIZE\":" + id + '}',
+                        TASKSTEP.TRANSFERTASK, TASKSTEP.PRETASK, 2,
+                        ErrorCode.Running, ErrorCode.InitOk, 3,
+                        new Timestamp(1000), new Timestamp(2000),
+                        UpdatedInfo.RUNNING);
+  }
+
+  private static void assertTransfer(final Transfer expected,
+                                     final Transfer transfer) {
+    assertEquals(expected.getId(), transfer.getId());
+    assertEquals(expected.getRule(), transfer.getRule());
+    assertEquals(expected.getFilename(), transfer.getFilename());
+    assertEquals(expected.getOriginalName(), transfer.getOriginalName());
+    assertEquals(expected.getTransferInfo(), transfer.getTransferInfo());
+    assertEquals(expected.getRequester(), transfer.getRequester());
+    assertEquals(expected.getRequested(), transfer.getRequested());
+    assertEquals(expected.getOwnerRequest(), transfer.getOwnerRequest());
+    assertEquals(expected.getGlobalStep(), transfer.getGlobalStep());
+    assertEquals(expected.getLastGlobalStep(), transfer.getLastGlobalStep());
+    assertEquals(expected.getStep(), transfer.getStep());
+    assertEquals(expected.getStepStatus(), transfer.getStepStatus());
+    assertEquals(expected.getInfoStatus(), transfer.getInfoStatus());
+    assertEquals(expected.getRank(), transfer.getRank());
+    assertEquals(expected.getStart(), transfer.getStart());
+    assertEquals(expected.getStop(), transfer.getStop());
+    assertEquals(expected.getUpdatedInfo(), transfer.getUpdatedInfo());
+  }
+
+  @Test
+  public void testDao() throws Exception {
+    final TransferDAO dao = new JournalTransferDAO(dir, 1024 * 1024);
+    final Transfer transfer = newTransfer(1);
+    dao.insert(transfer);
+    dao.insert(newTransfer(2));
+    assertTrue(dao.exist(1, "server1", "server2", "server1"));
+    assertFalse(dao.exist(3, "server1", "server2", "server1"));
+    assertTransfer(transfer, dao.select(1, "server1", "server2", "server1"));
+    try {
+      dao.insert(newTransfer(1));
+      fail("Should raise an exception");
+    } catch (final Exception e) {
+      // Ignore
+    }
+    transfer.setRank(100);
+    transfer.setUpdatedInfo(UpdatedInfo.DONE);
+    dao.update(transfer);
+    assertTransfer(transfer, dao.select(1, "server1", "server2", "server1"));
+    try {
+      dao.update(newTransfer(3));
+      fail("Should raise an exception");
+    } catch (final DAONoDataException e) {
+      // Ignore
+    }
+    dao.delete(newTransfer(2));
+    assertFalse(dao.exist(2, "server1", "server2", "server1"));
+    assertEquals(1, dao.getAll().size());
+    dao.deleteAll();
+    assertEquals(0, dao.getAll().size());
+    TransferJournal.getInstance(dir, 0).close();
+  }
+
+  @Test
+  public void testRecovery() throws Exception {
+    TransferJournal journal = new TransferJournal(dir, 1024 * 1024);
+    for (int i = 0; i < 100; i++) {
+      journal.insert(newTransfer(i));
+    }
+    final Transfer transfer = newTransfer(10);
+    transfer.setRank(1000);
+    journal.update(transfer);
+    journal.remove(newTransfer(20));
+    journal.close();
+    // Simulate a crash while writing the last record
+    final File segment = dir.listFiles()[0];
+    final RandomAccessFile file = new RandomAccessFile(segment, "rw");
+    final long length = file.length();
+    file.seek(length);
+    file.write(new byte[] { 0, 0, 1, 0, 1, 2, 3 });
+    file.close();
+    journal = new TransferJournal(dir, 1024 * 1024);
+    assertEquals(99, journal.size());
+    assertEquals(length, segment.length());
+    assertTransfer(transfer, journal.get(10, "server1", "server2", "server1"));
+    assertNull(journal.get(20, "server1", "server2", "server1"));
+    // Journal is still usable after recovery
+    journal.insert(newTransfer(20));
+    journal.close();
+    journal = new TransferJournal(dir, 1024 * 1024);
+    assertEquals(100, journal.size());
+    journal.close();
+  }
+
+  @Test
+  public void testCompaction() throws Exception {
+    final int segmentSize = 16 * 1024;
+    TransferJournal journal = new TransferJournal(dir, segmentSize);
+    final Transfer transfer = newTransfer(1);
+    journal.insert(transfer);
+    for (int i = 0; i < 100; i++) {
+      journal.insert(newTransfer(i + 2));
+    }
+    long written = 0;
+    for (int i = 0; i < 10000; i++) {
+      transfer.setRank(i);
+      final long size = journal.getTotalSize();
+      journal.update(transfer);
+      written += Math.max(0, journal.getTotalSize() - size);
+    }
+    journal.awaitCompaction();
+    // Obsolete records are not kept forever: compacted in background
+    assertTrue(written > 20L * segmentSize);
+    assertTrue(journal.getTotalSize() < written / 4);
+    assertEquals(101, journal.size());
+    assertTransfer(transfer, journal.get(1, "server1", "server2", "server1"));
+    // Explicit compaction keeps only the live records
+    journal.compact();
+    assertTrue(journal.getSegments() <= 3);
+    assertTrue(journal.getTotalSize() <= 3L * segmentSize);
+    assertEquals(101, journal.size());
+    journal.close();
+    journal = new TransferJournal(dir, segmentSize);
+    assertEquals(101, journal.size());
+    assertTransfer(transfer, journal.get(1, "server1", "server2", "server1"));
+    assertTransfer(newTransfer(50), journal.get(50, "server1", "server2",
+                                            "server1"));
+    journal.close();
+  }
+
+  @Test
+  public void testCompactionWithConcurrentWrites() throws Exception {
+    final int segmentSize = 16 * 1024;
+    TransferJournal journal = new TransferJournal(dir, segmentSize);
+    for (int i = 0; i < 200; i++) {
+      journal.insert(newTransfer(i));
+    }
+    final Transfer transfer = newTransfer(1);
+    for (int i = 0; i < 2000; i++) {
+      transfer.setRank(i);
+      journal.update(transfer);
+    }
+    journal.awaitCompaction();
+    final TransferJournal shared = journal;
+    final AtomicReference<Exception> error = new AtomicReference<Exception>();
+    final Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 0; i < 2000; i++) {
+            final Transfer updated = newTransfer(i % 100);
+            updated.setRank(10000 + i);
+            shared.update(updated);
+            if (i == 1000) {
+              shared.remove(newTransfer(150));
+            }
+          }
+        } catch (final Exception e) {
+          error.set(e);
+        }
+      }
+    });
+    writer.start();
+    // Compactions while the writer updates and removes transfers
+    while (writer.isAlive()) {
+      journal.compact();
+    }
+    writer.join();
+    assertNull(error.get());
+    journal.awaitCompaction();
+    journal.compact();
+    // Last updates are kept, removed transfer does not come back
+    assertEquals(199, journal.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(10000 + 1900 + i,
+                   journal.get(i, "server1", "server2", "server1").getRank());
+    }
+    assertNull(journal.get(150, "server1", "server2", "server1"));
+    assertTransfer(newTransfer(199),
+                   journal.get(199, "server1", "server2", "server1"));
+    journal.close();
+    journal = new TransferJournal(dir, segmentSize);
+    assertEquals(199, journal.size());
+    assertEquals(10000 + 1999,
+                 journal.get(99, "server1", "server2", "server1").getRank());
+    assertNull(journal.get(150, "server1", "server2", "server1"));
+    journal.close();
+  }
+}
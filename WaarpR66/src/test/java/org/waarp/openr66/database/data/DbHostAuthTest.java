@@ -22,11 +22,20 @@ package org.waarp.openr66.database.data;
 
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.buffer.ByteBuf;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestWatcher;
+import org.waarp.common.crypto.Des;
+import org.waarp.common.digest.FilesystemBasedDigest;
 import org.waarp.common.json.JsonHandler;
 import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.common.utility.WaarpStringUtils;
+import org.waarp.openr66.protocol.configuration.Configuration;
+import org.waarp.openr66.protocol.localhandler.packet.AuthentPacket;
+import org.waarp.openr66.protocol.localhandler.packet.LocalPacketCodec;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -53,4 +62,118 @@ public class DbHostAuthTest {
 
     assertEquals(expected, got);
   }
+
+  private static byte[] digest(final String key) {
+    return FilesystemBasedDigest.passwdCrypt(
+        key.getBytes(WaarpStringUtils.UTF8));
+  }
+
+  @Test
+  public void testHostkeyCache() throws Exception {
+    final Des previous = Configuration.configuration.getCryptoKey();
+    final Des des = new Des();
+    des.generateKey();
+    Configuration.configuration.setCryptoKey(des);
+    try {
+      final byte[] key = "hostkey".getBytes(WaarpStringUtils.UTF8);
+      final DbHostAuth host =
+          new DbHostAuth("hostcache", "127.0.0.1", 6666, false, key, false,
+                         false);
+      assertTrue(host.isKeyValid(digest("hostkey")));
+      assertFalse(host.isKeyValid(digest("other")));
+      assertArrayEquals(key, host.getHostkey());
+      // Returned key cannot change the cached one
+      host.getHostkey()[0] = 'X';
+      assertArrayEquals(key, host.getHostkey());
+      // Same host with a new key: cache is not used
+      final byte[] newKey = "newkey".getBytes(WaarpStringUtils.UTF8);
+      final DbHostAuth changed =
+          new DbHostAuth("hostcache", "127.0.0.1", 6666, false, newKey, false,
+                         false);
+      assertFalse(changed.isKeyValid(digest("hostkey")));
+      assertTrue(changed.isKeyValid(digest("newkey")));
+      // New crypto key: cache is not used
+      final Des des2 = new Des();
+      des2.generateKey();
+      Configuration.configuration.setCryptoKey(des2);
+      final DbHostAuth other =
+          new DbHostAuth("hostcache", "127.0.0.1", 6666, false, key, false,
+                         false);
+      assertTrue(other.isKeyValid(digest("hostkey")));
+    } finally {
+      DbHostAuth.clearHostkeyCache();
+      Configuration.configuration.setCryptoKey(previous);
+    }
+  }
+
+  /**
+   * Des counting the decryptions
+   */
+  private static class CountingDes extends Des {
+    private final AtomicInteger decryptions = new AtomicInteger();
+
+    @Override
+    public byte[] decryptHexInBytes(final byte[] ciphertext)
+        throws Exception {
+      decryptions.incrementAndGet();
+      return super.decryptHexInBytes(ciphertext);
+    }
+  }
+
+  private static boolean authenticate(final DbHostAuth host,
+                                      final byte[] digest, final int id)
+      throws Exception {
+    final AuthentPacket sent = new AuthentPacket(host.getHostid(), digest, id);
+    final ByteBuf buf = sent.getLocalPacket(null);
+    final AuthentPacket received =
+        (AuthentPacket) LocalPacketCodec.decodeNetworkPacket(buf);
+    buf.release();
+    try {
+      return host.isKeyValid(received.getKey());
+    } finally {
+      sent.clear();
+      received.clear();
+    }
+  }
+
+  @Test
+  public void testAuthentCache() throws Exception {
+    final Des previous = Configuration.configuration.getCryptoKey();
+    final CountingDes des = new CountingDes();
+    des.generateKey();
+    Configuration.configuration.setCryptoKey(des);
+    DbHostAuth.clearHostkeyCache();
+    try {
+      final byte[] key = "hostkey".getBytes(WaarpStringUtils.UTF8);
+      final DbHostAuth host =
+          new DbHostAuth("hostauthent", "127.0.0.1", 6666, false, key, false,
+                         false);
+      final byte[] digest = digest("hostkey");
+      // Only the first authentication decrypts the host key
+      for (int i = 0; i < 100; i++) {
+        assertTrue(authenticate(host, digest, i));
+      }
+      assertEquals(1, des.decryptions.get());
+      assertFalse(authenticate(host, digest("other"), 100));
+      assertEquals(1, des.decryptions.get());
+      DbHostAuth.clearHostkeyCache();
+      assertTrue(authenticate(host, digest, 101));
+      assertEquals(2, des.decryptions.get());
+
+      // Key changed: cached key is not used anymore
+      final DbHostAuth changed =
+          new DbHostAuth("hostauthent", "127.0.0.1", 6666, false,
+                         "newkey".getBytes(WaarpStringUtils.UTF8), false,
+                         false);
+      assertFalse(authenticate(changed, digest, 102));
+      assertEquals(3, des.decryptions.get());
+      for (int i = 0; i < 10; i++) {
+        assertTrue(authenticate(changed, digest("newkey"), 103 + i));
+      }
+      assertEquals(3, des.decryptions.get());
+    } finally {
+      DbHostAuth.clearHostkeyCache();
+      Configuration.configuration.setCryptoKey(previous);
+    }
+  }
 }
@@ -0,0 +1,289 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.waarp.openr66.database.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.openr66.context.ErrorCode;
+import org.waarp.openr66.dao.TransferDAO;
+import org.waarp.openr66.dao.database.h2.H2TransferDAO;
+import org.waarp.openr66.dao.exception.DAOConnectionException;
+import org.waarp.openr66.dao.exception.DAONoDataException;
+import org.waarp.openr66.pojo.Transfer;
+import org.waarp.openr66.pojo.UpdatedInfo;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class RunnerStateJournalTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  /**
+   * Records the writes instead of doing them
+   */
+  private static class RecordingDAO extends H2TransferDAO {
+    private final List<Transfer> written = new ArrayList<Transfer>();
+    private final List<Boolean> batches = new ArrayList<Boolean>();
+    private final Set<Long> failing = new HashSet<Long>();
+    private final Set<Long> missing = new HashSet<Long>();
+    private boolean batchError;
+    private boolean connectionError;
+    /**
+     * If set, the next batch waits for release then fails
+     */
+    private CountDownLatch batchStarted;
+    private CountDownLatch batchRelease;
+
+    private RecordingDAO() throws DAOConnectionException {
+      super(null);
+    }
+
+    @Override
+    public void updateBatch(final List<Transfer> transfers,
+                            final boolean rankOnly)
+        throws DAOConnectionException, DAONoDataException {
+      if (batchRelease != null) {
+        final CountDownLatch release = batchRelease;
+        batchRelease = null;
+        batchStarted.countDown();
+        try {
+          release.await();
+        } catch (final InterruptedException e) {//NOSONAR
+          // ignore
+        }
+        throw new DAOConnectionException("connection lost");
+      }
+      if (connectionError) {
+        throw new DAOConnectionException("connection lost");
+      }
+      if (batchError) {
+        throw new DAONoDataException("batch failed");
+      }
+      batches.add(rankOnly);
+      written.addAll(transfers);
+    }
+
+    @Override
+    public void update(final Transfer transfer)
+        throws DAOConnectionException, DAONoDataException {
+      write(transfer);
+    }
+
+    @Override
+    public void updateRank(final Transfer transfer)
+        throws DAOConnectionException, DAONoDataException {
+      write(transfer);
+    }
+
+    private void write(final Transfer transfer)
+        throws DAOConnectionException, DAONoDataException {
+      if (connectionError) {
+        throw new DAOConnectionException("connection lost");
+      }
+      if (failing.contains(transfer.getId()) ||
+          missing.contains(transfer.getId())) {
+        throw new DAONoDataException("update failed");
+      }
+      written.add(transfer);
+    }
+
+    @Override
+    public boolean exist(final long id, final String requester,
+                         final String requested, final String owner) {
+      return !missing.contains(id);
+    }
+
+    @Override
+    public void close() {
+      // Nothing to close
+    }
+  }
+
+  private RecordingDAO dao;
+  private RunnerStateJournal journal;
+
+  @Before
+  public void setUp() throws Exception {
+    dao = new RecordingDAO();
+    // No background flush during the tests
+    journal = new RunnerStateJournal(3600000) {
+      @Override
+      protected TransferDAO getTransferDAO() {
+        return dao;
+      }
+    };
+  }
+
+  @After
+  public void tearDown() {
+    journal.close();
+  }
+
+  private static Transfer newTransfer(final long id) {
+    return new Transfer(id, "rule", 1, "file", "file", "info", false, 1024,
+                        false, "me", "me", "other", "{}",
+                        Transfer.TASKSTEP.TRANSFERTASK,
+                        Transfer.TASKSTEP.PRETASK, 0, ErrorCode.Running,
+                        ErrorCode.Running, 0, new Timestamp(1000),
+                        new Timestamp(2000), UpdatedInfo.RUNNING);
+  }
+
+  @Test
+  public void testCoalescing() {
+    final Transfer transfer = newTransfer(1);
+    final Transfer other = newTransfer(2);
+    transfer.setRank(1);
+    assertTrue(journal.offer(transfer, true));
+    transfer.setRank(2);
+    assertTrue(journal.offer(transfer, false));
+    transfer.setRank(3);
+    assertTrue(journal.offer(transfer, true));
+    assertTrue(journal.offer(other, true));
+    assertEquals(2, journal.size());
+    // Later changes of the live transfer are not seen by the journal
+    transfer.setRank(4);
+
+    journal.flush();
+    assertEquals(0, journal.size());
+    assertEquals(2, dao.written.size());
+    // Full update kept once coalesced with rank updates
+    assertEquals(Boolean.FALSE, dao.batches.get(0));
+    assertEquals(Boolean.TRUE, dao.batches.get(1));
+    assertEquals(1, dao.written.get(0).getId());
+    assertEquals(3, dao.written.get(0).getRank());
+    assertNotSame(transfer, dao.written.get(0));
+    assertEquals(2, dao.written.get(1).getId());
+  }
+
+  @Test
+  public void testWriteNowSupersedesPending() throws Exception {
+    final Transfer transfer = newTransfer(1);
+    transfer.setRank(1);
+    journal.offer(transfer, true);
+    transfer.setRank(2);
+    journal.writeNow(transfer);
+    assertEquals(0, journal.size());
+    journal.flush();
+    assertEquals(1, dao.written.size());
+    assertSame(transfer, dao.written.get(0));
+  }
+
+  @Test
+  public void testWriteNowDuringFailedFlush() throws Exception {
+    final Transfer transfer = newTransfer(1);
+    transfer.setRank(1);
+    journal.offer(transfer, true);
+    dao.batchStarted = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    dao.batchRelease = release;
+    final Thread flusher = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        journal.flush();
+      }
+    });
+    flusher.start();
+    dao.batchStarted.await();
+
+    final Transfer last = newTransfer(1);
+    last.setRank(2);
+    last.setUpdatedInfo(UpdatedInfo.DONE);
+    final Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          journal.writeNow(last);
+        } catch (final Exception e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+    writer.start();
+    // Wait for the writer to wait for the flush
+    while (writer.getState() != Thread.State.WAITING && writer.isAlive()) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+    flusher.join();
+    writer.join();
+
+    // The failed snapshot must not come back over the final state
+    assertEquals(0, journal.size());
+    journal.flush();
+    assertEquals(1, dao.written.size());
+    assertSame(last, dao.written.get(0));
+  }
+
+  @Test
+  public void testFlushFallbackOnBatchError() {
+    for (long id = 1; id <= 3; id++) {
+      journal.offer(newTransfer(id), false);
+    }
+    dao.batchError = true;
+    dao.missing.add(2L);
+    dao.failing.add(3L);
+
+    journal.flush();
+    // 1 written one by one, 2 dropped since deleted, 3 kept for next flush
+    assertEquals(1, dao.written.size());
+    assertEquals(1, dao.written.get(0).getId());
+    assertEquals(1, journal.size());
+
+    dao.failing.clear();
+    journal.flush();
+    assertEquals(0, journal.size());
+    assertEquals(2, dao.written.size());
+    assertEquals(3, dao.written.get(1).getId());
+  }
+
+  @Test
+  public void testRequeueOnConnectionError() {
+    final Transfer transfer = newTransfer(1);
+    journal.offer(transfer, false);
+    journal.offer(newTransfer(2), true);
+    dao.connectionError = true;
+
+    journal.flush();
+    assertEquals(2, journal.size());
+    assertTrue(dao.written.isEmpty());
+
+    // A newer rank update keeps the requeued full update
+    transfer.setRank(5);
+    journal.offer(transfer, true);
+    dao.connectionError = false;
+    journal.flush();
+    assertEquals(0, journal.size());
+    assertEquals(2, dao.written.size());
+    assertEquals(Boolean.FALSE, dao.batches.get(0));
+    assertEquals(5, dao.written.get(0).getRank());
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.waarp.openr66.protocol.configuration;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.digest.FilesystemBasedDigest.DigestAlgo;
+import org.waarp.common.utility.TestWatcherJunit4;
+
+import static org.junit.Assert.*;
+
+public class PartnerConfigurationTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private final DigestAlgo digest = Configuration.configuration.getDigest();
+
+  @After
+  public void tearDown() {
+    Configuration.configuration.setDigest(digest);
+    Configuration.configuration.setGlobalDigestAlgo(null);
+  }
+
+  @Test
+  public void testGlobalDigestAlgo() {
+    Configuration.configuration.setDigest(DigestAlgo.MD5);
+    assertEquals(DigestAlgo.MD5,
+                 Configuration.configuration.getGlobalDigestAlgo());
+    // A block checksum is never used as end of transfer hash by default
+    Configuration.configuration.setDigest(DigestAlgo.CRC32C);
+    assertEquals(DigestAlgo.SHA256,
+                 Configuration.configuration.getGlobalDigestAlgo());
+    Configuration.configuration.setGlobalDigestAlgo(DigestAlgo.SHA512);
+    assertEquals(DigestAlgo.SHA512,
+                 Configuration.configuration.getGlobalDigestAlgo());
+
+    final PartnerConfiguration self = new PartnerConfiguration("self");
+    assertEquals(DigestAlgo.CRC32C, self.getDigestAlgo());
+    assertTrue(self.useGlobalDigestAlgo());
+    assertEquals(DigestAlgo.SHA512, self.getGlobalDigestAlgo());
+
+    // As received from a partner
+    final PartnerConfiguration partner =
+        new PartnerConfiguration("partner", self.toString());
+    assertEquals(DigestAlgo.CRC32C, partner.getDigestAlgo());
+    assertTrue(partner.useGlobalDigestAlgo());
+    assertEquals(DigestAlgo.SHA512, partner.getGlobalDigestAlgo());
+  }
+
+  @Test
+  public void testGlobalDigestAlgoOlderPartner() {
+    final PartnerConfiguration partner = new PartnerConfiguration(
+        "partner", "3.0.12 {\"DIGESTALGO\":\"SHA-1\"}");
+    assertEquals(DigestAlgo.SHA1, partner.getDigestAlgo());
+    assertFalse(partner.useGlobalDigestAlgo());
+    assertEquals(DigestAlgo.SHA1, partner.getGlobalDigestAlgo());
+  }
+}
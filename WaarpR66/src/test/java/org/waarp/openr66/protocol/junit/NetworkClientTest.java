@@ -26,6 +26,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.exec.ExecuteException;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.util.EntityUtils;
@@ -36,6 +39,8 @@ import org.apache.thrift.transport.TSocket;
 import org.apache.thrift.transport.TTransport;
 import org.apache.thrift.transport.TTransportException;
 import org.apache.tools.ant.Project;
+import org.dom4j.Document;
+import org.dom4j.io.SAXReader;
 import org.junit.AfterClass;
 import org.junit.Assume;
 import org.junit.BeforeClass;
@@ -47,11 +52,13 @@ import org.junit.runners.MethodSorters;
 import org.waarp.common.crypto.HmacSha256;
 import org.waarp.common.database.DbConstant;
 import org.waarp.common.database.DbPreparedStatement;
+import org.waarp.common.database.DbSession;
 import org.waarp.common.database.exception.WaarpDatabaseException;
 import org.waarp.common.database.exception.WaarpDatabaseNoConnectionException;
 import org.waarp.common.database.exception.WaarpDatabaseNoDataException;
 import org.waarp.common.database.exception.WaarpDatabaseSqlException;
 import org.waarp.common.digest.FilesystemBasedDigest;
+import org.waarp.common.file.DirInterface;
 import org.waarp.common.file.FileUtils;
 import org.waarp.common.json.JsonHandler;
 import org.waarp.common.role.RoleDefault;
@@ -76,6 +83,7 @@ import org.waarp.openr66.context.R66Result;
 import org.waarp.openr66.context.task.test.TestExecJavaTask;
 import org.waarp.openr66.dao.BusinessDAO;
 import org.waarp.openr66.dao.DAOFactory;
+import org.waarp.openr66.dao.TransferDAO;
 import org.waarp.openr66.dao.exception.DAOConnectionException;
 import org.waarp.openr66.dao.exception.DAONoDataException;
 import org.waarp.openr66.database.DbConstantR66;
@@ -83,6 +91,8 @@ import org.waarp.openr66.database.data.DbHostAuth;
 import org.waarp.openr66.database.data.DbRule;
 import org.waarp.openr66.database.data.DbTaskRunner;
 import org.waarp.openr66.pojo.Business;
+import org.waarp.openr66.pojo.Transfer;
+import org.waarp.openr66.pojo.UpdatedInfo;
 import org.waarp.openr66.protocol.configuration.Configuration;
 import org.waarp.openr66.protocol.configuration.Messages;
 import org.waarp.openr66.protocol.http.restv2.resthandlers.RestHandlerHook;
@@ -103,6 +113,7 @@ import org.waarp.openr66.protocol.localhandler.packet.json.JsonPacket;
 import org.waarp.openr66.protocol.localhandler.packet.json.LogJsonPacket;
 import org.waarp.openr66.protocol.localhandler.packet.json.ShutdownOrBlockJsonPacket;
 import org.waarp.openr66.protocol.localhandler.packet.json.StopOrCancelJsonPacket;
+import org.waarp.openr66.protocol.networkhandler.NetworkTransaction;
 import org.waarp.openr66.protocol.test.TestBusinessRequest;
 import org.waarp.openr66.protocol.test.TestProgressBarTransfer;
 import org.waarp.openr66.protocol.test.TestRecvThroughClient;
@@ -111,6 +122,7 @@ import org.waarp.openr66.protocol.test.TestSendThroughClient;
 import org.waarp.openr66.protocol.test.TestTasks;
 import org.waarp.openr66.protocol.test.TestTransaction;
 import org.waarp.openr66.protocol.test.TestTransferNoDb;
+import org.waarp.openr66.protocol.utils.NbAndSpecialId;
 import org.waarp.openr66.protocol.utils.R66Future;
 import org.waarp.openr66.server.R66Server;
 import org.waarp.thrift.r66.Action;
@@ -119,6 +131,7 @@ import org.waarp.thrift.r66.R66Service;
 import org.waarp.thrift.r66.RequestMode;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.SocketAddress;
@@ -129,6 +142,7 @@ import java.util.List;
 import java.util.Map.Entry;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.*;
 
@@ -463,6 +477,28 @@ public class NetworkClientTest extends TestAbstract {
           .isStillRunning(request.getFromuid(), request.getDestuid(),
                           request.getTid()));
 
+      // Batch of one transfer, one information and one unsupported request
+      final R66Request batchTransfer = new R66Request(RequestMode.ASYNCTRANSFER);
+      batchTransfer.setDestuid("hostas");
+      batchTransfer.setFromuid("hostas");
+      batchTransfer.setRule("rule3");
+      batchTransfer.setFile("testTask.txt");
+      batchTransfer.setInfo("Submitted by batch from Thrift");
+      final List<R66Request> batch = new ArrayList<R66Request>(3);
+      batch.add(batchTransfer);
+      batch.add(request);
+      batch.add(new R66Request(RequestMode.INFOFILE));
+      final List<org.waarp.thrift.r66.R66Result> results =
+          client.batchQuery(batch);
+      System.out.println("BATCH RESULT: " + results);
+      assertEquals(3, results.size());
+      assertEquals(org.waarp.thrift.r66.ErrorCode.InitOk,
+                   results.get(0).getCode());
+      assertNotEquals(tid, results.get(0).getTid());
+      assertEquals(tid, results.get(1).getTid());
+      assertEquals(org.waarp.thrift.r66.ErrorCode.Unimplemented,
+                   results.get(2).getCode());
+
       // Wrong request
       request = new R66Request(RequestMode.INFOFILE);
 
@@ -676,6 +712,46 @@ public class NetworkClientTest extends TestAbstract {
               NUMBER_FILES * 1000 / (timestop - timestart));
   }
 
+  @Test
+  public void test5_MultipleRecvThroughClientMultipleChannels()
+      throws IOException, InterruptedException {
+    logger.warn("Start Test of Multiple Recv Through on several channels");
+    final int networkChannels =
+        Configuration.configuration.getNetworkChannelsPerPartner();
+    Configuration.configuration.setNetworkChannelsPerPartner(3);
+    try {
+      final File totest =
+          generateOutFile("/tmp/R66/out/testTask.txt", 100000);
+      final int NUMBER_FILES = 10;
+      final ArrayList<R66Future> futures =
+          new ArrayList<R66Future>(NUMBER_FILES);
+      final ExecutorService executorService =
+          Executors.newFixedThreadPool(NUMBER_FILES);
+      final TestRecvThroughHandler handler = new TestRecvThroughHandler();
+      for (int i = 0; i < NUMBER_FILES; i++) {
+        final R66Future future = new R66Future(true);
+        futures.add(future);
+        final TestRecvThroughClient transaction =
+            new TestRecvThroughClient(future, handler, "hostas",
+                                      "testTask.txt", "rule6",
+                                      "Test Multiple RecvThrough Channels",
+                                      true, 8192, networkTransaction);
+        executorService.execute(transaction);
+      }
+      executorService.shutdown();
+      for (int i = 0; i < NUMBER_FILES; i++) {
+        final R66Future future = futures.remove(0);
+        future.awaitOrInterruptible();
+        assertTrue(future.isSuccess());
+      }
+      logger.warn("{}", NetworkTransaction.hashStatus());
+      totest.delete();
+    } finally {
+      Configuration.configuration
+          .setNetworkChannelsPerPartner(networkChannels);
+    }
+  }
+
   @Test
   public void test5_DirectTransfer() throws Exception {
     final File totest = generateOutFile("/tmp/R66/out/testTask.txt", 10);
@@ -807,6 +883,137 @@ public class NetworkClientTest extends TestAbstract {
     assertEquals("Errors should be 0", 0, error);
   }
 
+  @Test
+  public void test5_DirectTransferMetrics() throws Exception {
+    final File totest = generateOutFile("/tmp/R66/out/testTask.txt", 10);
+    final boolean metrics = Configuration.configuration.isMetricsEnabled();
+    Configuration.configuration.setMetricsEnabled(true);
+    CloseableHttpClient httpClient = null;
+    try {
+      final R66Future future = new R66Future(true);
+      final TestTransferNoDb transaction =
+          new TestTransferNoDb(future, "hostas", "testTask.txt", "rule3",
+                               "Test SendDirect Metrics", true, 8192,
+                               DbConstantR66.ILLEGALVALUE, networkTransaction);
+      transaction.run();
+      future.awaitOrInterruptible();
+      if (future.getRunner() != null) {
+        dbTaskRunners.add(future.getRunner());
+      }
+      assertTrue("Transfer should be OK", future.isSuccess());
+      httpClient = HttpClientBuilder.create().setConnectionManagerShared(true)
+                                    .disableAutomaticRetries().build();
+      final HttpGet request =
+          new HttpGet("http://127.0.0.1:8088/v2/metrics");
+      final CloseableHttpResponse response = httpClient.execute(request);
+      try {
+        assertEquals(200, response.getStatusLine().getStatusCode());
+        final String content = EntityUtils.toString(response.getEntity());
+        logger.warn("Metrics: {}", content);
+        assertTrue(content.contains("# TYPE r66_transfers_total counter"));
+        assertTrue(content.contains("r66_transfers_total{rule=\"rule3\""));
+        assertTrue(content.contains("r66_task_step_seconds_count"));
+        assertTrue(content.contains("r66_dao_seconds"));
+      } finally {
+        response.close();
+      }
+    } finally {
+      Configuration.configuration.setMetricsEnabled(metrics);
+      if (httpClient != null) {
+        httpClient.close();
+      }
+      totest.delete();
+    }
+  }
+
+  @Test
+  public void test5_RestBatchTransfers() throws Exception {
+    final List<Transfer> created = new ArrayList<Transfer>();
+    CloseableHttpClient httpClient = null;
+    try {
+      httpClient = HttpClientBuilder.create().setConnectionManagerShared(true)
+                                    .disableAutomaticRetries().build();
+      // Far in the future so that they are not run
+      final StringBuilder body = new StringBuilder("[");
+      for (int i = 0; i < 3; i++) {
+        if (i > 0) {
+          body.append(',');
+        }
+        body.append("{\"ruleName\":\"rule3\",\"filename\":")
+            .append("\"testRestBatch.txt\",\"requested\":\"hostas\",")
+            .append("\"fileInfo\":\"Rest batch\",")
+            .append("\"start\":\"2100-01-01T00:00:00+00:00\"}");
+      }
+      body.append(']');
+      final HttpPost post = new HttpPost("http://127.0.0.1:8088/v2/transfers");
+      post.setEntity(
+          new StringEntity(body.toString(), ContentType.APPLICATION_JSON));
+      CloseableHttpResponse response = httpClient.execute(post);
+      try {
+        assertEquals(201, response.getStatusLine().getStatusCode());
+        final ObjectNode node = JsonHandler
+            .getFromString(EntityUtils.toString(response.getEntity()));
+        assertEquals(3, node.get("totalResults").asInt());
+        for (final JsonNode transfer : node.get("results")) {
+          final Transfer pojo = new Transfer();
+          pojo.setId(transfer.get("id").asLong());
+          pojo.setRequester(transfer.get("requester").asText());
+          pojo.setRequested(transfer.get("requested").asText());
+          pojo.setOwnerRequest(Configuration.configuration.getHostId());
+          created.add(pojo);
+        }
+      } finally {
+        response.close();
+      }
+
+      // Keyset pagination
+      final List<Long> ids = new ArrayList<Long>();
+      String after = "";
+      for (int page = 0; page < 2; page++) {
+        final HttpGet get = new HttpGet(
+            "http://127.0.0.1:8088/v2/transfers?limit=2&order=descId" +
+            "&filename=testRestBatch.txt" + after);
+        response = httpClient.execute(get);
+        try {
+          assertEquals(200, response.getStatusLine().getStatusCode());
+          final ObjectNode node = JsonHandler
+              .getFromString(EntityUtils.toString(response.getEntity()));
+          for (final JsonNode transfer : node.get("results")) {
+            ids.add(transfer.get("id").asLong());
+          }
+          if (page == 0) {
+            assertEquals(2, node.get("totalResults").asInt());
+            after = "&after=" + node.get("nextCursor").asText();
+          } else {
+            assertEquals(1, node.get("totalResults").asInt());
+            assertNull(node.get("nextCursor"));
+          }
+        } finally {
+          response.close();
+        }
+      }
+      assertEquals(3, ids.size());
+      for (int i = 0; i < 3; i++) {
+        assertEquals(created.get(2 - i).getId(), (long) ids.get(i));
+      }
+    } finally {
+      if (httpClient != null) {
+        httpClient.close();
+      }
+      TransferDAO transferDAO = null;
+      try {
+        transferDAO = DAOFactory.getInstance().getTransferDAO();
+        for (final Transfer transfer : created) {
+          transferDAO.delete(transferDAO
+              .select(transfer.getId(), transfer.getRequester(),
+                      transfer.getRequested(), transfer.getOwnerRequest()));
+        }
+      } finally {
+        DAOFactory.closeDAO(transferDAO);
+      }
+    }
+  }
+
   @Test
   public void test5_DirectTransferNoFollowCheck() throws Exception {
     final File totest = generateOutFile("/tmp/R66/out/testTask.txt", 10);
@@ -2161,6 +2368,76 @@ public class NetworkClientTest extends TestAbstract {
     totest.delete();
   }
 
+  @Test
+  public void test95_ArchiveAndPurgeByChunks() throws Exception {
+    final DbSession session = DbConstantR66.admin.getSession();
+    // Transfers of this test only: stopped long before any real one
+    final long archiveTime = 1000000000000L;
+    final long purgeTime = archiveTime + 86400000L;
+    final Timestamp stop = new Timestamp(archiveTime + 1000);
+    final File archive = new File(
+        Configuration.configuration.getBaseDirectory() +
+        Configuration.configuration.getArchivePath() + DirInterface.SEPARATOR +
+        "runners_test.xml.gz");
+    archive.delete();
+    insertDoneTransfers(7, archiveTime);
+    final NbAndSpecialId archived =
+        DbTaskRunner.archiveLogByChunks(session, stop, 3, archive.getPath());
+    logger.warn("Archived {} transfers", archived.nb);
+    assertEquals(7, archived.nb);
+    assertTrue(archive.exists());
+    final SAXReader reader = new SAXReader();
+    final GZIPInputStream inputStream =
+        new GZIPInputStream(new FileInputStream(archive));
+    try {
+      final Document document = reader.read(inputStream);
+      assertEquals(archived.nb, document.getRootElement().elements().size());
+    } finally {
+      inputStream.close();
+    }
+    archive.delete();
+    // Nothing left to archive
+    assertEquals(0, DbTaskRunner
+        .archiveLogByChunks(session, stop, 3, archive.getPath()).nb);
+    assertFalse(archive.exists());
+
+    // Purge by chunks the finished transfers of this test
+    final Timestamp purgeStart = new Timestamp(purgeTime);
+    final Timestamp purgeStop = new Timestamp(purgeTime + 1000);
+    final int chunk = Configuration.configuration.getPurgeChunkSize();
+    Configuration.configuration.setPurgeChunkSize(2);
+    try {
+      insertDoneTransfers(5, purgeTime);
+      final int purged = DbTaskRunner
+          .purgeLogPrepareStatement(session, purgeStart, purgeStop);
+      logger.warn("Purged {} transfers", purged);
+      assertEquals(5, purged);
+      assertEquals(0, DbTaskRunner
+          .purgeLogPrepareStatement(session, purgeStart, purgeStop));
+    } finally {
+      Configuration.configuration.setPurgeChunkSize(chunk);
+    }
+  }
+
+  private void insertDoneTransfers(final int nb, final long time)
+      throws Exception {
+    final TransferDAO transferDAO = DAOFactory.getInstance().getTransferDAO();
+    try {
+      for (int i = 0; i < nb; i++) {
+        final Transfer transfer =
+            new Transfer("hostas", "rule3", 1, false, "archive" + i, "info",
+                         65536);
+        transfer.setGlobalStep(Transfer.TASKSTEP.ALLDONETASK);
+        transfer.setStart(new Timestamp(time));
+        transfer.setStop(new Timestamp(time));
+        transfer.setUpdatedInfo(UpdatedInfo.DONE);
+        transferDAO.insert(transfer);
+      }
+    } finally {
+      DAOFactory.closeDAO(transferDAO);
+    }
+  }
+
   @Test
   public void test96_Tasks() throws Exception {
     System.err.println("Start Tasks");
@@ -0,0 +1,149 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.localhandler;
+
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.utility.TestWatcherJunit4;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class SendWindowTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private EmbeddedChannel channel;
+
+  @Before
+  public void setUp() {
+    channel = new EmbeddedChannel();
+  }
+
+  @After
+  public void tearDown() {
+    channel.finishAndReleaseAll();
+  }
+
+  private ChannelPromise newPromise() {
+    return new DefaultChannelPromise(channel);
+  }
+
+  /**
+   * Acquire in another thread, since it waits while the window is full
+   */
+  private static Thread acquireLater(final SendWindow window, final int size,
+                                    final AtomicBoolean running,
+                                    final AtomicBoolean acquired) {
+    final Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        acquired.set(window.acquire(size, running));
+      }
+    });
+    thread.start();
+    return thread;
+  }
+
+  @Test
+  public void testBlocksLimit() throws InterruptedException {
+    final SendWindow window = new SendWindow(null, 2, 0);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final ChannelPromise first = newPromise();
+    final ChannelPromise second = newPromise();
+    assertTrue(window.acquire(100, running));
+    window.register(first, 100);
+    assertTrue(window.acquire(100, running));
+    window.register(second, 100);
+    // Window full: waits for one write to be done
+    final AtomicBoolean acquired = new AtomicBoolean();
+    final Thread thread = acquireLater(window, 100, running, acquired);
+    thread.join(200);
+    assertTrue(thread.isAlive());
+    first.setSuccess();
+    thread.join(5000);
+    assertFalse(thread.isAlive());
+    assertTrue(acquired.get());
+    final ChannelPromise third = newPromise();
+    window.register(third, 100);
+    second.setSuccess();
+    third.setSuccess();
+    assertTrue(window.awaitAll(running));
+    assertFalse(window.isFailed());
+  }
+
+  @Test
+  public void testBytesLimit() throws InterruptedException {
+    final SendWindow window = new SendWindow(null, 10, 150);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    // At least one block is always allowed, even larger than the limit
+    assertTrue(window.acquire(200, running));
+    final ChannelPromise first = newPromise();
+    window.register(first, 200);
+    final AtomicBoolean acquired = new AtomicBoolean();
+    final Thread thread = acquireLater(window, 100, running, acquired);
+    thread.join(200);
+    assertTrue(thread.isAlive());
+    first.setSuccess();
+    thread.join(5000);
+    assertTrue(acquired.get());
+    final ChannelPromise second = newPromise();
+    window.register(second, 100);
+    // 100 + 50 within the limit
+    assertTrue(window.acquire(50, running));
+    final ChannelPromise third = newPromise();
+    window.register(third, 50);
+    second.setSuccess();
+    third.setSuccess();
+    assertTrue(window.awaitAll(running));
+  }
+
+  @Test
+  public void testFailureAndStop() throws InterruptedException {
+    final SendWindow window = new SendWindow(null, 1, 0);
+    final AtomicBoolean running = new AtomicBoolean(true);
+    assertTrue(window.acquire(100, running));
+    final ChannelPromise first = newPromise();
+    window.register(first, 100);
+    // Stopped while waiting
+    final AtomicBoolean acquired = new AtomicBoolean(true);
+    final Thread thread = acquireLater(window, 100, running, acquired);
+    thread.join(200);
+    assertTrue(thread.isAlive());
+    running.set(false);
+    thread.join(5000);
+    assertFalse(thread.isAlive());
+    assertFalse(acquired.get());
+    running.set(true);
+    // Write in error: window closed
+    first.setFailure(new IOException("write error"));
+    assertTrue(window.isFailed());
+    assertFalse(window.acquire(100, running));
+    assertFalse(window.awaitAll(running));
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.protocol.localhandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.openr66.context.ErrorCode;
+import org.waarp.openr66.pojo.Transfer;
+import org.waarp.openr66.pojo.Transfer.TASKSTEP;
+import org.waarp.openr66.pojo.UpdatedInfo;
+import org.waarp.openr66.protocol.configuration.Configuration;
+
+import java.sql.Timestamp;
+
+import static org.junit.Assert.*;
+
+public class TransferStatisticsTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private String hostId;
+  private long delay;
+
+  @Before
+  public void setUp() {
+    hostId = Configuration.configuration.getHostId();
+    delay = Configuration.configuration.getMonitoringReconciliationDelay();
+    Configuration.configuration.setHostId("server1");
+    Configuration.configuration.setMonitoringReconciliationDelay(1000);
+  }
+
+  @After
+  public void tearDown() {
+    Configuration.configuration.setHostId(hostId);
+    Configuration.configuration.setMonitoringReconciliationDelay(delay);
+  }
+
+  private static Transfer newTransfer(final long id, final String owner,
+                                      final long start) {
+    return new Transfer(id, "rule", 1, "file", "file", "fileinfo", false,
+                        65536, false, owner, "server1", "server2", "{}",
+                        TASKSTEP.TRANSFERTASK, TASKSTEP.PRETASK, 0,
+                        ErrorCode.Running, ErrorCode.InitOk, 0,
+                        new Timestamp(start), new Timestamp(start),
+                        UpdatedInfo.RUNNING);
+  }
+
+  @Test
+  public void testTransitions() {
+    final TransferStatistics statistics = new TransferStatistics();
+    final long limit = System.currentTimeMillis() - 10000;
+    final long[] values = new long[TransferStatistics.SIZE];
+    values[TransferStatistics.info(UpdatedInfo.DONE.ordinal())] = 10;
+    values[TransferStatistics.OUT_TOTAL] = 10;
+    statistics.endReconciliation(limit, values);
+    assertEquals(10, statistics
+        .get(TransferStatistics.info(UpdatedInfo.DONE.ordinal())));
+
+    final Transfer transfer = newTransfer(1, "server1", limit + 1);
+    statistics.changed(transfer);
+    assertEquals(1, statistics
+        .get(TransferStatistics.info(UpdatedInfo.RUNNING.ordinal())));
+    assertEquals(1, statistics.get(TransferStatistics.OUT_ACTIVE));
+    assertEquals(11, statistics.get(TransferStatistics.OUT_TOTAL));
+    assertEquals(0, statistics.get(TransferStatistics.IN_TOTAL));
+    assertEquals(1, statistics.get(TransferStatistics.ALL_RUNNING));
+    assertEquals(1, statistics.get(
+        TransferStatistics.step(TASKSTEP.TRANSFERTASK.getTaskNo())));
+    assertEquals(1, statistics
+        .get(TransferStatistics.runningStatus(ErrorCode.Running)));
+    assertEquals(1,
+                 statistics.get(TransferStatistics.status(ErrorCode.InitOk)));
+
+    // Same transfer, new state
+    transfer.setUpdatedInfo(UpdatedInfo.INERROR);
+    transfer.setGlobalStep(TASKSTEP.ERRORTASK);
+    transfer.setInfoStatus(ErrorCode.ConnectionImpossible);
+    statistics.changed(transfer);
+    assertEquals(0, statistics
+        .get(TransferStatistics.info(UpdatedInfo.RUNNING.ordinal())));
+    assertEquals(1, statistics
+        .get(TransferStatistics.info(UpdatedInfo.INERROR.ordinal())));
+    assertEquals(0, statistics.get(TransferStatistics.OUT_ACTIVE));
+    assertEquals(1, statistics.get(TransferStatistics.OUT_ERROR));
+    assertEquals(11, statistics.get(TransferStatistics.OUT_TOTAL));
+    assertEquals(0, statistics.get(TransferStatistics.ALL_RUNNING));
+    assertEquals(0, statistics.get(
+        TransferStatistics.step(TASKSTEP.TRANSFERTASK.getTaskNo())));
+    assertEquals(1, statistics.get(
+        TransferStatistics.step(TASKSTEP.ERRORTASK.getTaskNo())));
+    assertEquals(0,
+                 statistics.get(TransferStatistics.status(ErrorCode.InitOk)));
+    assertEquals(1, statistics.get(
+        TransferStatistics.status(ErrorCode.ConnectionImpossible)));
+
+    // Not owned or out of the time window: not counted
+    statistics.changed(newTransfer(2, "server2", limit + 1));
+    statistics.changed(newTransfer(3, "server1", limit - 1));
+    assertEquals(0, statistics.get(TransferStatistics.ALL_RUNNING));
+    assertEquals(11, statistics.get(TransferStatistics.OUT_TOTAL));
+
+    statistics.removed(transfer);
+    assertEquals(0, statistics.get(TransferStatistics.OUT_ERROR));
+    assertEquals(10, statistics.get(TransferStatistics.OUT_TOTAL));
+    assertEquals(0, statistics.get(TransferStatistics.STEP_ALL));
+  }
+
+  @Test
+  public void testReconciliation() {
+    final TransferStatistics statistics = new TransferStatistics();
+    assertFalse(statistics.isReconciled());
+    final Transfer transfer = newTransfer(1, "server1", 1000);
+    statistics.changed(transfer);
+    // Counted before the end of the reconciliation: part of its result
+    statistics.changed(newTransfer(2, "server1", 1000));
+    final long[] values = new long[TransferStatistics.SIZE];
+    values[TransferStatistics.ALL_RUNNING] = 2;
+    statistics.endReconciliation(0, values);
+    assertTrue(statistics.isReconciled());
+    assertEquals(2, statistics.get(TransferStatistics.ALL_RUNNING));
+    // Changed after: added to its result
+    statistics.changed(newTransfer(3, "server1", 1000));
+    assertEquals(3, statistics.get(TransferStatistics.ALL_RUNNING));
+    statistics.removed(transfer);
+    assertEquals(2, statistics.get(TransferStatistics.ALL_RUNNING));
+    // Unknown result of the reconciliation: never below 0
+    statistics.endReconciliation(0, new long[TransferStatistics.SIZE]);
+    statistics.removed(newTransfer(2, "server1", 1000));
+    statistics.removed(newTransfer(3, "server1", 1000));
+    assertEquals(0, statistics.get(TransferStatistics.ALL_RUNNING));
+    statistics.invalidate();
+    assertFalse(statistics.isReconciled());
+  }
+
+  @Test
+  public void testSameRowTwoInstances() {
+    final TransferStatistics statistics = new TransferStatistics();
+    statistics.endReconciliation(0, new long[TransferStatistics.SIZE]);
+    final Transfer first = newTransfer(1, "server1", 1000);
+    statistics.changed(first);
+    assertEquals(1, statistics.get(TransferStatistics.ALL_RUNNING));
+    // Second instance of the same row, as read again from the database
+    final Transfer second = new Transfer(first);
+    statistics.loaded(second);
+
+    first.setUpdatedInfo(UpdatedInfo.DONE);
+    first.setGlobalStep(TASKSTEP.ALLDONETASK);
+    first.setStepStatus(ErrorCode.CompleteOk);
+    first.setInfoStatus(ErrorCode.CompleteOk);
+    statistics.changed(first);
+    second.setUpdatedInfo(UpdatedInfo.INERROR);
+    second.setGlobalStep(TASKSTEP.ERRORTASK);
+    second.setInfoStatus(ErrorCode.ConnectionImpossible);
+    statistics.changed(second);
+    // The row moved RUNNING -> DONE -> INERROR, counted once
+    assertEquals(0, statistics.get(TransferStatistics.ALL_RUNNING));
+    assertEquals(0, statistics
+        .get(TransferStatistics.info(UpdatedInfo.RUNNING.ordinal())));
+    assertEquals(0, statistics
+        .get(TransferStatistics.info(UpdatedInfo.DONE.ordinal())));
+    assertEquals(1, statistics
+        .get(TransferStatistics.info(UpdatedInfo.INERROR.ordinal())));
+    assertEquals(1, statistics.get(TransferStatistics.OUT_TOTAL));
+    assertEquals(1, statistics.get(TransferStatistics.STEP_ALL));
+
+    // Deleted through both instances: removed once
+    statistics.removed(first);
+    statistics.removed(second);
+    assertEquals(0, statistics.get(TransferStatistics.OUT_TOTAL));
+    assertEquals(0, statistics.get(TransferStatistics.STEP_ALL));
+    for (int i = 0; i < TransferStatistics.SIZE; i++) {
+      assertEquals(0, statistics.get(i));
+    }
+  }
+
+  @Test
+  public void testDisabled() {
+    Configuration.configuration.setMonitoringReconciliationDelay(0);
+    final TransferStatistics statistics = new TransferStatistics();
+    statistics.endReconciliation(0, new long[TransferStatistics.SIZE]);
+    final Transfer transfer = newTransfer(1, "server1", 1000);
+    statistics.changed(transfer);
+    assertEquals(0, statistics.get(TransferStatistics.ALL_RUNNING));
+    // Not remembered while disabled
+    Configuration.configuration.setMonitoringReconciliationDelay(1000);
+    statistics.removed(transfer);
+    assertEquals(0, statistics.get(TransferStatistics.ALL_RUNNING));
+  }
+}
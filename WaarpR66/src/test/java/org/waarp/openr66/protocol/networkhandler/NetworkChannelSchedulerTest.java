@@ -0,0 +1,102 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.waarp.openr66.protocol.networkhandler;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.openr66.protocol.localhandler.packet.LocalPacketFactory;
+import org.waarp.openr66.protocol.networkhandler.packet.NetworkPacket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NetworkChannelSchedulerTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private static NetworkPacket packet(final int localId) {
+    return new NetworkPacket(localId, 0, LocalPacketFactory.DATAPACKET,
+                             Unpooled.buffer(1).writeByte(1));
+  }
+
+  @Test
+  public void testWeightedRoundRobin() {
+    final EmbeddedChannel channel = new EmbeddedChannel();
+    final NetworkChannelScheduler scheduler =
+        new NetworkChannelScheduler(channel);
+    // Hold writes until all packets are queued
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+    final List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+    for (int i = 0; i < 6; i++) {
+      futures.add(scheduler.submit(1, 2, packet(1)));
+    }
+    for (int i = 0; i < 3; i++) {
+      futures.add(scheduler.submit(2, 1, packet(2)));
+    }
+    assertEquals(2, scheduler.getWaitingLocalChannels());
+    assertNull(channel.readOutbound());
+
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+    scheduler.drain();
+    final StringBuilder order = new StringBuilder();
+    NetworkPacket written;
+    while ((written = channel.readOutbound()) != null) {
+      order.append(written.getLocalId());
+      written.clear();
+    }
+    assertEquals("112112112", order.toString());
+    assertEquals(0, scheduler.getWaitingLocalChannels());
+    for (final ChannelFuture future : futures) {
+      assertTrue(future.isSuccess());
+    }
+    channel.finishAndReleaseAll();
+  }
+
+  @Test
+  public void testClosedChannelFailsWaitingPackets() {
+    final EmbeddedChannel channel = new EmbeddedChannel();
+    final NetworkChannelScheduler scheduler =
+        new NetworkChannelScheduler(channel);
+    channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+    final ChannelFuture future = scheduler.submit(1, 1, packet(1));
+    assertFalse(future.isDone());
+    channel.close();
+    scheduler.drain();
+    assertTrue(future.isDone());
+    assertFalse(future.isSuccess());
+    assertEquals(0, scheduler.getWaitingLocalChannels());
+  }
+
+  @Test
+  public void testCheckWeight() {
+    assertEquals(1, NetworkChannelScheduler.checkWeight(0));
+    assertEquals(3, NetworkChannelScheduler.checkWeight(3));
+    assertEquals(NetworkChannelScheduler.MAX_WEIGHT,
+                 NetworkChannelScheduler.checkWeight(100));
+  }
+}
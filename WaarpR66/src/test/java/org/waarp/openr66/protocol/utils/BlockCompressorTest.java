@@ -0,0 +1,151 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.waarp.openr66.protocol.utils;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.common.utility.WaarpStringUtils;
+import org.waarp.openr66.protocol.exception.OpenR66ProtocolPacketException;
+import org.waarp.openr66.protocol.localhandler.packet.DataPacket;
+import org.waarp.openr66.protocol.localhandler.packet.LocalPacketCodec;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BlockCompressorTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private static byte[] textBlock() {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      builder.append(i).append(";name").append(i % 7).append(";value\n");
+    }
+    return builder.toString().getBytes(WaarpStringUtils.UTF8);
+  }
+
+  @Test
+  public void testCompressDecompress() throws Exception {
+    final byte[] block = textBlock();
+    final byte[] compressed = BlockCompressor.compress(block, 0, block.length, 6);
+    assertNotNull(compressed);
+    assertTrue(compressed.length < block.length / 3);
+    final ByteBuf result = BlockCompressor
+        .decompress(BlockCompressor.DEFLATE, Unpooled.wrappedBuffer(compressed),
+                    block.length, block.length);
+    final byte[] bytes = new byte[result.readableBytes()];
+    result.readBytes(bytes);
+    assertArrayEquals(block, bytes);
+    // Direct buffers too
+    final ByteBuf direct = Unpooled.directBuffer(block.length);
+    direct.writeBytes(block);
+    assertArrayEquals(compressed, BlockCompressor.compress(direct, 6));
+    direct.release();
+  }
+
+  @Test
+  public void testIncompressibleBlock() {
+    final byte[] block = new byte[4096];
+    new Random(1).nextBytes(block);
+    assertNull(BlockCompressor.compress(block, 0, block.length, 9));
+    assertNull(BlockCompressor.compress(block, 0, 0, 9));
+  }
+
+  @Test
+  public void testCorruptedBlock() {
+    final byte[] block = textBlock();
+    final byte[] compressed = BlockCompressor.compress(block, 0, block.length, 1);
+    try {
+      BlockCompressor.decompress(BlockCompressor.DEFLATE,
+                                 Unpooled.wrappedBuffer(compressed),
+                                 block.length - 1, block.length);
+      fail("Should raise an exception");
+    } catch (final OpenR66ProtocolPacketException e) {
+      // ok
+    }
+    try {
+      BlockCompressor.decompress((byte) 42, Unpooled.wrappedBuffer(compressed),
+                                 block.length, block.length);
+      fail("Should raise an exception");
+    } catch (final OpenR66ProtocolPacketException e) {
+      // ok
+    }
+  }
+
+  @Test
+  public void testBlockSizeLimit() throws Exception {
+    // A tiny packet announcing a huge block is refused before allocation
+    final byte[] zeros = new byte[1024 * 1024];
+    final byte[] compressed = BlockCompressor.compress(zeros, 0, zeros.length, 9);
+    assertTrue(compressed.length < 2048);
+    try {
+      BlockCompressor.decompress(BlockCompressor.DEFLATE,
+                                 Unpooled.wrappedBuffer(compressed),
+                                 zeros.length, 65536);
+      fail("Should raise an exception");
+    } catch (final OpenR66ProtocolPacketException e) {
+      // ok
+    }
+    final DataPacket sent =
+        new DataPacket(1, compressed, null, BlockCompressor.DEFLATE,
+                       zeros.length);
+    final ByteBuf buf = sent.getLocalPacket(null);
+    final DataPacket received =
+        (DataPacket) LocalPacketCodec.decodeNetworkPacket(buf);
+    buf.release();
+    try {
+      received.uncompress(65536);
+      fail("Should raise an exception");
+    } catch (final OpenR66ProtocolPacketException e) {
+      // ok
+    }
+    assertNull(received.getRecvData());
+    received.clear();
+  }
+
+  @Test
+  public void testCompressedDataPacket() throws Exception {
+    final byte[] block = textBlock();
+    final byte[] key = { 1, 2, 3 };
+    final byte[] compressed = BlockCompressor.compress(block, 0, block.length, 6);
+    final DataPacket sent =
+        new DataPacket(12, compressed, key, BlockCompressor.DEFLATE,
+                       block.length);
+    final ByteBuf buf = sent.getLocalPacket(null);
+    final DataPacket received =
+        (DataPacket) LocalPacketCodec.decodeNetworkPacket(buf);
+    buf.release();
+    assertEquals(12, received.getPacketRank());
+    assertEquals(block.length, received.getLengthPacket());
+    assertArrayEquals(key, received.getKey());
+    received.uncompress(block.length);
+    final byte[] data = new byte[received.getLengthPacket()];
+    received.createByteBufFromRecv(data);
+    assertTrue(Arrays.equals(block, received.getData()));
+    received.clear();
+  }
+}
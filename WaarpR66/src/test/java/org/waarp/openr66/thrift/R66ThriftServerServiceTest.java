@@ -0,0 +1,128 @@
+/*
+ * This file is part of Waarp Project (named also Waarp or GG).
+ *
+ *  Copyright (c) 2019, Waarp SAS, and individual contributors by the @author
+ *  tags. See the COPYRIGHT.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ *  All Waarp Project is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at your
+ * option) any later version.
+ *
+ * Waarp is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with
+ * Waarp . If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.waarp.openr66.thrift;
+
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.transport.TFramedTransport;
+import org.apache.thrift.transport.TSocket;
+import org.apache.thrift.transport.TTransport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestWatcher;
+import org.waarp.common.future.WaarpFuture;
+import org.waarp.common.utility.TestWatcherJunit4;
+import org.waarp.openr66.protocol.configuration.Configuration;
+import org.waarp.thrift.r66.ErrorCode;
+import org.waarp.thrift.r66.R66Request;
+import org.waarp.thrift.r66.R66Result;
+import org.waarp.thrift.r66.R66Service;
+import org.waarp.thrift.r66.RequestMode;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class R66ThriftServerServiceTest {
+  @Rule(order = Integer.MIN_VALUE)
+  public TestWatcher watchman = new TestWatcherJunit4();
+
+  private static int freePort() throws IOException {
+    final ServerSocket socket = new ServerSocket(0);
+    try {
+      return socket.getLocalPort();
+    } finally {
+      socket.close();
+    }
+  }
+
+  @Test
+  public void testNonBlockingServerWithIdleClients()
+      throws IOException, TException {
+    final int port = freePort();
+    final R66ThriftServerService service =
+        new R66ThriftServerService(new WaarpFuture(true), port, 2);
+    final Thread thread = new Thread(service, "R66ThriftServerServiceTest");
+    thread.setDaemon(true);
+    thread.start();
+    final List<TTransport> transports = new ArrayList<TTransport>();
+    try {
+      assertTrue(service.awaitInitialization());
+      // More idle clients than workers
+      for (int i = 0; i < 20; i++) {
+        final TTransport transport =
+            new TFramedTransport(new TSocket("localhost", port));
+        transport.open();
+        transports.add(transport);
+      }
+      for (final TTransport transport : transports) {
+        final R66Service.Client client =
+            new R66Service.Client(new TBinaryProtocol(transport));
+        // Not enough arguments
+        assertFalse(client.isStillRunning(null, null, 0));
+      }
+      final R66Service.Client client =
+          new R66Service.Client(new TBinaryProtocol(transports.get(0)));
+      final List<R66Request> batch = new ArrayList<R66Request>();
+      batch.add(new R66Request(RequestMode.INFOFILE));
+      batch.add(new R66Request(RequestMode.INFOFILE));
+      final List<R66Result> results = client.batchQuery(batch);
+      assertEquals(2, results.size());
+      for (final R66Result result : results) {
+        assertEquals(RequestMode.INFOFILE, result.getMode());
+        assertEquals(ErrorCode.Unimplemented, result.getCode());
+      }
+      assertTrue(client.batchQuery(new ArrayList<R66Request>()).isEmpty());
+    } finally {
+      for (final TTransport transport : transports) {
+        transport.close();
+      }
+      service.releaseResources();
+    }
+  }
+
+  @Test
+  public void testBatchTooLarge() throws TException {
+    final int max = Configuration.configuration.getThriftBatchMax();
+    Configuration.configuration.setThriftBatchMax(2);
+    try {
+      final R66EmbeddedServiceImpl service = new R66EmbeddedServiceImpl(1000);
+      final List<R66Request> batch = new ArrayList<R66Request>();
+      batch.add(new R66Request(RequestMode.INFOFILE));
+      batch.add(new R66Request(RequestMode.INFOFILE));
+      List<R66Result> results = service.batchQuery(batch);
+      assertEquals(2, results.size());
+      assertEquals(ErrorCode.Unimplemented, results.get(0).getCode());
+      // One request more than allowed: the whole batch is rejected
+      batch.add(new R66Request(RequestMode.INFOFILE));
+      results = service.batchQuery(batch);
+      assertEquals(3, results.size());
+      for (final R66Result result : results) {
+        assertEquals(RequestMode.INFOFILE, result.getMode());
+        assertEquals(ErrorCode.Internal, result.getCode());
+      }
+    } finally {
+      Configuration.configuration.setThriftBatchMax(max);
+    }
+  }
+}
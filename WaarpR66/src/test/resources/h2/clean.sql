@@ -2,6 +2,7 @@ DROP SEQUENCE runseq;
 DROP TABLE runner;
 DROP TABLE rules;
 DROP TABLE multiplemonitor;
+DROP TABLE cacheversion;
 DROP TABLE hosts;
 DROP TABLE hostconfig;
 DROP TABLE configuration;
@@ -10,6 +10,15 @@ CREATE TABLE multiplemonitor (
     hostid VARCHAR(8096) PRIMARY KEY
 );
 
+--
+-- Name: cacheversion; Type: TABLE; Schema: public;
+--
+
+CREATE TABLE cacheversion (
+    name VARCHAR(8096) PRIMARY KEY,
+    versioncount integer NOT NULL
+);
+
 --
 -- Name: configuration; Type: TABLE; Schema: public;
 --
@@ -102,6 +111,7 @@ CREATE TABLE runner (
     requester VARCHAR(8096) NOT NULL,
     requested VARCHAR(8096) NOT NULL,
     specialid bigint NOT NULL,
+    followid VARCHAR(8096),
     PRIMARY KEY (ownerreq, requester, requested, specialid)
 );
 
@@ -123,4 +133,6 @@ CREATE INDEX idx_runner ON runner (
   starttrans, ownerreq, stepstatus, updatedinfo, globalstep, infostatus,
   specialid);
 
+CREATE INDEX idx_runner_followid ON runner (followid);
+
 
@@ -2,6 +2,7 @@ DROP TABLE Sequences;
 DROP TABLE runner;
 DROP TABLE rules;
 DROP TABLE multiplemonitor;
+DROP TABLE cacheversion;
 DROP TABLE hosts;
 DROP TABLE hostconfig;
 DROP TABLE configuration;
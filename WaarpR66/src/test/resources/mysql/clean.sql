@@ -2,6 +2,7 @@ DROP TABLE configuration;
 DROP TABLE hostconfig;
 DROP TABLE hosts;
 DROP TABLE multiplemonitor;
+DROP TABLE cacheversion;
 DROP TABLE rules;
 DROP TABLE runner;
 DROP TABLE Sequences;
\ No newline at end of file
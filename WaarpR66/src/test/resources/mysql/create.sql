@@ -59,6 +59,12 @@ CREATE TABLE multiplemonitor (
     PRIMARY KEY (hostid)
 );
 
+CREATE TABLE cacheversion (
+    name character varying(255) NOT NULL,
+    versioncount integer NOT NULL,
+    PRIMARY KEY (name)
+);
+
 --
 -- Name: rules; Type: TABLE;
 --
@@ -108,9 +114,12 @@ CREATE TABLE runner (
     requester character varying(255) NOT NULL,
     requested character varying(255) NOT NULL,
     specialid bigint NOT NULL,
+    followid character varying(255),
     PRIMARY KEY (ownerreq, requester, requested, specialid)
 );
 
+CREATE INDEX idx_runner_followid ON runner (followid);
+
 CREATE TABLE Sequences (name VARCHAR(22) NOT NULL PRIMARY KEY, seq BIGINT NOT NULL);
 
 INSERT INTO Sequences (name, seq) VALUES ('RUNSEQ', 1);
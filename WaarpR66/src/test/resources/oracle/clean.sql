@@ -3,5 +3,6 @@ DROP TABLE configuration PURGE;
 DROP TABLE hostconfig PURGE;
 DROP TABLE hosts PURGE;
 DROP TABLE multiplemonitor PURGE;
+DROP TABLE cacheversion PURGE;
 DROP TABLE rules PURGE;
 DROP TABLE runner PURGE;
\ No newline at end of file
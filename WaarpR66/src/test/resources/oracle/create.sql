@@ -53,6 +53,11 @@ CREATE TABLE multiplemonitor (
     hostid VARCHAR(1500) NOT NULL
 );
 
+CREATE TABLE cacheversion (
+    name VARCHAR(1500) NOT NULL PRIMARY KEY,
+    versioncount NUMBER NOT NULL
+);
+
 --
 -- Name: rules; Type: TABLE; Schema: public;
 --
@@ -100,7 +105,8 @@ CREATE TABLE runner (
     ownerreq VARCHAR(1500) NOT NULL,
     requester VARCHAR(1500) NOT NULL,
     requested VARCHAR(1500) NOT NULL,
-    specialid NUMBER NOT NULL
+    specialid NUMBER NOT NULL,
+    followid VARCHAR(1000)
 );
 
 --
@@ -160,4 +166,6 @@ ALTER TABLE rules
 --
 
 ALTER TABLE runner
-    ADD CONSTRAINT runner_pk PRIMARY KEY (ownerreq, requester, requested, specialid);
\ No newline at end of file
+    ADD CONSTRAINT runner_pk PRIMARY KEY (ownerreq, requester, requested, specialid);
+
+CREATE INDEX idx_runner_followid ON runner (followid);
\ No newline at end of file
@@ -59,19 +59,19 @@ INSERT INTO runner VALUES (5, 0, 0, 0, 'C  ', 1, 'data/server1/log/client.log',
 'data/server1/log/client.log', 'noinfo', '{"ORIGINALSIZE":18391}', 1,
 TO_TIMESTAMP('2018-06-27 14:31:37.738','YYYY-MM-DD HH24:MI:SS.FF'),
 TO_TIMESTAMP('2018-06-27 14:31:58.042', 'YYYY-MM-DD HH24:MI:SS.FF'), 'C  ', 5, 'server1', 'server1', 'server2',
--9223372036854775807);
+-9223372036854775807, NULL);
 INSERT INTO runner VALUES (5, 0, 0, 0, 'C  ', 1, 'data/server1/log/client.log', 0, 'default', 65536,
 'data/server1/log/client.log', 'noinfo', '{"ORIGINALSIZE":52587}', 1,
 TO_TIMESTAMP('2018-06-20 14:36:00.116','YYYY-MM-DD HH24:MI:SS.FF'),
 TO_TIMESTAMP('2018-06-20 14:36:20.374','YYYY-MM-DD HH24:MI:SS.FF'), 'C  ', 4, 'server1', 'server1', 'server2',
--9223372036854775806);
+-9223372036854775806, NULL);
 INSERT INTO runner VALUES (5, 0, 0, 0, 'C  ', 1, 'tintin', 0, 'tintin', 65536,
 'tintin', 'noinfo','{"ORIGINALSIZE":-1}', 1,
 TO_TIMESTAMP('2018-06-22 14:39:01.28','YYYY-MM-DD HH24:MI:SS.FF'),
 TO_TIMESTAMP('2018-06-22 14:39:21.518','YYYY-MM-DD HH24:MI:SS.FF'),
-'C  ', 4, 'server1', 'server1', 'server2', -9223372036854775805);
+'C  ', 4, 'server1', 'server1', 'server2', -9223372036854775805, NULL);
 INSERT INTO runner VALUES (5, 0, 0, 0, 'C  ', 1, 'tintin', 0, 'default', 65536,
 'tintin', 'noinfo', '{"ORIGINALSIZE":-1}', 1,
 TO_TIMESTAMP('2018-06-24 14:39:01.28','YYYY-MM-DD HH24:MI:SS.FF'),
 TO_TIMESTAMP('2018-06-24 14:39:21.518','YYYY-MM-DD HH24:MI:SS.FF'),
-'C  ', 4, 'server1', 'server1', 'server2', 0);
\ No newline at end of file
+'C  ', 4, 'server1', 'server1', 'server2', 0, NULL);
\ No newline at end of file
@@ -2,6 +2,7 @@ DROP SEQUENCE public.runseq;
 DROP TABLE public.runner;
 DROP TABLE public.rules;
 DROP TABLE public.multiplemonitor;
+DROP TABLE public.cacheversion;
 DROP TABLE public.hosts;
 DROP TABLE public.hostconfig;
 DROP TABLE public.configuration;
@@ -53,6 +53,11 @@ CREATE TABLE public.multiplemonitor (
     hostid character varying(8096) NOT NULL
 );
 
+CREATE TABLE public.cacheversion (
+    name character varying(8096) NOT NULL PRIMARY KEY,
+    versioncount integer NOT NULL
+);
+
 --
 -- Name: rules; Type: TABLE; Schema: public;
 --
@@ -100,7 +105,8 @@ CREATE TABLE public.runner (
     ownerreq character varying(8096) NOT NULL,
     requester character varying(8096) NOT NULL,
     requested character varying(8096) NOT NULL,
-    specialid bigint NOT NULL
+    specialid bigint NOT NULL,
+    followid character varying(8096)
 );
 
 --
@@ -168,3 +174,5 @@ ALTER TABLE ONLY public.runner
 
 CREATE INDEX idx_runner ON public.runner USING btree (starttrans, ownerreq, stepstatus, updatedinfo, globalstep, infostatus, specialid);
 
+CREATE INDEX idx_runner_followid ON public.runner USING btree (followid);
+
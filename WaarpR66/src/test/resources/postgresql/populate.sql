@@ -55,8 +55,8 @@ INSERT INTO public.rules VALUES ('<hostids></hostids>', 3, '/in', '/out', '/arch
 -- Data for Name: runner; Type: TABLE DATA; Schema: public; Owner: waarp
 --
 
-INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'data/server1/log/client.log', false, 'default', 65536, 'data/server1/log/client.log', 'noinfo', '{"ORIGINALSIZE":18391}', 1, '2018-06-27 14:31:37.738', '2018-06-27 14:31:58.042', 'C  ', 5, 'server1', 'server1', 'server2', -9223372036854775807);
-INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'data/server1/log/client.log', false, 'default', 65536, 'data/server1/log/client.log', 'noinfo', '{"ORIGINALSIZE":52587}', 1, '2018-06-20 14:36:00.116', '2018-06-20 14:36:20.374', 'C  ', 4, 'server1', 'server1', 'server2', -9223372036854775806);
-INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'tintin', false, 'tintin', 65536, 'tintin', 'noinfo', '{"ORIGINALSIZE":-1}', 1, '2018-06-22 14:39:01.28', '2018-06-22 14:39:21.518', 'C  ', 4, 'server1', 'server1', 'server2', -9223372036854775805);
-INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'tintin', false, 'default', 65536, 'tintin', 'noinfo', '{"ORIGINALSIZE":-1}', 1, '2018-06-24 14:39:01.28', '2018-06-24 14:39:21.518', 'C  ', 4, 'server1', 'server1', 'server2', 0);
+INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'data/server1/log/client.log', false, 'default', 65536, 'data/server1/log/client.log', 'noinfo', '{"ORIGINALSIZE":18391}', 1, '2018-06-27 14:31:37.738', '2018-06-27 14:31:58.042', 'C  ', 5, 'server1', 'server1', 'server2', -9223372036854775807, NULL);
+INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'data/server1/log/client.log', false, 'default', 65536, 'data/server1/log/client.log', 'noinfo', '{"ORIGINALSIZE":52587}', 1, '2018-06-20 14:36:00.116', '2018-06-20 14:36:20.374', 'C  ', 4, 'server1', 'server1', 'server2', -9223372036854775806, NULL);
+INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'tintin', false, 'tintin', 65536, 'tintin', 'noinfo', '{"ORIGINALSIZE":-1}', 1, '2018-06-22 14:39:01.28', '2018-06-22 14:39:21.518', 'C  ', 4, 'server1', 'server1', 'server2', -9223372036854775805, NULL);
+INSERT INTO public.runner VALUES (5, 0, 0, 0, 'C  ', true, 'tintin', false, 'default', 65536, 'tintin', 'noinfo', '{"ORIGINALSIZE":-1}', 1, '2018-06-24 14:39:01.28', '2018-06-24 14:39:21.518', 'C  ', 4, 'server1', 'server1', 'server2', 0, NULL);
 
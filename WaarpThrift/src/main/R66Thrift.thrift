@@ -272,4 +272,7 @@ service R66Service {
 	bool isStillRunning(1:string fromuid, 2:string touid, 3:i64 tid);
 	// Request on Files: INFOFILE
 	list<string> infoListQuery(1:R66Request request);
+	// Batch of SYNCTRANSFER, ASYNCTRANSFER or INFOREQUEST, one result per
+	// request in the same order
+	list<R66Result> batchQuery(1:list<R66Request> requests);
 }
@@ -92,6 +92,8 @@ public class R66Service {
 
     List<String> infoListQuery(R66Request request) throws TException;
 
+    List<R66Result> batchQuery(List<R66Request> requests) throws TException;
+
   }
 
   public interface AsyncIface {
@@ -112,6 +114,10 @@ public class R66Service {
                        AsyncMethodCallback<AsyncClient.infoListQuery_call> resultHandler)
         throws TException;
 
+    void batchQuery(List<R66Request> requests,
+                    AsyncMethodCallback<AsyncClient.batchQuery_call> resultHandler)
+        throws TException;
+
   }
 
   public static class Client extends TServiceClient implements Iface {
@@ -119,6 +125,7 @@ public class R66Service {
     private static final String IS_STILL_RUNNING = "isStillRunning";
     private static final String INFO_TRANSFER_QUERY = "infoTransferQuery";
     private static final String INFO_LIST_QUERY = "infoListQuery";
+    private static final String BATCH_QUERY = "batchQuery";
 
     public static class Factory implements TServiceClientFactory<Client> {
       public Factory() {
@@ -242,6 +249,30 @@ public class R66Service {
                                       "infoListQuery failed: unknown result");
     }
 
+    @Override
+    public List<R66Result> batchQuery(final List<R66Request> requests)
+        throws TException {
+      send_batchQuery(requests);
+      return recv_batchQuery();
+    }
+
+    public void send_batchQuery(final List<R66Request> requests)
+        throws TException {
+      final batchQuery_args args = new batchQuery_args();
+      args.setRequests(requests);
+      sendBase(BATCH_QUERY, args);
+    }
+
+    public List<R66Result> recv_batchQuery() throws TException {
+      final batchQuery_result result = new batchQuery_result();
+      receiveBase(result, BATCH_QUERY);
+      if (result.isSetSuccess()) {
+        return result.success;
+      }
+      throw new TApplicationException(TApplicationException.MISSING_RESULT,
+                                      "batchQuery failed: unknown result");
+    }
+
   }
 
   public static class AsyncClient extends TAsyncClient implements AsyncIface {
@@ -470,6 +501,54 @@ public class R66Service {
       }
     }
 
+    @Override
+    public void batchQuery(final List<R66Request> requests,
+                           final AsyncMethodCallback<batchQuery_call> resultHandler)
+        throws TException {
+      checkReady();
+      final batchQuery_call batchQueryCall =
+          new batchQuery_call(requests, resultHandler, this,
+                              ___protocolFactory, ___transport);
+      ___currentMethod = batchQueryCall;
+      ___manager.call(batchQueryCall);
+    }
+
+    public static class batchQuery_call
+        extends TAsyncMethodCall<batchQuery_call> {
+      private final List<R66Request> requests;
+
+      public batchQuery_call(final List<R66Request> requests,
+                             final AsyncMethodCallback<batchQuery_call> resultHandler,
+                             final TAsyncClient client,
+                             final TProtocolFactory protocolFactory,
+                             final TNonblockingTransport transport)
+          throws TException {
+        super(client, protocolFactory, transport, resultHandler, false);
+        this.requests = requests;
+      }
+
+      @Override
+      public void write_args(final TProtocol prot) throws TException {
+        prot.writeMessageBegin(
+            new TMessage("batchQuery", TMessageType.CALL, 0));
+        final batchQuery_args args = new batchQuery_args();
+        args.setRequests(requests);
+        args.write(prot);
+        prot.writeMessageEnd();
+      }
+
+      public List<R66Result> getResult() throws TException {
+        if (getState() != State.RESPONSE_READ) {
+          throw new IllegalStateException("Method call not finished!");
+        }
+        final TMemoryInputTransport memoryTransport =
+            new TMemoryInputTransport(getFrameBuffer().array());
+        final TProtocol prot =
+            client.getProtocolFactory().getProtocol(memoryTransport);
+        return new Client(prot).recv_batchQuery();
+      }
+    }
+
   }
 
   public static class Processor<I extends Iface> extends TBaseProcessor<I> {
@@ -494,6 +573,8 @@ public class R66Service {
                      (ProcessFunction<I, ? extends TBase>) new isStillRunning<Iface>());
       processMap.put("infoListQuery",
                      (ProcessFunction<I, ? extends TBase>) new infoListQuery<Iface>());
+      processMap.put("batchQuery",
+                     (ProcessFunction<I, ? extends TBase>) new batchQuery<Iface>());
       return processMap;
     }
 
@@ -604,6 +685,32 @@ public class R66Service {
       }
     }
 
+    public static class batchQuery<I extends Iface>
+        extends ProcessFunction<I, batchQuery_args> {
+      public batchQuery() {
+        super("batchQuery");
+      }
+
+      @Override
+      public batchQuery_args getEmptyArgsInstance() {
+        return new batchQuery_args();
+      }
+
+      @Override
+      protected boolean isOneway() {
+        return false;
+      }
+
+      @Override
+      public batchQuery_result getResult(final I iface,
+                                         final batchQuery_args args)
+          throws TException {
+        final batchQuery_result result = new batchQuery_result();
+        result.success = iface.batchQuery(args.requests);
+        return result;
+      }
+    }
+
   }
 
   public static class transferRequestQuery_args implements
@@ -4138,4 +4245,915 @@ public class R66Service {
 
   }
 
+  public static class batchQuery_args
+      implements TBase<batchQuery_args, batchQuery_args._Fields>,
+                 Cloneable {
+    /**
+     *
+     */
+    private static final long serialVersionUID = -2391283436552097611L;
+
+    private static final TStruct STRUCT_DESC =
+        new TStruct("batchQuery_args");
+
+    private static final TField REQUESTS_FIELD_DESC =
+        new TField("requests", TType.LIST, (short) 1);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes =
+        new HashMap<Class<? extends IScheme>, SchemeFactory>();
+
+    static {
+      schemes.put(StandardScheme.class,
+                  new batchQuery_argsStandardSchemeFactory());
+      schemes
+          .put(TupleScheme.class, new batchQuery_argsTupleSchemeFactory());
+    }
+
+    private List<R66Request> requests; // required
+
+    @Override
+    public batchQuery_args clone() throws CloneNotSupportedException {
+      return (batchQuery_args) super.clone();
+    }
+
+    /**
+     * The set of fields this struct contains, along with convenience
+     * methods
+     * for finding and manipulating them.
+     */
+    public enum _Fields implements TFieldIdEnum {
+      REQUESTS((short) 1, "requests");
+
+      private static final Map<String, _Fields> byName =
+          new HashMap<String, _Fields>();
+
+      static {
+        for (final _Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its
+       * not
+       * found.
+       */
+      public static _Fields findByThriftId(final int fieldId) {
+        if (fieldId == 1) { // REQUESTS
+          return REQUESTS;
+        }
+        return null;
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an
+       * exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(final int fieldId) {
+        final _Fields fields = findByThriftId(fieldId);
+        if (fields == null) {
+          throw new IllegalArgumentException(
+              "Field " + fieldId + " doesn't exist!");
+        }
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not
+       * found.
+       */
+      public static _Fields findByName(final String name) {
+        return byName.get(name);
+      }
+
+      private final short thriftId;
+      private final String fieldName;
+
+      _Fields(final short thriftId, final String fieldName) {
+        this.thriftId = thriftId;
+        this.fieldName = fieldName;
+      }
+
+      @Override
+      public short getThriftFieldId() {
+        return thriftId;
+      }
+
+      @Override
+      public String getFieldName() {
+        return fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, FieldMetaData> metaDataMap;
+
+    static {
+      final Map<_Fields, FieldMetaData> tmpMap =
+          new EnumMap<_Fields, FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.REQUESTS,
+                 new FieldMetaData("requests", TFieldRequirementType.DEFAULT,
+                                   new ListMetaData(TType.LIST,
+                                                    new StructMetaData(
+                                                        TType.STRUCT,
+                                                        R66Request.class))));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      FieldMetaData.addStructMetaDataMap(batchQuery_args.class, metaDataMap);
+    }
+
+    public batchQuery_args() {
+    }
+
+    public batchQuery_args(final List<R66Request> requests) {
+      this();
+      this.requests = requests;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public batchQuery_args(final batchQuery_args other) {
+      if (other.isSetRequests()) {
+        final List<R66Request> copy =
+            new ArrayList<R66Request>(other.requests.size());
+        for (final R66Request other_element : other.requests) {
+          copy.add(new R66Request(other_element));
+        }
+        requests = copy;
+      }
+    }
+
+    @Override
+    public batchQuery_args deepCopy() {
+      return new batchQuery_args(this);
+    }
+
+    @Override
+    public void clear() {
+      requests = null;
+    }
+
+    public int getRequestsSize() {
+      return requests == null? 0 : requests.size();
+    }
+
+    public Iterator<R66Request> getRequestsIterator() {
+      return requests == null? null : requests.iterator();
+    }
+
+    public void addToRequests(final R66Request elem) {
+      if (requests == null) {
+        requests = new ArrayList<R66Request>();
+      }
+      requests.add(elem);
+    }
+
+    public List<R66Request> getRequests() {
+      return requests;
+    }
+
+    public batchQuery_args setRequests(final List<R66Request> requests) {
+      this.requests = requests;
+      return this;
+    }
+
+    public void unsetRequests() {
+      requests = null;
+    }
+
+    /**
+     * Returns true if field requests is set (has been assigned a value) and
+     * false otherwise
+     */
+    public boolean isSetRequests() {
+      return requests != null;
+    }
+
+    public void setRequestsIsSet(final boolean value) {
+      if (!value) {
+        requests = null;
+      }
+    }
+
+    @Override
+    public void setFieldValue(final _Fields field, final Object value) {
+      if (field == _Fields.REQUESTS) {
+        if (value == null) {
+          unsetRequests();
+        } else {
+          setRequests((List<R66Request>) value);
+        }
+      }
+    }
+
+    @Override
+    public Object getFieldValue(final _Fields field) {
+      if (field == _Fields.REQUESTS) {
+        return getRequests();
+      }
+      throw new IllegalStateException();
+    }
+
+    /**
+     * Returns true if field corresponding to fieldID is set (has been
+     * assigned
+     * a value) and false otherwise
+     */
+    @Override
+    public boolean isSet(final _Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      if (field == _Fields.REQUESTS) {
+        return isSetRequests();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+      if (that == null) {
+        return false;
+      }
+      if (that instanceof batchQuery_args) {
+        return equals((batchQuery_args) that);
+      }
+      return false;
+    }
+
+    public boolean equals(final batchQuery_args that) {
+      if (that == null) {
+        return false;
+      }
+
+      final boolean this_present_requests = isSetRequests();
+      final boolean that_present_requests = that.isSetRequests();
+      if (this_present_requests || that_present_requests) {
+        if (!(this_present_requests && that_present_requests)) {
+          return false;
+        }
+        return requests.equals(that.requests);
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(final batchQuery_args other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison;
+
+      lastComparison =
+          Boolean.valueOf(isSetRequests()).compareTo(other.isSetRequests());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetRequests()) {
+        lastComparison = TBaseHelper.compareTo(requests, other.requests);
+        return lastComparison;
+      }
+      return 0;
+    }
+
+    @Override
+    public _Fields fieldForId(final int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    @Override
+    public void read(final TProtocol iprot) throws TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    @Override
+    public void write(final TProtocol oprot) throws TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder("batchQuery_args(");
+      sb.append("requests:");
+      if (requests == null) {
+        sb.append("null");
+      } else {
+        sb.append(requests);
+      }
+      sb.append(')');
+      return sb.toString();
+    }
+
+    public void validate() throws TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+      try {
+        write(new TCompactProtocol(new TIOStreamTransport(out)));
+      } catch (final TException te) {
+        throw new IOException(te);
+      }
+    }
+
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+      try {
+        read(new TCompactProtocol(new TIOStreamTransport(in)));
+      } catch (final TException te) {
+        throw new IOException(te);
+      }
+    }
+
+    private static class batchQuery_argsStandardSchemeFactory
+        implements SchemeFactory {
+      @Override
+      public batchQuery_argsStandardScheme getScheme() {
+        return new batchQuery_argsStandardScheme();
+      }
+    }
+
+    private static class batchQuery_argsStandardScheme
+        extends StandardScheme<batchQuery_args> {
+
+      @Override
+      public void read(final TProtocol iprot, final batchQuery_args struct)
+          throws TException {
+        TField schemeField;
+        iprot.readStructBegin();
+        while (true) {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == TType.STOP) {
+            break;
+          }
+          if (schemeField.id == 1) { // REQUESTS
+            if (schemeField.type == TType.LIST) {
+              {
+                final TList list = iprot.readListBegin();
+                struct.requests = new ArrayList<R66Request>(list.size);
+                for (int i = 0; i < list.size; ++i) {
+                  final R66Request elem = new R66Request();
+                  elem.read(iprot);
+                  struct.requests.add(elem);
+                }
+                iprot.readListEnd();
+              }
+              struct.setRequestsIsSet(true);
+            } else {
+              TProtocolUtil.skip(iprot, schemeField.type);
+            }
+          } else {
+            TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the
+        // validate method
+        struct.validate();
+      }
+
+      @Override
+      public void write(final TProtocol oprot, final batchQuery_args struct)
+          throws TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.requests != null) {
+          oprot.writeFieldBegin(REQUESTS_FIELD_DESC);
+          {
+            oprot.writeListBegin(
+                new TList(TType.STRUCT, struct.requests.size()));
+            for (final R66Request iter : struct.requests) {
+              iter.write(oprot);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class batchQuery_argsTupleSchemeFactory
+        implements SchemeFactory {
+      @Override
+      public batchQuery_argsTupleScheme getScheme() {
+        return new batchQuery_argsTupleScheme();
+      }
+    }
+
+    private static class batchQuery_argsTupleScheme
+        extends TupleScheme<batchQuery_args> {
+
+      @Override
+      public void write(final TProtocol prot, final batchQuery_args struct)
+          throws TException {
+        final TTupleProtocol oprot = (TTupleProtocol) prot;
+        final BitSet optionals = new BitSet();
+        if (struct.isSetRequests()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetRequests()) {
+          {
+            oprot.writeI32(struct.requests.size());
+            for (final R66Request iter : struct.requests) {
+              iter.write(oprot);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void read(final TProtocol prot, final batchQuery_args struct)
+          throws TException {
+        final TTupleProtocol iprot = (TTupleProtocol) prot;
+        final BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          {
+            final TList list = new TList(TType.STRUCT, iprot.readI32());
+            struct.requests = new ArrayList<R66Request>(list.size);
+            for (int i = 0; i < list.size; ++i) {
+              final R66Request elem = new R66Request();
+              elem.read(iprot);
+              struct.requests.add(elem);
+            }
+          }
+          struct.setRequestsIsSet(true);
+        }
+      }
+    }
+
+  }
+
+  public static class batchQuery_result
+      implements TBase<batchQuery_result, batchQuery_result._Fields>,
+                 Cloneable {
+    /**
+     *
+     */
+    private static final long serialVersionUID = 4827712308165218790L;
+
+    private static final TStruct STRUCT_DESC =
+        new TStruct("batchQuery_result");
+
+    private static final TField SUCCESS_FIELD_DESC =
+        new TField("success", TType.LIST, (short) 0);
+
+    private static final Map<Class<? extends IScheme>, SchemeFactory> schemes =
+        new HashMap<Class<? extends IScheme>, SchemeFactory>();
+
+    static {
+      schemes.put(StandardScheme.class,
+                  new batchQuery_resultStandardSchemeFactory());
+      schemes
+          .put(TupleScheme.class, new batchQuery_resultTupleSchemeFactory());
+    }
+
+    private List<R66Result> success; // required
+
+    @Override
+    public batchQuery_result clone() throws CloneNotSupportedException {
+      return (batchQuery_result) super.clone();
+    }
+
+    /**
+     * The set of fields this struct contains, along with convenience
+     * methods
+     * for finding and manipulating them.
+     */
+    public enum _Fields implements TFieldIdEnum {
+      SUCCESS((short) 0, SUCCESS3);
+
+      private static final Map<String, _Fields> byName =
+          new HashMap<String, _Fields>();
+
+      static {
+        for (final _Fields field : EnumSet.allOf(_Fields.class)) {
+          byName.put(field.getFieldName(), field);
+        }
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, or null if its
+       * not
+       * found.
+       */
+      public static _Fields findByThriftId(final int fieldId) {
+        if (fieldId == 0) { // SUCCESS
+          return SUCCESS;
+        }
+        return null;
+      }
+
+      /**
+       * Find the _Fields constant that matches fieldId, throwing an
+       * exception
+       * if it is not found.
+       */
+      public static _Fields findByThriftIdOrThrow(final int fieldId) {
+        final _Fields fields = findByThriftId(fieldId);
+        if (fields == null) {
+          throw new IllegalArgumentException(
+              "Field " + fieldId + " doesn't exist!");
+        }
+        return fields;
+      }
+
+      /**
+       * Find the _Fields constant that matches name, or null if its not
+       * found.
+       */
+      public static _Fields findByName(final String name) {
+        return byName.get(name);
+      }
+
+      private final short thriftId;
+      private final String fieldName;
+
+      _Fields(final short thriftId, final String fieldName) {
+        this.thriftId = thriftId;
+        this.fieldName = fieldName;
+      }
+
+      @Override
+      public short getThriftFieldId() {
+        return thriftId;
+      }
+
+      @Override
+      public String getFieldName() {
+        return fieldName;
+      }
+    }
+
+    // isset id assignments
+    public static final Map<_Fields, FieldMetaData> metaDataMap;
+
+    static {
+      final Map<_Fields, FieldMetaData> tmpMap =
+          new EnumMap<_Fields, FieldMetaData>(_Fields.class);
+      tmpMap.put(_Fields.SUCCESS,
+                 new FieldMetaData("success", TFieldRequirementType.DEFAULT,
+                                   new ListMetaData(TType.LIST,
+                                                    new StructMetaData(
+                                                        TType.STRUCT,
+                                                        R66Result.class))));
+      metaDataMap = Collections.unmodifiableMap(tmpMap);
+      FieldMetaData
+          .addStructMetaDataMap(batchQuery_result.class, metaDataMap);
+    }
+
+    public batchQuery_result() {
+    }
+
+    public batchQuery_result(final List<R66Result> success) {
+      this();
+      this.success = success;
+    }
+
+    /**
+     * Performs a deep copy on <i>other</i>.
+     */
+    public batchQuery_result(final batchQuery_result other) {
+      if (other.isSetSuccess()) {
+        final List<R66Result> copy =
+            new ArrayList<R66Result>(other.success.size());
+        for (final R66Result other_element : other.success) {
+          copy.add(new R66Result(other_element));
+        }
+        success = copy;
+      }
+    }
+
+    @Override
+    public batchQuery_result deepCopy() {
+      return new batchQuery_result(this);
+    }
+
+    @Override
+    public void clear() {
+      success = null;
+    }
+
+    public int getSuccessSize() {
+      return success == null? 0 : success.size();
+    }
+
+    public Iterator<R66Result> getSuccessIterator() {
+      return success == null? null : success.iterator();
+    }
+
+    public void addToSuccess(final R66Result elem) {
+      if (success == null) {
+        success = new ArrayList<R66Result>();
+      }
+      success.add(elem);
+    }
+
+    public List<R66Result> getSuccess() {
+      return success;
+    }
+
+    public batchQuery_result setSuccess(final List<R66Result> success) {
+      this.success = success;
+      return this;
+    }
+
+    public void unsetSuccess() {
+      success = null;
+    }
+
+    /**
+     * Returns true if field success is set (has been assigned a value) and
+     * false otherwise
+     */
+    public boolean isSetSuccess() {
+      return success != null;
+    }
+
+    public void setSuccessIsSet(final boolean value) {
+      if (!value) {
+        success = null;
+      }
+    }
+
+    @Override
+    public void setFieldValue(final _Fields field, final Object value) {
+      if (field == _Fields.SUCCESS) {
+        if (value == null) {
+          unsetSuccess();
+        } else {
+          setSuccess((List<R66Result>) value);
+        }
+      }
+    }
+
+    @Override
+    public Object getFieldValue(final _Fields field) {
+      if (field == _Fields.SUCCESS) {
+        return getSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    /**
+     * Returns true if field corresponding to fieldID is set (has been
+     * assigned
+     * a value) and false otherwise
+     */
+    @Override
+    public boolean isSet(final _Fields field) {
+      if (field == null) {
+        throw new IllegalArgumentException();
+      }
+
+      if (field == _Fields.SUCCESS) {
+        return isSetSuccess();
+      }
+      throw new IllegalStateException();
+    }
+
+    @Override
+    public boolean equals(final Object that) {
+      if (that == null) {
+        return false;
+      }
+      if (that instanceof batchQuery_result) {
+        return equals((batchQuery_result) that);
+      }
+      return false;
+    }
+
+    public boolean equals(final batchQuery_result that) {
+      if (that == null) {
+        return false;
+      }
+
+      final boolean this_present_success = isSetSuccess();
+      final boolean that_present_success = that.isSetSuccess();
+      if (this_present_success || that_present_success) {
+        if (!(this_present_success && that_present_success)) {
+          return false;
+        }
+        return success.equals(that.success);
+      }
+
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return 0;
+    }
+
+    @Override
+    public int compareTo(final batchQuery_result other) {
+      if (!getClass().equals(other.getClass())) {
+        return getClass().getName().compareTo(other.getClass().getName());
+      }
+
+      int lastComparison;
+
+      lastComparison =
+          Boolean.valueOf(isSetSuccess()).compareTo(other.isSetSuccess());
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+      if (isSetSuccess()) {
+        lastComparison = TBaseHelper.compareTo(success, other.success);
+        return lastComparison;
+      }
+      return 0;
+    }
+
+    @Override
+    public _Fields fieldForId(final int fieldId) {
+      return _Fields.findByThriftId(fieldId);
+    }
+
+    @Override
+    public void read(final TProtocol iprot) throws TException {
+      schemes.get(iprot.getScheme()).getScheme().read(iprot, this);
+    }
+
+    @Override
+    public void write(final TProtocol oprot) throws TException {
+      schemes.get(oprot.getScheme()).getScheme().write(oprot, this);
+    }
+
+    @Override
+    public String toString() {
+      final StringBuilder sb = new StringBuilder("batchQuery_result(");
+      sb.append("success:");
+      if (success == null) {
+        sb.append("null");
+      } else {
+        sb.append(success);
+      }
+      sb.append(')');
+      return sb.toString();
+    }
+
+    public void validate() throws TException {
+      // check for required fields
+      // check for sub-struct validity
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+      try {
+        write(new TCompactProtocol(new TIOStreamTransport(out)));
+      } catch (final TException te) {
+        throw new IOException(te);
+      }
+    }
+
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+      try {
+        read(new TCompactProtocol(new TIOStreamTransport(in)));
+      } catch (final TException te) {
+        throw new IOException(te);
+      }
+    }
+
+    private static class batchQuery_resultStandardSchemeFactory
+        implements SchemeFactory {
+      @Override
+      public batchQuery_resultStandardScheme getScheme() {
+        return new batchQuery_resultStandardScheme();
+      }
+    }
+
+    private static class batchQuery_resultStandardScheme
+        extends StandardScheme<batchQuery_result> {
+
+      @Override
+      public void read(final TProtocol iprot, final batchQuery_result struct)
+          throws TException {
+        TField schemeField;
+        iprot.readStructBegin();
+        while (true) {
+          schemeField = iprot.readFieldBegin();
+          if (schemeField.type == TType.STOP) {
+            break;
+          }
+          if (schemeField.id == 0) { // SUCCESS
+            if (schemeField.type == TType.LIST) {
+              {
+                final TList list = iprot.readListBegin();
+                struct.success = new ArrayList<R66Result>(list.size);
+                for (int i = 0; i < list.size; ++i) {
+                  final R66Result elem = new R66Result();
+                  elem.read(iprot);
+                  struct.success.add(elem);
+                }
+                iprot.readListEnd();
+              }
+              struct.setSuccessIsSet(true);
+            } else {
+              TProtocolUtil.skip(iprot, schemeField.type);
+            }
+          } else {
+            TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          iprot.readFieldEnd();
+        }
+        iprot.readStructEnd();
+
+        // check for required fields of primitive type, which can't be checked in the
+        // validate method
+        struct.validate();
+      }
+
+      @Override
+      public void write(final TProtocol oprot,
+                        final batchQuery_result struct) throws TException {
+        struct.validate();
+
+        oprot.writeStructBegin(STRUCT_DESC);
+        if (struct.success != null) {
+          oprot.writeFieldBegin(SUCCESS_FIELD_DESC);
+          {
+            oprot
+                .writeListBegin(new TList(TType.STRUCT, struct.success.size()));
+            for (final R66Result iter : struct.success) {
+              iter.write(oprot);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+        oprot.writeFieldStop();
+        oprot.writeStructEnd();
+      }
+
+    }
+
+    private static class batchQuery_resultTupleSchemeFactory
+        implements SchemeFactory {
+      @Override
+      public batchQuery_resultTupleScheme getScheme() {
+        return new batchQuery_resultTupleScheme();
+      }
+    }
+
+    private static class batchQuery_resultTupleScheme
+        extends TupleScheme<batchQuery_result> {
+
+      @Override
+      public void write(final TProtocol prot, final batchQuery_result struct)
+          throws TException {
+        final TTupleProtocol oprot = (TTupleProtocol) prot;
+        final BitSet optionals = new BitSet();
+        if (struct.isSetSuccess()) {
+          optionals.set(0);
+        }
+        oprot.writeBitSet(optionals, 1);
+        if (struct.isSetSuccess()) {
+          {
+            oprot.writeI32(struct.success.size());
+            for (final R66Result iter : struct.success) {
+              iter.write(oprot);
+            }
+          }
+        }
+      }
+
+      @Override
+      public void read(final TProtocol prot, final batchQuery_result struct)
+          throws TException {
+        final TTupleProtocol iprot = (TTupleProtocol) prot;
+        final BitSet incoming = iprot.readBitSet(1);
+        if (incoming.get(0)) {
+          {
+            final TList list = new TList(TType.STRUCT, iprot.readI32());
+            struct.success = new ArrayList<R66Result>(list.size);
+            for (int i = 0; i < list.size; ++i) {
+              final R66Result elem = new R66Result();
+              elem.read(iprot);
+              struct.success.add(elem);
+            }
+          }
+          struct.setSuccessIsSet(true);
+        }
+      }
+    }
+
+  }
+
 }
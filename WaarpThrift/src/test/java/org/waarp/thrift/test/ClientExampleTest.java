@@ -49,6 +49,7 @@ import org.waarp.thrift.r66.R66Service.AsyncClient.transferRequestQuery_call;
 import org.waarp.thrift.r66.RequestMode;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -224,6 +225,17 @@ public class ClientExampleTest implements Runnable {
         request.setAction(Action.Exist);
         list = client.infoListQuery(request);
         System.out.println("RESULT4D: " + list);
+
+        final List<R66Request> batch = new ArrayList<R66Request>(3);
+        batch.add(request2);
+        batch.add(new R66Request(RequestMode.ASYNCTRANSFER));
+        batch.add(request);
+        final List<R66Result> results = client.batchQuery(batch);
+        System.out.println("RESULT5: " + results);
+        assertEquals(batch.size(), results.size());
+        for (int i = 0; i < batch.size(); i++) {
+          assertEquals(batch.get(i).getMode(), results.get(i).getMode());
+        }
       } catch (final TTransportException e) {
         e.printStackTrace();
         fail("Should not");
@@ -89,4 +89,21 @@ public class R66ServiceImpl implements R66Service.Iface {
     return list;
   }
 
+  @Override
+  public List<R66Result> batchQuery(List<R66Request> requests)
+      throws TException {
+    final List<R66Result> list = new ArrayList<R66Result>(requests.size());
+    for (final R66Request request : requests) {
+      switch (request.getMode()) {
+        case SYNCTRANSFER:
+        case ASYNCTRANSFER:
+          list.add(transferRequestQuery(request));
+          break;
+        default:
+          list.add(infoTransferQuery(request));
+      }
+    }
+    return list;
+  }
+
 }